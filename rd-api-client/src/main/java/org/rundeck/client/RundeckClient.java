@@ -17,22 +17,28 @@
 package org.rundeck.client;
 
 import okhttp3.Cache;
+import okhttp3.Dispatcher;
 import okhttp3.HttpUrl;
 import okhttp3.JavaNetCookieJar;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
+import okio.ByteString;
 import org.rundeck.client.api.RundeckApi;
 import org.rundeck.client.util.*;
 import retrofit2.Retrofit;
 import retrofit2.converter.jackson.JacksonConverterFactory;
 import retrofit2.converter.jaxb.JaxbConverterFactory;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
 import java.net.CookieManager;
 import java.net.CookiePolicy;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -57,6 +63,50 @@ public class RundeckClient {
     public static final String ENV_HTTP_CONN_TIMEOUT = "RD_HTTP_CONN_TIMEOUT";
     public static final String ENV_HTTP_CALL_TIMEOUT = "RD_HTTP_CALL_TIMEOUT";
     public static final String ENV_CONNECT_RETRY = "RD_CONNECT_RETRY";
+    /**
+     * Maximum number of concurrent asynchronous requests
+     */
+    public static final String ENV_HTTP_MAX_REQUESTS = "RD_HTTP_MAX_REQUESTS";
+    /**
+     * Maximum number of concurrent asynchronous requests to the server
+     */
+    public static final String ENV_HTTP_MAX_REQUESTS_PER_HOST = "RD_HTTP_MAX_REQUESTS_PER_HOST";
+    /**
+     * Directory to store password authentication sessions for reuse, if set
+     */
+    public static final String ENV_SESSION_CACHE_DIR = "RD_SESSION_CACHE_DIR";
+    /**
+     * Directory for the http response cache, if set
+     */
+    public static final String ENV_HTTP_CACHE_DIR = "RD_HTTP_CACHE_DIR";
+    /**
+     * Maximum size of the http response cache in MB
+     */
+    public static final String ENV_HTTP_CACHE_SIZE = "RD_HTTP_CACHE_SIZE";
+    /**
+     * Seconds a cached response is used before it is revalidated, default 0: always revalidate
+     */
+    public static final String ENV_HTTP_CACHE_MAX_AGE = "RD_HTTP_CACHE_MAX_AGE";
+    /**
+     * Cached endpoints and their max age, in the form {@code endpoint[=maxage],...}, see {@link
+     * HttpCacheInterceptor#parsePolicy(String, long)}. If unset, no endpoints are given a freshness policy
+     */
+    public static final String ENV_HTTP_CACHE_POLICY = "RD_HTTP_CACHE_POLICY";
+    public static final long DEFAULT_HTTP_CACHE_SIZE_MB = 50L;
+    /**
+     * Maximum number of retries of idempotent requests which fail with a transient error, 0 to disable
+     */
+    public static final String ENV_HTTP_RETRY = "RD_HTTP_RETRY";
+    /**
+     * Delay in milliseconds before the first retry, doubled for each further retry
+     */
+    public static final String ENV_HTTP_RETRY_DELAY = "RD_HTTP_RETRY_DELAY";
+    /**
+     * Maximum delay in milliseconds between retries
+     */
+    public static final String ENV_HTTP_RETRY_MAX_DELAY = "RD_HTTP_RETRY_MAX_DELAY";
+    public static final long DEFAULT_HTTP_RETRY_DELAY_MILLIS = 500L;
+    public static final long DEFAULT_HTTP_RETRY_MAX_DELAY_MILLIS = 30 * 1000L;
     /**
      * If true, allow API version to be automatically degraded when unsupported version is detected
      */
@@ -81,6 +131,17 @@ public class RundeckClient {
         Client.Logger logger;
         private String userAgent = USER_AGENT;
         private final Class<A> api;
+        private OkHttpClient httpClient;
+        private Closeable httpClientRelease;
+        private Integer maxRequests;
+        private Integer maxRequestsPerHost;
+        private FormAuthSessionStore sessionStore;
+        private File httpCacheDir;
+        private long httpCacheSize;
+        private String authIdentity;
+        private int maxRetries;
+        private long retryDelay = DEFAULT_HTTP_RETRY_DELAY_MILLIS;
+        private long retryMaxDelay = DEFAULT_HTTP_RETRY_MAX_DELAY_MILLIS;
 
         Builder(Class<A> api) {
             this.api = api;
@@ -100,6 +161,25 @@ public class RundeckClient {
             writeTimeout(config.getLong(ENV_HTTP_WRITE_TIMEOUT, null));
             timeout(config.getLong(ENV_HTTP_TIMEOUT, null));
             callTimeout(config.getLong(ENV_HTTP_CALL_TIMEOUT, null));
+            retry(
+                    config.getInt(ENV_HTTP_RETRY, 0),
+                    config.getLong(ENV_HTTP_RETRY_DELAY, DEFAULT_HTTP_RETRY_DELAY_MILLIS),
+                    config.getLong(ENV_HTTP_RETRY_MAX_DELAY, DEFAULT_HTTP_RETRY_MAX_DELAY_MILLIS)
+            );
+            maxRequests(config.getInt(ENV_HTTP_MAX_REQUESTS, -1));
+            maxRequestsPerHost(config.getInt(ENV_HTTP_MAX_REQUESTS_PER_HOST, -1));
+            sessionCacheDir(config.getString(ENV_SESSION_CACHE_DIR, null));
+            String cacheDir = config.getString(ENV_HTTP_CACHE_DIR, null);
+            if (null != cacheDir) {
+                httpCache(
+                        new File(cacheDir),
+                        config.getLong(ENV_HTTP_CACHE_SIZE, DEFAULT_HTTP_CACHE_SIZE_MB) * 1024 * 1024,
+                        HttpCacheInterceptor.parsePolicy(
+                                config.getString(ENV_HTTP_CACHE_POLICY, null),
+                                config.getLong(ENV_HTTP_CACHE_MAX_AGE, 0L)
+                        )
+                );
+            }
             bypassUrl(config.getString(ENV_BYPASS_URL, null));
             insecureSSL(config.getBool(ENV_INSECURE_SSL, false));
             insecureSSLHostname(config.getBool(ENV_INSECURE_SSL_HOSTNAME, false));
@@ -161,6 +241,81 @@ public class RundeckClient {
             return this;
         }
 
+        /**
+         * Retry GET, HEAD and {@link Idempotent} requests which fail with a transient
+         * error, see {@link RetryInterceptor}. The total time is limited by the call timeout.
+         *
+         * @param maxRetries maximum retries, 0 to disable
+         * @param delay      delay in milliseconds before the first retry
+         * @param maxDelay   maximum delay in milliseconds
+         */
+        public Builder<A> retry(final int maxRetries, final Long delay, final Long maxDelay) {
+            this.maxRetries = Math.max(0, maxRetries);
+            if (null != delay) {
+                this.retryDelay = delay;
+            }
+            if (null != maxDelay) {
+                this.retryMaxDelay = maxDelay;
+            }
+            return this;
+        }
+
+        /**
+         * @param max maximum concurrent asynchronous requests, ignored if less than 1
+         */
+        public Builder<A> maxRequests(final int max) {
+            if (max > 0) {
+                this.maxRequests = max;
+            }
+            return this;
+        }
+
+        /**
+         * @param max maximum concurrent asynchronous requests per host, ignored if less than 1
+         */
+        public Builder<A> maxRequestsPerHost(final int max) {
+            if (max > 0) {
+                this.maxRequestsPerHost = max;
+            }
+            return this;
+        }
+
+        /**
+         * Store password authentication sessions in the directory, and reuse them instead of logging in again.
+         * Must be set before {@link #passwordAuth(String, String)}
+         *
+         * @param dir directory path, or null to disable
+         */
+        public Builder<A> sessionCacheDir(final String dir) {
+            this.sessionStore = null != dir ? new FormAuthSessionStore(new File(dir)) : null;
+            return this;
+        }
+
+        /**
+         * Cache responses of read-mostly endpoints on disk. The cache is stored in a subdirectory specific to the
+         * base url and credentials.
+         *
+         * @param dir     cache directory
+         * @param maxSize max size in bytes
+         * @param policy  endpoint freshness policy, see {@link HttpCacheInterceptor#parsePolicy(String, long)}
+         */
+        public Builder<A> httpCache(final File dir, final long maxSize, final Map<Pattern, Long> policy) {
+            this.httpCacheDir = dir;
+            this.httpCacheSize = maxSize;
+            okhttp.addNetworkInterceptor(new HttpCacheInterceptor(policy));
+            return this;
+        }
+
+        /**
+         * Record timings of each http call
+         *
+         * @param timings timings recorder
+         */
+        public Builder<A> httpTimings(final HttpTimings timings) {
+            okhttp.eventListenerFactory(timings);
+            return this;
+        }
+
         public Builder<A> baseUrl(final String baseUrl) {
             this.parseUrl = HttpUrl.parse(baseUrl);
             validateBaseUrl(baseUrl, parseUrl);
@@ -181,11 +336,27 @@ public class RundeckClient {
 
         public Builder<A> tokenAuth(final String authToken) {
             buildTokenAuth(okhttp, baseUrl, authToken);
+            authIdentity = "token:" + ByteString.encodeUtf8(authToken).sha256().hex();
             return this;
         }
 
         public Builder<A> passwordAuth(final String username, final String password) {
-            buildFormAuth(baseUrl, username, password, okhttp);
+            buildFormAuth(baseUrl, username, password, okhttp, sessionStore);
+            authIdentity = "user:" + username;
+            return this;
+        }
+
+        /**
+         * Use a shared http client instead of building a new one. The client will be derived from it, sharing the
+         * connection pool, dispatcher and authentication state, and other connection or authentication settings
+         * of this builder are ignored.
+         *
+         * @param httpClient shared client built with {@link #buildHttpClient()}
+         * @param release    called when the built client is closed, instead of shutting down the shared client
+         */
+        public Builder<A> httpClient(final OkHttpClient httpClient, final Closeable release) {
+            this.httpClient = httpClient;
+            this.httpClientRelease = release;
             return this;
         }
 
@@ -193,6 +364,38 @@ public class RundeckClient {
             return buildRundeckClient();
         }
 
+        /**
+         * Build the http client with the configured connection settings and authentication, which can be shared
+         * by other builders for the same server via {@link #httpClient(OkHttpClient, Closeable)}. It should be
+         * closed with {@link #shutdown(OkHttpClient)} when no longer used.
+         *
+         * @return new http client
+         */
+        public OkHttpClient buildHttpClient() {
+            okhttp.addInterceptor(new StaticHeaderInterceptor("User-Agent", userAgent));
+            if (maxRetries > 0) {
+                okhttp.addInterceptor(new RetryInterceptor(maxRetries, retryDelay, retryMaxDelay, logger));
+            }
+            if (null != httpCacheDir) {
+                String key = buildBaseAppUrlForVersion(baseUrl) + "\n" + authIdentity;
+                okhttp.cache(new Cache(
+                        new File(httpCacheDir, ByteString.encodeUtf8(key).sha256().hex()),
+                        httpCacheSize
+                ));
+            }
+            if (null != maxRequests || null != maxRequestsPerHost) {
+                Dispatcher dispatcher = new Dispatcher();
+                if (null != maxRequests) {
+                    dispatcher.setMaxRequests(maxRequests);
+                }
+                if (null != maxRequestsPerHost) {
+                    dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+                }
+                okhttp.dispatcher(dispatcher);
+            }
+            return okhttp.build();
+        }
+
         public Builder<A> logging(final int p) {
             httpLogging = p;
             return accept(RundeckClient::configLogging, p);
@@ -232,7 +435,8 @@ public class RundeckClient {
         private static void buildFormAuth(
                 final String baseUrl,
                 final String username,
-                final String password, final OkHttpClient.Builder builder
+                final String password, final OkHttpClient.Builder builder,
+                final FormAuthSessionStore sessionStore
         )
         {
             HttpUrl parse = HttpUrl.parse(baseUrl);
@@ -244,7 +448,8 @@ public class RundeckClient {
 
             CookieManager cookieManager = new CookieManager();
             cookieManager.setCookiePolicy(CookiePolicy.ACCEPT_ALL);
-            builder.cookieJar(new JavaNetCookieJar(cookieManager));
+            JavaNetCookieJar cookieJar = new JavaNetCookieJar(cookieManager);
+            builder.cookieJar(cookieJar);
 
             String postUrl = HttpUrl.parse(appBaseUrl)
                     .newBuilder()
@@ -274,7 +479,7 @@ public class RundeckClient {
                             "/user/error"
                     )
 
-            ));
+            ).sessionStore(cookieJar, sessionStore));
 
         }
 
@@ -292,16 +497,24 @@ public class RundeckClient {
             //detected final version
             int usedApiVers = apiVersionForUrl(apiBaseUrl, API_VERS);
 
-            okhttp.addInterceptor(new StaticHeaderInterceptor("User-Agent", userAgent));
-
-            OkHttpClient okhttp = this.okhttp.build();
+            final OkHttpClient okhttp;
+            final Closeable closer;
+            if (null != httpClient) {
+                okhttp = httpClient.newBuilder().build();
+                closer = null != httpClientRelease ? httpClientRelease : () -> {
+                };
+            } else {
+                okhttp = buildHttpClient();
+                closer = () -> shutdown(okhttp);
+            }
 
             Retrofit retrofit = new Retrofit.Builder()
                     .baseUrl(apiBaseUrl)
                     .client(okhttp)
                     .addConverterFactory(new QualifiedTypeConverterFactory(
-                            JacksonConverterFactory.create(),
-                            JaxbConverterFactory.create(),
+                            () -> JacksonConverterFactory.create(QualifiedTypeConverterFactory.objectMapper()),
+                            //xml binding is only loaded if an xml request or response is converted
+                            () -> JaxbConverterFactory.create(),
                             true
                     ))
                     .build();
@@ -309,14 +522,7 @@ public class RundeckClient {
             return new Client<>(
                     retrofit.create(api),
                     retrofit,
-                    () -> {
-                        okhttp.dispatcher().executorService().shutdown();
-                        okhttp.connectionPool().evictAll();
-                        Cache cache = okhttp.cache();
-                        if (null != cache && !cache.isClosed()) {
-                            cache.close();
-                        }
-                    },
+                    closer,
                     appBaseUrl,
                     apiBaseUrl,
                     usedApiVers,
@@ -378,6 +584,21 @@ public class RundeckClient {
         }
     }
 
+    /**
+     * Release the resources held by an http client
+     *
+     * @param okhttp client
+     * @throws IOException if closing the cache fails
+     */
+    public static void shutdown(final OkHttpClient okhttp) throws IOException {
+        okhttp.dispatcher().executorService().shutdown();
+        okhttp.connectionPool().evictAll();
+        Cache cache = okhttp.cache();
+        if (null != cache && !cache.isClosed()) {
+            cache.close();
+        }
+    }
+
     interface BuildWith<T, X> {
         void accept(T builder, X val);
     }
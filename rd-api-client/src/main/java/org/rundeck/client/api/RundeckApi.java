@@ -30,7 +30,10 @@ import org.rundeck.client.api.model.scheduler.ForecastJobItem;
 import org.rundeck.client.api.model.scheduler.ScheduledJobItem;
 import org.rundeck.client.api.model.scheduler.SchedulerTakeover;
 import org.rundeck.client.api.model.scheduler.SchedulerTakeoverResult;
+import org.rundeck.client.util.Idempotent;
 import org.rundeck.client.util.Json;
+import org.rundeck.client.util.Streamed;
+import org.rundeck.client.util.StreamedField;
 import retrofit2.Call;
 import retrofit2.http.*;
 
@@ -61,6 +64,29 @@ public interface RundeckApi {
             @Query("idlist") String idlist
     );
 
+    /**
+     * List jobs, parsing the job items as they are read
+     */
+    @Headers("Accept: application/json")
+    @GET("project/{project}/jobs")
+    Call<Streamed<JobItem>> listJobsStreamed(
+            @Path("project") String project,
+            @Query("jobFilter") String jobName,
+            @Query("groupPath") String groupPath,
+            @Query("jobExactFilter") String jobNameExact,
+            @Query("groupPathExact") String groupPathExact
+    );
+
+    /**
+     * List jobs by ID, parsing the job items as they are read
+     */
+    @Headers("Accept: application/json")
+    @GET("project/{project}/jobs")
+    Call<Streamed<JobItem>> listJobsStreamed(
+            @Path("project") String project,
+            @Query("idlist") String idlist
+    );
+
     /**
      * new api
      * @param jobid
@@ -245,11 +271,24 @@ public interface RundeckApi {
     @GET("project/{project}/resources")
     Call<Map<String, ProjectNode>> listNodes(@Path("project") String project, @Query("filter") String filter);
 
+    /**
+     * List nodes, parsing the nodes as they are read
+     *
+     * @see <a href="http://rundeck.org/docs/api/index.html#listing-resources">api</a>
+     */
+    @Headers("Accept: application/json")
+    @GET("project/{project}/resources")
+    Call<Streamed<ProjectNode>> listNodesStreamed(
+            @Path("project") String project,
+            @Query("filter") String filter
+    );
+
     /**
      * @see <a href="http://rundeck.org/docs/api/#put-project-configuration">api</a>
      */
     @Headers("Accept: application/json")
     @PUT("project/{project}/config")
+    @Idempotent
     Call<ProjectConfig> setProjectConfiguration(@Path("project") String project, @Body ProjectConfig config);
 
     /**
@@ -264,6 +303,7 @@ public interface RundeckApi {
      */
     @Headers({"Accept: application/json", "Content-Type: application/json"})
     @PUT("project/{project}/config/{key}")
+    @Idempotent
     Call<ProjectConfig> setProjectConfigurationKey(
             @Path("project") String project,
             @Path("key") String key,
@@ -463,6 +503,23 @@ public interface RundeckApi {
             @Query("excludeJobListFilter") List<String> excludeJobListFilters
     );
 
+    /**
+     * Query executions, parsing the executions as they are read. The "paging" field is available from the result.
+     *
+     * @see <a href="http://rundeck.org/docs/api/index.html#execution-query">API</a>
+     */
+    @Headers("Accept: application/json")
+    @GET("project/{project}/executions")
+    @StreamedField("executions")
+    Call<Streamed<Execution>> listExecutionsStreamed(
+            @Path("project") String project,
+            @QueryMap Map<String, String> options,
+            @Query("jobIdListFilter") List<String> jobIdListFilter,
+            @Query("excludeJobIdListFilter") List<String> xjobIdListFilter,
+            @Query("jobListFilter") List<String> jobListFilter,
+            @Query("excludeJobListFilter") List<String> excludeJobListFilters
+    );
+
     /**
      * Bulk delete
      *
@@ -671,6 +728,7 @@ public interface RundeckApi {
 
     @Headers("Accept: application/json")
     @PUT("storage/keys/{path}")
+    @Idempotent
     Call<KeyStorageItem> updateKeyStorage(
             @Path(value = "path", encoded = true) String path,
             @Body RequestBody body
@@ -692,6 +750,7 @@ public interface RundeckApi {
 
     @Headers("Accept: application/json")
     @PUT("project/{project}/acl/{name}")
+    @Idempotent
     Call<ACLPolicy> updateAclPolicy(
             @Path("project") String project,
             @Path("name") String name,
@@ -728,6 +787,7 @@ public interface RundeckApi {
 
     @Headers("Accept: application/json")
     @PUT("system/acl/{name}")
+    @Idempotent
     Call<ACLPolicy> updateSystemAclPolicy(
             @Path("name") String name,
             @Body RequestBody body
@@ -1044,6 +1104,7 @@ public interface RundeckApi {
      */
     @Headers("Accept: application/json")
     @PUT("project/{project}/{file}")
+    @Idempotent
     Call<ProjectReadme> putReadme(
             @Path("project") String project,
             @Path("file") ReadmeFile file,
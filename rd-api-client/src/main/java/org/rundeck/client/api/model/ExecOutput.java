@@ -44,13 +44,23 @@ public class ExecOutput {
     private List<ExecLog> decompacted;
 
     public List<ExecLog> decompactEntries() {
+        return decompactEntries(null);
+    }
+
+    /**
+     * Decompact the entries, once
+     *
+     * @param previous last entry of the previous output of the same execution, or null
+     * @return entries
+     */
+    public List<ExecLog> decompactEntries(final ExecLog previous) {
         if (null == compacted || !compacted) {
             return entries;
         }
         if (null != decompacted) {
             return decompacted;
         }
-        ExecLog prev = null;
+        ExecLog prev = previous;
         ArrayList<ExecLog> newentries = new ArrayList<>();
 
         for (ExecLog entry : entries) {
@@ -16,6 +16,7 @@
 
 package org.rundeck.client.api.model.sysinfo;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
@@ -49,6 +50,24 @@ public class SystemStats {
         return data;
     }
 
+    /**
+     * @return api version supported by the server, or null if not available
+     */
+    @JsonIgnore
+    public Integer getApiVersion() {
+        Object apiversion = null != rundeck ? rundeck.get("apiversion") : null;
+        if (apiversion instanceof Number) {
+            return ((Number) apiversion).intValue();
+        } else if (null != apiversion) {
+            try {
+                return Integer.parseInt(apiversion.toString());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
     public Map<String, Object> getTimestamp() {
         return timestamp;
     }
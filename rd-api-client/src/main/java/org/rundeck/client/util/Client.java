@@ -23,12 +23,14 @@ import org.rundeck.client.api.RequestFailed;
 import org.rundeck.client.api.model.ErrorDetail;
 import org.rundeck.client.api.model.ErrorResponse;
 import retrofit2.Call;
+import retrofit2.Callback;
 import retrofit2.Converter;
 import retrofit2.Response;
 import retrofit2.Retrofit;
 
 import java.io.*;
 import java.lang.annotation.Annotation;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 /**
@@ -623,6 +625,73 @@ public class Client<T> implements ServiceClient<T> {
         return checkErrorResponseDowngradable(func.apply(getService()));
     }
 
+    /**
+     * call a function using the service asynchronously, using the http client dispatcher. Cancelling the returned
+     * future cancels the call.
+     *
+     * @param func function using the service
+     * @param <U>  result type
+     *
+     * @return future result
+     */
+    @Override
+    public <U> CompletableFuture<U> apiCallAsync(final Function<T, Call<U>> func) {
+        return enqueue(func.apply(getService()), this::checkError);
+    }
+
+    /**
+     * call a function using the service asynchronously, using the http client dispatcher. Cancelling the returned
+     * future cancels the call.
+     *
+     * @param func function using the service
+     * @param <U>  result type
+     *
+     * @return future result
+     */
+    @Override
+    public <U> CompletableFuture<U> apiCallDowngradableAsync(final Function<T, Call<U>> func) {
+        return enqueue(func.apply(getService()), this::checkErrorDowngradable);
+    }
+
+    interface ResponseHandler<R, X> {
+        X handle(Response<R> response) throws IOException, UnsupportedVersionDowngrade;
+    }
+
+    /**
+     * Enqueue the call, and complete the future with the handled response
+     *
+     * @param call    call
+     * @param handler handles the response
+     * @param <R>     response type
+     * @param <X>     result type
+     *
+     * @return future result, cancelling it will cancel the call
+     */
+    private <R, X> CompletableFuture<X> enqueue(final Call<R> call, final ResponseHandler<R, X> handler) {
+        CompletableFuture<X> future = new CompletableFuture<>();
+        future.whenComplete((result, throwable) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        call.enqueue(new Callback<R>() {
+            @Override
+            public void onResponse(final Call<R> call, final Response<R> response) {
+                try {
+                    future.complete(handler.handle(response));
+                } catch (IOException | UnsupportedVersionDowngrade | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onFailure(final Call<R> call, final Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
     @Override
     public T getService() {
         return service;
@@ -20,12 +20,14 @@ import okhttp3.*;
 import org.rundeck.client.api.LoginFailed;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
- * Handle Form authentication flow to Rundeck
+ * Handle Form authentication flow to Rundeck. Restoring a stored session and logging in are serialized, so concurrent
+ * requests share a single login
  */
 public class FormAuthInterceptor implements Interceptor {
-    private boolean authorized;
+    private volatile boolean authorized;
     private final String username;
     private final String password;
     private final String baseUrl;
@@ -33,6 +35,9 @@ public class FormAuthInterceptor implements Interceptor {
     private final String usernameField;
     private final String passwordField;
     private final String loginErrorURLPath;
+    private CookieJar cookieJar;
+    private FormAuthSessionStore sessionStore;
+    private volatile boolean sessionRestored;
 
     public FormAuthInterceptor(
             final String username,
@@ -53,15 +58,101 @@ public class FormAuthInterceptor implements Interceptor {
         this.loginErrorURLPath = loginErrorPath;
     }
 
+    /**
+     * Reuse the authenticated session stored from a previous login, and store the session after login
+     *
+     * @param cookieJar    cookie jar used by the http client
+     * @param sessionStore session store
+     * @return this interceptor
+     */
+    public FormAuthInterceptor sessionStore(final CookieJar cookieJar, final FormAuthSessionStore sessionStore) {
+        this.cookieJar = cookieJar;
+        this.sessionStore = sessionStore;
+        return this;
+    }
+
     @Override
     public Response intercept(final Chain chain) throws IOException {
         if (!authorized) {
-            authenticate(chain);
+            synchronized (this) {
+                if (!authorized && restoreSession(chain.request())) {
+                    Response response = chain.proceed(chain.request());
+                    if (!isLoginRequired(response)) {
+                        return response;
+                    }
+                    //stored session is no longer valid
+                    response.close();
+                    authorized = false;
+                    sessionStore.remove(baseHttpUrl(), username);
+                }
+                if (!authorized) {
+                    authenticate(chain);
+                    saveSession();
+                }
+            }
         }
 
         return chain.proceed(chain.request());
     }
 
+    /**
+     * Load a stored session into the cookie jar, if available
+     *
+     * @param request request to send with the session
+     * @return true if a session was restored
+     */
+    private boolean restoreSession(final Request request) {
+        if (null == sessionStore || null == cookieJar || sessionRestored) {
+            return false;
+        }
+        sessionRestored = true;
+        if (null != request.body() && request.body().isOneShot()) {
+            //cannot resend the request if the session is not valid
+            return false;
+        }
+        List<Cookie> cookies = sessionStore.load(baseHttpUrl(), username);
+        if (cookies.isEmpty()) {
+            return false;
+        }
+        cookieJar.saveFromResponse(baseHttpUrl(), cookies);
+        authorized = true;
+        return true;
+    }
+
+    private void saveSession() {
+        if (null == sessionStore || null == cookieJar) {
+            return;
+        }
+        HttpUrl url = baseHttpUrl();
+        List<Cookie> cookies = cookieJar.loadForRequest(url);
+        if (cookies.isEmpty()) {
+            return;
+        }
+        try {
+            sessionStore.save(url, username, cookies);
+        } catch (IOException ignored) {
+            //the session will not be reused, but the login succeeded
+        }
+    }
+
+    /**
+     * @param response response
+     * @return true if the response indicates the session is not authenticated. A 403 is an authorization failure for
+     * an authenticated session, and is not treated as a stale session
+     */
+    private boolean isLoginRequired(final Response response) {
+        if (response.code() == 401) {
+            return true;
+        }
+        String path = response.request().url().encodedPath();
+        return path.endsWith(System.getProperty("rundeck.client.user.login", "/user/login"))
+               || path.contains(loginErrorURLPath);
+    }
+
+    private HttpUrl baseHttpUrl() {
+        return HttpUrl.get(baseUrl);
+    }
+
     /**
      * Retrieve base url, then subsequently post the authorization credentials
      */
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 Rundeck, Inc. (http://rundeck.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.rundeck.client.util;
+
+import okhttp3.Cookie;
+import okhttp3.HttpUrl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stores form authentication session cookies on disk, keyed by base URL and username. Files are only readable by
+ * the owner.
+ */
+public class FormAuthSessionStore {
+    private final File dir;
+
+    public FormAuthSessionStore(final File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @param url      base url
+     * @param username username
+     * @return stored cookies, or empty list if none are stored or they cannot be read
+     */
+    public List<Cookie> load(final HttpUrl url, final String username) {
+        Path file = sessionFile(url, username);
+        if (!Files.isRegularFile(file)) {
+            return Collections.emptyList();
+        }
+        List<Cookie> cookies = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                Cookie cookie = Cookie.parse(url, line);
+                if (null != cookie) {
+                    cookies.add(cookie);
+                }
+            }
+        } catch (IOException e) {
+            return Collections.emptyList();
+        }
+        return cookies;
+    }
+
+    /**
+     * Store the cookies, replacing any previously stored
+     *
+     * @param url      base url
+     * @param username username
+     * @param cookies  cookies
+     * @throws IOException if writing fails
+     */
+    public void save(final HttpUrl url, final String username, final List<Cookie> cookies) throws IOException {
+        Path dirPath = dir.toPath();
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (!Files.isDirectory(dirPath)) {
+            if (posix) {
+                Files.createDirectories(
+                        dirPath,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------"))
+                );
+            } else {
+                Files.createDirectories(dirPath);
+            }
+        }
+        Path temp;
+        if (posix) {
+            temp = Files.createTempFile(
+                    dirPath,
+                    "session",
+                    ".tmp",
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))
+            );
+        } else {
+            temp = Files.createTempFile(dirPath, "session", ".tmp");
+            File tempFile = temp.toFile();
+            tempFile.setReadable(false, false);
+            tempFile.setReadable(true, true);
+            tempFile.setWritable(false, false);
+            tempFile.setWritable(true, true);
+        }
+        try {
+            List<String> lines = new ArrayList<>();
+            for (Cookie cookie : cookies) {
+                lines.add(cookie.toString());
+            }
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.move(
+                    temp,
+                    sessionFile(url, username),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE
+            );
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Remove stored cookies
+     *
+     * @param url      base url
+     * @param username username
+     */
+    public void remove(final HttpUrl url, final String username) {
+        try {
+            Files.deleteIfExists(sessionFile(url, username));
+        } catch (IOException ignored) {
+
+        }
+    }
+
+    Path sessionFile(final HttpUrl url, final String username) {
+        return new File(dir, sha256(url.toString() + "\n" + username) + ".session").toPath();
+    }
+
+    private static String sha256(final String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
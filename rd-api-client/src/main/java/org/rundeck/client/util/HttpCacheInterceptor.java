@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 Rundeck, Inc. (http://rundeck.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.rundeck.client.util;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Network interceptor which applies a client side freshness policy to successful GET responses of matching API
+ * endpoints, so that they can be stored by the http cache. Responses with an ETag or Last-Modified header are
+ * revalidated with a conditional request once they are older than the max age. Responses without one are stored only
+ * if the max age is greater than 0, and are requested again once they are older than it. No endpoints are cached unless
+ * they are given in the policy.
+ */
+public class HttpCacheInterceptor implements Interceptor {
+    /**
+     * Policy entry which expands to the {@link #READ_MOSTLY_ENDPOINTS}
+     */
+    public static final String READ_MOSTLY = "read-mostly";
+    /**
+     * Read-mostly endpoints, cached when the policy includes {@value #READ_MOSTLY}
+     */
+    public static final String[] READ_MOSTLY_ENDPOINTS = {
+            "projects",
+            "project/*/jobs",
+            "project/*/resources",
+            "project/*/config",
+            "project/*/acl/**",
+            "system/acl/**",
+            "storage/keys/**"
+    };
+    private static final Pattern API_PATH = Pattern.compile("^.*?/api/\\d+/(.*)$");
+    private final Map<Pattern, Long> policy;
+
+    /**
+     * @param policy map of endpoint pattern to max age in seconds
+     */
+    public HttpCacheInterceptor(final Map<Pattern, Long> policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Parse a policy definition in the form {@code endpoint[=maxage],...}. Endpoints are paths relative to the API
+     * version path, where {@code *} matches within a path segment and {@code **} matches any path. The endpoint
+     * {@value #READ_MOSTLY} adds all of the {@link #READ_MOSTLY_ENDPOINTS}.
+     *
+     * @param spec          policy definition, or null for an empty policy
+     * @param defaultMaxAge max age in seconds if not specified for an endpoint
+     * @return policy
+     */
+    public static Map<Pattern, Long> parsePolicy(final String spec, final long defaultMaxAge) {
+        Map<Pattern, Long> policy = new LinkedHashMap<>();
+        if (null == spec) {
+            return policy;
+        }
+        for (String endpoint : spec.split("\\s*,\\s*")) {
+            if ("".equals(endpoint.trim())) {
+                continue;
+            }
+            String[] parts = endpoint.trim().split("\\s*=\\s*", 2);
+            long maxAge = defaultMaxAge;
+            if (parts.length > 1) {
+                try {
+                    maxAge = Long.parseLong(parts[1]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid max age for cache policy: " + endpoint, e);
+                }
+            }
+            if (READ_MOSTLY.equals(parts[0])) {
+                for (String readMostly : READ_MOSTLY_ENDPOINTS) {
+                    policy.put(globPattern(readMostly), maxAge);
+                }
+            } else {
+                policy.put(globPattern(parts[0]), maxAge);
+            }
+        }
+        return policy;
+    }
+
+    private static Pattern globPattern(final String glob) {
+        String path = glob.startsWith("/") ? glob.substring(1) : glob;
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c != '*') {
+                literal.append(c);
+                continue;
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+            }
+            if (i + 1 < path.length() && path.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else {
+                regex.append("[^/]+");
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * @param encodedPath request url path
+     * @return max age for the path, or null if it does not match the policy
+     */
+    Long maxAge(final String encodedPath) {
+        Matcher matcher = API_PATH.matcher(encodedPath);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String path = matcher.group(1);
+        for (Map.Entry<Pattern, Long> entry : policy.entrySet()) {
+            if (entry.getKey().matcher(path).matches()) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Response intercept(final Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        if (!"GET".equals(chain.request().method()) || !response.isSuccessful()) {
+            return response;
+        }
+        Long maxAge = maxAge(chain.request().url().encodedPath());
+        if (null == maxAge) {
+            return response;
+        }
+        boolean validator = null != response.header("ETag") || null != response.header("Last-Modified");
+        if (!validator && maxAge <= 0) {
+            //cannot be revalidated
+            return response;
+        }
+        return response.newBuilder()
+                       .removeHeader("Pragma")
+                       .removeHeader("Expires")
+                       .header("Cache-Control", maxAge > 0 ? "private, max-age=" + maxAge : "private, no-cache")
+                       .build();
+    }
+}
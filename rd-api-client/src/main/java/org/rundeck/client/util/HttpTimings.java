@@ -0,0 +1,379 @@
+/*
+ * Copyright 2017 Rundeck, Inc. (http://rundeck.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.rundeck.client.util;
+
+import okhttp3.*;
+import retrofit2.Invocation;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Records timings of each http call, and summarizes them by endpoint. Calls are identified by the API service
+ * method name, or the http method and path if the call was not made by a service method.
+ */
+public class HttpTimings implements EventListener.Factory {
+    /**
+     * Phases of a call which are timed
+     */
+    public enum Phase {
+        dns, connect, tls, requestWrite, ttfb, bodyRead, total
+    }
+
+    private final LongSupplier nanoClock;
+    private final List<CallTiming> calls = Collections.synchronizedList(new ArrayList<>());
+
+    public HttpTimings() {
+        this(System::nanoTime);
+    }
+
+    HttpTimings(final LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Timing data for a single call
+     */
+    public static class CallTiming {
+        private final String endpoint;
+        private final Map<Phase, Long> nanos = new EnumMap<>(Phase.class);
+        private long startNanos;
+        private boolean reused;
+        private boolean failed;
+        private long bytesSent;
+        private long bytesReceived;
+
+        CallTiming(final String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        /**
+         * @return start time of the call from the nano clock
+         */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        /**
+         * @param phase phase
+         * @return duration of the phase in nanoseconds, 0 if it did not occur
+         */
+        public long getNanos(final Phase phase) {
+            return nanos.getOrDefault(phase, 0L);
+        }
+
+        /**
+         * @return true if the call used a pooled connection
+         */
+        public boolean isReused() {
+            return reused;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+
+        public long getBytesSent() {
+            return bytesSent;
+        }
+
+        public long getBytesReceived() {
+            return bytesReceived;
+        }
+
+        private void add(final Phase phase, final long duration) {
+            nanos.merge(phase, Math.max(0, duration), Long::sum);
+        }
+    }
+
+    /**
+     * @param call call
+     * @return name of the service method for the call, or http method and path
+     */
+    static String endpointName(final Call call) {
+        Request request = call.request();
+        Invocation invocation = request.tag(Invocation.class);
+        if (null != invocation) {
+            return invocation.method().getDeclaringClass().getSimpleName() + "." + invocation.method().getName();
+        }
+        return request.method() + " " + request.url().encodedPath();
+    }
+
+    @Override
+    public EventListener create(final Call call) {
+        return new Listener(new CallTiming(endpointName(call)));
+    }
+
+    /**
+     * @return timings of completed calls
+     */
+    public List<CallTiming> getCalls() {
+        synchronized (calls) {
+            return new ArrayList<>(calls);
+        }
+    }
+
+    private class Listener extends EventListener {
+        private final CallTiming timing;
+        private long callStart;
+        private long dnsStart;
+        private long connectStart;
+        private long secureConnectStart;
+        private long requestStart;
+        private long requestEnd;
+        private long bodyStart;
+        private boolean connected;
+
+        Listener(final CallTiming timing) {
+            this.timing = timing;
+        }
+
+        private long now() {
+            return nanoClock.getAsLong();
+        }
+
+        @Override
+        public void callStart(final Call call) {
+            callStart = now();
+            timing.startNanos = callStart;
+        }
+
+        @Override
+        public void dnsStart(final Call call, final String domainName) {
+            dnsStart = now();
+        }
+
+        @Override
+        public void dnsEnd(final Call call, final String domainName, final List<InetAddress> inetAddressList) {
+            timing.add(Phase.dns, now() - dnsStart);
+        }
+
+        @Override
+        public void connectStart(final Call call, final InetSocketAddress inetSocketAddress, final Proxy proxy) {
+            connectStart = now();
+            connected = true;
+        }
+
+        @Override
+        public void secureConnectStart(final Call call) {
+            secureConnectStart = now();
+        }
+
+        @Override
+        public void secureConnectEnd(final Call call, final Handshake handshake) {
+            timing.add(Phase.tls, now() - secureConnectStart);
+        }
+
+        @Override
+        public void connectEnd(
+                final Call call,
+                final InetSocketAddress inetSocketAddress,
+                final Proxy proxy,
+                final Protocol protocol
+        )
+        {
+            timing.add(Phase.connect, now() - connectStart);
+        }
+
+        @Override
+        public void connectFailed(
+                final Call call,
+                final InetSocketAddress inetSocketAddress,
+                final Proxy proxy,
+                final Protocol protocol,
+                final IOException ioe
+        )
+        {
+            timing.add(Phase.connect, now() - connectStart);
+        }
+
+        @Override
+        public void connectionAcquired(final Call call, final Connection connection) {
+            timing.reused = !connected;
+        }
+
+        @Override
+        public void requestHeadersStart(final Call call) {
+            requestStart = now();
+        }
+
+        @Override
+        public void requestHeadersEnd(final Call call, final Request request) {
+            requestEnd = now();
+            timing.add(Phase.requestWrite, requestEnd - requestStart);
+        }
+
+        @Override
+        public void requestBodyEnd(final Call call, final long byteCount) {
+            long end = now();
+            timing.add(Phase.requestWrite, end - requestEnd);
+            requestEnd = end;
+            timing.bytesSent += byteCount;
+        }
+
+        @Override
+        public void responseHeadersStart(final Call call) {
+            timing.add(Phase.ttfb, now() - requestEnd);
+        }
+
+        @Override
+        public void responseBodyStart(final Call call) {
+            bodyStart = now();
+        }
+
+        @Override
+        public void responseBodyEnd(final Call call, final long byteCount) {
+            timing.add(Phase.bodyRead, now() - bodyStart);
+            timing.bytesReceived += byteCount;
+        }
+
+        @Override
+        public void callEnd(final Call call) {
+            finish();
+        }
+
+        @Override
+        public void callFailed(final Call call, final IOException ioe) {
+            timing.failed = true;
+            finish();
+        }
+
+        private void finish() {
+            timing.add(Phase.total, now() - callStart);
+            calls.add(timing);
+        }
+    }
+
+    /**
+     * Summary statistics of calls to an endpoint
+     */
+    public static class EndpointSummary {
+        private final String endpoint;
+        private final List<CallTiming> calls;
+
+        EndpointSummary(final String endpoint, final List<CallTiming> calls) {
+            this.endpoint = endpoint;
+            this.calls = calls;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public int getCount() {
+            return calls.size();
+        }
+
+        public long getFailed() {
+            return calls.stream().filter(CallTiming::isFailed).count();
+        }
+
+        public long getReused() {
+            return calls.stream().filter(CallTiming::isReused).count();
+        }
+
+        public long getBytesSent() {
+            return calls.stream().mapToLong(CallTiming::getBytesSent).sum();
+        }
+
+        public long getBytesReceived() {
+            return calls.stream().mapToLong(CallTiming::getBytesReceived).sum();
+        }
+
+        /**
+         * @param phase      phase
+         * @param percentile percentile between 0 and 100
+         * @return duration in milliseconds at the percentile, using the nearest rank
+         */
+        public double percentileMillis(final Phase phase, final double percentile) {
+            long[] sorted = calls.stream().mapToLong(c -> c.getNanos(phase)).sorted().toArray();
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            long value = sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+            return value / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /**
+         * @return summary data
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("endpoint", endpoint);
+            map.put("count", getCount());
+            map.put("failed", getFailed());
+            map.put("reused", getReused());
+            map.put("bytesSent", getBytesSent());
+            map.put("bytesReceived", getBytesReceived());
+            for (Phase phase : Phase.values()) {
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("p50", percentileMillis(phase, 50));
+                stats.put("p95", percentileMillis(phase, 95));
+                stats.put("max", percentileMillis(phase, 100));
+                map.put(phase.name() + "Millis", stats);
+            }
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s: count=%d failed=%d reused=%d p50=%.1fms p95=%.1fms max=%.1fms " +
+                    "(p50 dns=%.1fms connect=%.1fms tls=%.1fms write=%.1fms ttfb=%.1fms read=%.1fms) " +
+                    "sent=%dB received=%dB",
+                    endpoint,
+                    getCount(),
+                    getFailed(),
+                    getReused(),
+                    percentileMillis(Phase.total, 50),
+                    percentileMillis(Phase.total, 95),
+                    percentileMillis(Phase.total, 100),
+                    percentileMillis(Phase.dns, 50),
+                    percentileMillis(Phase.connect, 50),
+                    percentileMillis(Phase.tls, 50),
+                    percentileMillis(Phase.requestWrite, 50),
+                    percentileMillis(Phase.ttfb, 50),
+                    percentileMillis(Phase.bodyRead, 50),
+                    getBytesSent(),
+                    getBytesReceived()
+            );
+        }
+    }
+
+    /**
+     * @return summary of completed calls by endpoint, in order of first completion
+     */
+    public List<EndpointSummary> summarize() {
+        Map<String, List<CallTiming>> byEndpoint = new LinkedHashMap<>();
+        for (CallTiming call : getCalls()) {
+            byEndpoint.computeIfAbsent(call.getEndpoint(), k -> new ArrayList<>()).add(call);
+        }
+        List<EndpointSummary> result = new ArrayList<>();
+        byEndpoint.forEach((endpoint, list) -> result.add(new EndpointSummary(endpoint, list)));
+        return result;
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.rundeck.client.util;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import retrofit2.Converter;
@@ -23,15 +24,19 @@ import retrofit2.Retrofit;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.util.function.Supplier;
 
 /**
  * Retrofit converter factory that can convert xml or json bodies, depending on annotation of the
- * API service method using {@link Xml} or {@link Json}, and has a default format.
+ * API service method using {@link Xml} or {@link Json}, and has a default format. Json responses for a
+ * {@link Streamed} return type are parsed as they are read. The delegate factories can be created on first use, to
+ * avoid loading the xml binding classes when only json is used.
  */
 public class QualifiedTypeConverterFactory extends Converter.Factory {
-    private final Converter.Factory jsonFactory;
-    private final Converter.Factory xmlFactory;
-    private final Converter.Factory defaultFactory;
+    private final Supplier<Converter.Factory> jsonFactory;
+    private final Supplier<Converter.Factory> xmlFactory;
+    private final Supplier<Converter.Factory> defaultFactory;
+    private final Supplier<Converter.Factory> streamedFactory;
 
     @SuppressWarnings("SameParameterValue")
     public QualifiedTypeConverterFactory(
@@ -39,9 +44,66 @@ public class QualifiedTypeConverterFactory extends Converter.Factory {
             Converter.Factory xmlFactory, final boolean defaultJson
     )
     {
-        this.jsonFactory = jsonFactory;
-        this.xmlFactory = xmlFactory;
-        this.defaultFactory = defaultJson ? jsonFactory : xmlFactory;
+        this(() -> jsonFactory, () -> xmlFactory, defaultJson);
+    }
+
+    /**
+     * @param jsonFactory creates the json factory when it is first needed
+     * @param xmlFactory  creates the xml factory when it is first needed
+     * @param defaultJson true if json is the default format
+     */
+    @SuppressWarnings("SameParameterValue")
+    public QualifiedTypeConverterFactory(
+            Supplier<Converter.Factory> jsonFactory,
+            Supplier<Converter.Factory> xmlFactory,
+            final boolean defaultJson
+    )
+    {
+        this.jsonFactory = new Lazy<>(jsonFactory);
+        this.xmlFactory = new Lazy<>(xmlFactory);
+        this.defaultFactory = defaultJson ? this.jsonFactory : this.xmlFactory;
+        this.streamedFactory = new Lazy<>(() -> new StreamedConverterFactory(objectMapper()));
+    }
+
+    private static class MapperHolder {
+        static final ObjectMapper MAPPER = new ObjectMapper();
+    }
+
+    /**
+     * @return object mapper shared by json converters, created on first use
+     */
+    public static ObjectMapper objectMapper() {
+        return MapperHolder.MAPPER;
+    }
+
+    /**
+     * Creates a value once when first requested
+     */
+    private static class Lazy<T>
+            implements Supplier<T>
+    {
+        private Supplier<T> factory;
+        private volatile T value;
+
+        Lazy(final Supplier<T> factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public T get() {
+            T result = value;
+            if (null == result) {
+                synchronized (this) {
+                    result = value;
+                    if (null == result) {
+                        result = factory.get();
+                        value = result;
+                        factory = null;
+                    }
+                }
+            }
+            return result;
+        }
     }
 
     @Override
@@ -50,15 +112,23 @@ public class QualifiedTypeConverterFactory extends Converter.Factory {
             Retrofit retrofit
     )
     {
+        if (StreamedConverterFactory.isStreamed(type)) {
+            for (Annotation annotation : annotations) {
+                if (annotation instanceof Xml) {
+                    throw new IllegalArgumentException("Streamed responses are only supported for json");
+                }
+            }
+            return streamedFactory.get().responseBodyConverter(type, annotations, retrofit);
+        }
         for (Annotation annotation : annotations) {
             if (annotation instanceof Json) {
-                return jsonFactory.responseBodyConverter(type, annotations, retrofit);
+                return jsonFactory.get().responseBodyConverter(type, annotations, retrofit);
             }
             if (annotation instanceof Xml) {
-                return xmlFactory.responseBodyConverter(type, annotations, retrofit);
+                return xmlFactory.get().responseBodyConverter(type, annotations, retrofit);
             }
         }
-        return defaultFactory.responseBodyConverter(type, annotations, retrofit);
+        return defaultFactory.get().responseBodyConverter(type, annotations, retrofit);
     }
 
     @Override
@@ -69,17 +139,17 @@ public class QualifiedTypeConverterFactory extends Converter.Factory {
     {
         for (Annotation annotation : parameterAnnotations) {
             if (annotation instanceof Json) {
-                return jsonFactory.requestBodyConverter(type, parameterAnnotations, methodAnnotations,
+                return jsonFactory.get().requestBodyConverter(type, parameterAnnotations, methodAnnotations,
                                                         retrofit
                 );
             }
             if (annotation instanceof Xml) {
-                return xmlFactory.requestBodyConverter(type, parameterAnnotations, methodAnnotations,
+                return xmlFactory.get().requestBodyConverter(type, parameterAnnotations, methodAnnotations,
                                                        retrofit
                 );
             }
         }
-        return defaultFactory.requestBodyConverter(type, parameterAnnotations, methodAnnotations,
+        return defaultFactory.get().requestBodyConverter(type, parameterAnnotations, methodAnnotations,
                                                    retrofit
         );
     }
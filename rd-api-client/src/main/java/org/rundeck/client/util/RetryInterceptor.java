@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 Rundeck, Inc. (http://rundeck.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.rundeck.client.util;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Invocation;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.UnknownHostException;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Retries GET, HEAD and {@link Idempotent} requests which fail with a 5xx or 429 response, or a connection failure.
+ * Retries are delayed using capped exponential backoff with full jitter, or the Retry-After response header if it is
+ * present and not longer than the maximum delay, and stop when the call timeout would be exceeded.
+ */
+public class RetryInterceptor implements Interceptor {
+    private final int maxRetries;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final Client.Logger logger;
+    private final Sleeper sleeper;
+    private final LongSupplier clock;
+    private final LongUnaryOperator random;
+
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    /**
+     * @param maxRetries      maximum number of retries
+     * @param baseDelayMillis delay before the first retry, doubled for each retry
+     * @param maxDelayMillis  maximum delay
+     * @param logger          reports retries, may be null
+     */
+    public RetryInterceptor(
+            final int maxRetries,
+            final long baseDelayMillis,
+            final long maxDelayMillis,
+            final Client.Logger logger
+    )
+    {
+        this(
+                maxRetries,
+                baseDelayMillis,
+                maxDelayMillis,
+                logger,
+                Thread::sleep,
+                System::currentTimeMillis,
+                bound -> ThreadLocalRandom.current().nextLong(bound + 1)
+        );
+    }
+
+    RetryInterceptor(
+            final int maxRetries,
+            final long baseDelayMillis,
+            final long maxDelayMillis,
+            final Client.Logger logger,
+            final Sleeper sleeper,
+            final LongSupplier clock,
+            final LongUnaryOperator random
+    )
+    {
+        this.maxRetries = maxRetries;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.logger = logger;
+        this.sleeper = sleeper;
+        this.clock = clock;
+        this.random = random;
+    }
+
+    /**
+     * @param request request
+     * @return true if the request can be retried
+     */
+    static boolean isRetryable(final Request request) {
+        if (null != request.body() && request.body().isOneShot()) {
+            return false;
+        }
+        if ("GET".equals(request.method()) || "HEAD".equals(request.method())) {
+            return true;
+        }
+        Invocation invocation = request.tag(Invocation.class);
+        return null != invocation && invocation.method().isAnnotationPresent(Idempotent.class);
+    }
+
+    /**
+     * @param code response code
+     * @return true if the response code indicates a transient failure
+     */
+    static boolean isRetryable(final int code) {
+        return code == 429 || code >= 500 && code <= 599;
+    }
+
+    /**
+     * @param e exception
+     * @return true if the exception indicates a transient connection failure
+     */
+    static boolean isRetryable(final IOException e) {
+        return !(e instanceof InterruptedIOException)
+               && !(e instanceof UnknownHostException)
+               && !(e instanceof SSLException);
+    }
+
+    /**
+     * @param retry retry number starting at 0
+     * @return random delay between 0 and the capped exponential delay for the retry
+     */
+    long backoffMillis(final int retry) {
+        long exp = baseDelayMillis << Math.min(retry, 30);
+        long cap = exp < 0 || exp > maxDelayMillis ? maxDelayMillis : exp;
+        return random.applyAsLong(Math.max(cap, 0));
+    }
+
+    /**
+     * @param response response
+     * @return delay requested by the Retry-After header in seconds or as a date, or null
+     */
+    Long retryAfterMillis(final Response response) {
+        String value = response.header("Retry-After");
+        if (null == value) {
+            return null;
+        }
+        try {
+            return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            Date date = response.headers().getDate("Retry-After");
+            return null != date ? Math.max(0, date.getTime() - clock.getAsLong()) : null;
+        }
+    }
+
+    @Override
+    public Response intercept(final Chain chain) throws IOException {
+        Request request = chain.request();
+        if (maxRetries < 1 || !isRetryable(request)) {
+            return chain.proceed(request);
+        }
+        long timeoutMillis = TimeUnit.NANOSECONDS.toMillis(chain.call().timeout().timeoutNanos());
+        long deadline = timeoutMillis > 0 ? clock.getAsLong() + timeoutMillis : Long.MAX_VALUE;
+        for (int retry = 0; ; retry++) {
+            Response response = null;
+            IOException failure = null;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                if (retry >= maxRetries || !isRetryable(e) || chain.call().isCanceled()) {
+                    throw e;
+                }
+                failure = e;
+            }
+            if (null != response && (retry >= maxRetries || !isRetryable(response.code()))) {
+                return response;
+            }
+
+            long delay = backoffMillis(retry);
+            String reason;
+            if (null != response) {
+                Long retryAfter = retryAfterMillis(response);
+                if (null != retryAfter && retryAfter > maxDelayMillis) {
+                    //server asked to wait longer than we are willing to
+                    return response;
+                }
+                if (null != retryAfter) {
+                    delay = retryAfter;
+                }
+                reason = "HTTP " + response.code();
+            } else {
+                reason = failure.toString();
+            }
+            if (clock.getAsLong() + delay >= deadline) {
+                if (null != response) {
+                    return response;
+                }
+                throw failure;
+            }
+            if (null != response) {
+                response.close();
+            }
+            if (null != logger) {
+                logger.warning(String.format(
+                        "%s %s failed: %s, retry %d of %d in %dms",
+                        request.method(),
+                        request.url().encodedPath(),
+                        reason,
+                        retry + 1,
+                        maxRetries,
+                        delay
+                ));
+            }
+            try {
+                sleeper.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException interrupted = new InterruptedIOException("Interrupted before retry");
+                interrupted.initCause(e);
+                throw interrupted;
+            }
+            if (chain.call().isCanceled()) {
+                throw new IOException("Canceled");
+            }
+        }
+    }
+}
@@ -9,6 +9,8 @@ import retrofit2.Retrofit;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 
 /**
@@ -234,6 +236,51 @@ public interface ServiceClient<T> extends Closeable {
     <U> WithErrorResponse<U> apiWithErrorResponseDowngradable(Function<T, Call<U>> func)
             throws IOException, Client.UnsupportedVersionDowngrade;
 
+    /**
+     * call a function using the service asynchronously. The default runs the blocking call on the common pool, and
+     * cancelling the returned future does not cancel the call.
+     *
+     * @param func function using the service
+     * @param <U>  result type
+     *
+     * @return future result, completed exceptionally with {@link IOException} or {@link
+     *         org.rundeck.client.api.RequestFailed} if an error occurs
+     */
+    default <U> CompletableFuture<U> apiCallAsync(Function<T, Call<U>> func) {
+        CompletableFuture<U> future = new CompletableFuture<>();
+        ForkJoinPool.commonPool().execute(() -> {
+            try {
+                future.complete(apiCall(func));
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * call a function using the service asynchronously. The default runs the blocking call on the common pool, and
+     * cancelling the returned future does not cancel the call.
+     *
+     * @param func function using the service
+     * @param <U>  result type
+     *
+     * @return future result, completed exceptionally with {@link Client.UnsupportedVersionDowngrade} if the version
+     *         can be downgraded, or {@link IOException} or {@link org.rundeck.client.api.RequestFailed} if an error
+     *         occurs
+     */
+    default <U> CompletableFuture<U> apiCallDowngradableAsync(Function<T, Call<U>> func) {
+        CompletableFuture<U> future = new CompletableFuture<>();
+        ForkJoinPool.commonPool().execute(() -> {
+            try {
+                future.complete(apiCallDowngradable(func));
+            } catch (IOException | Client.UnsupportedVersionDowngrade | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
     T getService();
 
     Retrofit getRetrofit();
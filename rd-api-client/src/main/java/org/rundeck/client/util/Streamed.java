@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 Rundeck, Inc. (http://rundeck.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.rundeck.client.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Elements of a response which are parsed as they are iterated, rather than reading the whole response first. The
+ * response body remains open until all elements are read, or it is closed.
+ * <p>
+ * A json array response is streamed as its elements, and a json object response as the values of its fields. If the
+ * API method is annotated with {@link StreamedField}, the elements are read from the array in that field of the
+ * response object, and other fields of the object are available via {@link #field(String, Class)}.
+ * </p>
+ *
+ * @param <T> element type
+ */
+public interface Streamed<T>
+        extends Iterator<T>, Closeable
+{
+    /**
+     * Wraps a parse error which occurs while iterating
+     */
+    class StreamedException extends RuntimeException {
+        public StreamedException(final IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    /**
+     * @param name field name
+     * @param type value type
+     * @param <V>  value type
+     * @return value of a field of the response object other than the streamed elements, empty if the field is not
+     *         present or has not been read yet. All fields are available once the elements have been read.
+     * @throws IOException if the value cannot be converted
+     */
+    <V> Optional<V> field(String name, Class<V> type) throws IOException;
+
+    /**
+     * Perform the action for each remaining element, then close
+     *
+     * @param action action
+     * @throws IOException if parsing fails
+     */
+    default void consume(Consumer<? super T> action) throws IOException {
+        try {
+            forEachRemaining(action);
+        } catch (StreamedException e) {
+            throw e.getCause();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * @return sequential stream of the remaining elements, closing the stream closes this object
+     */
+    default Stream<T> stream() {
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new StreamedException(e);
+                    }
+                });
+    }
+
+    /**
+     * @param elements elements
+     * @param <T>      element type
+     * @return streamed elements already in memory
+     */
+    static <T> Streamed<T> of(Iterable<T> elements) {
+        return of(elements, Collections.emptyMap());
+    }
+
+    /**
+     * @param elements elements
+     * @param fields   other fields of the response
+     * @param <T>      element type
+     * @return streamed elements already in memory
+     */
+    static <T> Streamed<T> of(Iterable<T> elements, Map<String, ?> fields) {
+        Iterator<T> iterator = elements.iterator();
+        return new Streamed<T>() {
+            @Override
+            public <V> Optional<V> field(final String name, final Class<V> type) {
+                return Optional.ofNullable(fields.get(name)).map(type::cast);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+
+            }
+        };
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2017 Rundeck, Inc. (http://rundeck.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.rundeck.client.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * Converts json response bodies for {@link Streamed} return types, elements are parsed as they are iterated
+ */
+public class StreamedConverterFactory extends Converter.Factory {
+    private final ObjectMapper mapper;
+
+    public StreamedConverterFactory(final ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * @param type type
+     * @return true if the type is {@link Streamed}
+     */
+    public static boolean isStreamed(final Type type) {
+        return getRawType(type) == Streamed.class;
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(
+            final Type type,
+            final Annotation[] annotations,
+            final Retrofit retrofit
+    )
+    {
+        if (!isStreamed(type)) {
+            return null;
+        }
+        if (!(type instanceof ParameterizedType)) {
+            throw new IllegalArgumentException("Streamed return type must be parameterized, e.g. Streamed<Foo>");
+        }
+        Type elementType = getParameterUpperBound(0, (ParameterizedType) type);
+        String field = null;
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof StreamedField) {
+                field = ((StreamedField) annotation).value();
+            }
+        }
+        ObjectReader reader = mapper.readerFor(mapper.getTypeFactory().constructType(elementType));
+        String elementsField = field;
+        return body -> JsonStreamed.open(mapper, reader, elementsField, body);
+    }
+
+    static class JsonStreamed<T>
+            implements Streamed<T>
+    {
+        private final ObjectMapper mapper;
+        private final ObjectReader reader;
+        private final String elementsField;
+        private final ResponseBody body;
+        private final JsonParser parser;
+        private final Map<String, JsonNode> fields = new LinkedHashMap<>();
+        private boolean objectValues;
+        private boolean done;
+        private T next;
+
+        private JsonStreamed(
+                final ObjectMapper mapper,
+                final ObjectReader reader,
+                final String elementsField,
+                final ResponseBody body,
+                final JsonParser parser
+        )
+        {
+            this.mapper = mapper;
+            this.reader = reader;
+            this.elementsField = elementsField;
+            this.body = body;
+            this.parser = parser;
+        }
+
+        static <T> JsonStreamed<T> open(
+                final ObjectMapper mapper,
+                final ObjectReader reader,
+                final String elementsField,
+                final ResponseBody body
+        ) throws IOException
+        {
+            JsonStreamed<T> streamed;
+            try {
+                streamed = new JsonStreamed<>(
+                        mapper,
+                        reader,
+                        elementsField,
+                        body,
+                        mapper.getFactory().createParser(body.byteStream())
+                );
+            } catch (IOException | RuntimeException e) {
+                body.close();
+                throw e;
+            }
+            try {
+                streamed.start();
+            } catch (IOException | RuntimeException e) {
+                streamed.close();
+                throw e;
+            }
+            return streamed;
+        }
+
+        private void start() throws IOException {
+            JsonToken token = parser.nextToken();
+            if (null == elementsField) {
+                if (token == JsonToken.START_OBJECT) {
+                    objectValues = true;
+                } else if (token != JsonToken.START_ARRAY) {
+                    throw new IOException("Expected json array or object response, but was: " + token);
+                }
+            } else {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IOException("Expected json object response, but was: " + token);
+                }
+                if (!readFields(elementsField)) {
+                    finish();
+                }
+            }
+        }
+
+        /**
+         * Read fields of the response object until the named field containing an array is found
+         *
+         * @param stopField name of field to stop at, or null to read to the end of the object
+         * @return true if the array field was found
+         */
+        private boolean readFields(final String stopField) throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (name.equals(stopField) && value == JsonToken.START_ARRAY) {
+                    return true;
+                }
+                if (name.equals(stopField) && value != JsonToken.VALUE_NULL) {
+                    throw new IOException("Expected json array for field " + name + ", but was: " + value);
+                }
+                fields.put(name, mapper.readTree(parser));
+            }
+            return false;
+        }
+
+        private void finish() throws IOException {
+            done = true;
+            if (null != elementsField) {
+                readFields(null);
+            }
+            close();
+        }
+
+        private JsonToken nextElementToken() throws IOException {
+            JsonToken token = parser.nextToken();
+            if (objectValues && token == JsonToken.FIELD_NAME) {
+                token = parser.nextToken();
+            }
+            return token;
+        }
+
+        @Override
+        public <V> Optional<V> field(final String name, final Class<V> type) throws IOException {
+            JsonNode node = fields.get(name);
+            if (null == node) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable(mapper.treeToValue(node, type));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (null != next) {
+                return true;
+            }
+            if (done) {
+                return false;
+            }
+            try {
+                JsonToken token = nextElementToken();
+                while (token == JsonToken.VALUE_NULL) {
+                    token = nextElementToken();
+                }
+                if (null == token || token == JsonToken.END_ARRAY || token == JsonToken.END_OBJECT) {
+                    finish();
+                    return false;
+                }
+                next = reader.readValue(parser);
+                return true;
+            } catch (IOException e) {
+                try {
+                    close();
+                } catch (IOException ignored) {
+
+                }
+                throw new StreamedException(e);
+            }
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T value = next;
+            next = null;
+            return value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            done = true;
+            next = null;
+            try {
+                parser.close();
+            } finally {
+                body.close();
+            }
+        }
+    }
+}
@@ -60,11 +60,31 @@ public class Util {
      */
     public static <T> T readPrompt(String prompt, Function<String, Optional<T>> handler, T defval) {
         Console console = System.console();
+        return readPrompt(null != console ? p -> console.readLine("%s", p) : null, prompt, handler, defval);
+    }
+
+    /**
+     * Use a console to prompt user for input
+     *
+     * @param console reads a line after the prompt, or null if there is no console
+     * @param prompt  prompt string
+     * @param handler input handler, returns parsed value, or empty to prompt again
+     * @param defval  default value to return if no input available or user cancels input
+     * @param <T>     result type
+     * @return result
+     */
+    public static <T> T readPrompt(
+            Function<String, String> console,
+            String prompt,
+            Function<String, Optional<T>> handler,
+            T defval
+    )
+    {
         if (null == console) {
             return defval;
         }
         while (true) {
-            String load = console.readLine(prompt);
+            String load = console.apply(prompt);
             if (null == load) {
                 return defval;
             }
@@ -31,4 +31,21 @@ class ExecOutputSpec extends Specification {
         vals[2].toMap() == logs.entries[0].toMap() + [log: 'test3']
 
     }
+
+    def "decompact entries continuing from the previous output"() {
+        given:
+        def previous = new ExecLog(level: 'INFO', log: 'test1', user: 'user1', node: 'node1', time: '13:01')
+        ExecOutput logs = new ExecOutput()
+        logs.compacted = true
+        logs.entries = [new ExecLog('test2'), new ExecLog(node: 'node2', log: 'test3')]
+
+        when:
+        def vals = logs.decompactEntries(previous)
+
+        then:
+        vals*.toMap() == [
+                previous.toMap() + [log: 'test2'],
+                previous.toMap() + [log: 'test3', node: 'node2'],
+        ]
+    }
 }
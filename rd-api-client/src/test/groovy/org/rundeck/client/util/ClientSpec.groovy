@@ -0,0 +1,114 @@
+package org.rundeck.client.util
+
+import okhttp3.Call
+import okhttp3.EventListener
+import okhttp3.OkHttpClient
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.rundeck.client.api.RequestFailed
+import org.rundeck.client.api.RundeckApi
+import retrofit2.Retrofit
+import retrofit2.converter.jackson.JacksonConverterFactory
+import spock.lang.Specification
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+
+class ClientSpec extends Specification {
+    MockWebServer server
+
+    def setup() {
+        server = new MockWebServer()
+        server.start()
+    }
+
+    def cleanup() {
+        server.shutdown()
+    }
+
+    private Client<RundeckApi> createClient(boolean allowDowngrade = false, OkHttpClient okhttp = new OkHttpClient()) {
+        def retrofit = new Retrofit.Builder().baseUrl(server.url('/api/21/')).
+            client(okhttp).
+            addConverterFactory(JacksonConverterFactory.create()).
+            build()
+        new Client<>(retrofit.create(RundeckApi), retrofit, null, null, 21, allowDowngrade, Mock(Client.Logger))
+    }
+
+    def "api call async result"() {
+        given:
+        server.enqueue(new MockResponse().setBody('[{"name":"proj1"},{"name":"proj2"}]').
+                           addHeader('content-type', 'application/json'))
+        def client = createClient()
+
+        when:
+        def result = client.apiCallAsync { it.listProjects() }.get(5, TimeUnit.SECONDS)
+
+        then:
+        result*.name == ['proj1', 'proj2']
+        server.takeRequest().path == '/api/21/projects'
+    }
+
+    def "api call async error"() {
+        given:
+        server.enqueue(new MockResponse().setResponseCode(404).
+                           setBody('{"error":true,"errorCode":"api.error.item.doesnotexist","message":"nope"}').
+                           addHeader('content-type', 'application/json'))
+        def client = createClient()
+
+        when:
+        client.apiCallAsync { it.listProjects() }.get(5, TimeUnit.SECONDS)
+
+        then:
+        ExecutionException e = thrown()
+        e.cause instanceof RequestFailed
+        e.cause.statusCode == 404
+    }
+
+    def "api call downgradable async unsupported version"() {
+        given:
+        server.enqueue(new MockResponse().setResponseCode(400).
+                           setBody('{"error":true,"apiversion":20,"errorCode":"api.error.api-version.unsupported",' +
+                                   '"message":"Unsupported API Version"}').
+                           addHeader('content-type', 'application/json'))
+        def client = createClient(true)
+
+        when:
+        client.apiCallDowngradableAsync { it.listProjects() }.get(5, TimeUnit.SECONDS)
+
+        then:
+        ExecutionException e = thrown()
+        e.cause instanceof Client.UnsupportedVersionDowngrade
+        e.cause.supportedVersion == 20
+        e.cause.requestedVersion == 21
+    }
+
+    def "api call async cancel"() {
+        given:
+        server.enqueue(new MockResponse().setBody('[]').setHeadersDelay(10, TimeUnit.SECONDS))
+        def failed = new CompletableFuture<Call>()
+        def okhttp = new OkHttpClient.Builder().eventListener(new EventListener() {
+            @Override
+            void callFailed(Call call, IOException ioe) {
+                failed.complete(call)
+            }
+        }).build()
+        def client = createClient(false, okhttp)
+        retrofit2.Call call = null
+
+        when:
+        def future = client.apiCallAsync { call = it.listProjects() }
+        server.takeRequest(5, TimeUnit.SECONDS)
+        def cancelled = future.cancel(true)
+        def failedCall = failed.get(5, TimeUnit.SECONDS)
+
+        then:
+        cancelled
+        future.isCancelled()
+        call.isCanceled()
+        failedCall.isCanceled()
+
+        cleanup:
+        okhttp.dispatcher().executorService().shutdown()
+    }
+}
@@ -0,0 +1,156 @@
+package org.rundeck.client.util
+
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.rundeck.client.RundeckClient
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class HttpCacheInterceptorSpec extends Specification {
+    @Unroll
+    def "read-mostly policy max age for #path"() {
+        given:
+        def sut = new HttpCacheInterceptor(HttpCacheInterceptor.parsePolicy('read-mostly', 30))
+
+        expect:
+        sut.maxAge(path) == expected
+
+        where:
+        path                                      | expected
+        '/api/41/projects'                        | 30
+        '/context/api/41/projects'                | 30
+        '/api/41/project/abc/jobs'                | 30
+        '/api/41/project/abc/jobs/export'         | null
+        '/api/41/project/abc/resources'           | 30
+        '/api/41/project/abc/config'              | 30
+        '/api/41/project/abc/acl/'                | 30
+        '/api/41/project/abc/acl/test.aclpolicy'  | 30
+        '/api/41/storage/keys/a/b'                | 30
+        '/api/41/execution/1/output'              | null
+        '/projects'                               | null
+    }
+
+    def "default policy is empty"() {
+        given:
+        def sut = new HttpCacheInterceptor(HttpCacheInterceptor.parsePolicy(null, 30))
+
+        expect:
+        sut.maxAge('/api/41/projects') == null
+        sut.maxAge('/api/41/project/abc/jobs') == null
+    }
+
+    def "custom policy"() {
+        given:
+        def sut = new HttpCacheInterceptor(
+                HttpCacheInterceptor.parsePolicy('project/*/resources=300, projects', 10)
+        )
+
+        expect:
+        sut.maxAge('/api/41/project/abc/resources') == 300
+        sut.maxAge('/api/41/projects') == 10
+        sut.maxAge('/api/41/project/abc/jobs') == null
+    }
+
+    def "invalid policy max age"() {
+        when:
+        HttpCacheInterceptor.parsePolicy('projects=abc', 10)
+
+        then:
+        IllegalArgumentException e = thrown()
+        e.message =~ /Invalid max age/
+    }
+
+    def "cached response is revalidated with etag"() {
+        given:
+        def server = new MockWebServer()
+        server.enqueue(new MockResponse().
+                           setBody('[{"name":"proj1"}]').
+                           addHeader('Content-Type', 'application/json').
+                           addHeader('Cache-Control', 'no-store').
+                           addHeader('ETag', '"v1"'))
+        server.enqueue(new MockResponse().setResponseCode(304).addHeader('ETag', '"v1"'))
+        server.start()
+        def client = RundeckClient.builder().
+                baseUrl(server.url('/api/41/').toString()).
+                tokenAuth('abc').
+                httpCache(File.createTempDir(), 1024 * 1024, HttpCacheInterceptor.parsePolicy('read-mostly', 0)).
+                build()
+
+        when:
+        def result1 = client.apiCall { it.listProjects() }
+        def result2 = client.apiCall { it.listProjects() }
+        def request1 = server.takeRequest()
+        def request2 = server.takeRequest()
+
+        then:
+        result1*.name == ['proj1']
+        result2*.name == ['proj1']
+        request1.getHeader('If-None-Match') == null
+        request2.getHeader('If-None-Match') == '"v1"'
+        client.retrofit.callFactory().cache().hitCount() == 1
+
+        cleanup:
+        client?.close()
+        server.shutdown()
+    }
+
+    def "response without a validator is served from the cache within the max age"() {
+        given:
+        def server = new MockWebServer()
+        server.enqueue(new MockResponse().
+                           setBody('[{"name":"proj1"}]').
+                           addHeader('Content-Type', 'application/json').
+                           addHeader('Cache-Control', 'no-store'))
+        server.start()
+        def client = RundeckClient.builder().
+                baseUrl(server.url('/api/41/').toString()).
+                tokenAuth('abc').
+                httpCache(File.createTempDir(), 1024 * 1024, HttpCacheInterceptor.parsePolicy('projects=60', 0)).
+                build()
+
+        when:
+        def result1 = client.apiCall { it.listProjects() }
+        def result2 = client.apiCall { it.listProjects() }
+
+        then:
+        result1*.name == ['proj1']
+        result2*.name == ['proj1']
+        server.requestCount == 1
+        client.retrofit.callFactory().cache().hitCount() == 1
+
+        cleanup:
+        client?.close()
+        server.shutdown()
+    }
+
+    def "response without a validator is not stored without a max age"() {
+        given:
+        def server = new MockWebServer()
+        2.times {
+            server.enqueue(new MockResponse().
+                               setBody('[{"name":"proj1"}]').
+                               addHeader('Content-Type', 'application/json').
+                               addHeader('Cache-Control', 'no-store'))
+        }
+        server.start()
+        def client = RundeckClient.builder().
+                baseUrl(server.url('/api/41/').toString()).
+                tokenAuth('abc').
+                httpCache(File.createTempDir(), 1024 * 1024, HttpCacheInterceptor.parsePolicy('projects', 0)).
+                build()
+
+        when:
+        def result1 = client.apiCall { it.listProjects() }
+        def result2 = client.apiCall { it.listProjects() }
+
+        then:
+        result1*.name == ['proj1']
+        result2*.name == ['proj1']
+        server.requestCount == 2
+        client.retrofit.callFactory().cache().hitCount() == 0
+
+        cleanup:
+        client?.close()
+        server.shutdown()
+    }
+}
@@ -0,0 +1,91 @@
+package org.rundeck.client.util
+
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.rundeck.client.api.RundeckApi
+import retrofit2.Retrofit
+import retrofit2.converter.jackson.JacksonConverterFactory
+import spock.lang.Specification
+
+class HttpTimingsSpec extends Specification {
+    MockWebServer server
+
+    def setup() {
+        server = new MockWebServer()
+        server.start()
+    }
+
+    def cleanup() {
+        server.shutdown()
+    }
+
+    def "records calls by api method"() {
+        given:
+        def timings = new HttpTimings()
+        def okhttp = new OkHttpClient.Builder().eventListenerFactory(timings).build()
+        def retrofit = new Retrofit.Builder().baseUrl(server.url('/api/41/')).
+            client(okhttp).
+            addConverterFactory(JacksonConverterFactory.create()).
+            build()
+        def api = retrofit.create(RundeckApi)
+        2.times {
+            server.enqueue(new MockResponse().setBody('[{"name":"proj1"}]').
+                               addHeader('content-type', 'application/json'))
+        }
+
+        when:
+        api.listProjects().execute()
+        api.listProjects().execute()
+        def summary = timings.summarize()
+
+        then:
+        timings.calls.size() == 2
+        timings.calls[0].startNanos < timings.calls[1].startNanos
+        summary.size() == 1
+        summary[0].endpoint == 'RundeckApi.listProjects'
+        summary[0].count == 2
+        summary[0].failed == 0
+        summary[0].reused == 1
+        summary[0].bytesReceived == 36
+        summary[0].percentileMillis(HttpTimings.Phase.total, 100) > 0
+        summary[0].toMap().keySet().containsAll(['count', 'totalMillis', 'ttfbMillis', 'connectMillis'])
+
+        cleanup:
+        RundeckClient.shutdown(okhttp)
+    }
+
+    def "records failed call by path"() {
+        given:
+        def timings = new HttpTimings()
+        def okhttp = new OkHttpClient.Builder().eventListenerFactory(timings).build()
+        def url = server.url('/api/41/system/info')
+        server.shutdown()
+
+        when:
+        okhttp.newCall(new Request.Builder().url(url).build()).execute()
+
+        then:
+        thrown(IOException)
+        timings.calls.size() == 1
+        timings.calls[0].endpoint == 'GET /api/41/system/info'
+        timings.calls[0].failed
+    }
+
+    def "percentiles use nearest rank"() {
+        given:
+        def calls = (1..20).collect { n ->
+            def call = new HttpTimings.CallTiming('a')
+            call.add(HttpTimings.Phase.total, n * 1000000L)
+            call
+        }
+        def summary = new HttpTimings.EndpointSummary('a', calls)
+
+        expect:
+        summary.percentileMillis(HttpTimings.Phase.total, 50) == 10.0d
+        summary.percentileMillis(HttpTimings.Phase.total, 95) == 19.0d
+        summary.percentileMillis(HttpTimings.Phase.total, 100) == 20.0d
+        summary.percentileMillis(HttpTimings.Phase.dns, 50) == 0.0d
+    }
+}
@@ -0,0 +1,133 @@
+package org.rundeck.client.util
+
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.rundeck.client.api.RundeckApi
+import org.rundeck.client.api.model.Paging
+import retrofit2.Retrofit
+import retrofit2.converter.jackson.JacksonConverterFactory
+import spock.lang.Specification
+
+class QualifiedTypeConverterFactorySpec extends Specification {
+    MockWebServer server
+
+    def setup() {
+        server = new MockWebServer()
+        server.start()
+    }
+
+    def cleanup() {
+        server.shutdown()
+    }
+
+    private RundeckApi createApi() {
+        def retrofit = new Retrofit.Builder().baseUrl(server.url('/api/21/')).
+            addConverterFactory(
+                new QualifiedTypeConverterFactory(
+                    JacksonConverterFactory.create(),
+                    JacksonConverterFactory.create(),
+                    true
+                )
+            ).
+            build()
+        retrofit.create(RundeckApi)
+    }
+
+    private void enqueueJson(String body) {
+        server.enqueue(new MockResponse().setBody(body).addHeader('content-type', 'application/json'))
+    }
+
+    def "streamed array response"() {
+        given:
+        enqueueJson('[{"id":"a","name":"job1"},null,{"id":"b","name":"job2"}]')
+        def api = createApi()
+
+        when:
+        def streamed = api.listJobsStreamed('proj', null, null, null, null).execute().body()
+        def ids = []
+        streamed.consume { ids << it.id }
+
+        then:
+        ids == ['a', 'b']
+        !streamed.hasNext()
+    }
+
+    def "streamed object response values"() {
+        given:
+        enqueueJson('{"node1":{"nodename":"node1","hostname":"h1"},"node2":{"nodename":"node2","hostname":"h2"}}')
+        def api = createApi()
+
+        when:
+        def streamed = api.listNodesStreamed('proj', null).execute().body()
+        def nodes = streamed.stream().collect()
+
+        then:
+        nodes*.name == ['node1', 'node2']
+        nodes*.attributes*.hostname == ['h1', 'h2']
+    }
+
+    def "streamed field of response object"() {
+        given:
+        enqueueJson(
+            '{"paging":{"count":2,"total":5,"max":2,"offset":0},' +
+            '"executions":[{"id":"1"},{"id":"2"}],"after":{"value":true}}'
+        )
+        def api = createApi()
+
+        when:
+        def streamed = api.listExecutionsStreamed('proj', [:], null, null, null, null).execute().body()
+        def paging = streamed.field('paging', Paging).orElse(null)
+        def first = streamed.next()
+        def afterBeforeEnd = streamed.field('after', Map)
+        def rest = streamed.stream().collect()
+
+        then:
+        paging.total == 5
+        paging.max == 2
+        first.id == '1'
+        !afterBeforeEnd.isPresent()
+        rest*.id == ['2']
+        streamed.field('after', Map).get() == [value: true]
+    }
+
+    def "streamed field missing has no elements"() {
+        given:
+        enqueueJson('{"paging":{"count":0,"total":0,"max":2,"offset":0}}')
+        def api = createApi()
+
+        when:
+        def streamed = api.listExecutionsStreamed('proj', [:], null, null, null, null).execute().body()
+
+        then:
+        !streamed.hasNext()
+        streamed.field('paging', Paging).get().total == 0
+    }
+
+    def "streamed invalid element"() {
+        given:
+        enqueueJson('[{"id":"a"},{"id":')
+        def api = createApi()
+        def streamed = api.listJobsStreamed('proj', null, null, null, null).execute().body()
+        def ids = []
+
+        when:
+        streamed.consume { ids << it.id }
+
+        then:
+        thrown(IOException)
+        ids == ['a']
+    }
+
+    def "streamed unexpected response"() {
+        given:
+        enqueueJson('"text"')
+        def api = createApi()
+
+        when:
+        api.listJobsStreamed('proj', null, null, null, null).execute()
+
+        then:
+        IOException e = thrown()
+        e.message.contains('Expected json array or object')
+    }
+}
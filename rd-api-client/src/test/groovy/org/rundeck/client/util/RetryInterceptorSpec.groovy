@@ -0,0 +1,189 @@
+package org.rundeck.client.util
+
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.RequestBody
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.SocketPolicy
+import org.rundeck.client.api.RundeckApi
+import org.rundeck.client.api.model.ProjectConfig
+import retrofit2.Invocation
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class RetryInterceptorSpec extends Specification {
+    MockWebServer server
+    List<Long> sleeps = []
+    Client.Logger logger = Mock(Client.Logger)
+
+    def setup() {
+        server = new MockWebServer()
+        server.start()
+    }
+
+    def cleanup() {
+        server.shutdown()
+    }
+
+    private RetryInterceptor interceptor(int maxRetries, long maxDelay = 10000) {
+        new RetryInterceptor(
+            maxRetries,
+            100,
+            maxDelay,
+            logger,
+            { long millis -> sleeps << millis } as RetryInterceptor.Sleeper,
+            { 0L },
+            { long bound -> bound }
+        )
+    }
+
+    private OkHttpClient client(RetryInterceptor interceptor, long callTimeout = 0) {
+        new OkHttpClient.Builder().
+            retryOnConnectionFailure(false).
+            callTimeout(callTimeout, TimeUnit.SECONDS).
+            addInterceptor(interceptor).
+            build()
+    }
+
+    private Request get() {
+        new Request.Builder().url(server.url('/api/41/projects')).build()
+    }
+
+    def "retry get on #code"() {
+        given:
+        server.enqueue(new MockResponse().setResponseCode(code))
+        server.enqueue(new MockResponse().setResponseCode(code))
+        server.enqueue(new MockResponse().setBody('ok'))
+
+        when:
+        def response = client(interceptor(3)).newCall(get()).execute()
+
+        then:
+        response.code() == 200
+        response.body().string() == 'ok'
+        server.requestCount == 3
+        sleeps == [100L, 200L]
+        2 * logger.warning({ it.contains('GET /api/41/projects failed: HTTP ' + code) })
+
+        where:
+        code << [502, 503, 504, 429]
+    }
+
+    def "does not retry client errors"() {
+        given:
+        server.enqueue(new MockResponse().setResponseCode(404))
+
+        when:
+        def response = client(interceptor(3)).newCall(get()).execute()
+
+        then:
+        response.code() == 404
+        server.requestCount == 1
+        sleeps == []
+    }
+
+    def "does not retry post"() {
+        given:
+        server.enqueue(new MockResponse().setResponseCode(503))
+        def request = new Request.Builder().url(server.url('/api/41/projects')).
+            post(RequestBody.create('{}', null)).
+            build()
+
+        when:
+        def response = client(interceptor(3)).newCall(request).execute()
+
+        then:
+        response.code() == 503
+        server.requestCount == 1
+    }
+
+    def "retries idempotent api method"() {
+        given:
+        def method = RundeckApi.getMethod('setProjectConfiguration', String, ProjectConfig)
+        def request = new Request.Builder().url(server.url('/api/41/project/a/config')).
+            put(RequestBody.create('{}', null)).
+            tag(Invocation, Invocation.of(method, ['a', null])).
+            build()
+
+        expect:
+        RetryInterceptor.isRetryable(request)
+    }
+
+    def "stops after max retries"() {
+        given:
+        4.times { server.enqueue(new MockResponse().setResponseCode(503)) }
+
+        when:
+        def response = client(interceptor(2)).newCall(get()).execute()
+
+        then:
+        response.code() == 503
+        server.requestCount == 3
+        sleeps == [100L, 200L]
+    }
+
+    def "backoff is capped"() {
+        given:
+        def retry = interceptor(10, 1000)
+
+        expect:
+        (0..6).collect { retry.backoffMillis(it) } == [100L, 200L, 400L, 800L, 1000L, 1000L, 1000L]
+        retry.backoffMillis(100) == 1000L
+    }
+
+    def "honors retry-after"() {
+        given:
+        server.enqueue(new MockResponse().setResponseCode(429).addHeader('Retry-After', '3'))
+        server.enqueue(new MockResponse().setBody('ok'))
+
+        when:
+        def response = client(interceptor(3)).newCall(get()).execute()
+
+        then:
+        response.code() == 200
+        sleeps == [3000L]
+    }
+
+    def "retry-after longer than max delay is not retried"() {
+        given:
+        server.enqueue(new MockResponse().setResponseCode(503).addHeader('Retry-After', '120'))
+
+        when:
+        def response = client(interceptor(3)).newCall(get()).execute()
+
+        then:
+        response.code() == 503
+        server.requestCount == 1
+        sleeps == []
+    }
+
+    def "does not retry beyond call timeout"() {
+        given:
+        server.enqueue(new MockResponse().setResponseCode(503).addHeader('Retry-After', '2'))
+        server.enqueue(new MockResponse().setBody('ok'))
+
+        when:
+        def response = client(interceptor(3), 1).newCall(get()).execute()
+
+        then:
+        response.code() == 503
+        server.requestCount == 1
+        sleeps == []
+    }
+
+    def "retry connection failure"() {
+        given:
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START))
+        server.enqueue(new MockResponse().setBody('ok'))
+
+        when:
+        def response = client(interceptor(3)).newCall(get()).execute()
+
+        then:
+        response.code() == 200
+        sleeps == [100L]
+        1 * logger.warning(_)
+    }
+}
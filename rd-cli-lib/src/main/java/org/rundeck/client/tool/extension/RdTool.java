@@ -4,11 +4,16 @@ import org.rundeck.client.api.RundeckApi;
 import org.rundeck.client.tool.InputError;
 import org.rundeck.client.tool.ProjectInput;
 import org.rundeck.client.tool.RdApp;
+import org.rundeck.client.tool.parallel.ParallelException;
+import org.rundeck.client.tool.parallel.ParallelRunner;
+import org.rundeck.client.tool.parallel.ParallelTask;
 import org.rundeck.client.util.RdClientConfig;
 import org.rundeck.client.util.ServiceClient;
 import retrofit2.Call;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
 import java.util.function.Function;
 
 /**
@@ -91,6 +96,77 @@ public interface RdTool {
      */
     void requireApiVersion(final String description, final int min) throws InputError;
 
+    /**
+     * @return runner for concurrent tasks, using a pool shared by the tool and limited by
+     *         {@value ParallelRunner#RD_MAX_CONCURRENCY}
+     */
+    default ParallelRunner getParallelRunner() {
+        return ParallelRunner.shared(ParallelRunner.maxConcurrency(getAppConfig()));
+    }
+
+    /**
+     * Run the task for each item concurrently, and return the results in the order of the items
+     *
+     * @param items items
+     * @param task  task
+     * @param <T>   item type
+     * @param <R>   result type
+     * @return results
+     * @throws ParallelException if any task fails or the tool is interrupted, after all started tasks finished
+     */
+    default <T, R> List<R> parallelMap(
+            final Collection<? extends T> items,
+            final ParallelTask<? super T, ? extends R> task
+    )
+    {
+        return parallelMap(items, task, true);
+    }
+
+    /**
+     * Run the task for each item concurrently
+     *
+     * @param items   items
+     * @param task    task
+     * @param ordered true to return results in the order of the items, false in the order of completion
+     * @param <T>     item type
+     * @param <R>     result type
+     * @return results
+     * @throws ParallelException if any task fails or the tool is interrupted, after all started tasks finished
+     */
+    default <T, R> List<R> parallelMap(
+            final Collection<? extends T> items,
+            final ParallelTask<? super T, ? extends R> task,
+            final boolean ordered
+    )
+    {
+        return getParallelRunner().map(items, task, ordered);
+    }
+
+    /**
+     * Run the task concurrently for batches of the items
+     *
+     * @param items     items
+     * @param batchSize maximum size of each batch
+     * @param task      task
+     * @param <T>       item type
+     * @throws ParallelException if any task fails or the tool is interrupted, after all started tasks finished
+     */
+    default <T> void forEachBatched(
+            final List<? extends T> items,
+            final int batchSize,
+            final ParallelTask<? super List<T>, ?> task
+    )
+    {
+        getParallelRunner().forEachBatched(items, batchSize, task);
+    }
+
+    /**
+     * @return true if the tool or the current command is being interrupted, and long running tasks should stop
+     */
+    default boolean isCancelled() {
+        return ParallelRunner.isCancelled();
+    }
+
     /**
      * Require the client to have minimum API version
      *
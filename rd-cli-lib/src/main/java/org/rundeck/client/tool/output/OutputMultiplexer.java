@@ -0,0 +1,223 @@
+package org.rundeck.client.tool.output;
+
+import org.rundeck.client.tool.CommandOutput;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Shares one output between concurrent tasks. Each task writes to its own {@link Task} output, and each record is
+ * written to the target output whole, so records of different tasks never interleave. Buffered records of a task are
+ * written together.
+ * <p>
+ * Text records can be tagged with a prefix per task, added to each line. Other records are written to the target
+ * unchanged, so that formatted (e.g. JSON or YAML) output stays valid.
+ * </p>
+ */
+public class OutputMultiplexer implements Closeable {
+    /**
+     * When task records are written
+     */
+    public enum Mode {
+        /**
+         * In task order: the records of the first unfinished task are written as they are produced, and the records of
+         * later tasks are buffered until all earlier tasks are finished
+         */
+        ORDERED,
+        /**
+         * In order of completion: the records of a task are buffered and written together when it finishes
+         */
+        COMPLETED,
+        /**
+         * As they are produced: records of different tasks are mixed, and are best told apart by a prefix
+         */
+        INTERLEAVED
+    }
+
+    private static final Pattern NL = Pattern.compile("\r?\n");
+
+    private final CommandOutput target;
+    private final Mode mode;
+    private final Object lock = new Object();
+    private final LinkedList<Task> pending = new LinkedList<>();
+
+    /**
+     * @param target output to write to
+     * @param mode   when task records are written
+     */
+    public OutputMultiplexer(final CommandOutput target, final Mode mode) {
+        this.target = target;
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Start a task, the order of tasks is the order they are started
+     *
+     * @return output for a task, without a prefix
+     */
+    public Task task() {
+        return task(null);
+    }
+
+    /**
+     * Start a task, the order of tasks is the order they are started
+     *
+     * @param prefix prefix for each line of the text records of the task, or null
+     * @return output for a task
+     */
+    public Task task(final String prefix) {
+        Task task = new Task(prefix);
+        if (mode != Mode.INTERLEAVED) {
+            synchronized (lock) {
+                pending.add(task);
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Finish all tasks, and write their buffered records in task order
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            for (Task task : new ArrayList<>(pending)) {
+                task.close();
+            }
+        }
+    }
+
+    private boolean isLive(final Task task) {
+        switch (mode) {
+            case INTERLEAVED:
+                return true;
+            case ORDERED:
+                return task.written || pending.peekFirst() == task;
+            default:
+                return task.written;
+        }
+    }
+
+    private void finish(final Task task) {
+        if (mode != Mode.ORDERED) {
+            pending.remove(task);
+            task.flush();
+            return;
+        }
+        if (pending.peekFirst() != task) {
+            //written when the earlier tasks finish
+            return;
+        }
+        pending.removeFirst();
+        task.flush();
+        while (!pending.isEmpty()) {
+            Task next = pending.peekFirst();
+            next.flush();
+            if (!next.closed) {
+                //now written as it is produced
+                break;
+            }
+            pending.removeFirst();
+        }
+    }
+
+    private static class Record {
+        final BiConsumer<CommandOutput, Object> channel;
+        final Object value;
+
+        Record(final BiConsumer<CommandOutput, Object> channel, final Object value) {
+            this.channel = channel;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Output for one task, finished by {@link #close()}
+     */
+    public class Task implements CommandOutput, Closeable {
+        private final String prefix;
+        private final List<Record> buffer = new ArrayList<>();
+        private boolean closed;
+        private boolean written;
+
+        private Task(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public void info(final Object output) {
+            write(CommandOutput::info, output);
+        }
+
+        @Override
+        public void output(final Object output) {
+            write(CommandOutput::output, output);
+        }
+
+        @Override
+        public void error(final Object error) {
+            write(CommandOutput::error, error);
+        }
+
+        @Override
+        public void warning(final Object error) {
+            write(CommandOutput::warning, error);
+        }
+
+        private void write(final BiConsumer<CommandOutput, Object> channel, final Object value) {
+            Record record = new Record(channel, addPrefix(value));
+            synchronized (lock) {
+                if (isLive(this)) {
+                    record.channel.accept(target, record.value);
+                } else {
+                    buffer.add(record);
+                }
+            }
+        }
+
+        private Object addPrefix(final Object value) {
+            if (null == prefix || !(value instanceof CharSequence)) {
+                return value;
+            }
+            String[] lines = NL.split(value.toString(), -1);
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < lines.length; i++) {
+                if (i > 0) {
+                    sb.append(System.lineSeparator());
+                }
+                sb.append(prefix).append(lines[i]);
+            }
+            return sb.toString();
+        }
+
+        private void flush() {
+            for (Record record : buffer) {
+                record.channel.accept(target, record.value);
+            }
+            buffer.clear();
+            written = closed;
+        }
+
+        /**
+         * Finish the task, and write its buffered records when they are due
+         */
+        @Override
+        public void close() {
+            synchronized (lock) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                finish(this);
+            }
+        }
+    }
+}
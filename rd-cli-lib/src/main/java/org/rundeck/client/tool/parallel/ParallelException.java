@@ -0,0 +1,116 @@
+package org.rundeck.client.tool.parallel;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Failures of tasks run by a {@link ParallelRunner}, or cancellation before all tasks were run. The results of the
+ * tasks which succeeded are available from {@link #getResults()}.
+ */
+public class ParallelException extends RuntimeException {
+    private final List<Failure> failures;
+    private final List<?> results;
+    private final int total;
+    private final boolean cancelled;
+
+    public ParallelException(
+            final List<Failure> failures,
+            final List<?> results,
+            final int total,
+            final boolean cancelled
+    )
+    {
+        super(message(failures, results, total, cancelled), failures.isEmpty() ? null : failures.get(0).getError());
+        this.failures = Collections.unmodifiableList(failures);
+        this.results = Collections.unmodifiableList(results);
+        this.total = total;
+        this.cancelled = cancelled;
+        for (int i = 1; i < failures.size(); i++) {
+            addSuppressed(failures.get(i).getError());
+        }
+    }
+
+    private static String message(
+            final List<Failure> failures,
+            final List<?> results,
+            final int total,
+            final boolean cancelled
+    )
+    {
+        StringBuilder sb = new StringBuilder();
+        if (cancelled) {
+            sb.append(String.format("Cancelled: %d of %d tasks completed", results.size() + failures.size(), total));
+        }
+        if (!failures.isEmpty()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(String.format("%d of %d tasks failed", failures.size(), total));
+            sb.append(": ").append(failures.get(0).getError().getMessage());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return failures in the order of the items
+     */
+    public List<Failure> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return results of the tasks which succeeded
+     */
+    public List<?> getResults() {
+        return results;
+    }
+
+    /**
+     * @return number of items
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return true if tasks were not run because of cancellation
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Failure of the task for one item
+     */
+    public static class Failure {
+        private final int index;
+        private final Object item;
+        private final Exception error;
+
+        public Failure(final int index, final Object item, final Exception error) {
+            this.index = index;
+            this.item = item;
+            this.error = error;
+        }
+
+        /**
+         * @return index of the item
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public Object getItem() {
+            return item;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return item + ": " + error.getMessage();
+        }
+    }
+}
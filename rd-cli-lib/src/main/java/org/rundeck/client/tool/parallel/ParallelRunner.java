@@ -0,0 +1,348 @@
+package org.rundeck.client.tool.parallel;
+
+import org.rundeck.client.util.ConfigSource;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks for many items on a bounded pool of threads shared by the whole process.
+ * <p>
+ * The calling thread also runs tasks, so a run always completes even when the pool is busy, including runs started
+ * from within a task. At most {@code maxConcurrency} tasks of one run are active at once.
+ * </p>
+ * <p>
+ * Tasks run on pool threads with the context class loader and any {@link ThreadContext} of the calling thread, and
+ * the previous state of the pool thread is restored after each run.
+ * </p>
+ * <p>
+ * When the calling thread is interrupted, no more tasks of the run are started. When the process is interrupted
+ * (Ctrl-C), no more tasks are started, and the shutdown waits a short time for active tasks to finish. Long running
+ * tasks can check {@link #isCancelled()} to stop early.
+ * </p>
+ */
+public class ParallelRunner {
+    /**
+     * Maximum number of concurrent tasks, default {@value #DEFAULT_MAX_CONCURRENCY}
+     */
+    public static final String RD_MAX_CONCURRENCY = "RD_MAX_CONCURRENCY";
+    /**
+     * Default maximum concurrency, the same as the default maximum requests per host of the http client
+     */
+    public static final int DEFAULT_MAX_CONCURRENCY = 5;
+    static final long SHUTDOWN_WAIT_MS = 5000;
+
+    private static final Map<Integer, ParallelRunner> SHARED = new ConcurrentHashMap<>();
+    private static final AtomicBoolean CANCELLED = new AtomicBoolean();
+    private static final AtomicBoolean HOOK_INSTALLED = new AtomicBoolean();
+    private static final List<ThreadContext> CONTEXTS = new CopyOnWriteArrayList<>();
+    /**
+     * Thread which started the run of the task running on the current thread
+     */
+    private static final ThreadLocal<Thread> CALLER = new ThreadLocal<>();
+    private static final Object ACTIVE_LOCK = new Object();
+    private static int active;
+
+    private final int maxConcurrency;
+    private final ExecutorService executor;
+
+    /**
+     * @param maxConcurrency maximum concurrency
+     * @param executor       executor for tasks
+     */
+    public ParallelRunner(final int maxConcurrency, final ExecutorService executor) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1: " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.executor = executor;
+    }
+
+    /**
+     * @param config config, or null
+     * @return the configured {@value #RD_MAX_CONCURRENCY}, or the default if it is not set or invalid
+     */
+    public static int maxConcurrency(final ConfigSource config) {
+        int value = null != config ? config.getInt(RD_MAX_CONCURRENCY, DEFAULT_MAX_CONCURRENCY) : 0;
+        return value > 0 ? value : DEFAULT_MAX_CONCURRENCY;
+    }
+
+    /**
+     * @param maxConcurrency maximum concurrency
+     * @return runner with a pool of daemon threads shared by all callers with the same concurrency
+     */
+    public static ParallelRunner shared(final int maxConcurrency) {
+        installShutdownHook();
+        return SHARED.computeIfAbsent(maxConcurrency, n -> {
+            AtomicInteger threads = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    n,
+                    n,
+                    30,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    r -> {
+                        Thread thread = new Thread(r, "rd-parallel-" + threads.incrementAndGet());
+                        thread.setDaemon(true);
+                        //not the loader of the caller which happened to create the thread
+                        thread.setContextClassLoader(ParallelRunner.class.getClassLoader());
+                        return thread;
+                    }
+            );
+            pool.allowCoreThreadTimeOut(true);
+            return new ParallelRunner(n, pool);
+        });
+    }
+
+    private static void installShutdownHook() {
+        if (HOOK_INSTALLED.compareAndSet(false, true)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(ParallelRunner::cancelAndWait, "rd-parallel-shutdown"));
+        }
+    }
+
+    /**
+     * Stop starting tasks, and wait for the active runs to finish
+     */
+    static void cancelAndWait() {
+        CANCELLED.set(true);
+        long deadline = System.currentTimeMillis() + SHUTDOWN_WAIT_MS;
+        synchronized (ACTIVE_LOCK) {
+            long remaining;
+            while (active > 0 && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    ACTIVE_LOCK.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Add state of the calling thread to apply while its tasks run on other threads
+     *
+     * @param context context
+     */
+    public static void addThreadContext(final ThreadContext context) {
+        CONTEXTS.add(context);
+    }
+
+    /**
+     * @return true if the process is being interrupted, or the current thread, or the thread which started the run of
+     *         the current task, is interrupted
+     */
+    public static boolean isCancelled() {
+        if (CANCELLED.get() || Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        Thread caller = CALLER.get();
+        return null != caller && caller.isInterrupted();
+    }
+
+    /**
+     * @return the context class loader, caller and thread contexts of the current thread
+     */
+    private static List<ThreadContext.Captured> captureContext() {
+        List<ThreadContext.Captured> captured = new ArrayList<>();
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        captured.add(() -> {
+            Thread thread = Thread.currentThread();
+            ClassLoader previous = thread.getContextClassLoader();
+            thread.setContextClassLoader(loader);
+            return () -> thread.setContextClassLoader(previous);
+        });
+        //tasks of nested runs are cancelled with the outermost caller
+        Thread caller = null != CALLER.get() ? CALLER.get() : Thread.currentThread();
+        captured.add(() -> {
+            Thread previous = CALLER.get();
+            CALLER.set(caller);
+            return () -> {
+                if (null == previous) {
+                    CALLER.remove();
+                } else {
+                    CALLER.set(previous);
+                }
+            };
+        });
+        for (ThreadContext context : CONTEXTS) {
+            captured.add(context.capture());
+        }
+        return captured;
+    }
+
+    private static void runWithContext(final List<ThreadContext.Captured> captured, final Runnable runnable) {
+        Deque<Runnable> restore = new ArrayDeque<>();
+        try {
+            for (ThreadContext.Captured context : captured) {
+                restore.push(context.apply());
+            }
+            runnable.run();
+        } finally {
+            while (!restore.isEmpty()) {
+                restore.pop().run();
+            }
+        }
+    }
+
+    /**
+     * @return maximum concurrency
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Run the task for each item
+     *
+     * @param items   items
+     * @param task    task
+     * @param ordered true to return results in the order of the items, false in the order of completion
+     * @param <T>     item type
+     * @param <R>     result type
+     * @return results
+     * @throws ParallelException if any task fails, or the run is cancelled, after all started tasks finished
+     */
+    public <T, R> List<R> map(
+            final Collection<? extends T> items,
+            final ParallelTask<? super T, ? extends R> task,
+            final boolean ordered
+    )
+    {
+        List<T> list = new ArrayList<>(items);
+        int total = list.size();
+        Object[] results = new Object[total];
+        boolean[] succeeded = new boolean[total];
+        List<R> completed = Collections.synchronizedList(new ArrayList<>());
+        List<ParallelException.Failure> failures = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean interrupted = new AtomicBoolean();
+
+        Runnable worker = () -> {
+            int i;
+            while (!isCancelled() && !interrupted.get() && (i = next.getAndIncrement()) < total) {
+                T item = list.get(i);
+                try {
+                    R result = task.apply(item);
+                    results[i] = result;
+                    succeeded[i] = true;
+                    if (!ordered) {
+                        completed.add(result);
+                    }
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                    failures.add(new ParallelException.Failure(i, item, e));
+                } catch (Exception e) {
+                    failures.add(new ParallelException.Failure(i, item, e));
+                }
+            }
+        };
+
+        List<ThreadContext.Captured> context = captureContext();
+        begin();
+        try {
+            int helperCount = Math.min(maxConcurrency, total) - 1;
+            List<AtomicBoolean> started = new ArrayList<>();
+            List<Future<?>> helpers = new ArrayList<>();
+            for (int h = 0; h < helperCount; h++) {
+                AtomicBoolean claimed = new AtomicBoolean();
+                started.add(claimed);
+                helpers.add(executor.submit(() -> {
+                    if (claimed.compareAndSet(false, true)) {
+                        runWithContext(context, worker);
+                    }
+                }));
+            }
+            worker.run();
+            for (int h = 0; h < helperCount; h++) {
+                Future<?> helper = helpers.get(h);
+                if (started.get(h).compareAndSet(false, true)) {
+                    //not yet started, and nothing left to do
+                    helper.cancel(false);
+                    continue;
+                }
+                try {
+                    helper.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new RuntimeException(cause);
+                } catch (InterruptedException e) {
+                    //stop starting tasks, and wait again for the active one
+                    interrupted.set(true);
+                    h--;
+                }
+            }
+            if (interrupted.get()) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            end();
+        }
+
+        List<R> values;
+        if (ordered) {
+            values = new ArrayList<>();
+            for (int i = 0; i < total; i++) {
+                if (succeeded[i]) {
+                    @SuppressWarnings("unchecked")
+                    R result = (R) results[i];
+                    values.add(result);
+                }
+            }
+        } else {
+            values = new ArrayList<>(completed);
+        }
+        boolean cancelled = values.size() + failures.size() < total;
+        if (!failures.isEmpty() || cancelled) {
+            List<ParallelException.Failure> sorted = new ArrayList<>(failures);
+            sorted.sort(Comparator.comparingInt(ParallelException.Failure::getIndex));
+            throw new ParallelException(sorted, values, total, cancelled);
+        }
+        return values;
+    }
+
+    /**
+     * Run the task for batches of the items
+     *
+     * @param items     items
+     * @param batchSize maximum size of each batch
+     * @param task      task
+     * @param <T>       item type
+     * @throws ParallelException if any task fails, or the run is cancelled, after all started tasks finished
+     */
+    public <T> void forEachBatched(
+            final List<? extends T> items,
+            final int batchSize,
+            final ParallelTask<? super List<T>, ?> task
+    )
+    {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1: " + batchSize);
+        }
+        List<List<T>> batches = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += batchSize) {
+            batches.add(Collections.unmodifiableList(new ArrayList<>(
+                    items.subList(i, Math.min(items.size(), i + batchSize))
+            )));
+        }
+        map(batches, task, true);
+    }
+
+    private static void begin() {
+        synchronized (ACTIVE_LOCK) {
+            active++;
+        }
+    }
+
+    private static void end() {
+        synchronized (ACTIVE_LOCK) {
+            active--;
+            ACTIVE_LOCK.notifyAll();
+        }
+    }
+}
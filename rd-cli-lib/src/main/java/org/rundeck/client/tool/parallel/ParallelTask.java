@@ -0,0 +1,16 @@
+package org.rundeck.client.tool.parallel;
+
+/**
+ * Task run for each item by a {@link ParallelRunner}
+ *
+ * @param <T> item type
+ * @param <R> result type
+ */
+public interface ParallelTask<T, R> {
+    /**
+     * @param item item
+     * @return result
+     * @throws Exception on failure, reported with the other failures when all items are done
+     */
+    R apply(T item) throws Exception;
+}
@@ -0,0 +1,24 @@
+package org.rundeck.client.tool.parallel;
+
+/**
+ * State of the calling thread which tasks run by a {@link ParallelRunner} on other threads should also see, such as
+ * a thread local value
+ */
+public interface ThreadContext {
+    /**
+     * @return the state of the current thread
+     */
+    Captured capture();
+
+    /**
+     * State captured from a thread
+     */
+    interface Captured {
+        /**
+         * Apply the state to the current thread
+         *
+         * @return restores the previous state of the current thread
+         */
+        Runnable apply();
+    }
+}
@@ -0,0 +1,69 @@
+package org.rundeck.client.tool
+
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+
+/**
+ * Stand-in server for the class data sharing training run of the build. Prints the server URL on the first line of
+ * output, and serves canned responses for the training commands until the input is closed.
+ */
+class CdsTrainingServer {
+    static final Map<String, String> RESPONSES = [
+        'system/info'                : '''{"system":{"timestamp":{"epoch":0,"unit":"ms","datetime":"2024-01-01T00:00:00Z"},
+"rundeck":{"version":"5.0.0","build":"5.0.0","node":"rundeck","base":"/var/lib/rundeck","apiversion":47,
+"serverUUID":"00000000-0000-0000-0000-000000000000"},"os":{"arch":"amd64","name":"Linux","version":"6"},
+"jvm":{"name":"OpenJDK","vendor":"OpenJDK","version":"17","implementationVersion":"17"},
+"stats":{"uptime":{"duration":1000,"unit":"ms","since":{"epoch":0,"unit":"ms","datetime":"2024-01-01T00:00:00Z"}},
+"cpu":{"loadAverage":{"unit":"percent","average":0.1},"processors":4},
+"memory":{"unit":"byte","max":1024,"free":512,"total":1024},"scheduler":{"running":0,"threadPoolSize":10},
+"threads":{"active":10}},"metrics":{"href":"","contentType":"text/json"},
+"threadDump":{"href":"","contentType":"text/plain"}}}''',
+        'projects'                   : '[{"name":"demo","description":"Demo project","url":""}]',
+        'project/demo/jobs'          : '''[{"id":"a1b2c3","name":"job1","group":"group1","project":"demo",
+"description":"A job","href":"","permalink":"","scheduled":false,"scheduleEnabled":true,"enabled":true}]''',
+        'project/demo/resources'     : '''{"node1":{"nodename":"node1","hostname":"localhost","osFamily":"unix",
+"tags":"a,b"}}''',
+        'project/demo/executions'    : '''{"paging":{"count":1,"total":1,"offset":0,"max":20},"executions":[
+{"id":1,"href":"","permalink":"","status":"succeeded","project":"demo","user":"admin",
+"date-started":{"unixtime":0,"date":"2024-01-01T00:00:00Z"},"date-ended":{"unixtime":1000,"date":"2024-01-01T00:00:01Z"},
+"job":{"id":"a1b2c3","name":"job1","group":"group1","project":"demo","href":"","permalink":""},
+"description":"echo hi","argstring":null,"successfulNodes":["node1"]}]}''',
+        'project/demo/executions/running': '{"paging":{"count":0,"total":0,"offset":0,"max":20},"executions":[]}',
+        'execution/1'                : '''{"id":1,"href":"","permalink":"","status":"succeeded","project":"demo",
+"user":"admin","date-started":{"unixtime":0,"date":"2024-01-01T00:00:00Z"},
+"date-ended":{"unixtime":1000,"date":"2024-01-01T00:00:01Z"},"description":"echo hi","argstring":null,
+"successfulNodes":["node1"]}''',
+    ]
+
+    static MockWebServer start() {
+        def server = new MockWebServer()
+        server.dispatcher = new Dispatcher() {
+            @Override
+            MockResponse dispatch(RecordedRequest request) {
+                def path = request.requestUrl.encodedPath().replaceFirst('^.*?/api/\\d+/', '')
+                def body = RESPONSES[path]
+                if (null == body) {
+                    return new MockResponse().setResponseCode(404).
+                        setBody('{"error":true,"errorCode":"api.error.item.doesnotexist","message":"not found"}').
+                        addHeader('content-type', 'application/json')
+                }
+                new MockResponse().setBody(body).addHeader('content-type', 'application/json')
+            }
+        }
+        server.start()
+        server
+    }
+
+    static void main(String[] args) {
+        def server = start()
+        println server.url('/')
+        System.out.flush()
+        try {
+            System.in.text
+        } finally {
+            server.shutdown()
+        }
+    }
+}
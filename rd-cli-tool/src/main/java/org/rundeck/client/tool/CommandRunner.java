@@ -0,0 +1,22 @@
+package org.rundeck.client.tool;
+
+/**
+ * Runs rd command lines within the current app, sharing its configuration and clients
+ */
+public interface CommandRunner {
+    /**
+     * Run a command, may be called concurrently
+     *
+     * @param args arguments, without the leading "rd"
+     * @return exit code
+     */
+    int runCommand(String[] args);
+
+    /**
+     * Override a config value for commands run afterwards
+     *
+     * @param key   config key
+     * @param value value, or null to remove the override
+     */
+    void setConfigOverride(String key, String value);
+}
@@ -16,21 +16,40 @@
 
 package org.rundeck.client.tool;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import okhttp3.Cache;
+import okhttp3.CookieJar;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
 import org.jetbrains.annotations.NotNull;
 import org.rundeck.client.RundeckClient;
 import org.rundeck.client.api.RequestFailed;
 import org.rundeck.client.api.RundeckApi;
 import org.rundeck.client.api.model.DateInfo;
 import org.rundeck.client.api.model.Execution;
+import org.rundeck.client.api.model.SystemInfo;
 import org.rundeck.client.api.model.JobItem;
 import org.rundeck.client.api.model.scheduler.ScheduledJobItem;
 import org.rundeck.client.tool.commands.*;
+import org.rundeck.client.tool.daemon.DaemonClient;
+import org.rundeck.client.tool.daemon.DaemonContext;
+import org.rundeck.client.tool.daemon.DaemonState;
 import org.rundeck.client.tool.extension.RdCommandExtension;
 import org.rundeck.client.tool.extension.RdTool;
 import org.rundeck.client.tool.format.*;
 import org.rundeck.client.tool.output.SystemOutput;
+import org.rundeck.client.tool.parallel.ParallelException;
+import org.rundeck.client.tool.util.ApiVersionCache;
+import org.rundeck.client.tool.util.ClientRegistry;
+import org.rundeck.client.tool.util.ExtensionIndex;
 import org.rundeck.client.tool.util.ExtensionLoaderUtil;
+import org.rundeck.client.tool.util.PhaseProfiler;
 import org.rundeck.client.tool.util.Resources;
+import org.rundeck.client.tool.util.ThreadStreams;
 import org.rundeck.client.util.*;
 import org.rundeck.client.util.DataOutput;
 import picocli.CommandLine;
@@ -44,7 +63,9 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -58,24 +79,7 @@ import static org.rundeck.client.RundeckClient.*;
 @CommandLine.Command(
         name = "rd",
         version = org.rundeck.client.Version.VERSION,
-        mixinStandardHelpOptions = true,
-        subcommands = {
-                Adhoc.class,
-                Jobs.class,
-                Projects.class,
-                Executions.class,
-                Run.class,
-                Keys.class,
-                RDSystem.class,
-                Scheduler.class,
-                Tokens.class,
-                Nodes.class,
-                Users.class,
-                Main.Something.class,
-                Retry.class,
-                Metrics.class,
-                Version.class
-        }
+        mixinStandardHelpOptions = true
 )
 public class Main {
     public static final String RD_USER = "RD_USER";
@@ -88,6 +92,90 @@ public class Main {
     public static final String RD_FORMAT = "RD_FORMAT";
     public static final String RD_EXT_DISABLED = "RD_EXT_DISABLED";
     public static final String RD_EXT_DIR = "RD_EXT_DIR";
+    /**
+     * File storing the index of extension jars in {@link #RD_EXT_DIR}, default ~/.rd/ext-index-HASH.properties where
+     * HASH identifies the extension directory
+     */
+    public static final String RD_EXT_INDEX = "RD_EXT_INDEX";
+    /**
+     * File to cache the API version negotiated with the server when {@link RundeckClient#RD_API_DOWNGRADE} is enabled
+     */
+    public static final String RD_API_VERSION_CACHE = "RD_API_VERSION_CACHE";
+    /**
+     * Time in seconds to cache the negotiated API version, 0 to disable the cache
+     */
+    public static final String RD_API_VERSION_CACHE_TTL = "RD_API_VERSION_CACHE_TTL";
+    public static final long DEFAULT_API_VERSION_CACHE_TTL = 24 * 60 * 60L;
+    /**
+     * Record http call timings and output a summary by endpoint at exit: "1" for text, or "json"
+     */
+    public static final String RD_HTTP_TIMINGS = "RD_HTTP_TIMINGS";
+    /**
+     * File to write the json http timings summary to, instead of the output
+     */
+    public static final String RD_HTTP_TIMINGS_FILE = "RD_HTTP_TIMINGS_FILE";
+    /**
+     * If true (default), connect to the server in the background during startup
+     */
+    public static final String RD_PREWARM = "RD_PREWARM";
+    /**
+     * Record startup and execution phases and output a waterfall at exit: "1" for text, or "json"
+     */
+    public static final String RD_PROFILE = "RD_PROFILE";
+    /**
+     * File to write the json profile to, instead of the output
+     */
+    public static final String RD_PROFILE_FILE = "RD_PROFILE_FILE";
+    /**
+     * Set to "always" to forward commands to a running daemon, default "never"
+     */
+    public static final String RD_DAEMON = "RD_DAEMON";
+    /**
+     * Directory for the daemon state and log, default ~/.rd/daemon
+     */
+    public static final String RD_DAEMON_DIR = "RD_DAEMON_DIR";
+    /**
+     * Maximum number of http clients kept open by the daemon between requests
+     */
+    static final int DAEMON_HTTP_CLIENTS = 8;
+    /**
+     * Built-in top level commands by name. Classes are referenced by name so that only the invoked command is
+     * loaded and reflected, see {@link #registerBuiltinCommands(CommandLine, String[])}.
+     */
+    static final Map<String, String> BUILTIN_COMMANDS;
+
+    static {
+        Map<String, String> commands = new LinkedHashMap<>();
+        commands.put("adhoc", "org.rundeck.client.tool.commands.Adhoc");
+        commands.put("jobs", "org.rundeck.client.tool.commands.Jobs");
+        commands.put("projects", "org.rundeck.client.tool.commands.Projects");
+        commands.put("executions", "org.rundeck.client.tool.commands.Executions");
+        commands.put("run", "org.rundeck.client.tool.commands.Run");
+        commands.put("keys", "org.rundeck.client.tool.commands.Keys");
+        commands.put("system", "org.rundeck.client.tool.commands.RDSystem");
+        commands.put("scheduler", "org.rundeck.client.tool.commands.Scheduler");
+        commands.put("tokens", "org.rundeck.client.tool.commands.Tokens");
+        commands.put("nodes", "org.rundeck.client.tool.commands.Nodes");
+        commands.put("users", "org.rundeck.client.tool.commands.Users");
+        commands.put("pond", "org.rundeck.client.tool.Main$Something");
+        commands.put("retry", "org.rundeck.client.tool.commands.Retry");
+        commands.put("metrics", "org.rundeck.client.tool.commands.Metrics");
+        commands.put("version", "org.rundeck.client.tool.commands.Version");
+        commands.put("daemon", "org.rundeck.client.tool.commands.Daemon");
+        commands.put("batch", "org.rundeck.client.tool.commands.Batch");
+        commands.put("shell", "org.rundeck.client.tool.commands.Shell");
+        BUILTIN_COMMANDS = Collections.unmodifiableMap(commands);
+    }
+
+    /**
+     * Built-in commands which run other commands, and so may need the extension jars
+     */
+    static final Set<String> RUNNER_COMMANDS = new HashSet<>(Arrays.asList("batch", "shell"));
+
+    /**
+     * Commands which never call the server
+     */
+    static final Set<String> OFFLINE_COMMANDS = new HashSet<>(Arrays.asList("acl", "version", "pond", "help", "daemon"));
 
     @CommandLine.Spec
     CommandLine.Model.CommandSpec spec;
@@ -96,77 +184,215 @@ public class Main {
             RundeckClient.Builder.getUserAgent("rd-cli-tool/" + org.rundeck.client.Version.VERSION);
 
     public static void main(String[] args) {
+        //the profiler is needed before the config is built, so it reads the environment directly
+        PhaseProfiler profiler = PhaseProfiler.create(System.getenv(RD_PROFILE));
+        ConfigSource config;
+        try (PhaseProfiler.Scope ignored = profiler.start("config")) {
+            config = buildConfig();
+        }
+        Integer forwarded = forwardToDaemon(args, config);
+        if (null != forwarded) {
+            System.exit(forwarded);
+        }
+        System.exit(run(args, config, null, profiler));
+    }
+
+    /**
+     * Run the command if a daemon is running and enabled by {@link #RD_DAEMON}
+     *
+     * @param args   arguments
+     * @param config config
+     * @return exit code, or null if the command was not run by a daemon
+     */
+    static Integer forwardToDaemon(String[] args, ConfigSource config) {
+        if (args.length > 0 && "daemon".equals(args[0])) {
+            return null;
+        }
+        if (!"always".equalsIgnoreCase(config.getString(RD_DAEMON, "never"))) {
+            return null;
+        }
+        DaemonState state = DaemonState.read(daemonDir(config));
+        if (null == state || !org.rundeck.client.Version.VERSION.equals(state.getVersion())) {
+            return null;
+        }
+        return DaemonClient.forward(
+                state,
+                args,
+                System.getenv(),
+                new File(System.getProperty("user.dir")),
+                System.in,
+                System.out,
+                System.err,
+                ThreadStreams.console()
+        );
+    }
+
+    /**
+     * @param config config
+     * @return directory for the daemon state
+     */
+    public static File daemonDir(ConfigSource config) {
+        return new File(config.getString(
+                RD_DAEMON_DIR,
+                new File(System.getProperty("user.home"), ".rd/daemon").getAbsolutePath()
+        ));
+    }
+
+    /**
+     * Run the command
+     *
+     * @param args   arguments
+     * @param config config
+     * @param daemon context if run by the daemon, or null
+     * @return exit code
+     */
+    public static int run(String[] args, ConfigSource config, DaemonContext daemon) {
+        return run(args, config, daemon, PhaseProfiler.create(config.getString(RD_PROFILE, null)));
+    }
+
+    /**
+     * Run the command
+     *
+     * @param args     arguments
+     * @param config   config
+     * @param daemon   context if run by the daemon, or null
+     * @param profiler profiler, which may have recorded phases already
+     * @return exit code
+     */
+    static int run(String[] args, ConfigSource config, DaemonContext daemon, PhaseProfiler profiler) {
         int result = -1;
-        try (Rd rd = createRd()) {
-            RdToolImpl rd1 = new RdToolImpl(rd);
-            CommandLine commandLine = new CommandLine(new Main(), new CmdFactory(rd1));
-            CommandLine.Help.ColorScheme colorScheme = new CommandLine.Help.ColorScheme.Builder(CommandLine.Help.defaultColorScheme(CommandLine.Help.Ansi.AUTO))
-                    .commands(CommandLine.Help.Ansi.Style.fg_white)
-                    .applySystemProperties() // optional: allow end users to customize
-                    .build();
-            commandLine.setColorScheme(colorScheme);
-            commandLine.setExpandAtFiles(false);
-            commandLine.setUsageHelpAutoWidth(true);
-            commandLine.setHelpFactory(new CommandLine.IHelpFactory() {
-                @Override
-                public CommandLine.Help create(CommandLine.Model.CommandSpec commandSpec, CommandLine.Help.ColorScheme colorScheme) {
-                    return new CommandLine.Help(commandSpec, colorScheme) {
-                        /**
-                         * Returns a sorted map of the subcommands.
-                         */
-                        @Override
-                        public Map<String, CommandLine.Help> subcommands() {
-                            return new TreeMap<>(super.subcommands());
-                        }
-
-                        @Override
-                        public String commandListHeading(Object... params) {
-                            return "\nAvailable commands:\n\n";
-                        }
-                    };
+        try (Rd rd = createRd(args, config, profiler)) {
+            rd.daemon = daemon;
+            if (null == daemon && isServerCommand(args)) {
+                prewarmConnection(rd);
+            }
+            CommandLine commandLine = createCommandLine(rd, args, profiler);
+            CommandLine.IExecutionStrategy strategy = commandLine.getExecutionStrategy();
+            PhaseProfiler.Scope parse = profiler.start("parse");
+            commandLine.setExecutionStrategy(parseResult -> {
+                parse.close();
+                try (PhaseProfiler.Scope ignored = profiler.start("execute")) {
+                    return strategy.execute(parseResult);
                 }
             });
+            result = commandLine.execute(args);
+            parse.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
 
-            commandLine.getHelpSectionMap().put(
-                    CommandLine.Model.UsageMessageSpec.SECTION_KEY_HEADER_HEADING,
-                    help -> loadBanner("rd-banner.txt", Collections.singletonMap("$version$", org.rundeck.client.Version.VERSION))
-            );
-            commandLine.setExecutionExceptionHandler((Exception ex, CommandLine cl, CommandLine.ParseResult parseResult) -> {
-                if (ex instanceof InputError) {
-                    return cl.getParameterExceptionHandler().handleParseException(
-                            new CommandLine.ParameterException(cl, ex.getMessage(), ex),
-                            args
-                    );
+    /**
+     * Create the command line with the commands needed for the arguments
+     *
+     * @param rd       app
+     * @param args     arguments
+     * @param profiler profiler
+     * @return command line
+     */
+    static CommandLine createCommandLine(Rd rd, String[] args, PhaseProfiler profiler) {
+        PhaseProfiler.Scope model = profiler.start("model");
+        RdToolImpl rd1 = new RdToolImpl(rd);
+        CommandLine commandLine = new CommandLine(new Main(), new CmdFactory(rd1));
+        boolean allCommands = registerBuiltinCommands(commandLine, args);
+        model.close();
+        CommandLine.Help.ColorScheme colorScheme = new CommandLine.Help.ColorScheme.Builder(CommandLine.Help.defaultColorScheme(CommandLine.Help.Ansi.AUTO))
+                .commands(CommandLine.Help.Ansi.Style.fg_white)
+                .applySystemProperties() // optional: allow end users to customize
+                .build();
+        commandLine.setColorScheme(colorScheme);
+        commandLine.setExpandAtFiles(false);
+        commandLine.setUsageHelpAutoWidth(true);
+        commandLine.setHelpFactory(new CommandLine.IHelpFactory() {
+            @Override
+            public CommandLine.Help create(CommandLine.Model.CommandSpec commandSpec, CommandLine.Help.ColorScheme colorScheme) {
+                return new CommandLine.Help(commandSpec, colorScheme) {
+                    /**
+                     * Returns a sorted map of the subcommands.
+                     */
+                    @Override
+                    public Map<String, CommandLine.Help> subcommands() {
+                        return new TreeMap<>(super.subcommands());
+                    }
+
+                    @Override
+                    public String commandListHeading(Object... params) {
+                        return "\nAvailable commands:\n\n";
+                    }
+                };
+            }
+        });
+
+        commandLine.getHelpSectionMap().put(
+                CommandLine.Model.UsageMessageSpec.SECTION_KEY_HEADER_HEADING,
+                help -> loadBanner("rd-banner.txt", Collections.singletonMap("$version$", org.rundeck.client.Version.VERSION))
+        );
+        commandLine.setExecutionExceptionHandler((Exception ex, CommandLine cl, CommandLine.ParseResult parseResult) -> {
+            if (ex instanceof InputError) {
+                return cl.getParameterExceptionHandler().handleParseException(
+                        new CommandLine.ParameterException(cl, ex.getMessage(), ex),
+                        args
+                );
+            }
+            if (ex instanceof RequestFailed) {
+                rd.getOutput().error(ex.getMessage());
+                if (rd.getDebugLevel() > 0) {
+                    StringWriter sb = new StringWriter();
+                    ex.printStackTrace(new PrintWriter(sb));
+                    rd.getOutput().error(sb.toString());
                 }
-                if (ex instanceof RequestFailed) {
-                    rd.getOutput().error(ex.getMessage());
+                return 2;
+            }
+            if (ex instanceof ParallelException) {
+                ParallelException failed = (ParallelException) ex;
+                rd.getOutput().error(failed.getMessage());
+                for (ParallelException.Failure failure : failed.getFailures()) {
+                    rd.getOutput().error("  " + failure);
                     if (rd.getDebugLevel() > 0) {
                         StringWriter sb = new StringWriter();
-                        ex.printStackTrace(new PrintWriter(sb));
+                        failure.getError().printStackTrace(new PrintWriter(sb));
                         rd.getOutput().error(sb.toString());
                     }
-                    return 2;
                 }
-                throw ex;
-            });
+                return failed.isCancelled() && failed.getFailures().isEmpty() ? 130 : 2;
+            }
+            throw ex;
+        });
 
-            loadCommands(rd, rd1).forEach(commandLine::addSubcommand);
+        if (allCommands) {
+            List<RdCommandExtension> extensions;
+            try (PhaseProfiler.Scope ignored = profiler.start("extensions")) {
+                extensions = selectExtensions(loadCommands(rd, rd1), args);
+            }
+            try (PhaseProfiler.Scope ignored = profiler.start("model")) {
+                extensions.forEach(commandLine::addSubcommand);
+            }
+        }
 
-            result = commandLine.execute(args);
-        } catch (IOException e) {
-            e.printStackTrace();
+        DaemonContext daemon = rd.daemon;
+        if (null != daemon) {
+            //relative paths are relative to the working directory of the client
+            commandLine.registerConverter(File.class, daemon::resolve);
+            commandLine.registerConverter(java.nio.file.Path.class, value -> daemon.resolve(value).toPath());
         }
-        System.exit(result);
+        return commandLine;
     }
 
     @NotNull
-    private static Rd createRd() {
-        ConfigSource config = buildConfig();
-        loadExtensionJars(config);
-        RdBuilder builder = new RdBuilder();
-        Rd rd = new Rd(config);
-        setup(rd, builder);
-        return rd;
+    private static Rd createRd(String[] args, ConfigSource config, PhaseProfiler profiler) {
+        Closeable extensions;
+        try (PhaseProfiler.Scope ignored = profiler.start("extensions")) {
+            extensions = loadExtensionJars(config, args);
+        }
+        try (PhaseProfiler.Scope ignored = profiler.start("setup")) {
+            RdBuilder builder = new RdBuilder();
+            Rd rd = new Rd(config);
+            rd.extensions = extensions;
+            rd.setProfiler(profiler);
+            setup(rd, builder);
+            return rd;
+        }
     }
 
     static String loadBanner(String resource, Map<String, String> replacements) {
@@ -195,25 +421,54 @@ public class Main {
         return new ConfigBase(new MultiConfigValues(new Env(), new SysProps()));
     }
 
-    private static void loadExtensionJars(ConfigSource config) {
+    /**
+     * Add the extension jars in {@link #RD_EXT_DIR} to the context class loader. Jars are not loaded for built-in
+     * commands, and if the {@link ExtensionIndex} matches the invoked command to an extension jar, only that jar and
+     * jars without commands are loaded.
+     *
+     * @param config config
+     * @param args   arguments
+     * @return closes the class loader and restores the previous context class loader, or null if no jars were loaded
+     */
+    private static Closeable loadExtensionJars(ConfigSource config, String[] args) {
         if (config.getBool(RD_EXT_DISABLED, false)) {
-            return;
+            return null;
         }
         String rd_ext_dir = config.get(RD_EXT_DIR);
         if(null==rd_ext_dir){
-            return;
+            return null;
         }
         File extDir = new File(rd_ext_dir);
         if (!extDir.isDirectory()) {
-            return;
+            return null;
+        }
+        if (args.length > 0 && BUILTIN_COMMANDS.containsKey(args[0]) && !RUNNER_COMMANDS.contains(args[0])) {
+            return null;
         }
         File[] jars = extDir.listFiles(f -> f.getName().endsWith(".jar"));
         //add to class loader
         if(jars==null){
-            return;
+            return null;
+        }
+        if (args.length > 0) {
+            String indexFile = config.getString(
+                    RD_EXT_INDEX,
+                    ExtensionIndex.indexFile(new File(System.getProperty("user.home"), ".rd"), extDir)
+                                  .getAbsolutePath()
+            );
+            List<File> selected = ExtensionIndex.load(new File(indexFile), extDir, jars).jarsFor(args[0]);
+            if (!selected.isEmpty()) {
+                jars = selected.toArray(new File[0]);
+            }
         }
         URLClassLoader urlClassLoader = buildClassLoader(jars);
-        Thread.currentThread().setContextClassLoader(urlClassLoader);
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(urlClassLoader);
+        return () -> {
+            thread.setContextClassLoader(previous);
+            urlClassLoader.close();
+        };
     }
 
     private static URLClassLoader buildClassLoader(final File[] jars) {
@@ -230,6 +485,15 @@ public class Main {
         }
     }
 
+    /**
+     * @param config config
+     * @return true if the output is json or yaml, where each output is a separate document
+     */
+    public static boolean isStructuredFormat(RdClientConfig config) {
+        String format = config.getString(RD_FORMAT, null);
+        return "yaml".equalsIgnoreCase(format) || "json".equalsIgnoreCase(format);
+    }
+
     private static void setupFormat(final RdBuilder belt, RdClientConfig config) {
         final String format = config.get(RD_FORMAT);
         if ("yaml".equalsIgnoreCase(format)) {
@@ -332,6 +596,47 @@ public class Main {
         }
     }
 
+    /**
+     * Register only the invoked built-in command if the first argument names one, otherwise register all built-in
+     * commands, so that help, completion and error messages see the full command tree
+     *
+     * @param commandLine top level command
+     * @param args        arguments
+     * @return true if all commands are needed, and extension commands should also be registered
+     */
+    static boolean registerBuiltinCommands(CommandLine commandLine, String[] args) {
+        if (args.length > 0 && BUILTIN_COMMANDS.containsKey(args[0])) {
+            commandLine.addSubcommand(args[0], loadCommandClass(BUILTIN_COMMANDS.get(args[0])));
+            return false;
+        }
+        BUILTIN_COMMANDS.forEach((name, className) -> commandLine.addSubcommand(name, loadCommandClass(className)));
+        return true;
+    }
+
+    private static Class<?> loadCommandClass(String className) {
+        try {
+            return Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Command class not found: " + className, e);
+        }
+    }
+
+    /**
+     * @param extensions extensions
+     * @param args       arguments
+     * @return only the extension for the invoked command if the first argument names one, otherwise all extensions
+     */
+    static List<RdCommandExtension> selectExtensions(List<RdCommandExtension> extensions, String[] args) {
+        if (args.length > 0) {
+            for (RdCommandExtension extension : extensions) {
+                if (ExtensionIndex.commandNames(extension.getClass()).contains(args[0])) {
+                    return Collections.singletonList(extension);
+                }
+            }
+        }
+        return extensions;
+    }
+
     static List<RdCommandExtension> loadCommands(final Rd rd, RdToolImpl commandTool) {
         List<RdCommandExtension> extensions = ExtensionLoaderUtil.list();
         extensions.forEach(commandTool::initExtension);
@@ -349,17 +654,27 @@ public class Main {
 
         boolean insecureSsl = rd.getBool(ENV_INSECURE_SSL, false);
         boolean insecureSslNoWarn = rd.getBool(ENV_INSECURE_SSL_NO_WARN, false);
-        rd.setOutput(builder.finalOutput());
+        rd.setOutput(rd.getProfiler().wrap(builder.finalOutput()));
         if (insecureSsl && !insecureSslNoWarn) {
             rd.getOutput().warning(
                     "# WARNING: RD_INSECURE_SSL=true, no hostname or certificate trust verification will be performed");
         }
     }
 
-    static class Rd extends ConfigBase implements RdApp, RdClientConfig, Closeable {
+    static class Rd extends ConfigBase implements RdApp, RdClientConfig, CommandRunner, Closeable {
         private final Resources resources = new Resources();
-        Client<RundeckApi> client;
+        private final ClientRegistry clients = new ClientRegistry(resources);
+        volatile Client<RundeckApi> client;
         private CommandOutput output = new SystemOutput();
+        private Auth auth;
+        private HttpTimings httpTimings;
+        private PhaseProfiler profiler = PhaseProfiler.DISABLED;
+        private DaemonContext daemon;
+        /**
+         * Class loader of the extension jars, closed last
+         */
+        private Closeable extensions;
+        private final Map<String, String> configOverrides = new ConcurrentHashMap<>();
 
         public Rd(final ConfigValues src) {
             super(src);
@@ -387,44 +702,151 @@ public class Main {
             return getString("RD_DATE_FORMAT", "yyyy-MM-dd'T'HH:mm:ssXX");
         }
 
+        /**
+         * @param baseUrl base url, used in console prompt
+         * @return credentials from config, or prompted from the console once
+         */
+        synchronized Auth getAuth(final String baseUrl) {
+            if (null == auth) {
+                Auth configAuth = new Auth() {
+                };
+                configAuth = configAuth.chain(new ConfigAuth(this));
+                //the console of the invocation, as requests may be made from other threads
+                ThreadStreams.Prompter console = ThreadStreams.console();
+                if (!configAuth.isConfigured() && getBool(RD_AUTH_PROMPT, true) && null != console) {
+                    configAuth = configAuth.chain(new ConsoleAuth(String.format(
+                            "Credentials for URL: %s",
+                            baseUrl
+                    ), console));
+                }
+                auth = configAuth.memoize();
+            }
+            return auth;
+        }
+
         @Override
         public Client<RundeckApi> getClient() throws InputError {
-            if (null == client) {
-                try {
-                    client = resources.add(Main.createClient(this));
-                } catch (ConfigSourceError configSourceError) {
-                    throw new InputError(configSourceError.getMessage());
+            Client<RundeckApi> current = client;
+            if (null == current) {
+                synchronized (this) {
+                    if (null == client) {
+                        client = getVersionClient(negotiateApiVersion());
+                    }
+                    current = client;
                 }
             }
-            return client;
+            return current;
         }
 
         @Override
         public Client<RundeckApi> getClient(final int version) throws InputError {
+            Client<RundeckApi> versionClient = getVersionClient(version);
+            client = versionClient;
+            getApiVersionCache().ifPresent(cache -> cache.put(appBaseUrl(getString(RD_URL, null)), version));
+            return versionClient;
+        }
+
+        /**
+         * @param version api version, or null for the default version
+         * @return existing client for the version, or a new client
+         */
+        private Client<RundeckApi> getVersionClient(final Integer version) throws InputError {
+            return getRegisteredClient(RundeckApi.class, version);
+        }
+
+        /**
+         * @param api     api interface
+         * @param version api version, or null for the default version
+         * @return existing client for the api, version and base URL, or a new client
+         */
+        private <T> Client<T> getRegisteredClient(final Class<T> api, final Integer version) throws InputError {
             try {
-                client = resources.add(Main.createClient(this, version));
+                return clients.get(
+                        new ClientRegistry.Key(api, version, getString(RD_URL, null)),
+                        () -> Main.createClient(this, api, version)
+                );
             } catch (ConfigSourceError configSourceError) {
                 throw new InputError(configSourceError.getMessage());
             }
-            return client;
         }
 
-        @Override
-        public <T> ServiceClient<T> getClient(final Class<T> api, final int version) throws InputError {
+        /**
+         * @return cache for negotiated api versions, if version downgrade is allowed and no version is specified
+         */
+        Optional<ApiVersionCache> getApiVersionCache() {
+            String url = getString(RD_URL, null);
+            if (!getBool(RD_API_DOWNGRADE, false)
+                || null == url
+                || API_VERS_PATTERN.matcher(url).matches()
+                || getInt(RD_API_VERSION, -1) > 0) {
+                return Optional.empty();
+            }
+            long ttl = getLong(RD_API_VERSION_CACHE_TTL, DEFAULT_API_VERSION_CACHE_TTL);
+            if (ttl <= 0) {
+                return Optional.empty();
+            }
+            String file = getString(
+                    RD_API_VERSION_CACHE,
+                    new File(System.getProperty("user.home"), ".rd/api-versions.properties").getAbsolutePath()
+            );
+            return Optional.of(new ApiVersionCache(new File(file), ttl * 1000));
+        }
+
+        /**
+         * Use the cached api version for the server, or probe the server via system info and cache the result. If the
+         * server refuses the probe, such as a 403 for a user without system read access, the default version is cached
+         * so that the probe is not repeated until the entry expires. A downgrade by a later request replaces it
+         *
+         * @return negotiated api version, or null to use the default
+         */
+        private Integer negotiateApiVersion() throws InputError {
+            Optional<ApiVersionCache> cache = getApiVersionCache();
+            if (!cache.isPresent()) {
+                return null;
+            }
+            String url = appBaseUrl(getString(RD_URL, null));
+            Optional<Integer> cached = cache.get().get(url);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+            Client<RundeckApi> probeClient = getVersionClient(null);
+            int version = probeClient.getApiVersion();
+            boolean determined = false;
             try {
-                return resources.add(Main.createClient(this, api, version));
-            } catch (ConfigSourceError configSourceError) {
-                throw new InputError(configSourceError.getMessage());
+                ServiceClient.WithErrorResponse<SystemInfo> response =
+                        probeClient.apiWithErrorResponseDowngradable(RundeckApi::systemInfo);
+                SystemInfo info = response.getResponse().body();
+                if (response.getResponse().isSuccessful()
+                    && null != info
+                    && null != info.system
+                    && null != info.system.getApiVersion()) {
+                    version = Math.min(version, info.system.getApiVersion());
+                    determined = true;
+                } else if (response.getResponse().code() < 500) {
+                    //refused for this user, use the default
+                    determined = true;
+                }
+            } catch (Client.UnsupportedVersionDowngrade downgrade) {
+                version = downgrade.getSupportedVersion();
+                determined = true;
+            } catch (IOException | RuntimeException e) {
+                //unable to determine, use the default
             }
+            if (determined) {
+                //a connection failure or server error may be transient, and is not cached
+                cache.get().put(url, version);
+            }
+            return version == probeClient.getApiVersion() ? null : version;
+        }
+
+        @Override
+        public <T> ServiceClient<T> getClient(final Class<T> api, final int version) throws InputError {
+            return getRegisteredClient(api, version);
         }
 
         @Override
         public <T> ServiceClient<T> getClient(final Class<T> api) throws InputError {
-            try {
-                return resources.add(Main.createClient(this, api, null));
-            } catch (ConfigSourceError configSourceError) {
-                throw new InputError(configSourceError.getMessage());
-            }
+            return getRegisteredClient(api, null);
         }
 
         @Override
@@ -432,6 +854,26 @@ public class Main {
             return this;
         }
 
+        @Override
+        public int runCommand(final String[] args) {
+            return createCommandLine(this, args, PhaseProfiler.DISABLED).execute(args);
+        }
+
+        @Override
+        public void setConfigOverride(final String key, final String value) {
+            if (null == value) {
+                configOverrides.remove(key);
+            } else {
+                configOverrides.put(key, value);
+            }
+        }
+
+        @Override
+        public String get(final String key) {
+            String value = configOverrides.get(key);
+            return null != value ? value : super.get(key);
+        }
+
         public void versionDowngradeWarning(int requested, int supported) {
             getOutput().warning(String.format(
                     "# WARNING: API Version Downgraded: %d -> %d",
@@ -456,9 +898,95 @@ public class Main {
             this.output = output;
         }
 
+        public PhaseProfiler getProfiler() {
+            return profiler;
+        }
+
+        public void setProfiler(PhaseProfiler profiler) {
+            this.profiler = profiler;
+        }
+
+        private boolean isHttpTimingsEnabled() {
+            String mode = getString(RD_HTTP_TIMINGS, null);
+            return null != mode && !"0".equals(mode) && !"false".equalsIgnoreCase(mode);
+        }
+
+        /**
+         * @return http timings recorder, or null if not enabled, it is also enabled for the profiler
+         */
+        synchronized HttpTimings getHttpTimings() {
+            if (null == httpTimings && (isHttpTimingsEnabled() || profiler.isEnabled())) {
+                httpTimings = new HttpTimings();
+            }
+            return httpTimings;
+        }
+
+        private void outputHttpTimings() throws IOException {
+            List<HttpTimings.EndpointSummary> summary = httpTimings.summarize();
+            if ("json".equalsIgnoreCase(getString(RD_HTTP_TIMINGS, null))) {
+                List<Map<String, Object>> data = summary.stream()
+                                                        .map(HttpTimings.EndpointSummary::toMap)
+                                                        .collect(Collectors.toList());
+                ObjectWriter writer = new ObjectMapper().writerWithDefaultPrettyPrinter();
+                String file = getString(RD_HTTP_TIMINGS_FILE, null);
+                if (null != file) {
+                    writer.writeValue(new File(file), data);
+                } else {
+                    getOutput().warning(writer.writeValueAsString(data));
+                }
+                return;
+            }
+            getOutput().warning(String.format("# HTTP timings: %d calls", httpTimings.getCalls().size()));
+            for (HttpTimings.EndpointSummary endpoint : summary) {
+                getOutput().warning("# " + endpoint);
+            }
+        }
+
+        private void outputProfile() throws IOException {
+            if (null != httpTimings) {
+                for (HttpTimings.CallTiming call : httpTimings.getCalls()) {
+                    profiler.record(
+                            "http " + call.getEndpoint(),
+                            call.getStartNanos(),
+                            call.getNanos(HttpTimings.Phase.total),
+                            -1,
+                            -1
+                    );
+                }
+            }
+            if ("json".equalsIgnoreCase(getString(RD_PROFILE, null))) {
+                Map<String, Object> data = profiler.toMap();
+                ObjectWriter writer = new ObjectMapper().writerWithDefaultPrettyPrinter();
+                String file = getString(RD_PROFILE_FILE, null);
+                if (null != file) {
+                    writer.writeValue(new File(file), data);
+                } else {
+                    getOutput().warning(writer.writeValueAsString(data));
+                }
+                return;
+            }
+            for (String line : profiler.waterfall(40)) {
+                getOutput().warning(line);
+            }
+        }
+
         @Override
         public void close() throws IOException {
-            resources.close();
+            try {
+                try (PhaseProfiler.Scope ignored = profiler.start("shutdown")) {
+                    resources.close();
+                }
+                if (null != httpTimings && isHttpTimingsEnabled()) {
+                    outputHttpTimings();
+                }
+                if (profiler.isEnabled()) {
+                    outputProfile();
+                }
+            } finally {
+                if (null != extensions) {
+                    extensions.close();
+                }
+            }
         }
     }
 
@@ -481,17 +1009,11 @@ public class Main {
             throws ConfigSource.ConfigSourceError
     {
 
-        Auth auth = new Auth() {
-        };
-        auth = auth.chain(new ConfigAuth(config));
         String baseUrl = config.require(
                 RD_URL,
                 "Please specify the Rundeck base URL, e.g. http://host:port or http://host:port/api/14"
         );
-
-        if (!auth.isConfigured() && config.getBool(RD_AUTH_PROMPT, true) && null != System.console()) {
-            auth = auth.chain(new ConsoleAuth(String.format("Credentials for URL: %s", baseUrl)).memoize());
-        }
+        Auth auth = config.getAuth(baseUrl);
         RundeckClient.Builder<T> builder = RundeckClient.builder(api)
                                                         .baseUrl(baseUrl)
                                                         .config(config);
@@ -504,6 +1026,122 @@ public class Main {
             }
         }
 
+        try (PhaseProfiler.Scope ignored = config.getProfiler().start("client")) {
+            Resources.Ref<SharedHttpClient> httpClient = acquireHttpClient(config, builder, baseUrl, auth);
+            builder.httpClient(httpClient.get().getOkhttp(), httpClient);
+            return builder.build();
+        }
+
+    }
+
+    /**
+     * Acquire the http client shared by all clients of the same server and credentials, it is built using the
+     * builder if it does not exist yet
+     */
+    private static <T> Resources.Ref<SharedHttpClient> acquireHttpClient(
+            Rd config,
+            RundeckClient.Builder<T> builder,
+            String baseUrl,
+            Auth auth
+    )
+    {
+        builder.logger(new OutputLogger(config.getOutput()));
+        builder.userAgent("rd-cli-tool/" + org.rundeck.client.Version.VERSION);
+        HttpTimings httpTimings = config.getHttpTimings();
+        if (null != httpTimings) {
+            builder.httpTimings(httpTimings);
+        }
+        String key;
+        try (PhaseProfiler.Scope ignored = config.getProfiler().start("auth")) {
+            key = httpClientKey(baseUrl, auth);
+        }
+        Supplier<SharedHttpClient> factory = () -> new SharedHttpClient(
+                configureAuth(builder, auth).buildHttpClient(),
+                config.getDebugLevel() > 0 ? config.getOutput() : null
+        );
+        if (null != config.daemon && null == httpTimings && config.getDebugLevel() == 0) {
+            //reuse the connection pool across requests with the same http configuration
+            return config.daemon.getResources().acquireRetained(
+                    key + "#" + config.daemon.getConfigKey(),
+                    factory,
+                    DAEMON_HTTP_CLIENTS
+            );
+        }
+        return config.resources.acquire(key, factory);
+    }
+
+    /**
+     * Start connecting to the server on a background thread, so that the first API request can use the pooled
+     * connection. The request is an unauthenticated OPTIONS request for the API base path, which does not create a
+     * session on the server. Skipped if disabled, or if the URL or credentials are not configured, as they would
+     * require a prompt.
+     *
+     * @param config config
+     */
+    static void prewarmConnection(Rd config) {
+        String baseUrl = config.getString(RD_URL, null);
+        if (!config.getBool(RD_PREWARM, true) || null == baseUrl || !new ConfigAuth(config).isConfigured()) {
+            return;
+        }
+        OkHttpClient okhttp;
+        HttpUrl url;
+        try {
+            url = HttpUrl.get(appBaseUrl(baseUrl) + "/api/");
+            Resources.Ref<SharedHttpClient> ref = acquireHttpClient(
+                    config,
+                    RundeckClient.builder().baseUrl(baseUrl).config(config),
+                    baseUrl,
+                    config.getAuth(baseUrl)
+            );
+            config.resources.add(ref);
+            //only establish the connection, without authentication or other processing
+            OkHttpClient.Builder warmBuilder = ref.get().getOkhttp().newBuilder();
+            warmBuilder.interceptors().clear();
+            warmBuilder.networkInterceptors().clear();
+            okhttp = warmBuilder.eventListener(EventListener.NONE)
+                                .cookieJar(CookieJar.NO_COOKIES)
+                                .cache(null)
+                                .followRedirects(false)
+                                .build();
+        } catch (IllegalArgumentException e) {
+            //invalid configuration is reported when the client is used
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            Request request = new Request.Builder().url(url)
+                                                   .method("OPTIONS", null)
+                                                   .header("User-Agent", USER_AGENT)
+                                                   .build();
+            try (Response ignored = okhttp.newCall(request).execute()) {
+                //connection is returned to the pool
+            } catch (IOException | RuntimeException ignored) {
+
+            }
+        }, "rd-prewarm");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @param args command line arguments
+     * @return true if the command may call the server, false for help, version or local-only commands
+     */
+    static boolean isServerCommand(String[] args) {
+        if (args.length == 0 || OFFLINE_COMMANDS.contains(args[0])) {
+            return false;
+        }
+        for (String arg : args) {
+            if ("--".equals(arg)) {
+                break;
+            }
+            if ("-h".equals(arg) || "--help".equals(arg) || "-V".equals(arg) || "--version".equals(arg)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <T> RundeckClient.Builder<T> configureAuth(RundeckClient.Builder<T> builder, Auth auth) {
         if (auth.isTokenAuth()) {
             builder.tokenAuth(auth.getToken());
         } else {
@@ -517,10 +1155,68 @@ public class Main {
             }
             builder.passwordAuth(auth.getUsername(), auth.getPassword());
         }
-        builder.logger(new OutputLogger(config.getOutput()));
-        builder.userAgent("rd-cli-tool/" + org.rundeck.client.Version.VERSION);
-        return builder.build();
+        return builder;
+    }
+
+    /**
+     * @param baseUrl base url
+     * @param auth    auth
+     * @return key identifying the server and credentials, without the API version
+     */
+    static String httpClientKey(String baseUrl, Auth auth) {
+        String appUrl = appBaseUrl(baseUrl);
+        if (auth.isTokenAuth()) {
+            return appUrl + "#token:" + Integer.toHexString(auth.getToken().hashCode());
+        }
+        return appUrl + "#user:" + auth.getUsername();
+    }
+
+    /**
+     * @param baseUrl base url
+     * @return url without the API path or trailing slash
+     */
+    static String appBaseUrl(String baseUrl) {
+        Matcher matcher = API_VERS_PATTERN.matcher(baseUrl);
+        String appUrl = matcher.matches() ? matcher.group(1) : baseUrl;
+        if (appUrl.endsWith("/")) {
+            appUrl = appUrl.substring(0, appUrl.length() - 1);
+        }
+        return appUrl;
+    }
+
+    /**
+     * Http client shared by api clients
+     */
+    static class SharedHttpClient implements Closeable {
+        private final OkHttpClient okhttp;
+        private final CommandOutput debugOutput;
+
+        /**
+         * @param okhttp      client
+         * @param debugOutput output for debug statistics, or null
+         */
+        SharedHttpClient(final OkHttpClient okhttp, final CommandOutput debugOutput) {
+            this.okhttp = okhttp;
+            this.debugOutput = debugOutput;
+        }
 
+        public OkHttpClient getOkhttp() {
+            return okhttp;
+        }
+
+        @Override
+        public void close() throws IOException {
+            Cache cache = okhttp.cache();
+            if (null != debugOutput && null != cache) {
+                debugOutput.warning(String.format(
+                        "# HTTP cache: %d requests, %d hits, %d network",
+                        cache.requestCount(),
+                        cache.hitCount(),
+                        cache.networkCount()
+                ));
+            }
+            RundeckClient.shutdown(okhttp);
+        }
     }
 
     interface Auth {
@@ -589,17 +1285,19 @@ public class Main {
         String pass;
         String token;
         final String header;
+        final ThreadStreams.Prompter console;
         boolean echoHeader;
 
-        public ConsoleAuth(final String header) {
+        public ConsoleAuth(final String header, final ThreadStreams.Prompter console) {
             this.header = header;
+            this.console = console;
             echoHeader = false;
         }
 
         @Override
         public String getUsername() {
             echo();
-            return System.console().readLine("Enter username (blank for token auth): ");
+            return console.readLine("Enter username (blank for token auth): ");
         }
 
         private void echo() {
@@ -614,14 +1312,14 @@ public class Main {
         @Override
         public String getPassword() {
             echo();
-            char[] chars = System.console().readPassword("Enter password: ");
+            char[] chars = console.readPassword("Enter password: ");
             return new String(chars);
         }
 
         @Override
         public String getToken() {
             echo();
-            char[] chars = System.console().readPassword("Enter auth token: ");
+            char[] chars = console.readPassword("Enter auth token: ");
             return new String(chars);
         }
     }
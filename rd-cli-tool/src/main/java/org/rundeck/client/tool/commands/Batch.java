@@ -0,0 +1,345 @@
+package org.rundeck.client.tool.commands;
+
+import org.rundeck.client.tool.CommandRunner;
+import org.rundeck.client.tool.InputError;
+import org.rundeck.client.tool.RdApp;
+import org.rundeck.client.tool.extension.BaseCommand;
+import org.rundeck.client.tool.util.CommandLineTokenizer;
+import org.rundeck.client.tool.util.ThreadStreams;
+import picocli.CommandLine;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Run many rd commands in one process, sharing the configuration and server connections
+ */
+@CommandLine.Command(
+        name = "batch",
+        description = "Run rd commands read from a file or stdin, one command line per line. Blank lines and lines " +
+                      "starting with # are ignored, and a leading \"rd\" is optional."
+)
+public class Batch extends BaseCommand implements Callable<Integer> {
+
+    @CommandLine.Option(names = {"-f", "--file"}, description = "File containing commands, default: stdin")
+    File file;
+
+    @CommandLine.Option(names = {"-j", "--parallel"}, description = "Number of commands to run concurrently, default: 1")
+    int parallel = 1;
+
+    @CommandLine.Option(names = {"-k", "--keep-going"},
+            description = "Run all commands even if some fail, default: stop starting commands after a failure")
+    boolean keepGoing;
+
+    @CommandLine.Option(names = {"--prefix"},
+            description = "Prefix each output line with the line number of its command, and write it as soon as it " +
+                          "is complete. Default: write the output of each command after it finishes, in order.")
+    boolean prefix;
+
+    /**
+     * Command read from the input
+     */
+    static class Entry {
+        final int line;
+        final String text;
+        final String[] args;
+
+        Entry(final int line, final String text, final String[] args) {
+            this.line = line;
+            this.text = text;
+            this.args = args;
+        }
+    }
+
+    /**
+     * Outcome of a command
+     */
+    static class Result {
+        final Entry entry;
+        final int exitCode;
+        final boolean skipped;
+        final byte[] out;
+        final byte[] err;
+
+        Result(final Entry entry, final int exitCode, final boolean skipped, final byte[] out, final byte[] err) {
+            this.entry = entry;
+            this.exitCode = exitCode;
+            this.skipped = skipped;
+            this.out = out;
+            this.err = err;
+        }
+    }
+
+    public Integer call() throws IOException, InputError {
+        if (parallel < 1) {
+            throw new InputError("--parallel must be at least 1");
+        }
+        RdApp app = getRdTool().getRdApp();
+        if (!(app instanceof CommandRunner)) {
+            throw new InputError("batch is not supported");
+        }
+        CommandRunner runner = (CommandRunner) app;
+        List<Entry> entries;
+        if (null == file || "-".equals(file.getPath())) {
+            entries = parse(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+        } else {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                entries = parse(reader);
+            }
+        }
+
+        List<Result> results;
+        if (parallel == 1 && !prefix) {
+            results = runDirect(runner, entries);
+        } else {
+            results = runRouted(runner, entries);
+        }
+        return report(results);
+    }
+
+    /**
+     * @param reader input
+     * @return commands
+     * @throws InputError if a line cannot be parsed, or runs a batch
+     */
+    static List<Entry> parse(final BufferedReader reader) throws IOException, InputError {
+        List<Entry> entries = new ArrayList<>();
+        String text;
+        int line = 0;
+        while (null != (text = reader.readLine())) {
+            line++;
+            String trimmed = text.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            List<String> args;
+            try {
+                args = CommandLineTokenizer.tokenize(trimmed);
+            } catch (InputError e) {
+                throw new InputError(String.format("line %d: %s", line, e.getMessage()));
+            }
+            if (!args.isEmpty() && "rd".equals(args.get(0))) {
+                args = args.subList(1, args.size());
+            }
+            if (args.isEmpty()) {
+                continue;
+            }
+            if ("batch".equals(args.get(0))) {
+                throw new InputError(String.format("line %d: batch cannot be nested", line));
+            }
+            entries.add(new Entry(line, trimmed, args.toArray(new String[0])));
+        }
+        return entries;
+    }
+
+    /**
+     * Run the commands in order on this thread, with output written directly
+     */
+    private List<Result> runDirect(final CommandRunner runner, final List<Entry> entries) {
+        List<Result> results = new ArrayList<>();
+        boolean failed = false;
+        for (Entry entry : entries) {
+            if (failed && !keepGoing) {
+                results.add(new Result(entry, 0, true, null, null));
+                continue;
+            }
+            int exitCode = runner.runCommand(entry.args);
+            failed |= exitCode != 0;
+            results.add(new Result(entry, exitCode, false, null, null));
+        }
+        return results;
+    }
+
+    /**
+     * Run the commands on a pool of threads, with the system streams of each thread routed to buffers or to
+     * line prefixing streams
+     */
+    private List<Result> runRouted(final CommandRunner runner, final List<Entry> entries) {
+        ThreadStreams.install();
+        ThreadStreams.Streams parent = ThreadStreams.current();
+        AtomicBoolean failed = new AtomicBoolean();
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallel, r -> {
+            Thread thread = new Thread(r, "rd-batch-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (Entry entry : entries) {
+                futures.add(executor.submit(() -> {
+                    if (failed.get() && !keepGoing) {
+                        return new Result(entry, 0, true, null, null);
+                    }
+                    Result result = runRouted(runner, entry, parent);
+                    if (result.exitCode != 0) {
+                        failed.set(true);
+                    }
+                    return result;
+                }));
+            }
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : futures) {
+                Result result = future.get();
+                if (null != result.out) {
+                    parent.getOut().write(result.out);
+                    parent.getOut().flush();
+                }
+                if (null != result.err) {
+                    parent.getErr().write(result.err);
+                    parent.getErr().flush();
+                }
+                results.add(result);
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result runRouted(final CommandRunner runner, final Entry entry, final ThreadStreams.Streams parent)
+            throws IOException
+    {
+        OutputStream out;
+        OutputStream err;
+        ByteArrayOutputStream bufferOut = null;
+        ByteArrayOutputStream bufferErr = null;
+        if (prefix) {
+            String label = String.format("[%d] ", entry.line);
+            out = new LinePrefixOutputStream(parent.getOut(), label);
+            err = new LinePrefixOutputStream(parent.getErr(), label);
+        } else {
+            out = bufferOut = new ByteArrayOutputStream();
+            err = bufferErr = new ByteArrayOutputStream();
+        }
+        ThreadStreams.set(new ThreadStreams.Streams(new ByteArrayInputStream(new byte[0]), out, err));
+        int exitCode;
+        try {
+            exitCode = runner.runCommand(entry.args);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            exitCode = 1;
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            ThreadStreams.set(parent);
+        }
+        out.close();
+        err.close();
+        return new Result(
+                entry,
+                exitCode,
+                false,
+                null != bufferOut ? bufferOut.toByteArray() : null,
+                null != bufferErr ? bufferErr.toByteArray() : null
+        );
+    }
+
+    /**
+     * Report failed and skipped commands
+     *
+     * @return exit code of the first failed command, or 0
+     */
+    private int report(final List<Result> results) {
+        int succeeded = 0;
+        int failed = 0;
+        int skipped = 0;
+        int exitCode = 0;
+        for (Result result : results) {
+            if (result.skipped) {
+                skipped++;
+            } else if (result.exitCode == 0) {
+                succeeded++;
+            } else {
+                failed++;
+                if (exitCode == 0) {
+                    exitCode = result.exitCode;
+                }
+                getRdOutput().warning(String.format(
+                        "# line %d: exit code %d: %s",
+                        result.entry.line,
+                        result.exitCode,
+                        result.entry.text
+                ));
+            }
+        }
+        getRdOutput().info(String.format(
+                "%d commands: %d succeeded, %d failed, %d skipped",
+                results.size(),
+                succeeded,
+                failed,
+                skipped
+        ));
+        return exitCode;
+    }
+
+    /**
+     * Writes complete lines to the target with a prefix, each line in a single write synchronized on the target
+     */
+    static class LinePrefixOutputStream extends OutputStream {
+        private final OutputStream target;
+        private final byte[] prefix;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        LinePrefixOutputStream(final OutputStream target, final String prefix) {
+            this.target = target;
+            this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public synchronized void write(final int b) throws IOException {
+            line.write(b);
+            if (b == '\n') {
+                writeLine();
+            }
+        }
+
+        @Override
+        public synchronized void write(final byte[] b, final int off, final int len) throws IOException {
+            int start = off;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    line.write(b, start, i + 1 - start);
+                    writeLine();
+                    start = i + 1;
+                }
+            }
+            line.write(b, start, off + len - start);
+        }
+
+        private void writeLine() throws IOException {
+            byte[] bytes = Arrays.copyOf(prefix, prefix.length + line.size());
+            System.arraycopy(line.toByteArray(), 0, bytes, prefix.length, line.size());
+            line.reset();
+            synchronized (target) {
+                target.write(bytes);
+                target.flush();
+            }
+        }
+
+        /**
+         * Write any incomplete line, with a line ending
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            if (line.size() > 0) {
+                line.write('\n');
+                writeLine();
+            }
+        }
+    }
+}
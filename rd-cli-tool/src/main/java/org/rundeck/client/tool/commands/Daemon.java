@@ -0,0 +1,156 @@
+package org.rundeck.client.tool.commands;
+
+import org.rundeck.client.tool.InputError;
+import org.rundeck.client.tool.Main;
+import org.rundeck.client.tool.daemon.*;
+import org.rundeck.client.tool.extension.BaseCommand;
+import org.rundeck.client.tool.util.Resources;
+import org.rundeck.client.util.ConfigBase;
+import org.rundeck.client.util.MultiConfigValues;
+import org.rundeck.client.util.SysProps;
+import picocli.CommandLine;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resident daemon which runs commands forwarded by rd, avoiding JVM startup and reusing server connections
+ */
+@CommandLine.Command(name = "daemon", description = "Manage the resident rd daemon.")
+public class Daemon extends BaseCommand {
+    static final long START_TIMEOUT_MS = 15000;
+    static final long STOP_TIMEOUT_MS = 5000;
+
+    private File daemonDir() {
+        return Main.daemonDir(getRdTool().getAppConfig());
+    }
+
+    @CommandLine.Command(description = "Start the daemon in the background.")
+    public int start() throws IOException, InputError {
+        File dir = daemonDir();
+        DaemonState state = DaemonState.read(dir);
+        if (null != state && null != DaemonClient.status(state)) {
+            getRdOutput().info("Daemon is already running, pid: " + state.getPid());
+            return 0;
+        }
+        if (null != state) {
+            state.remove(dir);
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create directory: " + dir);
+        }
+        List<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Main.class.getName());
+        command.add("daemon");
+        command.add("run");
+        File log = new File(dir, "daemon.log");
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                .start();
+        process.getOutputStream().close();
+
+        long deadline = System.currentTimeMillis() + START_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            if (!process.isAlive()) {
+                throw new InputError("Daemon failed to start, see log: " + log);
+            }
+            DaemonState started = DaemonState.read(dir);
+            if (null != started && null != DaemonClient.status(started)) {
+                getRdOutput().info("Daemon started, pid: " + started.getPid());
+                return 0;
+            }
+            sleep(100);
+        }
+        throw new InputError("Daemon did not start within " + START_TIMEOUT_MS + "ms, see log: " + log);
+    }
+
+    @CommandLine.Command(description = "Stop the daemon.")
+    public int stop() throws InputError {
+        File dir = daemonDir();
+        DaemonState state = DaemonState.read(dir);
+        if (null == state) {
+            getRdOutput().warning("Daemon is not running");
+            return 0;
+        }
+        if (!DaemonClient.stop(state)) {
+            getRdOutput().warning("Daemon is not responding, removing state for pid: " + state.getPid());
+            state.remove(dir);
+            return 0;
+        }
+        long deadline = System.currentTimeMillis() + STOP_TIMEOUT_MS;
+        while (null != DaemonState.read(dir) && System.currentTimeMillis() < deadline) {
+            sleep(100);
+        }
+        getRdOutput().info("Daemon stopped, pid: " + state.getPid());
+        return 0;
+    }
+
+    @CommandLine.Command(description = "Show whether the daemon is running.")
+    public int status() {
+        DaemonState state = DaemonState.read(daemonDir());
+        String status = null != state ? DaemonClient.status(state) : null;
+        if (null == status) {
+            getRdOutput().info("Daemon is not running");
+            return 1;
+        }
+        getRdOutput().info("Daemon is running, version: " + state.getVersion());
+        getRdOutput().output(status.trim());
+        return 0;
+    }
+
+    @CommandLine.Command(description = "Run the daemon in the foreground.", hidden = true)
+    public int run(
+            @CommandLine.Option(names = {"--port"}, description = "Port to listen on, default: any free port")
+                    int port
+    ) throws IOException
+    {
+        File dir = daemonDir();
+        Resources shared = new Resources();
+        DaemonServer server = new DaemonServer(port, DaemonState.newToken(), request -> {
+            Map<String, String> env = request.getEnv();
+            ConfigBase config = new ConfigBase(new MultiConfigValues(
+                    key -> env.get(key.toUpperCase().replaceAll("\\.", "_")),
+                    new SysProps()
+            ));
+            return Main.run(
+                    request.getArgs(),
+                    config,
+                    new DaemonContext(shared, request.getCwd(), env)
+            );
+        });
+        DaemonState state = new DaemonState(
+                server.getPort(),
+                server.getToken(),
+                DaemonState.currentPid(),
+                org.rundeck.client.Version.VERSION
+        );
+        state.write(dir);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> state.remove(dir)));
+        getRdOutput().info(String.format("rd daemon listening on port %d, pid: %s", state.getPort(), state.getPid()));
+        try {
+            server.serve();
+        } finally {
+            state.remove(dir);
+            shared.close();
+        }
+        return 0;
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
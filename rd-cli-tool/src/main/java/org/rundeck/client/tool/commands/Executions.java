@@ -19,6 +19,7 @@ package org.rundeck.client.tool.commands;
 import lombok.Getter;
 import lombok.Setter;
 import okhttp3.ResponseBody;
+import org.rundeck.client.api.RequestFailed;
 import org.rundeck.client.api.RundeckApi;
 import org.rundeck.client.api.model.*;
 import org.rundeck.client.api.model.executions.MetricsResponse;
@@ -27,17 +28,34 @@ import org.rundeck.client.tool.InputError;
 import org.rundeck.client.tool.extension.BaseCommand;
 import org.rundeck.client.tool.extension.RdTool;
 import org.rundeck.client.tool.options.*;
+import org.rundeck.client.tool.output.OutputMultiplexer;
+import org.rundeck.client.tool.parallel.ParallelRunner;
+import org.rundeck.client.tool.util.LogArchive;
+import org.rundeck.client.tool.util.LogCapture;
+import org.rundeck.client.tool.util.MultiFollower;
+import org.rundeck.client.tool.util.PollScheduler;
+import org.rundeck.client.tool.util.ThreadStreams;
 import org.rundeck.client.util.Format;
 import org.rundeck.client.util.RdClientConfig;
 import org.rundeck.client.util.ServiceClient;
+import org.rundeck.client.util.Streamed;
 import org.rundeck.client.util.Util;
 import picocli.CommandLine;
 
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -86,8 +104,22 @@ public class Executions extends BaseCommand {
 
 
     @CommandLine.Command(description = "Follow the output of an execution. Restart from the beginning, or begin tailing as it " +
-            "runs.")
+            "runs. Given many execution IDs, follow them all at once, with each line prefixed by the execution ID and job name.")
     public int follow(@CommandLine.Mixin ExecutionsFollowOptions options) throws IOException, InputError {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(options.getIds()));
+        if (options.isResume() && !options.isSave()) {
+            throw new InputError("--resume requires --save");
+        }
+        if (options.isSave() && ids.size() > 1) {
+            throw new InputError("--save can only be used with a single execution ID");
+        }
+        if (ids.size() > 1) {
+            return followMany(options, ids);
+        }
+        String id = ids.get(0);
+        if (options.isSave()) {
+            return followSaved(options, id);
+        }
 
         int max = 500;
 
@@ -95,7 +127,7 @@ public class Executions extends BaseCommand {
                 getRdTool(),
                 max,
                 options.isRestart(),
-                options.getId(),
+                id,
                 options.getTail(),
                 true
         );
@@ -106,14 +138,300 @@ public class Executions extends BaseCommand {
                 output,
                 options.isProgress(),
                 options.isQuiet(),
-                options.getId(),
-                max,
+                id,
                 getRdOutput(),
                 options.isOutputFormat() ? Format.formatter(options.getOutputFormat(), ExecLog::toMap, "%", "") : null,
-                waitUnlessInterrupt(2000)
+                pollScheduler(options)
         ) ? 0 : 1;
     }
 
+    /**
+     * Follow an execution from the beginning, or from the checkpoint of the file if resuming, and save its log to the
+     * file
+     *
+     * @return 0 if the execution succeeded
+     */
+    private int followSaved(final ExecutionsFollowOptions options, final String id) throws IOException, InputError {
+        PollScheduler scheduler = pollScheduler(options);
+        Function<ExecLog, String> formatter =
+                options.isOutputFormat() ? Format.formatter(options.getOutputFormat(), ExecLog::toMap, "%", "") : null;
+        LogCapture capture;
+        try {
+            capture = options.isResume()
+                      ? LogCapture.resume(options.getSave(), id, formatter)
+                      : LogCapture.create(options.getSave(), id, formatter);
+        } catch (IllegalArgumentException e) {
+            throw new InputError(e.getMessage());
+        }
+        try (LogCapture saving = capture) {
+            ExecOutput start = saving.getStart();
+            if (saving.isCompleted()) {
+                getRdOutput().info(String.format(
+                        "# Execution %s already saved to %s: %s",
+                        id,
+                        saving.getFile(),
+                        start.execState
+                ));
+                return "succeeded".equals(start.execState) ? 0 : 1;
+            }
+            if (start.offset > 0) {
+                getRdOutput().info(String.format("# Resuming execution %s at offset %d", id, start.offset));
+            }
+            return followOutput(
+                    getRdTool().getClient(),
+                    start,
+                    saving.getLast(),
+                    id,
+                    true,
+                    logReceiver(options.isProgress(), options.isQuiet(), getRdOutput(), formatter),
+                    (output, entries) -> {
+                        try {
+                            saving.write(output, entries);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    },
+                    scheduler
+            ) ? 0 : 1;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Follow many executions on a shared timer, until all complete
+     *
+     * @return 0 if all executions succeeded
+     */
+    private int followMany(final ExecutionsFollowOptions options, final List<String> ids)
+            throws IOException, InputError
+    {
+        pollScheduler(options);
+        RdTool rdTool = getRdTool();
+        List<AbstractMap.SimpleEntry<String, ExecOutput>> started = rdTool.parallelMap(ids, id -> {
+            Execution execution = rdTool.apiCall(api -> api.getExecution(id));
+            return new AbstractMap.SimpleEntry<>(
+                    followPrefix(execution),
+                    startFollowOutput(rdTool, 500, options.isRestart(), id, options.getTail(), true)
+            );
+        });
+        Function<ExecLog, String> formatter =
+                options.isOutputFormat() ? Format.formatter(options.getOutputFormat(), ExecLog::toMap, "%", "") : null;
+        MultiFollower follower = new MultiFollower(
+                rdTool.getClient(),
+                new OutputMultiplexer(getRdOutput(), OutputMultiplexer.Mode.INTERLEAVED),
+                (out, entries) -> logReceiver(options.isProgress(), options.isQuiet(), out, formatter).accept(entries),
+                () -> PollScheduler.create(options.getPollMin(), options.getPollMax()),
+                Math.min(ids.size(), ParallelRunner.maxConcurrency(rdTool.getAppConfig())),
+                Executions::isTransient,
+                FOLLOW_RETRIES
+        );
+        boolean finished;
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                follower.follow(ids.get(i), started.get(i).getKey(), started.get(i).getValue());
+            }
+            finished = follower.await();
+        } finally {
+            follower.close();
+        }
+        List<MultiFollower.Stream> streams = follower.getStreams();
+        long succeeded = streams.stream().filter(MultiFollower.Stream::isSucceeded).count();
+        getRdOutput().info(String.format(
+                "# %d executions: %d succeeded, %d not successful",
+                streams.size(),
+                succeeded,
+                streams.size() - succeeded
+        ));
+        return finished && succeeded == streams.size() ? 0 : 1;
+    }
+
+    /**
+     * @param execution execution
+     * @return prefix for output lines of the execution
+     */
+    static String followPrefix(final Execution execution) {
+        return followPrefix(execution, false);
+    }
+
+    /**
+     * @param execution   execution
+     * @param withProject include the project name
+     * @return prefix for output lines of the execution
+     */
+    static String followPrefix(final Execution execution, final boolean withProject) {
+        String ident = withProject ? execution.getProject() + " " + execution.getId() : execution.getId();
+        if (null != execution.getJob() && null != execution.getJob().getName()) {
+            return String.format("[%s %s] ", ident, execution.getJob().getName());
+        }
+        return String.format("[%s] ", ident);
+    }
+
+    /**
+     * Minimum milliseconds between requests for running executions in tail
+     */
+    static final long TAIL_DISCOVER_MIN_MILLIS = 2000;
+    /**
+     * Maximum milliseconds between requests for running executions in tail
+     */
+    static final long TAIL_DISCOVER_MAX_MILLIS = 30000;
+    /**
+     * Upper limit of lines read in one request for each execution in tail, so that a noisy execution is read in
+     * bounded chunks between the polls of the other executions
+     */
+    static final long TAIL_MAX_LINES = 1000;
+    static final int RUNNING_PAGE_SIZE = 200;
+
+    @CommandLine.Command(description = "Follow the output of all running executions in a project, attaching to new " +
+            "executions as they start, with each line prefixed by the execution ID and job name. Runs until interrupted.")
+    public int tail(@CommandLine.Mixin ExecutionsTailOptions options,
+                    @CommandLine.Mixin ProjectNameOptions projectNameOptions) throws IOException, InputError {
+        String project;
+        if (options.isAllProjects()) {
+            if (projectNameOptions.isProject()) {
+                throw new InputError("-p/--project cannot be combined with --all-projects");
+            }
+            project = "*";
+        } else {
+            project = getRdTool().projectOrEnv(projectNameOptions);
+        }
+        pollScheduler(options);
+        RdTool rdTool = getRdTool();
+        Function<ExecLog, String> formatter =
+                options.isOutputFormat() ? Format.formatter(options.getOutputFormat(), ExecLog::toMap, "%", "") : null;
+        MultiFollower follower = new MultiFollower(
+                rdTool.getClient(),
+                new OutputMultiplexer(getRdOutput(), OutputMultiplexer.Mode.INTERLEAVED),
+                (out, entries) -> logReceiver(options.isProgress(), options.isQuiet(), out, formatter).accept(entries),
+                () -> PollScheduler.create(options.getPollMin(), options.getPollMax(), TAIL_MAX_LINES),
+                ParallelRunner.maxConcurrency(rdTool.getAppConfig()),
+                Executions::isTransient,
+                FOLLOW_RETRIES
+        );
+        try {
+            tailRunning(
+                    follower,
+                    project,
+                    options,
+                    PollScheduler.create(TAIL_DISCOVER_MIN_MILLIS, TAIL_DISCOVER_MAX_MILLIS),
+                    () -> false
+            );
+        } finally {
+            follower.close();
+        }
+        return 0;
+    }
+
+    /**
+     * Discover running executions and follow each new one until it completes. Executions running at the first
+     * discovery start from the tail, or the beginning if restart is set, and executions discovered later start from
+     * the beginning. Discovery polls more often while new executions appear, and backs off while none do, or while
+     * listing the running executions fails with an I/O error or a server error.
+     *
+     * @param follower  follower
+     * @param project   project name, or "*" for all projects
+     * @param options   follow options
+     * @param discovery schedules discovery requests
+     * @param stop      return true to stop discovery
+     * @return false if interrupted
+     */
+    boolean tailRunning(
+            final MultiFollower follower,
+            final String project,
+            final FollowOptions options,
+            final PollScheduler discovery,
+            final BooleanSupplier stop
+    ) throws IOException, InputError
+    {
+        RdTool rdTool = getRdTool();
+        boolean first = true;
+        while (!stop.getAsBoolean()) {
+            List<Execution> running;
+            try {
+                running = listRunning(project);
+            } catch (IOException | RequestFailed e) {
+                if (!isTransient(e)) {
+                    throw e;
+                }
+                getRdOutput().warning(String.format("Failed to list running executions: %s", e.getMessage()));
+                discovery.failed();
+                if (!discovery.await()) {
+                    return false;
+                }
+                continue;
+            }
+            int added = 0;
+            for (Execution execution : running) {
+                String id = execution.getId();
+                if (follower.isFollowed(id)) {
+                    continue;
+                }
+                ExecOutput initial;
+                try {
+                    initial = startFollowOutput(
+                            rdTool,
+                            TAIL_MAX_LINES,
+                            !first || options.isRestart(),
+                            id,
+                            options.getTail(),
+                            true
+                    );
+                } catch (IOException | RequestFailed e) {
+                    getRdOutput().warning(String.format(
+                            "Failed to read output of execution %s: %s",
+                            id,
+                            e.getMessage()
+                    ));
+                    continue;
+                }
+                if (follower.follow(id, followPrefix(execution, "*".equals(project)), initial)) {
+                    added++;
+                }
+            }
+            follower.forgetDetached(running.stream().map(Execution::getId).collect(Collectors.toSet()));
+            first = false;
+            discovery.received(added, 100);
+            if (!discovery.await()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param project project name, or "*" for all projects
+     * @return all running executions, reading every page
+     */
+    private List<Execution> listRunning(final String project) throws IOException, InputError {
+        List<Execution> running = new ArrayList<>();
+        ExecutionList page;
+        do {
+            final int offset = running.size();
+            page = apiCall(api -> api.runningExecutions(project, offset, RUNNING_PAGE_SIZE));
+            if (null == page.getExecutions() || page.getExecutions().isEmpty()) {
+                break;
+            }
+            running.addAll(page.getExecutions());
+        } while (null != page.getPaging() && page.getPaging().hasMoreResults());
+        return running;
+    }
+
+    /**
+     * @param options follow options
+     * @return poll scheduler for the options
+     * @throws InputError if the poll interval is invalid
+     */
+    public static PollScheduler pollScheduler(final FollowOptions options) throws InputError {
+        if (options.getPollMin() < 0 || options.getPollMax() < options.getPollMin()) {
+            throw new InputError(String.format(
+                    "--poll-min (%d) must not be negative or greater than --poll-max (%d)",
+                    options.getPollMin(),
+                    options.getPollMax()
+            ));
+        }
+        return PollScheduler.create(options.getPollMin(), options.getPollMax());
+    }
+
 
     public static ExecOutput startFollowOutput(
             final RdTool rdTool,
@@ -135,7 +453,7 @@ public class Executions extends BaseCommand {
     }
 
     /**
-     * Follow output, wait 2s between refreshing data from server, halts when interrupted
+     * Follow output, waiting with the wait function between refreshing data from server, halts when interrupted
      *
      * @param progress show progress
      * @param quiet quell log output
@@ -160,7 +478,42 @@ public class Executions extends BaseCommand {
             final BooleanSupplier waitFunc
     ) throws IOException
     {
-        return followOutput(serviceClient, output, id, max, true, entries -> {
+        return followOutput(serviceClient, output, id, max, true, logReceiver(progress, quiet, out, formatter), waitFunc);
+    }
+
+    /**
+     * Follow output, polling as scheduled, halts when interrupted
+     *
+     * @param progress  show progress
+     * @param quiet     quell log output
+     * @param id        id
+     * @param out       output
+     * @param formatter formatter
+     * @param scheduler poll scheduler
+     * @return true if successful
+     */
+    public static boolean followOutput(
+            final ServiceClient<RundeckApi> serviceClient,
+            final ExecOutput output,
+            final boolean progress,
+            final boolean quiet,
+            final String id,
+            CommandOutput out,
+            final Function<ExecLog, String> formatter,
+            final PollScheduler scheduler
+    ) throws IOException
+    {
+        return followOutput(serviceClient, output, id, true, logReceiver(progress, quiet, out, formatter), scheduler);
+    }
+
+    static Consumer<List<ExecLog>> logReceiver(
+            final boolean progress,
+            final boolean quiet,
+            final CommandOutput out,
+            final Function<ExecLog, String> formatter
+    )
+    {
+        return entries -> {
             if (progress && !entries.isEmpty()) {
                 out.output(".");
             } else if (!quiet) {
@@ -175,7 +528,7 @@ public class Executions extends BaseCommand {
                     }
                 }
             }
-        }, waitFunc);
+        };
     }
 
     /**
@@ -198,31 +551,159 @@ public class Executions extends BaseCommand {
             Consumer<List<ExecLog>> receiver,
             BooleanSupplier waitFunc
     ) throws IOException
+    {
+        return followOutput(
+                serviceClient,
+                output,
+                null,
+                id,
+                () -> max,
+                compacted,
+                receiver,
+                (received, entries) -> { },
+                waitFunc,
+                0,
+                () -> { }
+        );
+    }
+
+    /**
+     * Follow output until execution completes and output is fully read, or interrupted. The scheduler sets the
+     * interval between polls and the max lines of each poll.
+     *
+     * @param id        execution id
+     * @param compacted if true, request compacted data
+     * @param receiver  receive log events
+     * @param scheduler poll scheduler
+     * @return true if execution is successful
+     */
+    public static boolean followOutput(
+            final ServiceClient<RundeckApi> serviceClient,
+            final ExecOutput output,
+            final String id,
+            final boolean compacted,
+            Consumer<List<ExecLog>> receiver,
+            final PollScheduler scheduler
+    ) throws IOException
+    {
+        return followOutput(serviceClient, output, null, id, compacted, receiver, (received, entries) -> { }, scheduler);
+    }
+
+    /**
+     * Follow output until execution completes and output is fully read, or interrupted. The scheduler sets the
+     * interval between polls and the max lines of each poll. A request failing with an I/O error or a server error
+     * is retried up to {@link #FOLLOW_RETRIES} times in a row from the same offset, backing off as scheduled.
+     *
+     * @param output    first output
+     * @param previous  last entry before the first output, used to decompact it, or null
+     * @param id        execution id
+     * @param compacted if true, request compacted data
+     * @param receiver  receive log events
+     * @param observer  receives each output with its decompacted entries, after the receiver
+     * @param scheduler poll scheduler
+     * @return true if execution is successful
+     */
+    public static boolean followOutput(
+            final ServiceClient<RundeckApi> serviceClient,
+            final ExecOutput output,
+            final ExecLog previous,
+            final String id,
+            final boolean compacted,
+            final Consumer<List<ExecLog>> receiver,
+            final BiConsumer<ExecOutput, List<ExecLog>> observer,
+            final PollScheduler scheduler
+    ) throws IOException
+    {
+        return followOutput(
+                serviceClient,
+                output,
+                previous,
+                id,
+                scheduler::getMaxLines,
+                compacted,
+                receiver,
+                (received, entries) -> {
+                    scheduler.received(null != entries ? entries.size() : 0, received.percentLoaded);
+                    observer.accept(received, entries);
+                },
+                scheduler::await,
+                FOLLOW_RETRIES,
+                scheduler::failed
+        );
+    }
+
+    /**
+     * Requests for output which may fail in a row before following stops
+     */
+    static final int FOLLOW_RETRIES = 5;
+
+    private static boolean followOutput(
+            final ServiceClient<RundeckApi> serviceClient,
+            final ExecOutput output,
+            final ExecLog previous,
+            final String id,
+            final LongSupplier max,
+            final boolean compacted,
+            final Consumer<List<ExecLog>> receiver,
+            final BiConsumer<ExecOutput, List<ExecLog>> observer,
+            final BooleanSupplier waitFunc,
+            final int retries,
+            final Runnable onFailure
+    ) throws IOException
     {
         boolean done = false;
         String status = null;
         ExecOutput execOutput = output;
+        ExecLog last = previous;
         while (!done) {
-            receiver.accept(execOutput.decompactEntries());
+            List<ExecLog> entries = execOutput.decompactEntries(last);
+            if (null != entries && !entries.isEmpty()) {
+                last = entries.get(entries.size() - 1);
+            }
+            receiver.accept(entries);
+            observer.accept(execOutput, entries);
             status = execOutput.execState;
             done = execOutput.execCompleted && execOutput.completed;
             if (!done) {
-                if (!waitFunc.getAsBoolean()){
-                    break;
-                }
                 final ExecOutput passOutput = execOutput;
-                execOutput = serviceClient.apiCall(api -> api.getOutput(
-                        id,
-                        passOutput.offset,
-                        passOutput.lastModified,
-                        max,
-                        compacted
-                ));
+                execOutput = null;
+                for (int failures = 0; null == execOutput; ) {
+                    if (!waitFunc.getAsBoolean()) {
+                        return "succeeded".equals(status);
+                    }
+                    final long passMax = max.getAsLong();
+                    try {
+                        execOutput = serviceClient.apiCall(api -> api.getOutput(
+                                id,
+                                passOutput.offset,
+                                passOutput.lastModified,
+                                passMax,
+                                compacted
+                        ));
+                    } catch (IOException | RequestFailed e) {
+                        if (++failures > retries || !isTransient(e)) {
+                            throw e;
+                        }
+                        onFailure.run();
+                    }
+                }
             }
         }
         return "succeeded".equals(status);
     }
 
+    /**
+     * @param e request failure
+     * @return true if the request may succeed when repeated
+     */
+    static boolean isTransient(final Exception e) {
+        if (e instanceof RequestFailed) {
+            int code = ((RequestFailed) e).getStatusCode();
+            return code >= 500 || code == 429;
+        }
+        return e instanceof IOException;
+    }
+
 
     @CommandLine.Command(description = "Get info about a single execution by ID.")
     public void info(@CommandLine.Mixin ExecutionIdOption options, @CommandLine.Mixin ExecutionOutputFormatOption outputFormatOption) throws IOException, InputError {
@@ -319,6 +800,9 @@ public class Executions extends BaseCommand {
         boolean autopage = interactive || options.isAutoLoadPages();
 
         String project = getRdTool().projectOrEnv(options);
+        if (!interactive && !disableInteractive && outputFormatOption.isOutputFormat()) {
+            return queryStreamed(jobIdList, options, project, query, offset, autopage, outputFormatOption);
+        }
 
         ExecutionList result = null;
         boolean verboseInfo = !outputFormatOption.isOutputFormat() && !autopage || interactive;
@@ -364,7 +848,9 @@ public class Executions extends BaseCommand {
                 int maxpage = page.maxPagenum();
                 int nextpage = page.pagenum() + 1;
 
+                ThreadStreams.Prompter console = ThreadStreams.console();
                 int i = Util.readPrompt(
+                        null != console ? prompt -> console.readLine("%s", prompt) : null,
                         String.format("Enter page to load 1-%d [default: %d]: ", maxpage, nextpage),
                         (input) -> {
                             if ("".equals(input) || "n".equalsIgnoreCase(input) || "next".equalsIgnoreCase(input)) {
@@ -412,6 +898,50 @@ public class Executions extends BaseCommand {
         return result;
     }
 
+    /**
+     * Output executions as they are read without retaining them, used when no paging info is output
+     *
+     * @return result containing only the paging data of the last page
+     */
+    private ExecutionList queryStreamed(
+            final HasJobIdList jobIdList,
+            final BaseQuery options,
+            final String project,
+            final Map<String, String> query,
+            final int initialOffset,
+            final boolean autopage,
+            final ExecutionOutputFormatOption outputFormatOption
+    ) throws IOException, InputError
+    {
+        ExecutionList result = new ExecutionList();
+        result.setExecutions(Collections.emptyList());
+        int offset = initialOffset;
+        while (offset >= 0) {
+            query.put("offset", Integer.toString(offset));
+            Streamed<Execution> executions = apiCall(api -> api
+                    .listExecutionsStreamed(
+                            project,
+                            query,
+                            jobIdList.getJobIdList(),
+                            options.getExcludeJobIdList(),
+                            options.getJobList(),
+                            options.getExcludeJobList()
+                    ));
+            try (Stream<Execution> stream = executions.stream()) {
+                outputExecutionList(outputFormatOption, getRdOutput(), getRdTool().getAppConfig(), stream);
+            } catch (Streamed.StreamedException e) {
+                throw e.getCause();
+            }
+            Paging page = executions.field("paging", Paging.class).orElse(null);
+            result.setPaging(page);
+            if (!autopage || null == page || !page.hasMoreResults()) {
+                break;
+            }
+            offset = page.nextPageOffset();
+        }
+        return result;
+    }
+
     private Map<String, String> createQueryParams(
             final QueryOptions options,
             final Integer max,
@@ -540,12 +1070,12 @@ public class Executions extends BaseCommand {
     static class ConsoleInteractive implements Interactive {
         @Override
         public boolean isEnabled() {
-            return System.console() != null;
+            return ThreadStreams.console() != null;
         }
 
         @Override
         public String readInteractive(String fmt, Object... args) {
-            return System.console().readLine(fmt, args);
+            return ThreadStreams.console().readLine(fmt, args);
         }
     }
 
@@ -625,7 +1155,12 @@ public class Executions extends BaseCommand {
 
         if (!options.isConfirm()) {
             //request confirmation
-            String s = System.console().readLine("Really delete %d executions? (y/N) ", execIds.size());
+            if (!isInteractiveAvailable()) {
+                getRdOutput().error("No user interaction available. Use --confirm to confirm delete without user interaction");
+                getRdOutput().warning("Not deleting executions.");
+                return 2;
+            }
+            String s = readInteractive("Really delete %d executions? (y/N) ", execIds.size());
 
             if (!"y".equals(s)) {
                 getRdOutput().warning("Not deleting executions.");
@@ -647,6 +1182,223 @@ public class Executions extends BaseCommand {
         return result.isAllsuccessful()?0:1;
     }
 
+    @Getter
+    @Setter
+    static class ArchiveLogsCmd extends QueryOptions implements HasJobIdList {
+        @CommandLine.Option(
+                names = {"--jobids"},
+                arity = "1..*",
+                description = "Job ID list to include"
+        )
+        private List<String> jobIdList;
+
+        @CommandLine.Option(names = {"--dir"},
+                paramLabel = "DIR",
+                description = "Directory to save the logs in, as ID.log.gz")
+        private File dir;
+
+        @CommandLine.Option(names = {"--tar"},
+                paramLabel = "FILE",
+                description = "Tar file to save the logs in, as ID.log.gz. Appended to if it exists.")
+        private File tar;
+
+        @CommandLine.Option(names = {"--max-lines"},
+                description = "Maximum log entries to read in each request, default: ${DEFAULT-VALUE}")
+        private long maxLines = ARCHIVE_MAX_LINES;
+
+        @CommandLine.Option(names = {"-%", "--outformat"},
+                description = "Output format specifier for execution logs. You can use \"%%key\" where key is one of:" +
+                              "time,level,log,user,command,node. E.g. \"%%user@%%node/%%level: %%log\"")
+        private String outputFormat;
+
+        public boolean isOutputFormat() {
+            return outputFormat != null;
+        }
+    }
+
+    static final long ARCHIVE_MAX_LINES = 10000;
+    static final int ARCHIVE_QUERY_PAGE = 100;
+    static final long ARCHIVE_POLL_MIN_MILLIS = 100;
+    static final long ARCHIVE_POLL_MAX_MILLIS = 5000;
+
+    /**
+     * Result of archiving the log of an execution
+     */
+    enum Archived {
+        SAVED,
+        SKIPPED,
+        RUNNING,
+        FAILED
+    }
+
+    @CommandLine.Command(name = "archive-logs",
+            description = "Save the complete log of each execution matching the query options to a directory or a tar " +
+                          "file, as a gzip compressed file for each execution. Logs already saved are skipped, and " +
+                          "running executions are left out.")
+    public int archiveLogs(@CommandLine.Mixin ArchiveLogsCmd options) throws IOException, InputError {
+        if ((null == options.getDir()) == (null == options.getTar())) {
+            throw new InputError("Specify one of --dir or --tar");
+        }
+        if (options.getMaxLines() < 1) {
+            throw new InputError("--max-lines must be at least 1");
+        }
+        String project = getRdTool().projectOrEnv(options);
+        Map<String, String> query = createQueryParams(options, ARCHIVE_QUERY_PAGE, 0);
+        Function<ExecLog, String> formatter =
+                options.isOutputFormat() ? Format.formatter(options.getOutputFormat(), ExecLog::toMap, "%", "") : null;
+        RdTool rdTool = getRdTool();
+        Map<Archived, Integer> counts = new EnumMap<>(Archived.class);
+        for (Archived archived : Archived.values()) {
+            counts.put(archived, 0);
+        }
+        int total = 0;
+        try (LogArchive archive = null != options.getDir()
+                                  ? LogArchive.directory(options.getDir())
+                                  : LogArchive.tar(options.getTar())) {
+            int offset = 0;
+            while (offset >= 0 && !rdTool.isCancelled()) {
+                query.put("offset", Integer.toString(offset));
+                ExecutionList executionList = apiCall(api -> api.listExecutions(
+                        project,
+                        query,
+                        options.getJobIdList(),
+                        options.getExcludeJobIdList(),
+                        options.getJobList(),
+                        options.getExcludeJobList()
+                ));
+                //the next page is read when this page is done, which holds back the query while the disk is slow
+                List<Archived> results = rdTool.parallelMap(
+                        executionList.getExecutions(),
+                        execution -> archiveLog(archive, execution, options.getMaxLines(), formatter),
+                        false
+                );
+                results.forEach(archived -> counts.merge(archived, 1, Integer::sum));
+                Paging page = executionList.getPaging();
+                total = null != page ? page.getTotal() : total + results.size();
+                int done = counts.values().stream().mapToInt(Integer::intValue).sum();
+                getRdOutput().info(String.format("# %d/%d executions: %s", done, total, archiveSummary(counts)));
+                offset = null != page && page.hasMoreResults() ? page.nextPageOffset() : -1;
+            }
+        }
+        getRdOutput().info(String.format(
+                "# Archived logs to %s: %s",
+                null != options.getDir() ? options.getDir() : options.getTar(),
+                archiveSummary(counts)
+        ));
+        return counts.get(Archived.FAILED) == 0 ? 0 : 1;
+    }
+
+    private static String archiveSummary(final Map<Archived, Integer> counts) {
+        return String.format(
+                "%d saved, %d skipped, %d running, %d failed",
+                counts.get(Archived.SAVED),
+                counts.get(Archived.SKIPPED),
+                counts.get(Archived.RUNNING),
+                counts.get(Archived.FAILED)
+        );
+    }
+
+    /**
+     * Save the complete log of an execution, unless it is already in the archive or the execution is running
+     */
+    Archived archiveLog(
+            final LogArchive archive,
+            final Execution execution,
+            final long maxLines,
+            final Function<ExecLog, String> formatter
+    )
+    {
+        String name = execution.getId() + ".log.gz";
+        if (archive.contains(name)) {
+            return Archived.SKIPPED;
+        }
+        if (null == execution.getDateEnded()) {
+            return Archived.RUNNING;
+        }
+        try (LogArchive.Entry entry = archive.create(name)) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(entry.getOutput(), StandardCharsets.UTF_8));
+            boolean complete = readOutput(
+                    getRdTool().getClient(),
+                    execution.getId(),
+                    maxLines,
+                    PollScheduler.create(ARCHIVE_POLL_MIN_MILLIS, ARCHIVE_POLL_MAX_MILLIS),
+                    entries -> {
+                        try {
+                            for (ExecLog log : entries) {
+                                writer.write(null != formatter ? formatter.apply(log) : log.log);
+                                writer.write('\n');
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+            );
+            if (!complete) {
+                getRdOutput().warning(String.format("Log of execution %s was not completely read", execution.getId()));
+                return Archived.FAILED;
+            }
+            writer.flush();
+            entry.commit();
+            return Archived.SAVED;
+        } catch (IOException | UncheckedIOException | RequestFailed e) {
+            getRdOutput().warning(String.format(
+                    "Failed to archive the log of execution %s: %s",
+                    execution.getId(),
+                    e.getMessage()
+            ));
+            return Archived.FAILED;
+        }
+    }
+
+    /**
+     * Read the complete output of an execution in pages of the max lines, retrying transient failures. The next page is
+     * requested at once after a full page, and after waiting only while the server is loading the log, after an empty
+     * page, or after a failure.
+     *
+     * @param id        execution id
+     * @param maxLines  max lines to read in each request
+     * @param scheduler schedules the requests while the log is not yet available, or after a failure
+     * @param receiver  receive log events
+     * @return true if the output was completely read
+     */
+    static boolean readOutput(
+            final ServiceClient<RundeckApi> serviceClient,
+            final String id,
+            final long maxLines,
+            final PollScheduler scheduler,
+            final Consumer<List<ExecLog>> receiver
+    ) throws IOException
+    {
+        ExecOutput start = new ExecOutput();
+        start.entries = new ArrayList<>();
+        AtomicBoolean wait = new AtomicBoolean();
+        AtomicBoolean complete = new AtomicBoolean();
+        followOutput(
+                serviceClient,
+                start,
+                null,
+                id,
+                () -> maxLines,
+                true,
+                receiver,
+                (received, entries) -> {
+                    int count = null != entries ? entries.size() : 0;
+                    scheduler.received(count, received.percentLoaded);
+                    complete.set(received.execCompleted && received.completed);
+                    boolean loading = received.percentLoaded > 0 && received.percentLoaded < 100;
+                    wait.set(count < maxLines && (loading || count == 0));
+                },
+                //no wait before the first request
+                () -> !wait.getAndSet(false) || scheduler.await(),
+                FOLLOW_RETRIES,
+                () -> {
+                    scheduler.failed();
+                    wait.set(true);
+                }
+        );
+        return complete.get();
+    }
+
     public static boolean maybeFollow(
             final RdTool rdTool,
             final FollowOptions options,
@@ -672,30 +1424,12 @@ public class Executions extends BaseCommand {
                 options.isProgress(),
                 options.isQuiet(),
                 id,
-                500,
                 output,
                 formatOptions.isOutputFormat() ? Format.formatter(formatOptions.getOutputFormat(), ExecLog::toMap, "%", "") : null,
-                waitUnlessInterrupt(2000)
+                pollScheduler(options)
         );
     }
 
-    /**
-     * @param millis wait time
-     *
-     * @return wait function which returns false if interrupted true otherwise
-     */
-    private static BooleanSupplier waitUnlessInterrupt(final int millis) {
-        return () -> {
-            try {
-                Thread.sleep(millis);
-                return true;
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return false;
-            }
-        };
-    }
-
     @Getter
     @Setter
     static class MetricsCmd extends QueryOptions implements OutputFormat {
@@ -24,15 +24,18 @@ import picocli.CommandLine;
 import org.rundeck.client.api.model.scheduler.ForecastJobItem;
 import org.rundeck.client.api.model.scheduler.ScheduledJobItem;
 import org.rundeck.client.tool.InputError;
+import org.rundeck.client.tool.Main;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import org.rundeck.client.api.RundeckApi;
 import org.rundeck.client.api.model.*;
 import org.rundeck.client.tool.commands.jobs.Files;
 import org.rundeck.client.tool.options.*;
+import org.rundeck.client.tool.util.ThreadStreams;
 import org.rundeck.client.util.Client;
 import org.rundeck.client.util.Format;
 import org.rundeck.client.util.ServiceClient;
+import org.rundeck.client.util.Streamed;
 import org.rundeck.client.util.Util;
 import retrofit2.Call;
 
@@ -124,12 +127,13 @@ public class Jobs extends BaseCommand {
         int idsToDelete = options.isMax() ? Math.min(idsSize, options.getMax()) : idsSize;
         if (!options.isConfirm()) {
             //request confirmation
-            if (null == System.console()) {
+            ThreadStreams.Prompter console = ThreadStreams.console();
+            if (null == console) {
                 getRdOutput().error("No user interaction available. Use --confirm to confirm purge without user interaction");
                 getRdOutput().warning(String.format("Not deleting %d jobs", idsToDelete));
                 return 2;
             }
-            String s = System.console().readLine("Really delete %d Jobs? (y/N) ", idsToDelete);
+            String s = console.readLine("Really delete %d Jobs? (y/N) ", idsToDelete);
 
             if (!"y".equals(s)) {
                 getRdOutput().warning(String.format("Not deleting %d jobs", idsToDelete));
@@ -284,6 +288,37 @@ public class Jobs extends BaseCommand {
                     }
                 }
             }
+        } else if (jobOutputFormatOption.isOutputFormat() && !jobOutputFormatOption.isVerbose()) {
+            //no summary is output, so output each job as it is read
+            Function<JobItem, ?> outformat = Format.formatter(
+                    jobOutputFormatOption.getOutputFormat(),
+                    JobItem::toMap,
+                    "%",
+                    ""
+            );
+            Streamed<JobItem> body;
+            if (jobListOptions.isIdlist()) {
+                body = getRdTool().apiCall(api -> api.listJobsStreamed(
+                        project,
+                        String.join(",", jobListOptions.getIdlist())
+                ));
+            } else {
+                body = getRdTool().apiCall(api -> api.listJobsStreamed(
+                        project,
+                        jobListOptions.getJob(),
+                        jobListOptions.getGroup(),
+                        jobListOptions.getJobExact(),
+                        jobListOptions.getGroupExact()
+                ));
+            }
+            if (Main.isStructuredFormat(getRdTool().getAppConfig())) {
+                //output a single list document
+                List<Object> values = new ArrayList<>();
+                body.consume(job -> values.add(outformat.apply(job)));
+                getRdOutput().output(values);
+            } else {
+                body.consume(job -> getRdOutput().output(outformat.apply(job)));
+            }
         } else {
             List<JobItem> body;
             if (jobListOptions.isIdlist()) {
@@ -455,12 +490,13 @@ public class Jobs extends BaseCommand {
 
         if (!options.isConfirm()) {
             //request confirmation
-            if (null == System.console()) {
+            ThreadStreams.Prompter console = ThreadStreams.console();
+            if (null == console) {
                 getRdOutput().error("No user interaction available. Use --confirm to confirm request without user interaction");
                 getRdOutput().warning(String.format("Not enabling %d jobs", ids.size()));
                 return 2;
             }
-            String s = System.console().readLine("Really enable %d Jobs? (y/N) ", ids.size());
+            String s = console.readLine("Really enable %d Jobs? (y/N) ", ids.size());
 
             if (!"y".equals(s)) {
                 getRdOutput().warning(String.format("Not enabling %d jobs", ids.size()));
@@ -498,12 +534,13 @@ public class Jobs extends BaseCommand {
 
         if (!options.isConfirm()) {
             //request confirmation
-            if (null == System.console()) {
+            ThreadStreams.Prompter console = ThreadStreams.console();
+            if (null == console) {
                 getRdOutput().error("No user interaction available. Use --confirm to confirm request without user interaction");
                 getRdOutput().warning(String.format("Not disabling %d jobs", ids.size()));
                 return 2;
             }
-            String s = System.console().readLine("Really disable %d Jobs? (y/N) ", ids.size());
+            String s = console.readLine("Really disable %d Jobs? (y/N) ", ids.size());
 
             if (!"y".equals(s)) {
                 getRdOutput().warning(String.format("Not disabling %d jobs", ids.size()));
@@ -541,12 +578,13 @@ public class Jobs extends BaseCommand {
 
         if (!options.isConfirm()) {
             //request confirmation
-            if (null == System.console()) {
+            ThreadStreams.Prompter console = ThreadStreams.console();
+            if (null == console) {
                 getRdOutput().error("No user interaction available. Use --confirm to confirm request without user interaction");
                 getRdOutput().warning(String.format("Not rescheduling %d jobs", ids.size()));
                 return 2;
             }
-            String s = System.console().readLine("Really reschedule %d Jobs? (y/N) ", ids.size());
+            String s = console.readLine("Really reschedule %d Jobs? (y/N) ", ids.size());
 
             if (!"y".equals(s)) {
                 getRdOutput().warning(String.format("Not rescheduling %d jobs", ids.size()));
@@ -584,12 +622,13 @@ public class Jobs extends BaseCommand {
 
         if (!options.isConfirm()) {
             //request confirmation
-            if (null == System.console()) {
+            ThreadStreams.Prompter console = ThreadStreams.console();
+            if (null == console) {
                 getRdOutput().error("No user interaction available. Use --confirm to confirm request without user interaction");
                 getRdOutput().warning(String.format("Not unscheduling %d jobs", ids.size()));
                 return 2;
             }
-            String s = System.console().readLine("Really unschedule %d Jobs? (y/N) ", ids.size());
+            String s = console.readLine("Really unschedule %d Jobs? (y/N) ", ids.size());
 
             if (!"y".equals(s)) {
                 getRdOutput().warning(String.format("Not unscheduling %d jobs", ids.size()));
@@ -24,6 +24,7 @@ import okhttp3.ResponseBody;
 import org.rundeck.client.api.model.KeyStorageItem;
 import org.rundeck.client.tool.InputError;
 import org.rundeck.client.tool.extension.BaseCommand;
+import org.rundeck.client.tool.util.ThreadStreams;
 import org.rundeck.client.util.Client;
 import org.rundeck.client.util.ServiceClient;
 import org.rundeck.client.util.Util;
@@ -330,7 +331,11 @@ public class Keys extends BaseCommand {
                 );
             }
         } else {
-            char[] chars = System.console().readPassword("Enter password: ");
+            ThreadStreams.Prompter console = ThreadStreams.console();
+            if (null == console) {
+                throw new InputError("No user interaction available. Use --file to specify the password");
+            }
+            char[] chars = console.readPassword("Enter password: ");
             ByteBuffer byteBuffer = StandardCharsets.UTF_8.encode(CharBuffer.wrap(chars));
             requestBody = RequestBody.create(
                     Arrays.copyOfRange(byteBuffer.array(), byteBuffer.position(), byteBuffer.limit()),
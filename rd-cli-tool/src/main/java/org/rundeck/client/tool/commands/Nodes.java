@@ -18,15 +18,19 @@ package org.rundeck.client.tool.commands;
 
 
 import org.rundeck.client.tool.InputError;
+import org.rundeck.client.tool.Main;
 import org.rundeck.client.api.model.ProjectNode;
 import org.rundeck.client.tool.extension.BaseCommand;
 import org.rundeck.client.tool.options.NodeFilterOptions;
 import org.rundeck.client.tool.options.NodeOutputFormatOption;
 import org.rundeck.client.tool.options.ProjectNameOptions;
 import org.rundeck.client.util.Format;
+import org.rundeck.client.util.Streamed;
 import picocli.CommandLine;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -48,17 +52,35 @@ public class Nodes extends BaseCommand {
                      @CommandLine.Mixin
                      NodeFilterOptions nodeFilterOptions) throws IOException, InputError {
         String project = getRdTool().projectOrEnv(options);
-        Map<String, ProjectNode> body = apiCall(api -> api.listNodes(project, nodeFilterOptions.filterString()));
-        if (!nodeOutputFormatOption.isOutputFormat()) {
-            getRdOutput().info(String.format("%d Nodes%s in project %s:%n", body.size(),
-                    nodeFilterOptions.isFilter() ? " matching filter" : "",
-                    project
+        if (nodeOutputFormatOption.isOutputFormat()) {
+            //no summary is output, so output each node as it is read
+            Function<ProjectNode, ?> field = Format.formatter(
+                    nodeOutputFormatOption.getOutputFormat(),
+                    ProjectNode::getAttributes,
+                    "%",
+                    ""
+            );
+            Streamed<ProjectNode> nodes = apiCall(api -> api.listNodesStreamed(
+                    project,
+                    nodeFilterOptions.filterString()
             ));
+            if (Main.isStructuredFormat(getRdTool().getAppConfig())) {
+                //output a single list document
+                List<Object> values = new ArrayList<>();
+                nodes.consume(node -> values.add(field.apply(node)));
+                getRdOutput().output(values);
+            } else {
+                nodes.consume(node -> getRdOutput().output(field.apply(node)));
+            }
+            return;
         }
+        Map<String, ProjectNode> body = apiCall(api -> api.listNodes(project, nodeFilterOptions.filterString()));
+        getRdOutput().info(String.format("%d Nodes%s in project %s:%n", body.size(),
+                nodeFilterOptions.isFilter() ? " matching filter" : "",
+                project
+        ));
         Function<ProjectNode, ?> field;
-        if (nodeOutputFormatOption.isOutputFormat()) {
-            field = Format.formatter(nodeOutputFormatOption.getOutputFormat(), ProjectNode::getAttributes, "%", "");
-        } else if (nodeOutputFormatOption.isVerbose()) {
+        if (nodeOutputFormatOption.isVerbose()) {
             field = ProjectNode::getAttributes;
         } else {
             field = ProjectNode::getName;
@@ -25,9 +25,9 @@ import org.rundeck.client.api.RundeckApi;
 import org.rundeck.client.api.model.ProjectItem;
 import org.rundeck.client.tool.commands.projects.*;
 import org.rundeck.client.tool.options.*;
+import org.rundeck.client.tool.util.ThreadStreams;
 import org.rundeck.client.util.Format;
 
-import java.io.Console;
 import java.io.IOException;
 import java.util.*;
 import java.util.function.Function;
@@ -113,7 +113,7 @@ public class Projects extends BaseCommand {
         String project = getRdTool().projectOrEnv(options);
         if (!options.isConfirm()) {
             //request confirmation
-            Console console = System.console();
+            ThreadStreams.Prompter console = ThreadStreams.console();
             String s = "n";
             if (null != console) {
                 s = console.readLine("Really delete project %s? (y/N) ", project);
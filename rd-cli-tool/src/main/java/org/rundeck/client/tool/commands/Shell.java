@@ -0,0 +1,308 @@
+package org.rundeck.client.tool.commands;
+
+import org.rundeck.client.api.RundeckApi;
+import org.rundeck.client.api.model.ProjectItem;
+import org.rundeck.client.tool.CommandRunner;
+import org.rundeck.client.tool.InputError;
+import org.rundeck.client.tool.RdApp;
+import org.rundeck.client.tool.extension.BaseCommand;
+import org.rundeck.client.tool.util.CommandLineTokenizer;
+import org.rundeck.client.tool.util.ThreadStreams;
+import picocli.CommandLine;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+/**
+ * Interactive shell running commands in one session
+ */
+@CommandLine.Command(
+        name = "shell",
+        description = "Interactive shell which runs rd commands in one session, reusing the server connection, " +
+                      "login and API version. Type help for shell commands."
+)
+public class Shell extends BaseCommand implements Callable<Integer> {
+    /**
+     * File to store the shell history, default ~/.rd/shell_history
+     */
+    public static final String RD_SHELL_HISTORY = "RD_SHELL_HISTORY";
+    static final String RD_PROJECT = "RD_PROJECT";
+    static final int HISTORY_SIZE = 500;
+
+    @CommandLine.Option(names = {"-p", "--project"}, description = "Current project to start with")
+    String project;
+
+    private final List<String> history = new ArrayList<>();
+    private File historyFile;
+    /**
+     * Lines in the history file, it is trimmed to {@link #HISTORY_SIZE} lines when it has twice as many
+     */
+    private int historyFileLines;
+    private List<String> projectNames;
+
+    /**
+     * Source of input lines
+     */
+    interface LineInput {
+        /**
+         * @param prompt prompt
+         * @return line, or null at end of input
+         */
+        String readLine(String prompt) throws IOException;
+    }
+
+    public Integer call() throws IOException, InputError {
+        RdApp app = getRdTool().getRdApp();
+        if (!(app instanceof CommandRunner)) {
+            throw new InputError("shell is not supported");
+        }
+        historyFile = new File(getRdTool().getAppConfig().getString(
+                RD_SHELL_HISTORY,
+                new File(System.getProperty("user.home"), ".rd/shell_history").getAbsolutePath()
+        ));
+        loadHistory();
+        ThreadStreams.Prompter console = ThreadStreams.console();
+        LineInput input;
+        if (null != console) {
+            getRdOutput().info("rd shell: type help for shell commands, exit to quit");
+            input = prompt -> console.readLine("%s", prompt);
+        } else {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            input = prompt -> reader.readLine();
+        }
+        return repl((CommandRunner) app, input);
+    }
+
+    /**
+     * Read and run commands until exit or end of input
+     *
+     * @param runner runner
+     * @param input  input
+     * @return exit code of the last command
+     */
+    int repl(final CommandRunner runner, final LineInput input) throws IOException {
+        int last = 0;
+        if (null != project) {
+            last = use(runner, project);
+        }
+        String line;
+        while (null != (line = input.readLine(prompt()))) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("!")) {
+                String expanded = expandHistory(line);
+                if (null == expanded) {
+                    getRdOutput().error("No such history entry: " + line);
+                    last = 2;
+                    continue;
+                }
+                getRdOutput().info(expanded);
+                line = expanded;
+            }
+            addHistory(line);
+            List<String> args;
+            try {
+                args = CommandLineTokenizer.tokenize(line);
+            } catch (InputError e) {
+                getRdOutput().error(e.getMessage());
+                last = 2;
+                continue;
+            }
+            if (!args.isEmpty() && "rd".equals(args.get(0))) {
+                args = args.subList(1, args.size());
+            }
+            if (args.isEmpty()) {
+                continue;
+            }
+            switch (args.get(0)) {
+                case "exit":
+                case "quit":
+                    return last;
+                case "use":
+                    last = use(runner, args.size() > 1 ? args.get(1) : null);
+                    break;
+                case "history":
+                    for (int i = 0; i < history.size(); i++) {
+                        getRdOutput().output(String.format("%5d  %s", i + 1, history.get(i)));
+                    }
+                    last = 0;
+                    break;
+                case "help":
+                    if (args.size() > 1) {
+                        last = runner.runCommand(new String[]{args.get(1), "--help"});
+                    } else {
+                        last = runner.runCommand(new String[]{"--help"});
+                        getRdOutput().output("Shell commands:");
+                        getRdOutput().output("  use [PROJECT]   Set or clear the current project");
+                        getRdOutput().output("  history         List previous commands, rerun with !! or !N");
+                        getRdOutput().output("  help [COMMAND]  Show help");
+                        getRdOutput().output("  exit            Leave the shell");
+                    }
+                    break;
+                case "shell":
+                    getRdOutput().error("Already in a shell");
+                    last = 2;
+                    break;
+                default:
+                    last = runner.runCommand(args.toArray(new String[0]));
+                    if (last != 0) {
+                        getRdOutput().warning("# exit code " + last);
+                    }
+            }
+        }
+        return last;
+    }
+
+    private String prompt() {
+        String current = getRdTool().getAppConfig().getString(RD_PROJECT, null);
+        return null != current ? "rd:" + current + "> " : "rd> ";
+    }
+
+    /**
+     * Set the current project used by commands without a project option
+     *
+     * @param runner runner
+     * @param name   project name, or null to clear it
+     * @return exit code
+     */
+    private int use(final CommandRunner runner, final String name) {
+        if (null == name) {
+            runner.setConfigOverride(RD_PROJECT, null);
+            return 0;
+        }
+        if (!projectExists(name)) {
+            getRdOutput().error("Project does not exist: " + name);
+            return 2;
+        }
+        runner.setConfigOverride(RD_PROJECT, name);
+        return 0;
+    }
+
+    /**
+     * Check the name against the project list, fetched once per session and again if the name is not found
+     *
+     * @param name project name
+     * @return false if the project is known not to exist
+     */
+    private boolean projectExists(final String name) {
+        if (null != projectNames && projectNames.contains(name)) {
+            return true;
+        }
+        try {
+            projectNames = getRdTool().apiCall(RundeckApi::listProjects)
+                                      .stream()
+                                      .map(ProjectItem::getName)
+                                      .collect(Collectors.toList());
+        } catch (InputError | IOException | RuntimeException e) {
+            //unable to verify
+            return true;
+        }
+        return projectNames.contains(name);
+    }
+
+    /**
+     * @param line line starting with "!"
+     * @return history entry for "!!" or "!N", or null if it does not exist
+     */
+    String expandHistory(final String line) {
+        if ("!!".equals(line)) {
+            return history.isEmpty() ? null : history.get(history.size() - 1);
+        }
+        try {
+            int index = Integer.parseInt(line.substring(1));
+            return index >= 1 && index <= history.size() ? history.get(index - 1) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void loadHistory() {
+        if (!historyFile.isFile()) {
+            return;
+        }
+        try {
+            List<String> lines = Files.readAllLines(historyFile.toPath(), StandardCharsets.UTF_8);
+            history.addAll(lines.subList(Math.max(0, lines.size() - HISTORY_SIZE), lines.size()));
+            historyFileLines = lines.size();
+            if (historyFileLines > HISTORY_SIZE) {
+                trimHistoryFile();
+            }
+        } catch (IOException e) {
+            getRdOutput().warning("# Unable to read history: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replace the history file with its last {@link #HISTORY_SIZE} lines. The file is read again, so that lines
+     * appended by other shells are kept.
+     */
+    private void trimHistoryFile() throws IOException {
+        List<String> lines = Files.readAllLines(historyFile.toPath(), StandardCharsets.UTF_8);
+        List<String> keep = lines.subList(Math.max(0, lines.size() - HISTORY_SIZE), lines.size());
+        //temp files are only readable by the owner
+        Path temp = Files.createTempFile(historyFile.getAbsoluteFile().getParentFile().toPath(), ".history", ".tmp");
+        try {
+            Files.write(temp, keep, StandardCharsets.UTF_8);
+            try {
+                Files.move(
+                        temp,
+                        historyFile.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING
+                );
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, historyFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        historyFileLines = keep.size();
+    }
+
+    private void addHistory(final String line) {
+        history.add(line);
+        if (history.size() > HISTORY_SIZE) {
+            history.remove(0);
+        }
+        if (null == historyFile) {
+            return;
+        }
+        try {
+            if (!historyFile.exists()) {
+                File dir = historyFile.getAbsoluteFile().getParentFile();
+                if (!dir.isDirectory() && !dir.mkdirs()) {
+                    throw new IOException("Unable to create directory: " + dir);
+                }
+                //the history may contain secrets given as arguments
+                if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                    Files.createFile(
+                            historyFile.toPath(),
+                            PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))
+                    );
+                }
+            }
+            Files.write(
+                    historyFile.toPath(),
+                    Arrays.asList(line),
+                    StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND
+            );
+            if (++historyFileLines > 2 * HISTORY_SIZE) {
+                trimHistoryFile();
+            }
+        } catch (IOException e) {
+            getRdOutput().warning("# Unable to write history: " + e.getMessage());
+            historyFile = null;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package org.rundeck.client.tool.daemon;
+
+import org.rundeck.client.tool.util.ThreadStreams;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.rundeck.client.tool.daemon.DaemonProtocol.*;
+
+/**
+ * Forwards invocations to a running daemon
+ */
+public class DaemonClient {
+    static final int CONNECT_TIMEOUT_MS = 1000;
+
+    private DaemonClient() {
+    }
+
+    /**
+     * Run the arguments in the daemon, streaming its output and the input
+     *
+     * @param state daemon state
+     * @param args  arguments
+     * @param env   environment to forward
+     * @param cwd   working directory
+     * @param in    input
+     * @param out   output
+     * @param err   error output
+     * @return exit code, or null if the daemon could not be used and the command should be run locally
+     */
+    public static Integer forward(
+            final DaemonState state,
+            final String[] args,
+            final Map<String, String> env,
+            final File cwd,
+            final InputStream in,
+            final OutputStream out,
+            final OutputStream err
+    )
+    {
+        return forward(state, args, env, cwd, in, out, err, null);
+    }
+
+    /**
+     * Run the arguments in the daemon, streaming its output and the input, and answering its prompts from the console
+     *
+     * @param state   daemon state
+     * @param args    arguments
+     * @param env     environment to forward
+     * @param cwd     working directory
+     * @param in      input
+     * @param out     output
+     * @param err     error output
+     * @param console console for prompts, or null if there is none
+     * @return exit code, or null if the daemon could not be used and the command should be run locally
+     */
+    public static Integer forward(
+            final DaemonState state,
+            final String[] args,
+            final Map<String, String> env,
+            final File cwd,
+            final InputStream in,
+            final OutputStream out,
+            final OutputStream err,
+            final ThreadStreams.Prompter console
+    )
+    {
+        Socket socket;
+        DataInputStream sin;
+        DataOutputStream sout;
+        try {
+            socket = connect(state);
+            sin = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            sout = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            writeString(sout, state.getToken());
+            sout.writeInt(OP_RUN);
+            sout.writeInt(args.length);
+            for (String arg : args) {
+                writeString(sout, arg);
+            }
+            sout.writeInt(env.size());
+            for (Map.Entry<String, String> entry : env.entrySet()) {
+                writeString(sout, entry.getKey());
+                writeString(sout, entry.getValue());
+            }
+            writeString(sout, cwd.getAbsolutePath());
+            sout.writeBoolean(null != console);
+            sout.flush();
+        } catch (IOException e) {
+            return null;
+        }
+        boolean started = false;
+        try (Socket ignored = socket) {
+            while (true) {
+                int type = sin.readByte();
+                switch (type) {
+                    case FRAME_OUT:
+                    case FRAME_ERR:
+                        started = true;
+                        OutputStream target = type == FRAME_OUT ? out : err;
+                        int len = sin.readInt();
+                        byte[] data = new byte[len];
+                        sin.readFully(data);
+                        target.write(data);
+                        target.flush();
+                        break;
+                    case FRAME_READ:
+                        started = true;
+                        int max = sin.readInt();
+                        byte[] buf = new byte[Math.max(1, Math.min(max, 8192))];
+                        int read = in.read(buf);
+                        sout.writeInt(read);
+                        if (read > 0) {
+                            sout.write(buf, 0, read);
+                        }
+                        sout.flush();
+                        break;
+                    case FRAME_PROMPT:
+                        started = true;
+                        String prompt = readString(sin);
+                        boolean echo = sin.readBoolean();
+                        out.flush();
+                        err.flush();
+                        String answer = null;
+                        if (null != console) {
+                            if (echo) {
+                                answer = console.readLine("%s", prompt);
+                            } else {
+                                char[] chars = console.readPassword("%s", prompt);
+                                answer = null != chars ? new String(chars) : null;
+                            }
+                        }
+                        if (null == answer) {
+                            sout.writeInt(-1);
+                        } else {
+                            byte[] bytes = answer.getBytes(StandardCharsets.UTF_8);
+                            sout.writeInt(bytes.length);
+                            sout.write(bytes);
+                        }
+                        sout.flush();
+                        break;
+                    case FRAME_EXIT:
+                        return sin.readInt();
+                    case FRAME_ERROR:
+                        String message = readString(sin);
+                        if (!started) {
+                            return null;
+                        }
+                        err.write(("rd daemon: " + message + System.lineSeparator()).getBytes());
+                        err.flush();
+                        return 1;
+                    default:
+                        throw new IOException("Unexpected frame: " + type);
+                }
+            }
+        } catch (IOException e) {
+            if (!started) {
+                return null;
+            }
+            try {
+                err.write(("rd daemon: connection lost: " + e + System.lineSeparator()).getBytes());
+                err.flush();
+            } catch (IOException ignored) {
+
+            }
+            return 1;
+        }
+    }
+
+    /**
+     * @param state daemon state
+     * @return status text, or null if the daemon is not responding
+     */
+    public static String status(final DaemonState state) {
+        return simple(state, OP_STATUS);
+    }
+
+    /**
+     * @param state daemon state
+     * @return true if the daemon acknowledged the stop
+     */
+    public static boolean stop(final DaemonState state) {
+        return null != simple(state, OP_STOP);
+    }
+
+    private static String simple(final DaemonState state, final int op) {
+        try (Socket socket = connect(state)) {
+            DataInputStream sin = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream sout = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            writeString(sout, state.getToken());
+            sout.writeInt(op);
+            sout.flush();
+            StringBuilder text = new StringBuilder();
+            while (true) {
+                int type = sin.readByte();
+                if (type == FRAME_OUT) {
+                    byte[] data = new byte[sin.readInt()];
+                    sin.readFully(data);
+                    text.append(new String(data));
+                } else if (type == FRAME_EXIT) {
+                    sin.readInt();
+                    return text.toString();
+                } else {
+                    return null;
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Socket connect(final DaemonState state) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), state.getPort()),
+                    CONNECT_TIMEOUT_MS
+            );
+            socket.setTcpNoDelay(true);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return socket;
+    }
+}
@@ -0,0 +1,116 @@
+package org.rundeck.client.tool.daemon;
+
+import org.rundeck.client.RundeckClient;
+import org.rundeck.client.tool.Main;
+import org.rundeck.client.tool.util.Resources;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Context of a request run by the daemon
+ */
+public class DaemonContext {
+    /**
+     * Variables which configure the http client: the server, credentials, and settings of the http stack
+     */
+    static final Set<String> HTTP_CONFIG = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            Main.RD_URL,
+            Main.RD_USER,
+            Main.RD_PASSWORD,
+            Main.RD_TOKEN,
+            RundeckClient.ENV_BYPASS_URL,
+            RundeckClient.ENV_INSECURE_SSL,
+            RundeckClient.ENV_INSECURE_SSL_HOSTNAME,
+            RundeckClient.ENV_ALT_SSL_HOSTNAME,
+            RundeckClient.ENV_HTTP_TIMEOUT,
+            RundeckClient.ENV_HTTP_READ_TIMEOUT,
+            RundeckClient.ENV_HTTP_WRITE_TIMEOUT,
+            RundeckClient.ENV_HTTP_CONN_TIMEOUT,
+            RundeckClient.ENV_HTTP_CALL_TIMEOUT,
+            RundeckClient.ENV_CONNECT_RETRY,
+            RundeckClient.ENV_HTTP_MAX_REQUESTS,
+            RundeckClient.ENV_HTTP_MAX_REQUESTS_PER_HOST,
+            RundeckClient.ENV_SESSION_CACHE_DIR,
+            RundeckClient.ENV_HTTP_CACHE_DIR,
+            RundeckClient.ENV_HTTP_CACHE_SIZE,
+            RundeckClient.ENV_HTTP_CACHE_MAX_AGE,
+            RundeckClient.ENV_HTTP_CACHE_POLICY,
+            RundeckClient.ENV_HTTP_RETRY,
+            RundeckClient.ENV_HTTP_RETRY_DELAY,
+            RundeckClient.ENV_HTTP_RETRY_MAX_DELAY
+    )));
+    private final Resources resources;
+    private final File cwd;
+    private final String configKey;
+
+    /**
+     * @param resources resources shared by all requests to the daemon
+     * @param cwd       working directory of the client
+     * @param env       environment of the client
+     */
+    public DaemonContext(final Resources resources, final File cwd, final Map<String, String> env) {
+        this.resources = resources;
+        this.cwd = cwd;
+        this.configKey = configKey(env);
+    }
+
+    /**
+     * @return resources shared by all requests to the daemon
+     */
+    public Resources getResources() {
+        return resources;
+    }
+
+    /**
+     * @return working directory of the client
+     */
+    public File getCwd() {
+        return cwd;
+    }
+
+    /**
+     * @return key identifying the http client configuration of the client
+     */
+    public String getConfigKey() {
+        return configKey;
+    }
+
+    /**
+     * @param path path
+     * @return the path resolved against the working directory of the client
+     */
+    public File resolve(final String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(cwd, path);
+    }
+
+    /**
+     * @param env environment
+     * @return digest of the entries of the environment which configure the http client
+     */
+    static String configKey(final Map<String, String> env) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        new TreeMap<>(env).forEach((key, value) -> {
+            if (HTTP_CONFIG.contains(key)) {
+                digest.update(key.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(value.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+        });
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
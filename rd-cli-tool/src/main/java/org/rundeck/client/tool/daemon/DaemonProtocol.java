@@ -0,0 +1,64 @@
+package org.rundeck.client.tool.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format between the rd client and the daemon. The client sends the token, an operation and for
+ * {@link #OP_RUN} the request, the daemon replies with frames until an exit or error frame. The client answers read
+ * frames with a block of its input, or -1 at end of input, and prompt frames with the line read from its console, or
+ * -1 if there is none.
+ */
+final class DaemonProtocol {
+    static final int OP_RUN = 1;
+    static final int OP_STATUS = 2;
+    static final int OP_STOP = 3;
+
+    /**
+     * Frame with stdout data
+     */
+    static final int FRAME_OUT = 1;
+    /**
+     * Frame with stderr data
+     */
+    static final int FRAME_ERR = 2;
+    /**
+     * Frame requesting up to a number of bytes of stdin
+     */
+    static final int FRAME_READ = 3;
+    /**
+     * Frame with the exit code, ends the response
+     */
+    static final int FRAME_EXIT = 4;
+    /**
+     * Frame with an error message, ends the response
+     */
+    static final int FRAME_ERROR = 5;
+    /**
+     * Frame with a prompt, and whether to echo the answer
+     */
+    static final int FRAME_PROMPT = 6;
+
+    private static final int MAX_STRING = 16 * 1024 * 1024;
+
+    private DaemonProtocol() {
+    }
+
+    static void writeString(final DataOutputStream out, final String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(final DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,505 @@
+package org.rundeck.client.tool.daemon;
+
+import org.rundeck.client.tool.util.ThreadStreams;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.rundeck.client.tool.daemon.DaemonProtocol.*;
+
+/**
+ * Accepts requests on a loopback port, authenticated by a token. Each request runs concurrently on the thread of its
+ * connection, with the system streams of that thread connected to the client, and prompts answered by the console of
+ * the client if it has one. A request is cancelled by interrupting its thread when the client disconnects, or the
+ * server is closed.
+ */
+public class DaemonServer implements Closeable {
+    /**
+     * Maximum input block accepted from the client
+     */
+    static final int MAX_INPUT = 64 * 1024;
+    private final ServerSocket serverSocket;
+    private final String token;
+    private final Handler handler;
+    private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicInteger threads = new AtomicInteger();
+    private final long started = System.currentTimeMillis();
+    private volatile boolean stopped;
+
+    /**
+     * Runs a forwarded request
+     */
+    public interface Handler {
+        /**
+         * @param request request
+         * @return exit code
+         * @throws Exception if the request fails
+         */
+        int run(Request request) throws Exception;
+    }
+
+    /**
+     * Forwarded invocation
+     */
+    public static class Request {
+        private final String[] args;
+        private final Map<String, String> env;
+        private final File cwd;
+        private final boolean console;
+
+        public Request(final String[] args, final Map<String, String> env, final File cwd) {
+            this(args, env, cwd, false);
+        }
+
+        /**
+         * @param args    arguments
+         * @param env     environment of the client
+         * @param cwd     working directory of the client
+         * @param console true if the client has a console for prompts
+         */
+        public Request(final String[] args, final Map<String, String> env, final File cwd, final boolean console) {
+            this.args = args;
+            this.env = env;
+            this.cwd = cwd;
+            this.console = console;
+        }
+
+        public String[] getArgs() {
+            return args;
+        }
+
+        /**
+         * @return environment of the client
+         */
+        public Map<String, String> getEnv() {
+            return env;
+        }
+
+        /**
+         * @return working directory of the client
+         */
+        public File getCwd() {
+            return cwd;
+        }
+
+        /**
+         * @return true if the client has a console for prompts
+         */
+        public boolean isConsole() {
+            return console;
+        }
+    }
+
+    /**
+     * @param port    port, or 0 for any free port
+     * @param token   token required from clients
+     * @param handler request handler
+     * @throws IOException if the port cannot be bound
+     */
+    public DaemonServer(final int port, final String token, final Handler handler) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.token = token;
+        this.handler = handler;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Accept connections until stopped or closed, then wait for running requests to finish
+     */
+    public void serve() {
+        ThreadStreams.install();
+        while (!stopped) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!stopped && !serverSocket.isClosed()) {
+                    e.printStackTrace();
+                }
+                break;
+            }
+            Thread thread = new Thread(() -> handle(socket), "rd-daemon-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            thread.start();
+        }
+        synchronized (running) {
+            while (!running.isEmpty()) {
+                try {
+                    running.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handle(final Socket socket) {
+        try (Socket ignored = socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            String clientToken = readString(in);
+            if (!MessageDigest.isEqual(
+                    token.getBytes(StandardCharsets.UTF_8),
+                    clientToken.getBytes(StandardCharsets.UTF_8)
+            )) {
+                writeError(out, "Unauthorized");
+                return;
+            }
+            int op = in.readInt();
+            switch (op) {
+                case OP_RUN:
+                    run(readRequest(in), in, out);
+                    break;
+                case OP_STATUS:
+                    writeData(out, FRAME_OUT, status().getBytes(StandardCharsets.UTF_8), 0);
+                    writeExit(out, 0);
+                    break;
+                case OP_STOP:
+                    writeExit(out, 0);
+                    close();
+                    break;
+                default:
+                    writeError(out, "Unknown operation: " + op);
+            }
+        } catch (IOException ignored) {
+            //client disconnected
+        }
+    }
+
+    /**
+     * @return status description
+     */
+    String status() {
+        return String.format(
+                "pid: %s, port: %d, uptime: %ds, requests: %d, running: %d%n",
+                DaemonState.currentPid(),
+                getPort(),
+                (System.currentTimeMillis() - started) / 1000,
+                requests.get(),
+                running.size()
+        );
+    }
+
+    private static Request readRequest(final DataInputStream in) throws IOException {
+        int argc = in.readInt();
+        String[] args = new String[argc];
+        for (int i = 0; i < argc; i++) {
+            args[i] = readString(in);
+        }
+        int envc = in.readInt();
+        Map<String, String> env = new HashMap<>();
+        for (int i = 0; i < envc; i++) {
+            env.put(readString(in), readString(in));
+        }
+        File cwd = new File(readString(in));
+        return new Request(args, env, cwd, in.readBoolean());
+    }
+
+    private void run(final Request request, final DataInputStream in, final DataOutputStream out)
+            throws IOException
+    {
+        Thread thread = Thread.currentThread();
+        FrameOutput stdout = new FrameOutput(out, FRAME_OUT);
+        FrameOutput stderr = new FrameOutput(out, FRAME_ERR);
+        BufferedOutputStream bufferedOut = new BufferedOutputStream(stdout);
+        BufferedOutputStream bufferedErr = new BufferedOutputStream(stderr);
+        BlockingQueue<byte[]> input = new LinkedBlockingQueue<>();
+        AtomicBoolean done = new AtomicBoolean();
+        FrameInput stdin = new FrameInput(input, out, () -> {
+            bufferedOut.flush();
+            bufferedErr.flush();
+        });
+        //the client only sends input when asked, so reading ends when it disconnects
+        Thread reader = new Thread(() -> {
+            try {
+                readInput(in, input);
+            } catch (IOException e) {
+                if (!done.get()) {
+                    //client disconnected, cancel the request
+                    stdout.close();
+                    stderr.close();
+                    input.add(FrameInput.DISCONNECTED);
+                    thread.interrupt();
+                }
+            }
+        }, thread.getName() + "-input");
+        reader.setDaemon(true);
+        int exit;
+        synchronized (running) {
+            running.add(thread);
+        }
+        try {
+            reader.start();
+            requests.incrementAndGet();
+            ThreadStreams.set(new ThreadStreams.Streams(
+                    stdin,
+                    bufferedOut,
+                    bufferedErr,
+                    request.isConsole() ? new FramePrompter(stdin) : null
+            ));
+            try {
+                exit = handler.run(request);
+            } catch (Exception e) {
+                e.printStackTrace();
+                exit = 1;
+            } finally {
+                System.out.flush();
+                System.err.flush();
+                ThreadStreams.set(null);
+            }
+        } finally {
+            done.set(true);
+            synchronized (running) {
+                running.remove(thread);
+                running.notifyAll();
+            }
+            //clear a cancellation which arrived after the request finished
+            Thread.interrupted();
+        }
+        try {
+            bufferedOut.flush();
+            bufferedErr.flush();
+        } finally {
+            stdout.close();
+            stderr.close();
+        }
+        writeExit(out, exit);
+    }
+
+    /**
+     * Read input blocks sent by the client until it disconnects
+     */
+    private static void readInput(final DataInputStream in, final BlockingQueue<byte[]> input) throws IOException {
+        while (true) {
+            int count = in.readInt();
+            if (count < 0) {
+                input.add(FrameInput.EOF);
+                continue;
+            }
+            if (count > MAX_INPUT) {
+                throw new IOException("Invalid input length: " + count);
+            }
+            byte[] data = new byte[count];
+            in.readFully(data);
+            input.add(data);
+        }
+    }
+
+    private static void writeData(final DataOutputStream out, final int type, final byte[] b, final int off)
+            throws IOException
+    {
+        writeData(out, type, b, off, b.length - off);
+    }
+
+    private static void writeData(
+            final DataOutputStream out,
+            final int type,
+            final byte[] b,
+            final int off,
+            final int len
+    ) throws IOException
+    {
+        synchronized (out) {
+            out.writeByte(type);
+            out.writeInt(len);
+            out.write(b, off, len);
+            out.flush();
+        }
+    }
+
+    private static void writeExit(final DataOutputStream out, final int exit) throws IOException {
+        synchronized (out) {
+            out.writeByte(FRAME_EXIT);
+            out.writeInt(exit);
+            out.flush();
+        }
+    }
+
+    private static void writeError(final DataOutputStream out, final String message) throws IOException {
+        synchronized (out) {
+            out.writeByte(FRAME_ERROR);
+            writeString(out, message);
+            out.flush();
+        }
+    }
+
+    /**
+     * Sends written data as frames, writes after the request ends are discarded
+     */
+    private static class FrameOutput extends OutputStream {
+        private final DataOutputStream out;
+        private final int type;
+        private volatile boolean closed;
+
+        FrameOutput(final DataOutputStream out, final int type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (!closed && len > 0) {
+                writeData(out, type, b, off, len);
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Prompts on the console of the client
+     */
+    private static class FramePrompter implements ThreadStreams.Prompter {
+        private final FrameInput input;
+
+        FramePrompter(final FrameInput input) {
+            this.input = input;
+        }
+
+        @Override
+        public String readLine(final String fmt, final Object... args) {
+            return prompt(String.format(fmt, args), true);
+        }
+
+        @Override
+        public char[] readPassword(final String fmt, final Object... args) {
+            String answer = prompt(String.format(fmt, args), false);
+            return null != answer ? answer.toCharArray() : null;
+        }
+
+        private String prompt(final String prompt, final boolean echo) {
+            try {
+                byte[] answer = input.prompt(prompt, echo);
+                return null != answer ? new String(answer, StandardCharsets.UTF_8) : null;
+            } catch (IOException e) {
+                //as Console
+                throw new IOError(e);
+            }
+        }
+    }
+
+    /**
+     * Requests input from the client when read
+     */
+    private static class FrameInput extends InputStream {
+        static final byte[] EOF = new byte[0];
+        static final byte[] DISCONNECTED = new byte[0];
+        private final BlockingQueue<byte[]> input;
+        private final DataOutputStream out;
+        private final Flushable beforeRead;
+        private boolean eof;
+
+        FrameInput(final BlockingQueue<byte[]> input, final DataOutputStream out, final Flushable beforeRead) {
+            this.input = input;
+            this.out = out;
+            this.beforeRead = beforeRead;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int read = read(b, 0, 1);
+            return read < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public synchronized int read(final byte[] b, final int off, final int len) throws IOException {
+            if (eof) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            beforeRead.flush();
+            synchronized (out) {
+                out.writeByte(FRAME_READ);
+                out.writeInt(len);
+                out.flush();
+            }
+            byte[] data = take();
+            if (data == EOF) {
+                eof = true;
+                return -1;
+            }
+            if (data.length > len) {
+                throw new IOException("Invalid input length: " + data.length);
+            }
+            System.arraycopy(data, 0, b, off, data.length);
+            return data.length;
+        }
+
+        /**
+         * @param prompt prompt
+         * @param echo   true to echo the answer
+         * @return answer from the console of the client, or null if there is none
+         * @throws IOException if the client disconnected or the request was cancelled
+         */
+        synchronized byte[] prompt(final String prompt, final boolean echo) throws IOException {
+            beforeRead.flush();
+            synchronized (out) {
+                out.writeByte(FRAME_PROMPT);
+                writeString(out, prompt);
+                out.writeBoolean(echo);
+                out.flush();
+            }
+            byte[] data = take();
+            return data == EOF ? null : data;
+        }
+
+        private byte[] take() throws IOException {
+            byte[] data;
+            try {
+                data = input.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Cancelled");
+            }
+            if (data == DISCONNECTED) {
+                input.add(DISCONNECTED);
+                throw new IOException("Client disconnected");
+            }
+            return data;
+        }
+    }
+
+    /**
+     * Stop accepting connections, and cancel running requests
+     */
+    @Override
+    public void close() throws IOException {
+        stopped = true;
+        serverSocket.close();
+        for (Thread thread : running) {
+            thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.rundeck.client.tool.daemon;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.Properties;
+
+/**
+ * Port, token and process id of a running daemon, stored in a file only readable by the owner
+ */
+public class DaemonState {
+    static final String FILE_NAME = "daemon.properties";
+    private final int port;
+    private final String token;
+    private final String pid;
+    private final String version;
+
+    public DaemonState(final int port, final String token, final String pid, final String version) {
+        this.port = port;
+        this.token = token;
+        this.pid = pid;
+        this.version = version;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public String getPid() {
+        return pid;
+    }
+
+    /**
+     * @return rd version of the daemon
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return new random token
+     */
+    public static String newToken() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return process id of this JVM
+     */
+    public static String currentPid() {
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int at = name.indexOf('@');
+        return at > 0 ? name.substring(0, at) : name;
+    }
+
+    /**
+     * @param dir daemon directory
+     * @return state, or null if the file does not exist or is invalid
+     */
+    public static DaemonState read(final File dir) {
+        File file = new File(dir, FILE_NAME);
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            props.load(reader);
+            String token = props.getProperty("token");
+            if (null == token) {
+                return null;
+            }
+            return new DaemonState(
+                    Integer.parseInt(props.getProperty("port")),
+                    token,
+                    props.getProperty("pid"),
+                    props.getProperty("version")
+            );
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Write the state, only readable by the owner
+     *
+     * @param dir daemon directory
+     * @throws IOException if writing fails
+     */
+    public void write(final File dir) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("port", Integer.toString(port));
+        props.setProperty("token", token);
+        props.setProperty("pid", pid);
+        props.setProperty("version", version);
+        Path dirPath = dir.toPath();
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (!Files.isDirectory(dirPath)) {
+            if (posix) {
+                Files.createDirectories(
+                        dirPath,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------"))
+                );
+            } else {
+                Files.createDirectories(dirPath);
+            }
+        }
+        Path temp;
+        if (posix) {
+            temp = Files.createTempFile(
+                    dirPath,
+                    "daemon",
+                    ".tmp",
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))
+            );
+        } else {
+            temp = Files.createTempFile(dirPath, "daemon", ".tmp");
+            File tempFile = temp.toFile();
+            tempFile.setReadable(false, false);
+            tempFile.setReadable(true, true);
+            tempFile.setWritable(false, false);
+            tempFile.setWritable(true, true);
+        }
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                props.store(writer, "rd daemon");
+            }
+            Files.move(
+                    temp,
+                    new File(dir, FILE_NAME).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE
+            );
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Remove the state file if it still belongs to this daemon
+     *
+     * @param dir daemon directory
+     */
+    public void remove(final File dir) {
+        DaemonState current = read(dir);
+        if (null != current && token.equals(current.token)) {
+            try {
+                Files.deleteIfExists(new File(dir, FILE_NAME).toPath());
+            } catch (IOException ignored) {
+
+            }
+        }
+    }
+}
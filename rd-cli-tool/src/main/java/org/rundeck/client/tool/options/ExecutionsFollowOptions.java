@@ -20,18 +20,38 @@ import lombok.Getter;
 import lombok.Setter;
 import picocli.CommandLine;
 
+import java.io.File;
+import java.util.List;
+
 @Getter @Setter
 public class ExecutionsFollowOptions extends FollowOptions {
 
-    @CommandLine.Option(names = {"-e", "--eid"}, description = "Execution ID", required = true)
-    String id;
+    @CommandLine.Option(names = {"-e", "--eid"},
+            arity = "1..*",
+            description = "Execution ID, or many IDs to follow at once",
+            required = true)
+    List<String> ids;
 
     @CommandLine.Option(names = {"-%", "--outformat"},
             description = "Output format specifier for execution logs. You can use \"%%key\" where key is one of:" +
                     "time,level,log,user,command,node. E.g. \"%%user@%%node/%%level: %%log\"")
     String outputFormat;
 
+    @CommandLine.Option(names = {"--save"},
+            paramLabel = "FILE",
+            description = "Save the log to a file from the beginning, with a checkpoint in FILE.checkpoint. " +
+                          "Replaces the file unless --resume is given.")
+    File save;
+
+    @CommandLine.Option(names = {"--resume"},
+            description = "Continue saving the log from the checkpoint of the --save file, if it exists")
+    boolean resume;
+
     public boolean isOutputFormat() {
         return outputFormat != null;
     }
+
+    public boolean isSave() {
+        return save != null;
+    }
 }
@@ -18,6 +18,7 @@ package org.rundeck.client.tool.options;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.rundeck.client.tool.util.PollScheduler;
 import picocli.CommandLine;
 
 @Getter @Setter
@@ -38,4 +39,14 @@ public class FollowOptions extends RunOptions {
             description = "Number of lines to tail from the end, default: 1")
     long tail;
 
+    @CommandLine.Option(names = {"--poll-min"},
+            description = "Minimum milliseconds between requests for output, used while output is arriving, " +
+                          "default: ${DEFAULT-VALUE}")
+    long pollMin = PollScheduler.DEFAULT_MIN_MILLIS;
+
+    @CommandLine.Option(names = {"--poll-max"},
+            description = "Maximum milliseconds between requests for output, reached while the output is idle, " +
+                          "default: ${DEFAULT-VALUE}")
+    long pollMax = PollScheduler.DEFAULT_MAX_MILLIS;
+
 }
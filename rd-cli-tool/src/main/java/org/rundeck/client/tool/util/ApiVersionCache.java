@@ -0,0 +1,94 @@
+package org.rundeck.client.tool.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.function.LongSupplier;
+
+/**
+ * Stores the API version negotiated with a server URL in a properties file, entries expire after a TTL
+ */
+public class ApiVersionCache {
+    private final File file;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    public ApiVersionCache(final File file, final long ttlMillis) {
+        this(file, ttlMillis, System::currentTimeMillis);
+    }
+
+    ApiVersionCache(final File file, final long ttlMillis, final LongSupplier clock) {
+        this.file = file;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @param url server url
+     * @return cached api version if present and not expired
+     */
+    public Optional<Integer> get(final String url) {
+        String value = load().getProperty(url);
+        if (null == value) {
+            return Optional.empty();
+        }
+        String[] parts = value.split(":", 2);
+        if (parts.length != 2) {
+            return Optional.empty();
+        }
+        try {
+            int version = Integer.parseInt(parts[0]);
+            long time = Long.parseLong(parts[1]);
+            if (clock.getAsLong() - time > ttlMillis) {
+                return Optional.empty();
+            }
+            return Optional.of(version);
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Store the api version for the url, failures to write the file are ignored
+     *
+     * @param url     server url
+     * @param version api version
+     */
+    public void put(final String url, final int version) {
+        Properties props = load();
+        props.setProperty(url, version + ":" + clock.getAsLong());
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                return;
+            }
+            Path temp = Files.createTempFile(dir.toPath(), file.getName(), ".tmp");
+            try {
+                try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    props.store(writer, "rd api versions");
+                }
+                Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException ignored) {
+
+        }
+    }
+
+    private Properties load() {
+        Properties props = new Properties();
+        if (file.isFile()) {
+            try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                props.load(reader);
+            } catch (IOException ignored) {
+
+            }
+        }
+        return props;
+    }
+}
@@ -0,0 +1,111 @@
+package org.rundeck.client.tool.util;
+
+import java.io.Closeable;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe registry of api clients by api interface, api version and base URL. Clients are created when first
+ * requested, reused afterwards, and closed with the {@link Resources} they are added to.
+ */
+public class ClientRegistry {
+    private final ConcurrentMap<Key, Entry<?>> entries = new ConcurrentHashMap<>();
+    private final Resources resources;
+
+    /**
+     * @param resources resources to add created clients to
+     */
+    public ClientRegistry(final Resources resources) {
+        this.resources = resources;
+    }
+
+    /**
+     * Creates a client
+     *
+     * @param <T> client type
+     * @param <E> exception type
+     */
+    public interface Factory<T, E extends Exception> {
+        T create() throws E;
+    }
+
+    /**
+     * Get the client for the key, creating it if it does not exist. Concurrent requests for the same key wait for a
+     * single creation, and a failed creation is retried by the next request.
+     *
+     * @param key     key
+     * @param factory creates the client
+     * @param <T>     client type
+     * @param <E>     exception type
+     * @return client
+     * @throws E if creation fails
+     */
+    public <T extends Closeable, E extends Exception> T get(final Key key, final Factory<T, E> factory) throws E {
+        @SuppressWarnings("unchecked")
+        Entry<T> entry = (Entry<T>) entries.computeIfAbsent(key, k -> new Entry<>());
+        T value = entry.value;
+        if (null != value) {
+            return value;
+        }
+        synchronized (entry) {
+            if (null == entry.value) {
+                entry.value = resources.add(factory.create());
+            }
+            return entry.value;
+        }
+    }
+
+    /**
+     * @return number of created clients
+     */
+    public int size() {
+        return (int) entries.values().stream().filter(entry -> null != entry.value).count();
+    }
+
+    private static class Entry<T> {
+        volatile T value;
+    }
+
+    /**
+     * Identifies a client
+     */
+    public static final class Key {
+        private final Class<?> api;
+        private final Integer version;
+        private final String baseUrl;
+
+        /**
+         * @param api     api interface
+         * @param version api version, or null for the default version
+         * @param baseUrl base URL
+         */
+        public Key(final Class<?> api, final Integer version, final String baseUrl) {
+            this.api = api;
+            this.version = version;
+            this.baseUrl = baseUrl;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return api.equals(key.api) && Objects.equals(version, key.version) && Objects.equals(baseUrl, key.baseUrl);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(api, version, baseUrl);
+        }
+
+        @Override
+        public String toString() {
+            return api.getSimpleName() + "@" + (null != version ? version : "default") + ":" + baseUrl;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.rundeck.client.tool.util;
+
+import org.rundeck.client.tool.InputError;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a command line into arguments like a POSIX shell, without expansion: whitespace separates arguments,
+ * single quotes preserve all characters, double quotes preserve all but backslash escapes of {@code " \ $ `}, and a
+ * backslash outside quotes escapes the next character
+ */
+public class CommandLineTokenizer {
+    private CommandLineTokenizer() {
+    }
+
+    /**
+     * @param line command line
+     * @return arguments
+     * @throws InputError if a quote is not closed
+     */
+    public static List<String> tokenize(final String line) throws InputError {
+        List<String> args = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inArg = false;
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (inArg) {
+                    args.add(current.toString());
+                    current.setLength(0);
+                    inArg = false;
+                }
+                i++;
+            } else if (c == '\'') {
+                int end = line.indexOf('\'', i + 1);
+                if (end < 0) {
+                    throw new InputError("Unterminated single quote: " + line);
+                }
+                current.append(line, i + 1, end);
+                inArg = true;
+                i = end + 1;
+            } else if (c == '"') {
+                i++;
+                boolean closed = false;
+                while (i < line.length()) {
+                    char d = line.charAt(i);
+                    if (d == '"') {
+                        closed = true;
+                        i++;
+                        break;
+                    }
+                    if (d == '\\' && i + 1 < line.length() && "\"\\$`".indexOf(line.charAt(i + 1)) >= 0) {
+                        current.append(line.charAt(i + 1));
+                        i += 2;
+                    } else {
+                        current.append(d);
+                        i++;
+                    }
+                }
+                if (!closed) {
+                    throw new InputError("Unterminated double quote: " + line);
+                }
+                inArg = true;
+            } else if (c == '\\' && i + 1 < line.length()) {
+                current.append(line.charAt(i + 1));
+                inArg = true;
+                i += 2;
+            } else {
+                current.append(c);
+                inArg = true;
+                i++;
+            }
+        }
+        if (inArg) {
+            args.add(current.toString());
+        }
+        return args;
+    }
+}
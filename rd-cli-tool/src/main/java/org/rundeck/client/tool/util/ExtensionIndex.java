@@ -0,0 +1,356 @@
+package org.rundeck.client.tool.util;
+
+import org.rundeck.client.tool.extension.RdCommandExtension;
+import picocli.CommandLine;
+
+import java.io.*;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+/**
+ * Index of the jars in an extension directory, storing the directory, and the path, size, modification time, declared
+ * extension classes and command names of each jar in a properties file. The index is rebuilt only if the directory,
+ * the set of jars or their size or modification time changes, so that the command names can be matched without
+ * opening the jars.
+ */
+public class ExtensionIndex {
+    static final String SERVICE_FILE = "META-INF/services/" + RdCommandExtension.class.getName();
+    private static final String VERSION = "2";
+    private final File dir;
+    private final List<Entry> entries;
+
+    ExtensionIndex(final File dir, final List<Entry> entries) {
+        this.dir = dir;
+        this.entries = entries;
+    }
+
+    /**
+     * Indexed extension jar
+     */
+    public static class Entry {
+        private final File jar;
+        private final long size;
+        private final long lastModified;
+        private final List<String> extensions;
+        private final List<String> commands;
+
+        Entry(
+                final File jar,
+                final long size,
+                final long lastModified,
+                final List<String> extensions,
+                final List<String> commands
+        )
+        {
+            this.jar = jar;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.extensions = extensions;
+            this.commands = commands;
+        }
+
+        public File getJar() {
+            return jar;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return extension class names declared by the jar
+         */
+        public List<String> getExtensions() {
+            return extensions;
+        }
+
+        /**
+         * @return command names and aliases of the extensions
+         */
+        public List<String> getCommands() {
+            return commands;
+        }
+
+        boolean isCurrent(final File file) {
+            return jar.equals(file.getAbsoluteFile())
+                   && size == file.length()
+                   && lastModified == file.lastModified();
+        }
+    }
+
+    /**
+     * @param baseDir directory for index files
+     * @param dir     extension directory
+     * @return index file for the extension directory, named by a hash of its canonical path, so that each extension
+     *         directory has its own index
+     */
+    public static File indexFile(final File baseDir, final File dir) {
+        return new File(
+                baseDir,
+                String.format("ext-index-%08x.properties", canonical(dir).getPath().hashCode())
+        );
+    }
+
+    /**
+     * Load the index from the file, rebuilding and storing it if it does not match the extension directory and its
+     * jars. Failure to write the index file is ignored.
+     *
+     * @param file index file
+     * @param dir  extension directory
+     * @param jars extension jars
+     * @return index
+     */
+    public static ExtensionIndex load(final File file, final File dir, final File[] jars) {
+        ExtensionIndex index = read(file);
+        if (null != index && index.isCurrent(dir, jars)) {
+            return index;
+        }
+        index = build(dir, jars);
+        index.store(file);
+        return index;
+    }
+
+    /**
+     * @param dir  extension directory
+     * @param jars extension jars
+     * @return true if the index is for the directory, and contains exactly the jars, with the same size and
+     *         modification time
+     */
+    public boolean isCurrent(final File dir, final File[] jars) {
+        if (!this.dir.equals(canonical(dir)) || jars.length != entries.size()) {
+            return false;
+        }
+        for (File jar : jars) {
+            if (entries.stream().noneMatch(entry -> entry.isCurrent(jar))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return canonical extension directory
+     */
+    public File getDir() {
+        return dir;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    private static File canonical(final File dir) {
+        try {
+            return dir.getCanonicalFile();
+        } catch (IOException e) {
+            return dir.getAbsoluteFile();
+        }
+    }
+
+    /**
+     * Select the jars needed for a command: the jars declaring an extension with the command name, and jars without
+     * known commands, which may be libraries used by them.
+     *
+     * @param command command name
+     * @return jars to load, or empty list if no indexed extension declares the command
+     */
+    public List<File> jarsFor(final String command) {
+        if (entries.stream().noneMatch(entry -> entry.commands.contains(command))) {
+            return Collections.emptyList();
+        }
+        List<File> jars = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.commands.isEmpty() || entry.commands.contains(command)) {
+                jars.add(entry.jar);
+            }
+        }
+        return jars;
+    }
+
+    /**
+     * @param type class
+     * @return command name and aliases declared by the picocli command annotation of the class
+     */
+    public static List<String> commandNames(final Class<?> type) {
+        CommandLine.Command annotation = type.getAnnotation(CommandLine.Command.class);
+        if (null == annotation) {
+            return Collections.emptyList();
+        }
+        List<String> names = new ArrayList<>();
+        if (!CommandLine.Model.CommandSpec.DEFAULT_COMMAND_NAME.equals(annotation.name())) {
+            names.add(annotation.name());
+        }
+        names.addAll(Arrays.asList(annotation.aliases()));
+        return names;
+    }
+
+    /**
+     * Build the index by reading the service declarations of each jar, and the command annotations of the declared
+     * classes. Classes are loaded without initialization, and classes which cannot be loaded declare no commands.
+     *
+     * @param dir  extension directory
+     * @param jars extension jars
+     * @return index
+     */
+    static ExtensionIndex build(final File dir, final File[] jars) {
+        List<URL> urls = new ArrayList<>();
+        for (File jar : jars) {
+            try {
+                urls.add(jar.toURI().toURL());
+            } catch (MalformedURLException e) {
+                throw new RuntimeException("Error creating url for jar: " + jar, e);
+            }
+        }
+        List<Entry> entries = new ArrayList<>();
+        try (URLClassLoader loader = URLClassLoader.newInstance(
+                urls.toArray(new URL[0]),
+                ExtensionIndex.class.getClassLoader()
+        )) {
+            for (File jar : jars) {
+                List<String> extensions = readServices(jar);
+                List<String> commands = new ArrayList<>();
+                for (String extension : extensions) {
+                    try {
+                        commands.addAll(commandNames(Class.forName(extension, false, loader)));
+                    } catch (ClassNotFoundException | LinkageError ignored) {
+
+                    }
+                }
+                entries.add(new Entry(
+                        jar.getAbsoluteFile(),
+                        jar.length(),
+                        jar.lastModified(),
+                        extensions,
+                        commands
+                ));
+            }
+        } catch (IOException ignored) {
+
+        }
+        return new ExtensionIndex(canonical(dir), entries);
+    }
+
+    private static List<String> readServices(final File jar) {
+        List<String> services = new ArrayList<>();
+        try (JarFile jarFile = new JarFile(jar)) {
+            ZipEntry entry = jarFile.getEntry(SERVICE_FILE);
+            if (null == entry) {
+                return services;
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    jarFile.getInputStream(entry),
+                    StandardCharsets.UTF_8
+            ))) {
+                String line;
+                while (null != (line = reader.readLine())) {
+                    int comment = line.indexOf('#');
+                    String name = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                    if (!name.isEmpty() && !services.contains(name)) {
+                        services.add(name);
+                    }
+                }
+            }
+        } catch (IOException ignored) {
+
+        }
+        return services;
+    }
+
+    /**
+     * @param file index file
+     * @return index, or null if the file does not exist or is invalid
+     */
+    static ExtensionIndex read(final File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            props.load(reader);
+        } catch (IOException e) {
+            return null;
+        }
+        String dir = props.getProperty("dir");
+        if (!VERSION.equals(props.getProperty("version")) || null == dir) {
+            return null;
+        }
+        try {
+            int count = Integer.parseInt(props.getProperty("jar.count", "0"));
+            List<Entry> entries = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String prefix = "jar." + i + ".";
+                String path = props.getProperty(prefix + "path");
+                if (null == path) {
+                    return null;
+                }
+                entries.add(new Entry(
+                        new File(path),
+                        Long.parseLong(props.getProperty(prefix + "size")),
+                        Long.parseLong(props.getProperty(prefix + "modified")),
+                        splitList(props.getProperty(prefix + "extensions")),
+                        splitList(props.getProperty(prefix + "commands"))
+                ));
+            }
+            return new ExtensionIndex(new File(dir), entries);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Store the index, failures to write the file are ignored
+     *
+     * @param file index file
+     */
+    void store(final File file) {
+        Properties props = new Properties();
+        props.setProperty("version", VERSION);
+        props.setProperty("dir", dir.getPath());
+        props.setProperty("jar.count", Integer.toString(entries.size()));
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            String prefix = "jar." + i + ".";
+            props.setProperty(prefix + "path", entry.jar.getPath());
+            props.setProperty(prefix + "size", Long.toString(entry.size));
+            props.setProperty(prefix + "modified", Long.toString(entry.lastModified));
+            props.setProperty(prefix + "extensions", String.join(",", entry.extensions));
+            props.setProperty(prefix + "commands", String.join(",", entry.commands));
+        }
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                return;
+            }
+            Path temp = Files.createTempFile(dir.toPath(), file.getName(), ".tmp");
+            try {
+                try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    props.store(writer, "rd extension index");
+                }
+                Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException ignored) {
+
+        }
+    }
+
+    private static List<String> splitList(final String value) {
+        if (null == value || value.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(value.split(","));
+    }
+}
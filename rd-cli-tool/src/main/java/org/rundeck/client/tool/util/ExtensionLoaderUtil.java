@@ -7,13 +7,17 @@ import java.util.List;
 import java.util.ServiceLoader;
 
 public class ExtensionLoaderUtil {
-    private static final ServiceLoader<RdCommandExtension>
-            extensionServiceLoader =
-            ServiceLoader.load(RdCommandExtension.class);
-
-    public static List<RdCommandExtension> list() {
+    /**
+     * Load new instances of the extensions visible to the context class loader of the current thread. A new service
+     * loader is used for each call, so that each invocation sees the extension jars it loaded, and does not share
+     * extension instances with other invocations. Discovery is synchronized, so that commands run concurrently (e.g.
+     * by batch --parallel) do not construct extensions at the same time.
+     *
+     * @return extensions
+     */
+    public static synchronized List<RdCommandExtension> list() {
         List<RdCommandExtension> list = new ArrayList<>();
-        for (RdCommandExtension rdCommandExtension : extensionServiceLoader) {
+        for (RdCommandExtension rdCommandExtension : ServiceLoader.load(RdCommandExtension.class)) {
             list.add(rdCommandExtension);
         }
         return list;
@@ -0,0 +1,350 @@
+package org.rundeck.client.tool.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archive of gzip compressed files, written to a directory or a single tar file. Each file is written in full before it
+ * is added to the archive, so an interrupted archive contains only complete files, and files already in the archive
+ * can be skipped when it is written again.
+ */
+public abstract class LogArchive implements Closeable {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * File being written
+     */
+    public abstract static class Entry implements Closeable {
+        private final String name;
+        private final OutputStream output;
+        private boolean closed;
+
+        Entry(final String name, final File file) throws IOException {
+            this.name = name;
+            this.output = new GZIPOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return output for the uncompressed content
+         */
+        public OutputStream getOutput() {
+            return output;
+        }
+
+        /**
+         * Finish the file and add it to the archive
+         *
+         * @throws IOException if writing fails
+         */
+        public void commit() throws IOException {
+            closed = true;
+            output.close();
+            add();
+        }
+
+        /**
+         * Discard the file, unless it was committed
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                output.close();
+            } finally {
+                discard();
+            }
+        }
+
+        abstract void add() throws IOException;
+
+        abstract void discard() throws IOException;
+    }
+
+    /**
+     * @param name file name
+     * @return true if the archive contains the file
+     */
+    public abstract boolean contains(String name);
+
+    /**
+     * Start writing a file
+     *
+     * @param name file name, a relative path
+     * @return entry for the file
+     * @throws IOException if the file cannot be created
+     */
+    public abstract Entry create(String name) throws IOException;
+
+    /**
+     * @param dir directory, created if necessary
+     * @return archive writing each file in the directory
+     * @throws IOException if the directory cannot be created
+     */
+    public static LogArchive directory(final File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create directory: " + dir);
+        }
+        return new DirectoryArchive(dir);
+    }
+
+    /**
+     * @param file tar file, appended to if it exists
+     * @return archive writing each file into the tar file
+     * @throws IOException if the file cannot be read or written
+     */
+    public static LogArchive tar(final File file) throws IOException {
+        return TarArchive.open(file);
+    }
+
+    static class DirectoryArchive extends LogArchive {
+        private final File dir;
+
+        DirectoryArchive(final File dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        public boolean contains(final String name) {
+            return new File(dir, name).isFile();
+        }
+
+        @Override
+        public Entry create(final String name) throws IOException {
+            File file = new File(dir, name);
+            File parent = file.getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Unable to create directory: " + parent);
+            }
+            File part = new File(parent, file.getName() + ".part");
+            return new Entry(name, part) {
+                @Override
+                void add() throws IOException {
+                    try {
+                        Files.move(
+                                part.toPath(),
+                                file.toPath(),
+                                StandardCopyOption.ATOMIC_MOVE,
+                                StandardCopyOption.REPLACE_EXISTING
+                        );
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(part.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+
+                @Override
+                void discard() throws IOException {
+                    Files.deleteIfExists(part.toPath());
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Ustar archive. Files are written to temporary files next to the tar file, and appended to the tar file one at a
+     * time, so a slow disk holds back the writers.
+     */
+    static class TarArchive extends LogArchive {
+        static final int BLOCK = 512;
+        private final File file;
+        private final FileChannel channel;
+        private final Set<String> names;
+
+        private TarArchive(final File file, final FileChannel channel, final Set<String> names) {
+            this.file = file;
+            this.channel = channel;
+            this.names = names;
+        }
+
+        /**
+         * Open the tar file, positioned after its last complete file, so that a file partly appended when the
+         * archive was interrupted is replaced
+         */
+        static TarArchive open(final File file) throws IOException {
+            FileChannel channel = FileChannel.open(
+                    file.toPath(),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE
+            );
+            Set<String> names = new HashSet<>();
+            try {
+                long position = 0;
+                long size = channel.size();
+                ByteBuffer header = ByteBuffer.allocate(BLOCK);
+                while (position + BLOCK <= size) {
+                    header.clear();
+                    while (header.hasRemaining()) {
+                        channel.read(header, position + header.position());
+                    }
+                    byte[] bytes = header.array();
+                    if (isZero(bytes)) {
+                        break;
+                    }
+                    long length = Long.parseLong(field(bytes, 124, 12).trim(), 8);
+                    long next = position + BLOCK + blocks(length);
+                    if (next > size) {
+                        break;
+                    }
+                    names.add(field(bytes, 0, 100));
+                    position = next;
+                }
+                channel.truncate(position);
+                channel.position(position);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            return new TarArchive(file, channel, names);
+        }
+
+        private static boolean isZero(final byte[] bytes) {
+            for (byte b : bytes) {
+                if (b != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static String field(final byte[] bytes, final int offset, final int length) {
+            int end = offset;
+            while (end < offset + length && bytes[end] != 0) {
+                end++;
+            }
+            return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+        }
+
+        private static long blocks(final long length) {
+            return (length + BLOCK - 1) / BLOCK * BLOCK;
+        }
+
+        @Override
+        public synchronized boolean contains(final String name) {
+            return names.contains(name);
+        }
+
+        @Override
+        public Entry create(final String name) throws IOException {
+            if (name.getBytes(StandardCharsets.UTF_8).length > 99) {
+                throw new IllegalArgumentException("Name is too long for a tar file: " + name);
+            }
+            File temp = File.createTempFile(".rd-archive-", ".part", file.getAbsoluteFile().getParentFile());
+            return new Entry(name, temp) {
+                @Override
+                void add() throws IOException {
+                    try {
+                        append(name, temp);
+                    } finally {
+                        Files.deleteIfExists(temp.toPath());
+                    }
+                }
+
+                @Override
+                void discard() throws IOException {
+                    Files.deleteIfExists(temp.toPath());
+                }
+            };
+        }
+
+        private synchronized void append(final String name, final File content) throws IOException {
+            long start = channel.position();
+            long length = content.length();
+            try {
+                write(ByteBuffer.wrap(header(name, length, content.lastModified() / 1000)));
+                try (FileChannel in = FileChannel.open(content.toPath(), StandardOpenOption.READ)) {
+                    long done = 0;
+                    while (done < length) {
+                        done += in.transferTo(done, length - done, channel);
+                    }
+                }
+                channel.position(start + BLOCK + length);
+                write(ByteBuffer.allocate((int) (blocks(length) - length)));
+                channel.force(false);
+            } catch (IOException | RuntimeException e) {
+                //remove the partial file
+                channel.truncate(start);
+                channel.position(start);
+                throw e;
+            }
+            names.add(name);
+        }
+
+        private void write(final ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        static byte[] header(final String name, final long length, final long mtime) {
+            byte[] header = new byte[BLOCK];
+            put(header, 0, name.getBytes(StandardCharsets.UTF_8));
+            put(header, 100, octal(0644, 8));
+            put(header, 108, octal(0, 8));
+            put(header, 116, octal(0, 8));
+            put(header, 124, octal(length, 12));
+            put(header, 136, octal(mtime, 12));
+            header[156] = '0';
+            put(header, 257, "ustar\0".getBytes(StandardCharsets.US_ASCII));
+            put(header, 263, "00".getBytes(StandardCharsets.US_ASCII));
+            //checksum is computed with its own field as spaces
+            for (int i = 148; i < 156; i++) {
+                header[i] = ' ';
+            }
+            long sum = 0;
+            for (byte b : header) {
+                sum += b & 0xff;
+            }
+            put(header, 148, octal(sum, 7));
+            header[155] = ' ';
+            return header;
+        }
+
+        private static void put(final byte[] header, final int offset, final byte[] value) {
+            System.arraycopy(value, 0, header, offset, value.length);
+        }
+
+        /**
+         * @return zero padded octal digits, followed by a NUL, in the given field length
+         */
+        private static byte[] octal(final long value, final int length) {
+            String digits = Long.toOctalString(value);
+            StringBuilder sb = new StringBuilder();
+            for (int i = digits.length(); i < length - 1; i++) {
+                sb.append('0');
+            }
+            sb.append(digits).append('\0');
+            return sb.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            try {
+                //end of archive
+                write(ByteBuffer.allocate(BLOCK * 2));
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package org.rundeck.client.tool.util;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.rundeck.client.api.model.ExecLog;
+import org.rundeck.client.api.model.ExecOutput;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Saves the output of an execution to a file, with a checkpoint file alongside it holding the output offset and the
+ * length of the file. Each write appends the entries and syncs the file before the checkpoint is replaced atomically,
+ * so after an interruption the file is truncated to the checkpoint length and the output continues from the
+ * checkpoint offset, without duplicate or missing entries.
+ */
+public class LogCapture implements Closeable {
+    public static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Saved state of the output
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Checkpoint {
+        public String id;
+        public long offset;
+        public long lastModified;
+        /**
+         * Length of the file in bytes at the offset
+         */
+        public long length;
+        /**
+         * Last entry written, used to decompact the next output
+         */
+        public ExecLog last;
+        public boolean completed;
+        public String execState;
+    }
+
+    private final File file;
+    private final File checkpointFile;
+    private final Function<ExecLog, String> formatter;
+    private final FileChannel channel;
+    private final Checkpoint checkpoint;
+
+    private LogCapture(
+            final File file,
+            final Function<ExecLog, String> formatter,
+            final FileChannel channel,
+            final Checkpoint checkpoint
+    )
+    {
+        this.file = file;
+        this.checkpointFile = checkpointFile(file);
+        this.formatter = formatter;
+        this.channel = channel;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * @param file output file
+     * @return checkpoint file for the output file
+     */
+    public static File checkpointFile(final File file) {
+        return new File(file.getPath() + CHECKPOINT_SUFFIX);
+    }
+
+    /**
+     * Start saving the output of an execution, replacing any existing file
+     *
+     * @param file      output file
+     * @param id        execution id
+     * @param formatter formats each entry, or null to write the log text
+     * @return capture starting at offset 0
+     * @throws IOException if the file cannot be written
+     */
+    public static LogCapture create(final File file, final String id, final Function<ExecLog, String> formatter)
+            throws IOException
+    {
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.id = id;
+        FileChannel channel = FileChannel.open(
+                file.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+        );
+        LogCapture capture = new LogCapture(file, formatter, channel, checkpoint);
+        capture.saveCheckpoint();
+        return capture;
+    }
+
+    /**
+     * Continue saving the output of an execution from its checkpoint, or start if there is no checkpoint
+     *
+     * @param file      output file
+     * @param id        execution id
+     * @param formatter formats each entry, or null to write the log text
+     * @return capture starting at the checkpoint
+     * @throws IOException              if the files cannot be read or written
+     * @throws IllegalArgumentException if the checkpoint is for another execution, or the file is shorter than the
+     *                                  checkpoint
+     */
+    public static LogCapture resume(final File file, final String id, final Function<ExecLog, String> formatter)
+            throws IOException
+    {
+        File checkpointFile = checkpointFile(file);
+        if (!checkpointFile.exists()) {
+            return create(file, id, formatter);
+        }
+        Checkpoint checkpoint = MAPPER.readValue(checkpointFile, Checkpoint.class);
+        if (!id.equals(checkpoint.id)) {
+            throw new IllegalArgumentException(String.format(
+                    "Checkpoint %s is for execution %s, not %s",
+                    checkpointFile,
+                    checkpoint.id,
+                    id
+            ));
+        }
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < checkpoint.length) {
+                throw new IllegalArgumentException(String.format(
+                        "File %s is shorter (%d) than its checkpoint (%d)",
+                        file,
+                        channel.size(),
+                        checkpoint.length
+                ));
+            }
+            //discard anything written after the checkpoint
+            channel.truncate(checkpoint.length);
+            channel.position(checkpoint.length);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return new LogCapture(file, formatter, channel, checkpoint);
+    }
+
+    /**
+     * @return output to continue from, with no entries
+     */
+    public ExecOutput getStart() {
+        ExecOutput start = new ExecOutput();
+        start.id = checkpoint.id;
+        start.offset = checkpoint.offset;
+        start.lastModified = checkpoint.lastModified;
+        start.execCompleted = checkpoint.completed;
+        start.completed = checkpoint.completed;
+        start.execState = checkpoint.execState;
+        start.entries = new ArrayList<>();
+        return start;
+    }
+
+    /**
+     * @return last entry written
+     */
+    public ExecLog getLast() {
+        return checkpoint.last;
+    }
+
+    /**
+     * @return true if the output was fully saved
+     */
+    public boolean isCompleted() {
+        return checkpoint.completed;
+    }
+
+    /**
+     * Append entries, then save the checkpoint for the output
+     *
+     * @param output  output
+     * @param entries decompacted entries of the output
+     * @throws IOException if writing fails
+     */
+    public void write(final ExecOutput output, final List<ExecLog> entries) throws IOException {
+        boolean hasEntries = null != entries && !entries.isEmpty();
+        if (hasEntries) {
+            StringBuilder sb = new StringBuilder();
+            for (ExecLog entry : entries) {
+                sb.append(null != formatter ? formatter.apply(entry) : entry.log).append('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            checkpoint.last = entries.get(entries.size() - 1);
+        }
+        boolean completed = output.execCompleted && output.completed;
+        if (!hasEntries
+            && checkpoint.offset == output.offset
+            && checkpoint.lastModified == output.lastModified
+            && checkpoint.completed == completed) {
+            return;
+        }
+        checkpoint.offset = output.offset;
+        checkpoint.lastModified = output.lastModified;
+        checkpoint.length = channel.position();
+        checkpoint.completed = completed;
+        checkpoint.execState = output.execState;
+        saveCheckpoint();
+    }
+
+    private void saveCheckpoint() throws IOException {
+        File temp = new File(checkpointFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(MAPPER.writeValueAsBytes(checkpoint));
+            out.getFD().sync();
+        }
+        try {
+            Files.move(
+                    temp.toPath(),
+                    checkpointFile.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING
+            );
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * @return output file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
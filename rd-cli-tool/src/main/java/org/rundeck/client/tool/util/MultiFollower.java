@@ -0,0 +1,327 @@
+package org.rundeck.client.tool.util;
+
+import org.rundeck.client.api.RundeckApi;
+import org.rundeck.client.api.model.ExecLog;
+import org.rundeck.client.api.model.ExecOutput;
+import org.rundeck.client.tool.CommandOutput;
+import org.rundeck.client.tool.output.OutputMultiplexer;
+import org.rundeck.client.util.ServiceClient;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Follows the output of many executions at once. The polls of all executions run on a shared timer, each execution
+ * with its own {@link PollScheduler}, and the output of each execution is written through its own task of an
+ * {@link OutputMultiplexer}. An execution is detached when it completes or its output cannot be read. A poll which
+ * fails with a retryable error is repeated from the same offset, backing off as scheduled, up to a number of
+ * failures in a row.
+ */
+public class MultiFollower implements AutoCloseable {
+    private final ServiceClient<RundeckApi> client;
+    private final OutputMultiplexer multiplexer;
+    private final BiConsumer<CommandOutput, List<ExecLog>> writer;
+    private final Supplier<PollScheduler> schedulers;
+    private final ScheduledExecutorService timer;
+    private final Predicate<Exception> retryable;
+    private final int retries;
+    private final Map<String, Stream> streams = new LinkedHashMap<>();
+    private Consumer<Stream> onDetach = stream -> { };
+    private int active;
+
+    /**
+     * @param client      client
+     * @param multiplexer output for all executions
+     * @param writer      writes log entries to the output of an execution
+     * @param schedulers  creates a poll scheduler for each execution
+     * @param threads     maximum concurrent polls
+     */
+    public MultiFollower(
+            final ServiceClient<RundeckApi> client,
+            final OutputMultiplexer multiplexer,
+            final BiConsumer<CommandOutput, List<ExecLog>> writer,
+            final Supplier<PollScheduler> schedulers,
+            final int threads
+    )
+    {
+        this(client, multiplexer, writer, schedulers, threads, e -> false, 0);
+    }
+
+    /**
+     * @param client      client
+     * @param multiplexer output for all executions
+     * @param writer      writes log entries to the output of an execution
+     * @param schedulers  creates a poll scheduler for each execution
+     * @param threads     maximum concurrent polls
+     * @param retryable   returns true if a failed poll may succeed when repeated
+     * @param retries     retryable failures in a row before an execution is detached
+     */
+    public MultiFollower(
+            final ServiceClient<RundeckApi> client,
+            final OutputMultiplexer multiplexer,
+            final BiConsumer<CommandOutput, List<ExecLog>> writer,
+            final Supplier<PollScheduler> schedulers,
+            final int threads,
+            final Predicate<Exception> retryable,
+            final int retries
+    )
+    {
+        this.client = client;
+        this.retryable = retryable;
+        this.retries = retries;
+        this.multiplexer = multiplexer;
+        this.writer = writer;
+        this.schedulers = schedulers;
+        AtomicInteger count = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread thread = new Thread(r, "rd-follow-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.timer = executor;
+    }
+
+    /**
+     * Followed execution
+     */
+    public static class Stream {
+        private final String id;
+        private final OutputMultiplexer.Task output;
+        private final PollScheduler scheduler;
+        private volatile long offset;
+        private volatile long lastModified;
+        private volatile ExecLog last;
+        private volatile String status;
+        private volatile Exception error;
+        private volatile boolean completed;
+        private volatile int failures;
+        private boolean detached;
+
+        Stream(final String id, final OutputMultiplexer.Task output, final PollScheduler scheduler) {
+            this.id = id;
+            this.output = output;
+            this.scheduler = scheduler;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * @return output offset read so far
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return last known execution state
+         */
+        public String getStatus() {
+            return status;
+        }
+
+        /**
+         * @return error which detached the execution, or null
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        /**
+         * @return true if the execution completed and its output was fully read
+         */
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        /**
+         * @return true if the execution succeeded and its output was fully read
+         */
+        public boolean isSucceeded() {
+            return completed && "succeeded".equals(status);
+        }
+    }
+
+    /**
+     * @param onDetach called when an execution is detached
+     */
+    public void setOnDetach(final Consumer<Stream> onDetach) {
+        this.onDetach = onDetach;
+    }
+
+    /**
+     * Start following an execution, unless it is already followed
+     *
+     * @param id      execution id
+     * @param prefix  prefix for the output lines of the execution
+     * @param initial output already read
+     * @return true if the execution was added
+     */
+    public boolean follow(final String id, final String prefix, final ExecOutput initial) {
+        Stream stream;
+        synchronized (this) {
+            if (streams.containsKey(id)) {
+                return false;
+            }
+            stream = new Stream(id, multiplexer.task(prefix), schedulers.get());
+            streams.put(id, stream);
+            active++;
+        }
+        submit(() -> step(stream, initial), 0);
+        return true;
+    }
+
+    /**
+     * @param id execution id
+     * @return true if the execution is followed, or was followed and has not been forgotten
+     */
+    public synchronized boolean isFollowed(final String id) {
+        return streams.containsKey(id);
+    }
+
+    /**
+     * Forget detached executions, so that a long running follower does not keep every execution it has seen
+     *
+     * @param keep ids of executions to remember even if detached
+     * @return number of executions forgotten
+     */
+    public synchronized int forgetDetached(final Collection<String> keep) {
+        int count = 0;
+        for (Iterator<Stream> iter = streams.values().iterator(); iter.hasNext(); ) {
+            Stream stream = iter.next();
+            if (stream.detached && !keep.contains(stream.id)) {
+                iter.remove();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return followed executions, in the order they were added
+     */
+    public synchronized List<Stream> getStreams() {
+        return new ArrayList<>(streams.values());
+    }
+
+    /**
+     * @return number of executions still followed
+     */
+    public synchronized int getActive() {
+        return active;
+    }
+
+    /**
+     * Wait until all followed executions are detached
+     *
+     * @return false if interrupted
+     */
+    public boolean await() {
+        synchronized (this) {
+            while (active > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stop polling, and write any buffered output
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        multiplexer.close();
+    }
+
+    private void submit(final Runnable poll, final long delay) {
+        try {
+            timer.schedule(poll, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            //closed
+        }
+    }
+
+    /**
+     * Handle the output, polling for it if null
+     */
+    private void step(final Stream stream, final ExecOutput initial) {
+        try {
+            ExecOutput output = initial;
+            if (null == output) {
+                final long maxLines = stream.scheduler.getMaxLines();
+                output = client.apiCall(api -> api.getOutput(
+                        stream.id,
+                        stream.offset,
+                        stream.lastModified,
+                        maxLines,
+                        true
+                ));
+            }
+            stream.failures = 0;
+            received(stream, output);
+        } catch (Exception e) {
+            if (retryable.test(e) && ++stream.failures <= retries) {
+                stream.scheduler.failed();
+                submit(() -> step(stream, null), stream.scheduler.nextDelay());
+                return;
+            }
+            stream.error = e;
+            stream.output.error(String.format("Failed to read output of execution %s: %s", stream.id, e.getMessage()));
+            detach(stream);
+        }
+    }
+
+    private void received(final Stream stream, final ExecOutput output) {
+        List<ExecLog> entries = output.decompactEntries(stream.last);
+        if (null != entries && !entries.isEmpty()) {
+            stream.last = entries.get(entries.size() - 1);
+            writer.accept(stream.output, entries);
+        }
+        stream.offset = output.offset;
+        stream.lastModified = output.lastModified;
+        stream.status = output.execState;
+        stream.scheduler.received(null != entries ? entries.size() : 0, output.percentLoaded);
+        if (output.execCompleted && output.completed) {
+            stream.completed = true;
+            stream.output.info(String.format("# Execution %s: %s", stream.id, stream.status));
+            detach(stream);
+        } else {
+            submit(() -> step(stream, null), stream.scheduler.nextDelay());
+        }
+    }
+
+    private void detach(final Stream stream) {
+        synchronized (this) {
+            if (stream.detached) {
+                return;
+            }
+            stream.detached = true;
+        }
+        stream.output.close();
+        try {
+            onDetach.accept(stream);
+        } finally {
+            synchronized (this) {
+                active--;
+                notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package org.rundeck.client.tool.util;
+
+import org.rundeck.client.tool.CommandOutput;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Records the duration of startup and execution phases, along with the number of classes loaded and the GC time
+ * during each phase. Offsets are relative to the JVM start. Phases with the same name are merged.
+ */
+public class PhaseProfiler {
+    /**
+     * Profiler which records nothing
+     */
+    public static final PhaseProfiler DISABLED = new PhaseProfiler();
+
+    private final boolean enabled;
+    private final LongSupplier nanoClock;
+    private final Counters counters;
+    private final long mainNanos;
+    private final long mainOffsetNanos;
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    /**
+     * Counters sampled at the start and end of a phase
+     */
+    interface Counters {
+        long loadedClasses();
+
+        long gcMillis();
+
+        /**
+         * @return nanoseconds since the JVM started
+         */
+        long uptimeNanos();
+    }
+
+    static class JvmCounters implements Counters {
+        @Override
+        public long loadedClasses() {
+            return ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount();
+        }
+
+        @Override
+        public long gcMillis() {
+            long total = 0;
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                total += Math.max(0, bean.getCollectionTime());
+            }
+            return total;
+        }
+
+        @Override
+        public long uptimeNanos() {
+            return TimeUnit.MILLISECONDS.toNanos(ManagementFactory.getRuntimeMXBean().getUptime());
+        }
+    }
+
+    private PhaseProfiler() {
+        this.enabled = false;
+        this.nanoClock = () -> 0L;
+        this.counters = null;
+        this.mainNanos = 0;
+        this.mainOffsetNanos = 0;
+    }
+
+    PhaseProfiler(final LongSupplier nanoClock, final Counters counters) {
+        this.enabled = true;
+        this.nanoClock = nanoClock;
+        this.counters = counters;
+        long classes = counters.loadedClasses();
+        long gcMillis = counters.gcMillis();
+        this.mainOffsetNanos = counters.uptimeNanos();
+        this.mainNanos = nanoClock.getAsLong();
+        Phase jvm = new Phase("jvm", 0);
+        jvm.add(mainOffsetNanos, classes, gcMillis);
+        phases.put(jvm.name, jvm);
+    }
+
+    /**
+     * Create a profiler, the time since JVM start is recorded as the "jvm" phase
+     *
+     * @param mode profile setting, enabled unless null, "0" or "false"
+     * @return profiler, or {@link #DISABLED}
+     */
+    public static PhaseProfiler create(final String mode) {
+        if (null == mode || "0".equals(mode) || "false".equalsIgnoreCase(mode)) {
+            return DISABLED;
+        }
+        return new PhaseProfiler(System::nanoTime, new JvmCounters());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Timed phase, close it to end the phase
+     */
+    public class Scope implements AutoCloseable {
+        private final String name;
+        private final long startNanos;
+        private final long startClasses;
+        private final long startGc;
+        private boolean closed;
+
+        private Scope(final String name) {
+            this.name = name;
+            this.startNanos = nanoClock.getAsLong();
+            this.startClasses = counters.loadedClasses();
+            this.startGc = counters.gcMillis();
+        }
+
+        private Scope() {
+            this.name = null;
+            this.startNanos = 0;
+            this.startClasses = 0;
+            this.startGc = 0;
+            this.closed = true;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            record(
+                    name,
+                    startNanos,
+                    nanoClock.getAsLong() - startNanos,
+                    counters.loadedClasses() - startClasses,
+                    counters.gcMillis() - startGc
+            );
+        }
+    }
+
+    private static final Scope NOOP = DISABLED.new Scope();
+
+    /**
+     * Start a phase
+     *
+     * @param name phase name
+     * @return scope, close it to end the phase
+     */
+    public Scope start(final String name) {
+        if (!enabled) {
+            return NOOP;
+        }
+        return new Scope(name);
+    }
+
+    /**
+     * Record a phase measured elsewhere
+     *
+     * @param name          phase name
+     * @param startNanos    start time from {@link System#nanoTime()}
+     * @param durationNanos duration
+     * @param classes       classes loaded during the phase, or -1 if unknown
+     * @param gcMillis      gc time during the phase, or -1 if unknown
+     */
+    public synchronized void record(
+            final String name,
+            final long startNanos,
+            final long durationNanos,
+            final long classes,
+            final long gcMillis
+    )
+    {
+        if (!enabled) {
+            return;
+        }
+        phases.computeIfAbsent(name, k -> new Phase(k, mainOffsetNanos + startNanos - mainNanos))
+              .add(durationNanos, classes, gcMillis);
+    }
+
+    /**
+     * @return recorded phases in order of their first start
+     */
+    public synchronized List<Phase> getPhases() {
+        List<Phase> list = new ArrayList<>();
+        for (Phase phase : phases.values()) {
+            list.add(phase.copy());
+        }
+        list.sort(Comparator.comparingLong(Phase::getOffsetNanos));
+        return list;
+    }
+
+    /**
+     * Timing data of a phase
+     */
+    public static class Phase {
+        private final String name;
+        private final long offsetNanos;
+        private long durationNanos;
+        private int count;
+        private long classes;
+        private long gcMillis;
+
+        Phase(final String name, final long offsetNanos) {
+            this.name = name;
+            this.offsetNanos = offsetNanos;
+        }
+
+        private void add(final long duration, final long classes, final long gcMillis) {
+            this.durationNanos += Math.max(0, duration);
+            this.classes = classes < 0 || this.classes < 0 ? -1 : this.classes + classes;
+            this.gcMillis = gcMillis < 0 || this.gcMillis < 0 ? -1 : this.gcMillis + gcMillis;
+            count++;
+        }
+
+        private Phase copy() {
+            Phase phase = new Phase(name, offsetNanos);
+            phase.durationNanos = durationNanos;
+            phase.count = count;
+            phase.classes = classes;
+            phase.gcMillis = gcMillis;
+            return phase;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return start of the first occurrence since JVM start
+         */
+        public long getOffsetNanos() {
+            return offsetNanos;
+        }
+
+        /**
+         * @return total duration of all occurrences
+         */
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return classes loaded, or -1 if unknown
+         */
+        public long getClasses() {
+            return classes;
+        }
+
+        /**
+         * @return gc time in milliseconds, or -1 if unknown
+         */
+        public long getGcMillis() {
+            return gcMillis;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("phase", name);
+            map.put("startMillis", millis(offsetNanos));
+            map.put("durationMillis", millis(durationNanos));
+            map.put("count", count);
+            if (classes >= 0) {
+                map.put("classes", classes);
+            }
+            if (gcMillis >= 0) {
+                map.put("gcMillis", gcMillis);
+            }
+            return map;
+        }
+    }
+
+    private static double millis(final long nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+
+    /**
+     * @param phases phases
+     * @return end of the last phase since JVM start
+     */
+    static long totalNanos(final List<Phase> phases) {
+        long total = 0;
+        for (Phase phase : phases) {
+            total = Math.max(total, phase.offsetNanos + phase.durationNanos);
+        }
+        return total;
+    }
+
+    /**
+     * @return json data with the total time and the phases
+     */
+    public Map<String, Object> toMap() {
+        List<Phase> list = getPhases();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("totalMillis", millis(totalNanos(list)));
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (Phase phase : list) {
+            data.add(phase.toMap());
+        }
+        map.put("phases", data);
+        return map;
+    }
+
+    /**
+     * @param width width of the bar
+     * @return waterfall lines, with a bar showing the offset and duration of each phase relative to the total time
+     */
+    public List<String> waterfall(final int width) {
+        List<Phase> list = getPhases();
+        long total = Math.max(1, totalNanos(list));
+        int nameWidth = 5;
+        for (Phase phase : list) {
+            nameWidth = Math.max(nameWidth, phase.name.length());
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("# Profile: %.1fms", millis(total)));
+        for (Phase phase : list) {
+            int start = (int) Math.min(width - 1, phase.offsetNanos * width / total);
+            int length = (int) Math.max(1, Math.min(width - start, phase.durationNanos * width / total));
+            StringBuilder bar = new StringBuilder();
+            for (int i = 0; i < width; i++) {
+                bar.append(i >= start && i < start + length ? '#' : ' ');
+            }
+            StringBuilder line = new StringBuilder(String.format(
+                    "# %-" + nameWidth + "s %8.1fms %8.1fms |%s|",
+                    phase.name,
+                    millis(phase.offsetNanos),
+                    millis(phase.durationNanos),
+                    bar
+            ));
+            if (phase.count > 1) {
+                line.append(" x").append(phase.count);
+            }
+            if (phase.classes >= 0) {
+                line.append(" classes=").append(phase.classes);
+            }
+            if (phase.gcMillis >= 0) {
+                line.append(" gc=").append(phase.gcMillis).append("ms");
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * @param output output
+     * @return output which records the time spent formatting and writing as the "output" phase
+     */
+    public CommandOutput wrap(final CommandOutput output) {
+        if (!enabled) {
+            return output;
+        }
+        return new CommandOutput() {
+            @Override
+            public void info(final Object value) {
+                try (Scope ignored = start("output")) {
+                    output.info(value);
+                }
+            }
+
+            @Override
+            public void output(final Object value) {
+                try (Scope ignored = start("output")) {
+                    output.output(value);
+                }
+            }
+
+            @Override
+            public void error(final Object value) {
+                try (Scope ignored = start("output")) {
+                    output.error(value);
+                }
+            }
+
+            @Override
+            public void warning(final Object value) {
+                try (Scope ignored = start("output")) {
+                    output.warning(value);
+                }
+            }
+        };
+    }
+}
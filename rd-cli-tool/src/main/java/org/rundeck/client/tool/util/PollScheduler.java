@@ -0,0 +1,210 @@
+package org.rundeck.client.tool.util;
+
+import java.util.Random;
+
+/**
+ * Schedules polls for execution output. The interval drops to the minimum while output is arriving or the server is
+ * still loading the log, and doubles up to the maximum while the log is idle, with jitter so that many followers do
+ * not poll in step. The max lines per request follows the observed line rate, so a chatty log is read in as few
+ * requests as possible, and returns to the default while the log is idle.
+ */
+public class PollScheduler {
+    /**
+     * Default minimum interval in milliseconds
+     */
+    public static final long DEFAULT_MIN_MILLIS = 500;
+    /**
+     * Default maximum interval in milliseconds
+     */
+    public static final long DEFAULT_MAX_MILLIS = 10000;
+    /**
+     * Default and minimum max lines per request
+     */
+    public static final long DEFAULT_MAX_LINES = 500;
+    /**
+     * Upper limit of max lines per request
+     */
+    public static final long MAX_LINES_LIMIT = 5000;
+    static final double JITTER = 0.2;
+    /**
+     * Weight of the latest rate in the average line rate
+     */
+    static final double RATE_WEIGHT = 0.5;
+
+    /**
+     * Time source
+     */
+    public interface Clock {
+        long millis();
+
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long millis() {
+            return System.nanoTime() / 1_000_000;
+        }
+
+        @Override
+        public void sleep(final long millis) throws InterruptedException {
+            Thread.sleep(millis);
+        }
+    };
+
+    private final long minMillis;
+    private final long maxMillis;
+    private final long maxLinesLimit;
+    private final Clock clock;
+    private final Random random;
+    private long interval;
+    private long maxLines = DEFAULT_MAX_LINES;
+    private double lineRate;
+    private long lastPoll;
+
+    /**
+     * @param minMillis minimum interval
+     * @param maxMillis maximum interval
+     * @param clock     clock
+     * @param random    source of jitter
+     */
+    public PollScheduler(final long minMillis, final long maxMillis, final Clock clock, final Random random) {
+        this(minMillis, maxMillis, MAX_LINES_LIMIT, clock, random);
+    }
+
+    /**
+     * @param minMillis     minimum interval
+     * @param maxMillis     maximum interval
+     * @param maxLinesLimit upper limit of max lines per request, at least {@link #DEFAULT_MAX_LINES}
+     * @param clock         clock
+     * @param random        source of jitter
+     */
+    public PollScheduler(
+            final long minMillis,
+            final long maxMillis,
+            final long maxLinesLimit,
+            final Clock clock,
+            final Random random
+    )
+    {
+        if (minMillis < 0 || maxMillis < minMillis) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid poll interval: min %d, max %d",
+                    minMillis,
+                    maxMillis
+            ));
+        }
+        if (maxLinesLimit < DEFAULT_MAX_LINES) {
+            throw new IllegalArgumentException(String.format("Invalid max lines limit: %d", maxLinesLimit));
+        }
+        this.minMillis = minMillis;
+        this.maxMillis = maxMillis;
+        this.maxLinesLimit = maxLinesLimit;
+        this.clock = clock;
+        this.random = random;
+        this.interval = minMillis;
+        this.lastPoll = clock.millis();
+    }
+
+    /**
+     * @param minMillis minimum interval
+     * @param maxMillis maximum interval
+     * @return scheduler using the system clock
+     */
+    public static PollScheduler create(final long minMillis, final long maxMillis) {
+        return new PollScheduler(minMillis, maxMillis, SYSTEM_CLOCK, new Random());
+    }
+
+    /**
+     * @param minMillis     minimum interval
+     * @param maxMillis     maximum interval
+     * @param maxLinesLimit upper limit of max lines per request
+     * @return scheduler using the system clock
+     */
+    public static PollScheduler create(final long minMillis, final long maxMillis, final long maxLinesLimit) {
+        return new PollScheduler(minMillis, maxMillis, maxLinesLimit, SYSTEM_CLOCK, new Random());
+    }
+
+    /**
+     * Record the result of a poll
+     *
+     * @param lines         number of log entries received
+     * @param percentLoaded percent of the log loaded by the server
+     */
+    public void received(final int lines, final float percentLoaded) {
+        long now = clock.millis();
+        long elapsed = Math.max(1, now - lastPoll);
+        lastPoll = now;
+        double rate = lines * 1000.0 / elapsed;
+        lineRate = RATE_WEIGHT * rate + (1 - RATE_WEIGHT) * lineRate;
+
+        if (lines >= maxLines || (percentLoaded > 0 && percentLoaded < 100)) {
+            //behind, or waiting for the server
+            interval = minMillis;
+        } else if (lines > 0) {
+            interval = Math.max(minMillis, interval / 2);
+        } else {
+            interval = Math.min(maxMillis, Math.max(1, interval * 2));
+        }
+        if (lines == 0) {
+            maxLines = DEFAULT_MAX_LINES;
+        } else {
+            //enough lines for two intervals at the average rate
+            long wanted = (long) Math.ceil(lineRate * 2 * Math.max(interval, 1) / 1000.0);
+            maxLines = Math.max(DEFAULT_MAX_LINES, Math.min(maxLinesLimit, wanted));
+        }
+    }
+
+    /**
+     * Record a failed poll, backing off as if the log were idle
+     */
+    public void failed() {
+        lastPoll = clock.millis();
+        interval = Math.min(maxMillis, Math.max(1, interval * 2));
+    }
+
+    /**
+     * @return delay before the next poll, within the minimum and maximum interval
+     */
+    public long nextDelay() {
+        double factor = 1 + JITTER * (2 * random.nextDouble() - 1);
+        long delay = Math.round(interval * factor);
+        return Math.max(minMillis, Math.min(maxMillis, delay));
+    }
+
+    /**
+     * Wait until the next poll
+     *
+     * @return false if interrupted
+     */
+    public boolean await() {
+        try {
+            clock.sleep(nextDelay());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @return max lines to request in the next poll
+     */
+    public long getMaxLines() {
+        return maxLines;
+    }
+
+    /**
+     * @return current interval without jitter
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return average line rate per second
+     */
+    public double getLineRate() {
+        return lineRate;
+    }
+}
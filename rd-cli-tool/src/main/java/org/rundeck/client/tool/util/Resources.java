@@ -4,23 +4,164 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
- * Holds collection of closeable resources
+ * Holds collection of closeable resources, safe for use by multiple threads
  */
 public class Resources
         implements Closeable
 {
     private final Collection<Closeable> closeableResources = new ArrayList<>();
+    private final Map<Object, Shared<?>> sharedResources = new HashMap<>();
+    /**
+     * References held to keep shared resources open, in least recently used order
+     */
+    private final Map<Object, Ref<?>> retained = new LinkedHashMap<>(16, 0.75f, true);
 
-    public <T extends Closeable> T add(T closeable) {
+    public synchronized <T extends Closeable> T add(T closeable) {
         closeableResources.add(closeable);
         return closeable;
     }
 
+    /**
+     * Acquire a reference to a shared resource, creating it if it does not exist. The resource is closed when the
+     * last reference is released, or when these resources are closed.
+     *
+     * @param key     key for the shared resource
+     * @param factory creates the resource
+     * @param <T>     resource type
+     * @return reference to the resource, close it to release the reference
+     */
+    public synchronized <T extends Closeable> Ref<T> acquire(Object key, Supplier<T> factory) {
+        @SuppressWarnings("unchecked")
+        Shared<T> shared = (Shared<T>) sharedResources.get(key);
+        if (null == shared) {
+            shared = new Shared<>(key, factory.get());
+            sharedResources.put(key, shared);
+        }
+        shared.count++;
+        return new Ref<>(shared);
+    }
+
+    /**
+     * Acquire a reference to a shared resource as {@link #acquire(Object, Supplier)}, and keep the resource open when
+     * all references are released. At most {@code maxRetained} resources are kept open this way, the least recently
+     * acquired is closed when its references are released.
+     *
+     * @param key         key for the shared resource
+     * @param factory     creates the resource
+     * @param maxRetained maximum number of resources kept open
+     * @param <T>         resource type
+     * @return reference to the resource, close it to release the reference
+     */
+    public <T extends Closeable> Ref<T> acquireRetained(Object key, Supplier<T> factory, int maxRetained) {
+        Ref<T> ref;
+        List<Ref<?>> evicted = new ArrayList<>();
+        synchronized (this) {
+            ref = acquire(key, factory);
+            if (null == retained.get(key)) {
+                retained.put(key, acquire(key, factory));
+            }
+            Iterator<Ref<?>> iter = retained.values().iterator();
+            while (retained.size() > maxRetained && iter.hasNext()) {
+                evicted.add(iter.next());
+                iter.remove();
+            }
+        }
+        for (Ref<?> unused : evicted) {
+            try {
+                unused.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return ref;
+    }
+
+    /**
+     * @param key key
+     * @return number of references held for the shared resource, 0 if it does not exist
+     */
+    public synchronized int referenceCount(Object key) {
+        Shared<?> shared = sharedResources.get(key);
+        return null != shared ? shared.count : 0;
+    }
+
+    private void release(Ref<?> ref) throws IOException {
+        Closeable unused = null;
+        synchronized (this) {
+            if (ref.released) {
+                return;
+            }
+            ref.released = true;
+            Shared<?> shared = ref.shared;
+            shared.count--;
+            if (shared.count <= 0 && sharedResources.remove(shared.key, shared)) {
+                unused = shared.resource;
+            }
+        }
+        if (null != unused) {
+            unused.close();
+        }
+    }
+
+    private static class Shared<T extends Closeable> {
+        final Object key;
+        final T resource;
+        int count;
+
+        Shared(final Object key, final T resource) {
+            this.key = key;
+            this.resource = resource;
+        }
+    }
+
+    /**
+     * Reference to a shared resource
+     *
+     * @param <T> resource type
+     */
+    public class Ref<T extends Closeable>
+            implements Closeable
+    {
+        private final Shared<T> shared;
+        private boolean released;
+
+        private Ref(final Shared<T> shared) {
+            this.shared = shared;
+        }
+
+        public T get() {
+            return shared.resource;
+        }
+
+        /**
+         * Release the reference, closing the resource if it is no longer referenced
+         */
+        @Override
+        public void close() throws IOException {
+            release(this);
+        }
+    }
+
     @Override
     public void close() throws IOException {
-        closeableResources.forEach(
+        List<Closeable> closeables;
+        List<Shared<?>> shared;
+        synchronized (this) {
+            closeables = new ArrayList<>(closeableResources);
+            closeableResources.clear();
+            shared = new ArrayList<>(sharedResources.values());
+            sharedResources.clear();
+            retained.clear();
+        }
+        closeables.forEach(
                 closeable -> {
                     try {
                         closeable.close();
@@ -29,6 +170,14 @@ public class Resources
                     }
                 }
         );
-        closeableResources.clear();
+        shared.forEach(
+                item -> {
+                    try {
+                        item.resource.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+        );
     }
 }
@@ -0,0 +1,217 @@
+package org.rundeck.client.tool.util;
+
+import org.rundeck.client.tool.parallel.ParallelRunner;
+
+import java.io.Console;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.function.Function;
+
+/**
+ * Replaces the system streams with streams which write to and read from the streams set for the current thread, or
+ * the original system streams if none are set. Threads inherit the streams of the thread which started them, and tasks
+ * run by a {@link ParallelRunner} use the streams of the thread which started the run. The streams of a thread may
+ * include a console for prompts, otherwise the thread has no console.
+ */
+public final class ThreadStreams {
+    private static final InheritableThreadLocal<Streams> CURRENT = new InheritableThreadLocal<>();
+    private static boolean installed;
+    private static Streams original;
+
+    private ThreadStreams() {
+    }
+
+    /**
+     * Console for prompts, as {@link Console}
+     */
+    public interface Prompter {
+        /**
+         * @param fmt  prompt format
+         * @param args prompt format arguments
+         * @return line read, or null at the end of input
+         */
+        String readLine(String fmt, Object... args);
+
+        /**
+         * @param fmt  prompt format
+         * @param args prompt format arguments
+         * @return password read without echo, or null at the end of input
+         */
+        char[] readPassword(String fmt, Object... args);
+    }
+
+    /**
+     * Streams for a thread
+     */
+    public static final class Streams {
+        final InputStream in;
+        final OutputStream out;
+        final OutputStream err;
+        final Prompter prompter;
+
+        public Streams(final InputStream in, final OutputStream out, final OutputStream err) {
+            this(in, out, err, null);
+        }
+
+        /**
+         * @param in       input
+         * @param out      output
+         * @param err      error output
+         * @param prompter console for prompts, or null if there is none
+         */
+        public Streams(final InputStream in, final OutputStream out, final OutputStream err, final Prompter prompter) {
+            this.in = in;
+            this.out = out;
+            this.err = err;
+            this.prompter = prompter;
+        }
+
+        public InputStream getIn() {
+            return in;
+        }
+
+        public OutputStream getOut() {
+            return out;
+        }
+
+        public OutputStream getErr() {
+            return err;
+        }
+
+        public Prompter getPrompter() {
+            return prompter;
+        }
+    }
+
+    /**
+     * @return console of the streams set for the current thread, or the system console if none are set, or null if
+     *         there is no console
+     */
+    public static Prompter console() {
+        Streams streams = CURRENT.get();
+        if (null != streams) {
+            return streams.prompter;
+        }
+        Console console = System.console();
+        if (null == console) {
+            return null;
+        }
+        return new Prompter() {
+            @Override
+            public String readLine(final String fmt, final Object... args) {
+                return console.readLine(fmt, args);
+            }
+
+            @Override
+            public char[] readPassword(final String fmt, final Object... args) {
+                return console.readPassword(fmt, args);
+            }
+        };
+    }
+
+    /**
+     * Install the routing system streams, if not already installed
+     */
+    public static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        installed = true;
+        original = new Streams(System.in, System.out, System.err);
+        System.setOut(new PrintStream(new Routed(original.out, s -> s.out), true));
+        System.setErr(new PrintStream(new Routed(original.err, s -> s.err), true));
+        System.setIn(new RoutedInput(original.in));
+        ParallelRunner.addThreadContext(() -> {
+            Streams streams = CURRENT.get();
+            return () -> {
+                Streams previous = CURRENT.get();
+                set(streams);
+                return () -> set(previous);
+            };
+        });
+    }
+
+    /**
+     * @return the streams used by the current thread
+     */
+    public static synchronized Streams current() {
+        Streams streams = CURRENT.get();
+        if (null != streams) {
+            return streams;
+        }
+        return null != original ? original : new Streams(System.in, System.out, System.err);
+    }
+
+    /**
+     * Use the streams for the current thread and threads started by it
+     *
+     * @param streams streams, or null to use the original streams
+     */
+    public static void set(final Streams streams) {
+        if (null == streams) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(streams);
+        }
+    }
+
+    private static class Routed extends OutputStream {
+        private final OutputStream original;
+        private final Function<Streams, OutputStream> select;
+
+        Routed(final OutputStream original, final Function<Streams, OutputStream> select) {
+            this.original = original;
+            this.select = select;
+        }
+
+        private OutputStream target() {
+            Streams streams = CURRENT.get();
+            return null != streams ? select.apply(streams) : original;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+    }
+
+    private static class RoutedInput extends InputStream {
+        private final InputStream original;
+
+        RoutedInput(final InputStream original) {
+            this.original = original;
+        }
+
+        private InputStream target() {
+            Streams streams = CURRENT.get();
+            return null != streams ? streams.in : original;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return target().read();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            return target().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return target().available();
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.rundeck.client
 
+import okhttp3.OkHttpClient
 import org.rundeck.client.util.FormAuthInterceptor
 import spock.lang.Specification
 
@@ -235,4 +236,38 @@ class RundeckClientSpec extends Specification {
         ''    | _
         null  | _
     }
+
+    def "clients built with shared http client share connection pool and dispatcher"() {
+        given:
+        def core = RundeckClient.builder().
+                baseUrl('http://example.com').
+                tokenAuth('abc').
+                buildHttpClient()
+        def release = Mock(Closeable)
+
+        when:
+        def client1 = RundeckClient.builder().baseUrl('http://example.com').httpClient(core, release).build()
+        def client2 = RundeckClient.builder().
+                baseUrl('http://example.com').
+                apiVersion(20).
+                httpClient(core, release).
+                build()
+        OkHttpClient okhttp1 = client1.retrofit.callFactory()
+        OkHttpClient okhttp2 = client2.retrofit.callFactory()
+
+        then:
+        !okhttp1.is(core)
+        okhttp1.connectionPool().is(core.connectionPool())
+        okhttp2.connectionPool().is(core.connectionPool())
+        okhttp1.dispatcher().is(core.dispatcher())
+        okhttp2.dispatcher().is(core.dispatcher())
+        client2.apiVersion == 20
+
+        when:
+        client1.close()
+
+        then:
+        1 * release.close()
+        !core.dispatcher().executorService().isShutdown()
+    }
 }
@@ -0,0 +1,346 @@
+package org.rundeck.client.tool
+
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.rundeck.client.api.RundeckApi
+import org.rundeck.client.tool.util.ExtensionIndexSpec
+import org.rundeck.client.util.MapConfigValues
+import picocli.CommandLine
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class MainSpec extends Specification {
+
+    def "is server command #args"() {
+        expect:
+        Main.isServerCommand(args as String[]) == expected
+
+        where:
+        args                                      | expected
+        []                                        | false
+        ['version']                               | false
+        ['acl', 'validate', '-d', 'dir']          | false
+        ['help', 'jobs']                          | false
+        ['--help']                                | false
+        ['-V']                                    | false
+        ['jobs', 'list', '-h']                    | false
+        ['jobs', 'list', '-p', 'x']               | true
+        ['adhoc', '-p', 'x', '--', 'ls', '--help'] | true
+    }
+
+    def "prewarm connects to the server"() {
+        given:
+        def server = new MockWebServer()
+        server.start()
+        server.enqueue(new MockResponse().setResponseCode(403))
+        def rd = new Main.Rd(new MapConfigValues(
+            [RD_URL: server.url('/api/41').toString(), RD_TOKEN: 'atoken']
+        ))
+
+        when:
+        Main.prewarmConnection(rd)
+        def request = server.takeRequest(5, TimeUnit.SECONDS)
+
+        then:
+        request.method == 'OPTIONS'
+        request.path == '/api/'
+        request.getHeader('Cookie') == null
+        request.getHeader('X-Rundeck-Auth-Token') == null
+        rd.resources.referenceCount(Main.httpClientKey(server.url('/api/41').toString(), rd.getAuth(null))) == 1
+
+        cleanup:
+        rd.close()
+        server.shutdown()
+    }
+
+    def "prewarm skipped without credentials"() {
+        given:
+        def server = new MockWebServer()
+        server.start()
+        def rd = new Main.Rd(new MapConfigValues([RD_URL: server.url('/').toString(), RD_AUTH_PROMPT: 'false']))
+
+        when:
+        Main.prewarmConnection(rd)
+
+        then:
+        server.takeRequest(500, TimeUnit.MILLISECONDS) == null
+
+        cleanup:
+        rd.close()
+        server.shutdown()
+    }
+
+    def "clients are reused by api, version and url from many threads"() {
+        given:
+        def rd = new Main.Rd(new MapConfigValues([RD_URL: 'http://localhost:4440', RD_TOKEN: 'atoken']))
+        def executor = Executors.newFixedThreadPool(16)
+        def start = new CountDownLatch(1)
+
+        when:
+        def futures = (1..3000).collect { i ->
+            executor.submit({
+                start.await()
+                switch (i % 3) {
+                    case 0: return ['default', rd.getClient()]
+                    case 1: return ['v20', rd.getClient(RundeckApi, 20)]
+                    default: return ['api', rd.getClient(RundeckApi)]
+                }
+            } as Callable<List>)
+        }
+        start.countDown()
+        def results = futures*.get(30, TimeUnit.SECONDS).groupBy { it[0] }
+
+        then:
+        results.every { name, list -> list.every { it[1].is(list[0][1]) } }
+        results['default'][0][1].is(results['api'][0][1])
+        !results['default'][0][1].is(results['v20'][0][1])
+        results['v20'][0][1].apiVersion == 20
+        rd.clients.size() == 2
+        rd.resources.referenceCount(Main.httpClientKey('http://localhost:4440', rd.getAuth(null))) == 2
+
+        when:
+        rd.close()
+
+        then:
+        rd.resources.referenceCount(Main.httpClientKey('http://localhost:4440', rd.getAuth(null))) == 0
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def "downgraded version client is reused"() {
+        given:
+        def rd = new Main.Rd(new MapConfigValues([RD_URL: 'http://localhost:4440', RD_TOKEN: 'atoken']))
+
+        when:
+        def first = rd.getClient(30)
+        def second = rd.getClient(30)
+
+        then:
+        first.is(second)
+        rd.getClient().is(first)
+        rd.clients.size() == 1
+
+        cleanup:
+        rd.close()
+    }
+
+    def "refused api version probe caches the default version"() {
+        given:
+        def server = new MockWebServer()
+        server.enqueue(new MockResponse().setResponseCode(403).setBody('{"error":true,"message":"denied"}').
+                addHeader('content-type', 'application/json'))
+        server.start()
+        def cacheFile = new File(File.createTempDir(), 'api-versions.properties')
+        def config = new MapConfigValues([
+                RD_URL              : server.url('/').toString(),
+                RD_TOKEN            : 'atoken',
+                RD_API_DOWNGRADE    : 'true',
+                RD_API_VERSION_CACHE: cacheFile.absolutePath
+        ])
+        def rd = new Main.Rd(config)
+        def rd2 = new Main.Rd(config)
+
+        when:
+        def client = rd.getClient()
+        def client2 = rd2.getClient()
+
+        then:
+        server.requestCount == 1
+        server.takeRequest(5, TimeUnit.SECONDS).path.endsWith('/system/info')
+        client.apiVersion == client2.apiVersion
+        rd2.getApiVersionCache().get().get(Main.appBaseUrl(server.url('/').toString())) ==
+        Optional.of(client.apiVersion)
+
+        cleanup:
+        rd.close()
+        rd2.close()
+        server.shutdown()
+        cacheFile.parentFile.deleteDir()
+    }
+
+    def "failed api version probe is not cached"() {
+        given:
+        def server = new MockWebServer()
+        server.enqueue(new MockResponse().setResponseCode(status).setBody('{"error":true,"message":"failed"}').
+                addHeader('content-type', 'application/json'))
+        server.start()
+        def cacheFile = new File(File.createTempDir(), 'api-versions.properties')
+        def rd = new Main.Rd(new MapConfigValues([
+                RD_URL              : server.url('/').toString(),
+                RD_TOKEN            : 'atoken',
+                RD_API_DOWNGRADE    : 'true',
+                RD_API_VERSION_CACHE: cacheFile.absolutePath
+        ]))
+
+        when:
+        def client = rd.getClient()
+
+        then:
+        server.takeRequest(5, TimeUnit.SECONDS).path.endsWith('/system/info')
+        client.is(rd.getClient(RundeckApi))
+        !cacheFile.exists() || cacheFile.text.readLines().every { it.startsWith('#') }
+
+        cleanup:
+        rd.close()
+        server.shutdown()
+        cacheFile.parentFile.deleteDir()
+
+        where:
+        status << [500, 503]
+    }
+
+    /**
+     * Run the rd tool in a new JVM with class loading logged
+     * @return [exit code, output]
+     */
+    private static List runWithClassLoading(String url, List<String> args) {
+        def command = [
+            System.getProperty('java.home') + '/bin/java',
+            '-verbose:class',
+            '-cp',
+            System.getProperty('java.class.path'),
+            Main.name
+        ] + args
+        def builder = new ProcessBuilder(command).redirectErrorStream(true)
+        builder.environment().putAll([
+            RD_URL         : url,
+            RD_TOKEN       : 'atoken',
+            RD_PREWARM     : 'false',
+            RD_EXT_DISABLED: 'true',
+            RD_DAEMON      : 'never'
+        ])
+        def process = builder.start()
+        def output = new StringBuilder()
+        def reader = Thread.start { output.append(process.inputStream.text) }
+        if (!process.waitFor(60, TimeUnit.SECONDS)) {
+            process.destroyForcibly()
+        }
+        reader.join(10000)
+        [process.exitValue(), output.toString()]
+    }
+
+    def "json command does not load xml binding"() {
+        given:
+        def server = new MockWebServer()
+        server.dispatcher = new Dispatcher() {
+            @Override
+            MockResponse dispatch(RecordedRequest request) {
+                new MockResponse().setBody('[{"name":"proj1","description":""}]').
+                    addHeader('content-type', 'application/json')
+            }
+        }
+        server.start()
+
+        when:
+        def (exit, output) = runWithClassLoading(server.url('/').toString(), ['projects', 'list'])
+        def lines = output.readLines()
+
+        then:
+        exit == 0
+        lines.any { it.contains('proj1') }
+        lines.any { it =~ /\bpicocli\.CommandLine\b/ }
+        lines.findAll { it.contains('javax.xml.bind.') } == []
+
+        cleanup:
+        server.shutdown()
+    }
+
+    private static Set<String> loadedClasses(String output) {
+        output.readLines().collect {
+            def matcher = it =~ /(?:\[Loaded |\[class,load\] )(\S+)/
+            matcher.find() ? matcher.group(1) : null
+        }.findAll() as Set
+    }
+
+    def "builtin command names match command classes"() {
+        expect:
+        Main.BUILTIN_COMMANDS.every { name, className ->
+            Class.forName(className).getAnnotation(CommandLine.Command).name() == name
+        }
+    }
+
+    def "register only invoked builtin command"() {
+        given:
+        def commandLine = new CommandLine(new Main())
+
+        when:
+        def all = Main.registerBuiltinCommands(commandLine, ['executions', 'info', '-e', '1'] as String[])
+
+        then:
+        !all
+        commandLine.subcommands.keySet() == ['executions'] as Set
+    }
+
+    def "register all builtin commands for #args"() {
+        given:
+        def commandLine = new CommandLine(new Main())
+
+        when:
+        def all = Main.registerBuiltinCommands(commandLine, args as String[])
+
+        then:
+        all
+        commandLine.subcommands.keySet().containsAll(Main.BUILTIN_COMMANDS.keySet())
+
+        where:
+        args << [[], ['--help'], ['unknown', 'command']]
+    }
+
+    def "select extensions for #args"() {
+        given:
+        def ext1 = new ExtensionIndexSpec.Ext1()
+        def ext2 = new ExtensionIndexSpec.Ext2()
+
+        when:
+        def result = Main.selectExtensions([ext1, ext2], args as String[])
+
+        then:
+        result*.class == expected
+
+        where:
+        args            | expected
+        ['ext2', 'x']   | [ExtensionIndexSpec.Ext2]
+        ['e1']          | [ExtensionIndexSpec.Ext1]
+        ['unknown']     | [ExtensionIndexSpec.Ext1, ExtensionIndexSpec.Ext2]
+        []              | [ExtensionIndexSpec.Ext1, ExtensionIndexSpec.Ext2]
+    }
+
+    def "executions info loads fewer classes than the full command tree"() {
+        given:
+        def server = new MockWebServer()
+        server.dispatcher = new Dispatcher() {
+            @Override
+            MockResponse dispatch(RecordedRequest request) {
+                new MockResponse().setBody('{"id":"1","status":"succeeded","project":"proj1","description":""}').
+                    addHeader('content-type', 'application/json')
+            }
+        }
+        server.start()
+
+        when:
+        def (infoExit, infoOutput) = runWithClassLoading(server.url('/').toString(), ['executions', 'info', '-e', '1'])
+        def (helpExit, helpOutput) = runWithClassLoading(server.url('/').toString(), ['--help'])
+        def infoClasses = loadedClasses(infoOutput)
+        def helpClasses = loadedClasses(helpOutput)
+
+        then:
+        infoExit == 0
+        helpExit == 0
+        infoClasses.contains('org.rundeck.client.tool.commands.Executions')
+        helpClasses.contains('org.rundeck.client.tool.commands.Jobs')
+        Main.BUILTIN_COMMANDS.values().findAll { it != 'org.rundeck.client.tool.commands.Executions' }.every {
+            !infoClasses.contains(it)
+        }
+        infoClasses.size() < helpClasses.size()
+
+        cleanup:
+        server.shutdown()
+    }
+}
@@ -0,0 +1,187 @@
+package org.rundeck.client.tool.commands
+
+import org.rundeck.client.testing.MockRdTool
+import org.rundeck.client.tool.CommandOutput
+import org.rundeck.client.tool.CommandRunner
+import org.rundeck.client.tool.InputError
+import org.rundeck.client.tool.RdApp
+import org.rundeck.client.tool.util.ThreadStreams
+import spock.lang.Specification
+
+class BatchSpec extends Specification {
+    ByteArrayOutputStream out = new ByteArrayOutputStream()
+    ByteArrayOutputStream err = new ByteArrayOutputStream()
+
+    def setup() {
+        ThreadStreams.install()
+        ThreadStreams.set(new ThreadStreams.Streams(new ByteArrayInputStream(new byte[0]), out, err))
+    }
+
+    def cleanup() {
+        ThreadStreams.set(null)
+    }
+
+    Batch createBatch(List<String> lines, Closure<Integer> run) {
+        def app = Mock(RdApp, additionalInterfaces: [CommandRunner]) {
+            runCommand(_) >> { args -> run.call(args[0] as List<String>) }
+        }
+        def file = File.createTempFile('batch', '.txt')
+        file.deleteOnExit()
+        file.text = lines.join('\n')
+        def batch = new Batch()
+        batch.rdTool = new MockRdTool(rdApp: app)
+        batch.rdOutput = Mock(CommandOutput)
+        batch.file = file
+        batch
+    }
+
+    def "parse lines"() {
+        given:
+        def input = '''# comment
+
+rd projects list
+  jobs load -p "my project" -f 'jobs file.yaml'
+keys create --path keys/a\\ b
+'''
+
+        when:
+        def entries = Batch.parse(new BufferedReader(new StringReader(input)))
+
+        then:
+        entries*.line == [3, 4, 5]
+        entries*.args*.toList() == [
+            ['projects', 'list'],
+            ['jobs', 'load', '-p', 'my project', '-f', 'jobs file.yaml'],
+            ['keys', 'create', '--path', 'keys/a b'],
+        ]
+    }
+
+    def "parse error for #input"() {
+        when:
+        Batch.parse(new BufferedReader(new StringReader(input)))
+
+        then:
+        InputError e = thrown()
+        e.message == message
+
+        where:
+        input                      | message
+        'jobs list\nbatch -f x'    | 'line 2: batch cannot be nested'
+        'jobs list -p "unfinished' | 'line 1: Unterminated double quote: jobs list -p "unfinished'
+    }
+
+    def "sequential stops after first failure"() {
+        given:
+        def run = []
+        def batch = createBatch(['jobs list', 'keys list', 'projects list']) { args ->
+            run << args[0]
+            args[0] == 'keys' ? 2 : 0
+        }
+
+        when:
+        def result = batch.call()
+
+        then:
+        result == 2
+        run == ['jobs', 'keys']
+        1 * batch.rdOutput.warning('# line 2: exit code 2: keys list')
+        1 * batch.rdOutput.info('3 commands: 1 succeeded, 1 failed, 1 skipped')
+    }
+
+    def "keep going runs all commands"() {
+        given:
+        def run = []
+        def batch = createBatch(['jobs list', 'keys list', 'projects list']) { args ->
+            run << args[0]
+            args[0] == 'keys' ? 2 : 0
+        }
+        batch.keepGoing = true
+
+        when:
+        def result = batch.call()
+
+        then:
+        result == 2
+        run == ['jobs', 'keys', 'projects']
+        1 * batch.rdOutput.info('3 commands: 2 succeeded, 1 failed, 0 skipped')
+    }
+
+    def "parallel output is written in order"() {
+        given:
+        def batch = createBatch((1..6).collect { "cmd $it" }) { args ->
+            def n = args[1] as int
+            Thread.sleep((7 - n) * 20)
+            System.out.println("out $n a")
+            System.err.println("err $n")
+            System.out.println("out $n b")
+            0
+        }
+        batch.parallel = 3
+
+        when:
+        def result = batch.call()
+
+        then:
+        result == 0
+        out.toString().readLines() == (1..6).collectMany { ["out $it a".toString(), "out $it b".toString()] }
+        err.toString().readLines() == (1..6).collect { "err $it".toString() }
+    }
+
+    def "parallel commands run concurrently"() {
+        given:
+        def running = new java.util.concurrent.atomic.AtomicInteger()
+        def max = new java.util.concurrent.atomic.AtomicInteger()
+        def batch = createBatch((1..8).collect { "cmd $it" }) { args ->
+            max.accumulateAndGet(running.incrementAndGet(), Math.&max)
+            Thread.sleep(50)
+            running.decrementAndGet()
+            0
+        }
+        batch.parallel = 4
+
+        when:
+        batch.call()
+
+        then:
+        max.get() > 1
+        max.get() <= 4
+    }
+
+    def "prefixed output lines"() {
+        given:
+        def batch = createBatch(['cmd 1', '', 'cmd 3']) { args ->
+            System.out.println("line a")
+            System.out.print("partial")
+            1
+        }
+        batch.parallel = 2
+        batch.prefix = true
+        batch.keepGoing = true
+
+        when:
+        def result = batch.call()
+
+        then:
+        result == 1
+        out.toString().readLines().sort() == ['[1] line a', '[1] partial', '[3] line a', '[3] partial']
+    }
+
+    def "line prefix stream writes whole lines"() {
+        given:
+        def target = new ByteArrayOutputStream()
+        def stream = new Batch.LinePrefixOutputStream(target, '> ')
+
+        when:
+        stream.write('a\nb'.bytes)
+        stream.write('c\n\nd'.bytes)
+
+        then:
+        target.toString() == '> a\n> bc\n> \n'
+
+        when:
+        stream.close()
+
+        then:
+        target.toString() == '> a\n> bc\n> \n> d\n'
+    }
+}
@@ -17,20 +17,31 @@
 package org.rundeck.client.tool.commands
 
 import org.rundeck.client.api.model.AbortResult
+import org.rundeck.client.api.model.DateInfo
 import org.rundeck.client.api.model.BulkExecutionDeleteResponse
+import org.rundeck.client.api.model.ExecLog
 import org.rundeck.client.api.model.Execution
 import org.rundeck.client.api.model.ExecutionList
 import org.rundeck.client.api.model.JobItem
 import org.rundeck.client.api.model.Paging
 import org.rundeck.client.testing.MockRdTool
 import org.rundeck.client.tool.CommandOutput
+import org.rundeck.client.tool.InputError
 import org.rundeck.client.tool.RdApp
 import org.rundeck.client.tool.extension.RdTool
 import org.rundeck.client.tool.options.ExecutionOutputFormatOption
+import org.rundeck.client.tool.options.ExecutionsFollowOptions
+import org.rundeck.client.tool.options.ExecutionsTailOptions
 import org.rundeck.client.tool.options.PagingResultOptions
 import org.rundeck.client.tool.options.ProjectNameOptions
+import org.rundeck.client.tool.output.OutputMultiplexer
+import org.rundeck.client.tool.util.LogCapture
+import org.rundeck.client.tool.util.MultiFollower
+import org.rundeck.client.tool.util.PollScheduler
 import org.rundeck.client.util.RdClientConfig
+import org.rundeck.client.util.Streamed
 
+import groovy.json.JsonOutput
 import okhttp3.mockwebserver.MockResponse
 import okhttp3.mockwebserver.MockWebServer
 import okhttp3.mockwebserver.RecordedRequest
@@ -42,6 +53,8 @@ import retrofit2.converter.jackson.JacksonConverterFactory
 import retrofit2.mock.Calls
 import spock.lang.Specification
 
+import java.util.zip.GZIPInputStream
+
 /**
  * @author greg
  * @since 12/5/16
@@ -359,6 +372,50 @@ class ExecutionsSpec extends Specification {
         false    | false
     }
 
+    def "executions query with output format streams each page"() {
+        given:
+        def api = Mock(RundeckApi)
+        RdTool rdTool = setupMock(api)
+        def out = Mock(CommandOutput)
+        Executions command = new Executions()
+        command.rdTool = rdTool
+        command.rdOutput = out
+
+        def options = new Executions.QueryCmd()
+        options.project = 'aproject'
+        options.nonInteractive = true
+        options.autoLoadPages = autopage
+
+        when:
+        def result = command.query(
+                options,
+                new PagingResultOptions(max: 2),
+                new ExecutionOutputFormatOption(outputFormat: '%id')
+        )
+
+        then:
+        1 * api.listExecutionsStreamed('aproject', [max: '2', offset: '0'], null, null, null, null) >>
+        Calls.response(Streamed.of(
+                [new Execution(id: '1', description: ''), new Execution(id: '2', description: '')],
+                [paging: new Paging(offset: 0, max: 2, total: 3, count: 2)]
+        ))
+        (autopage ? 1 : 0) * api.listExecutionsStreamed('aproject', [max: '2', offset: '2'], null, null, null, null) >>
+        Calls.response(Streamed.of(
+                [new Execution(id: '3', description: '')],
+                [paging: new Paging(offset: 2, max: 2, total: 3, count: 1)]
+        ))
+        0 * api._(*_)
+        1 * out.output('1')
+        1 * out.output('2')
+        (autopage ? 1 : 0) * out.output('3')
+        0 * out.info(_)
+        result.executions.isEmpty()
+        result.paging.offset == (autopage ? 2 : 0)
+
+        where:
+        autopage << [true, false]
+    }
+
     def "kill"() {
         given:
         def api = Mock(RundeckApi)
@@ -432,4 +489,413 @@ class ExecutionsSpec extends Specification {
         false   | true     | 'y'   | true    | true       || 0
         true    | false    | null  | true    | true       || 0
     }
+
+    def "followOutput polls adaptively"() {
+        given:
+        def now = 0L
+        def sleeps = []
+        def clock = [
+                millis: { -> now },
+                sleep : { long millis ->
+                    sleeps << millis
+                    now += millis
+                }
+        ] as PollScheduler.Clock
+        def noJitter = new Random() {
+            @Override
+            double nextDouble() {
+                0.5d
+            }
+        }
+        def scheduler = new PollScheduler(500, 8000, clock, noJitter)
+
+        def entries = { int count -> (1..<(count + 1)).collect { [log: "line $it".toString(), level: 'NORMAL'] } }
+        def response = { Map data ->
+            new MockResponse().setBody(JsonOutput.toJson(data)).addHeader('content-type', 'application/json')
+        }
+        MockWebServer server = new MockWebServer()
+        //idle, idle, a full page, the server loading the log, then complete
+        server.enqueue(response([offset: 20, lastModified: 2, entries: []]))
+        server.enqueue(response([offset: 20, lastModified: 2, entries: []]))
+        server.enqueue(response([offset: 30, lastModified: 3, entries: entries(500)]))
+        server.enqueue(response([offset: 30, lastModified: 3, entries: [], percentLoaded: 50]))
+        server.enqueue(response(
+                [offset: 40, lastModified: 4, entries: entries(3), execCompleted: true, completed: true, execState: 'succeeded']
+        ))
+        server.start()
+
+        def retrofit = new Retrofit.Builder().baseUrl(server.url('/api/19/')).
+                addConverterFactory(JacksonConverterFactory.create()).
+                build()
+        def client = new Client(retrofit.create(RundeckApi), retrofit, null, null, 19, true, null)
+
+        def initial = new ExecOutput(offset: 10, lastModified: 1, entries: [])
+        def received = []
+
+        when:
+        now += 1000
+        def result = Executions.followOutput(client, initial, '123', true, { received.addAll(it) }, scheduler)
+
+        then:
+        result
+        received.size() == 503
+        sleeps == [1000L, 2000L, 4000L, 500L, 500L]
+        server.requestCount == 5
+        (1..5).collect { server.takeRequest().path } == [
+                '/api/19/execution/123/output?offset=10&lastmod=1&maxlines=500&compacted=true',
+                '/api/19/execution/123/output?offset=20&lastmod=2&maxlines=500&compacted=true',
+                '/api/19/execution/123/output?offset=20&lastmod=2&maxlines=500&compacted=true',
+                '/api/19/execution/123/output?offset=30&lastmod=3&maxlines=500&compacted=true',
+                '/api/19/execution/123/output?offset=30&lastmod=3&maxlines=500&compacted=true',
+        ]
+
+        cleanup:
+        server.shutdown()
+    }
+
+    def "tail attaches to executions as they start and follows each once"() {
+        given:
+        def api = Mock(RundeckApi)
+        RdTool rdTool = setupMock(api)
+        Executions command = new Executions()
+        command.rdTool = rdTool
+        command.rdOutput = Mock(CommandOutput)
+        def lines = Collections.synchronizedList([])
+        def info = Collections.synchronizedList([])
+        def output = [
+                output : { lines << it.toString() },
+                info   : { info << it.toString() },
+                error  : { lines << it.toString() },
+                warning: { lines << it.toString() }
+        ] as CommandOutput
+        def follower = new MultiFollower(
+                rdTool.client,
+                new OutputMultiplexer(output, OutputMultiplexer.Mode.INTERLEAVED),
+                { CommandOutput out, entries -> entries.each { out.output(it.log) } },
+                { -> PollScheduler.create(0, 20, Executions.TAIL_MAX_LINES) },
+                2
+        )
+        def now = 0L
+        def sleeps = []
+        def clock = [
+                millis: { -> now },
+                sleep : { long millis ->
+                    sleeps << millis
+                    now += millis
+                }
+        ] as PollScheduler.Clock
+        def noJitter = new Random() {
+            @Override
+            double nextDouble() {
+                0.5d
+            }
+        }
+        def discovery = new PollScheduler(1000, 8000, clock, noJitter)
+        def options = new ExecutionsTailOptions()
+        options.tail = 1
+        def e1 = new Execution(id: '1', project: 'proj', job: new JobItem(name: 'job1'))
+        def e2 = new Execution(id: '2', project: 'proj')
+        def running = { List<Execution> list ->
+            Calls.response(new ExecutionList(
+                    paging: new Paging(offset: 0, max: 200, total: list.size(), count: list.size()),
+                    executions: list
+            ))
+        }
+        def iterations = 0
+
+        when:
+        def result = command.tailRunning(follower, 'proj', options, discovery, { -> iterations++ >= 3 })
+        follower.await()
+        follower.close()
+
+        then:
+        3 * api.runningExecutions('proj', 0, 200) >>> [running([e1]), running([e1, e2]), running([e2])]
+        //running at the start: tail
+        1 * api.getOutput('1', 1L) >> Calls.response(
+                new ExecOutput(offset: 5, entries: [new ExecLog(log: 'a1')], execCompleted: true, completed: true, execState: 'succeeded')
+        )
+        //started later: from the beginning
+        1 * api.getOutput('2', 0L, 0L, Executions.TAIL_MAX_LINES, true) >> Calls.response(
+                new ExecOutput(offset: 3, lastModified: 7, entries: [new ExecLog(log: 'b1')])
+        )
+        1 * api.getOutput('2', 3L, 7L, 500L, true) >> Calls.response(
+                new ExecOutput(offset: 4, entries: [new ExecLog(log: 'b2')], execCompleted: true, completed: true, execState: 'failed')
+        )
+        0 * api._(*_)
+        result
+        sleeps == [1000L, 1000L, 2000L]
+        lines.findAll { it.startsWith('[1 job1] ') } == ['[1 job1] a1']
+        lines.findAll { it.startsWith('[2] ') } == ['[2] b1', '[2] b2']
+        info.containsAll(['[1 job1] # Execution 1: succeeded', '[2] # Execution 2: failed'])
+        follower.active == 0
+    }
+
+    def "tail backs off when listing running executions fails"() {
+        given:
+        def api = Mock(RundeckApi)
+        RdTool rdTool = setupMock(api)
+        Executions command = new Executions()
+        command.rdTool = rdTool
+        def out = Mock(CommandOutput)
+        command.rdOutput = out
+        def follower = new MultiFollower(
+                rdTool.client,
+                new OutputMultiplexer(out, OutputMultiplexer.Mode.INTERLEAVED),
+                { CommandOutput o, entries -> },
+                { -> PollScheduler.create(0, 20) },
+                1
+        )
+        def sleeps = []
+        def clock = [
+                millis: { -> 0L },
+                sleep : { long millis -> sleeps << millis }
+        ] as PollScheduler.Clock
+        def noJitter = new Random() {
+            @Override
+            double nextDouble() {
+                0.5d
+            }
+        }
+        def discovery = new PollScheduler(1000, 8000, clock, noJitter)
+        def iterations = 0
+
+        when:
+        def result = command.tailRunning(follower, 'proj', new ExecutionsTailOptions(), discovery, { -> iterations++ >= 2 })
+        follower.close()
+
+        then:
+        2 * api.runningExecutions('proj', 0, 200) >>> [
+                Calls.failure(new IOException('connection reset')),
+                Calls.response(new ExecutionList(paging: new Paging(offset: 0, max: 200, total: 0, count: 0), executions: []))
+        ]
+        1 * out.warning('Failed to list running executions: connection reset')
+        0 * api._(*_)
+        result
+        sleeps == [2000L, 4000L]
+    }
+
+    def "tail prefix includes the project for all projects"() {
+        expect:
+        Executions.followPrefix(new Execution(id: '1', project: 'proj', job: new JobItem(name: 'job1')), true) ==
+        '[proj 1 job1] '
+        Executions.followPrefix(new Execution(id: '2', project: 'proj'), true) == '[proj 2] '
+        Executions.followPrefix(new Execution(id: '2', project: 'proj'), false) == '[2] '
+    }
+
+    def "tail does not combine a project with all projects"() {
+        given:
+        def api = Mock(RundeckApi)
+        Executions command = new Executions()
+        command.rdTool = setupMock(api)
+        command.rdOutput = Mock(CommandOutput)
+        def options = new ExecutionsTailOptions()
+        options.allProjects = true
+
+        when:
+        command.tail(options, new ProjectNameOptions(project: 'proj'))
+
+        then:
+        thrown(InputError)
+        0 * api._(*_)
+    }
+
+    def "followOutput with a saved log resumes from the checkpoint and retries transient failures"() {
+        given:
+        def dir = File.createTempDir()
+        def file = new File(dir, 'exec.log')
+        def sleeps = 0
+        def clock = [
+                millis: { -> 0L },
+                sleep : { long millis ->
+                    //interrupt the first follow while it waits to retry a failed poll
+                    if (++sleeps == 3) {
+                        throw new InterruptedException()
+                    }
+                }
+        ] as PollScheduler.Clock
+        def response = { Map data ->
+            new MockResponse().setBody(JsonOutput.toJson(data)).addHeader('content-type', 'application/json')
+        }
+        MockWebServer server = new MockWebServer()
+        server.enqueue(response([offset: 10, lastModified: 1, compacted: true, entries: [[log: 'a', node: 'n1'], [log: 'b']]]))
+        server.enqueue(new MockResponse().setResponseCode(503).setBody('unavailable'))
+        //resumed, failing once more before continuing
+        server.enqueue(new MockResponse().setResponseCode(503).setBody('unavailable'))
+        server.enqueue(response([offset: 20, lastModified: 2, compacted: true, entries: [[log: 'c']]]))
+        server.enqueue(response(
+                [offset: 30, lastModified: 3, compacted: true, entries: [[log: 'd', node: 'n2']], execCompleted: true, completed: true, execState: 'succeeded']
+        ))
+        server.start()
+        def retrofit = new Retrofit.Builder().baseUrl(server.url('/api/19/')).
+                addConverterFactory(JacksonConverterFactory.create()).
+                build()
+        def client = new Client(retrofit.create(RundeckApi), retrofit, null, null, 19, true, null)
+        def format = { ExecLog entry -> "${entry.node} ${entry.log}".toString() }
+        def follow = { LogCapture capture ->
+            Executions.followOutput(
+                    client,
+                    capture.start,
+                    capture.last,
+                    '123',
+                    true,
+                    { },
+                    { ExecOutput output, List<ExecLog> entries -> capture.write(output, entries) },
+                    new PollScheduler(0, 0, clock, new Random())
+            )
+        }
+
+        when:
+        def first = LogCapture.create(file, '123', format)
+        def stopped = follow(first)
+        first.close()
+        def resumed = LogCapture.resume(file, '123', format)
+        def result = follow(resumed)
+        resumed.close()
+
+        then:
+        !stopped
+        result
+        file.text == 'n1 a\nn1 b\nn1 c\nn2 d\n'
+        (1..5).collect { server.takeRequest().path } == [
+                '/api/19/execution/123/output?offset=0&lastmod=0&maxlines=500&compacted=true',
+                //failed, then resumed, failed again and retried
+                '/api/19/execution/123/output?offset=10&lastmod=1&maxlines=500&compacted=true',
+                '/api/19/execution/123/output?offset=10&lastmod=1&maxlines=500&compacted=true',
+                '/api/19/execution/123/output?offset=10&lastmod=1&maxlines=500&compacted=true',
+                '/api/19/execution/123/output?offset=20&lastmod=2&maxlines=500&compacted=true',
+        ]
+
+        cleanup:
+        server.shutdown()
+        dir.deleteDir()
+    }
+
+    def "follow --resume requires --save"() {
+        given:
+        Executions command = new Executions()
+        command.rdTool = setupMock(Mock(RundeckApi))
+        command.rdOutput = Mock(CommandOutput)
+        def options = new ExecutionsFollowOptions(ids: ['123'], resume: true)
+
+        when:
+        command.follow(options)
+
+        then:
+        thrown(InputError)
+    }
+
+    def "archive-logs saves the log of each finished execution not already saved"() {
+        given:
+        def api = Mock(RundeckApi)
+        Executions command = new Executions()
+        command.rdTool = setupMock(api)
+        def messages = Collections.synchronizedList([])
+        command.rdOutput = Mock(CommandOutput) {
+            _ * info(_) >> { messages << it[0].toString() }
+        }
+        def dir = File.createTempDir()
+        new File(dir, '2.log.gz').bytes = new byte[0]
+        def options = new Executions.ArchiveLogsCmd()
+        options.project = 'proj'
+        options.dir = dir
+        def ended = new DateInfo('2020-01-01T00:00:00Z')
+        def executions = [
+                new Execution(id: '1', dateEnded: ended),
+                new Execution(id: '2', dateEnded: ended),
+                new Execution(id: '3'),
+                new Execution(id: '4', dateEnded: ended),
+        ]
+
+        when:
+        def result = command.archiveLogs(options)
+
+        then:
+        1 * api.listExecutions('proj', [max: '100', offset: '0'], null, null, null, null) >> Calls.response(
+                new ExecutionList(paging: new Paging(offset: 0, max: 100, total: 4, count: 4), executions: executions)
+        )
+        1 * api.getOutput('1', 0L, 0L, 10000L, true) >> Calls.response(
+                new ExecOutput(offset: 5, lastModified: 1, compacted: true, entries: [new ExecLog(log: 'a', node: 'n1')])
+        )
+        1 * api.getOutput('1', 5L, 1L, 10000L, true) >> Calls.response(
+                new ExecOutput(offset: 9, compacted: true, entries: [new ExecLog(log: 'b')], execCompleted: true, completed: true)
+        )
+        1 * api.getOutput('4', 0L, 0L, 10000L, true) >> Calls.response(
+                new ExecOutput(offset: 3, entries: [new ExecLog(log: 'c')], execCompleted: true, completed: true)
+        )
+        0 * api._(*_)
+        result == 0
+        new GZIPInputStream(new FileInputStream(new File(dir, '1.log.gz'))).getText('UTF-8') == 'a\nb\n'
+        new GZIPInputStream(new FileInputStream(new File(dir, '4.log.gz'))).getText('UTF-8') == 'c\n'
+        new File(dir, '2.log.gz').length() == 0
+        !new File(dir, '3.log.gz').exists()
+        messages.contains('# 4/4 executions: 2 saved, 1 skipped, 1 running, 0 failed')
+
+        cleanup:
+        dir.deleteDir()
+    }
+
+    def "read output requests the next page at once unless the log is loading or a request failed"() {
+        given:
+        def api = Mock(RundeckApi)
+        RdTool rdTool = setupMock(api)
+        def sleeps = []
+        def clock = [
+                millis: { -> 0L },
+                sleep : { long millis -> sleeps << millis }
+        ] as PollScheduler.Clock
+        def noJitter = new Random() {
+            @Override
+            double nextDouble() {
+                0.5d
+            }
+        }
+        def received = []
+
+        when:
+        def result = Executions.readOutput(
+                rdTool.client,
+                '123',
+                2,
+                new PollScheduler(100, 1000, clock, noJitter),
+                { List<ExecLog> entries -> received.addAll(entries*.log) }
+        )
+
+        then:
+        1 * api.getOutput('123', 0L, 0L, 2L, true) >> Calls.response(
+                new ExecOutput(offset: 2, entries: [new ExecLog(log: 'a'), new ExecLog(log: 'b')])
+        )
+        3 * api.getOutput('123', 2L, 0L, 2L, true) >>> [
+                Calls.response(new ExecOutput(offset: 2, percentLoaded: 50, entries: [])),
+                Calls.failure(new IOException('connection reset')),
+                Calls.response(new ExecOutput(offset: 3, entries: [new ExecLog(log: 'c')], execCompleted: true, completed: true))
+        ]
+        0 * api._(*_)
+        result
+        received == ['a', 'b', 'c']
+        //no wait after the full page
+        sleeps == [100L, 200L]
+    }
+
+    def "archive-logs requires one of --dir or --tar"() {
+        given:
+        Executions command = new Executions()
+        command.rdTool = setupMock(Mock(RundeckApi))
+        command.rdOutput = Mock(CommandOutput)
+        def options = new Executions.ArchiveLogsCmd()
+        options.project = 'proj'
+        options.dir = dir
+        options.tar = tar
+
+        when:
+        command.archiveLogs(options)
+
+        then:
+        thrown(InputError)
+
+        where:
+        dir                 | tar
+        null                | null
+        new File('a')       | new File('b.tar')
+    }
 }
+
@@ -48,6 +48,7 @@ import org.rundeck.client.tool.options.ProjectNameOptions
 import org.rundeck.client.tool.options.VerboseOption
 import org.rundeck.client.util.Client
 import org.rundeck.client.util.RdClientConfig
+import org.rundeck.client.util.Streamed
 import retrofit2.Retrofit
 import retrofit2.mock.Calls
 import spock.lang.Specification
@@ -112,6 +113,62 @@ class JobsSpec extends Specification {
         null | null  | 'a'      | 'b/c'
     }
 
+    def "job list with output format streams jobs"() {
+        given:
+        def api = Mock(RundeckApi)
+        RdTool rdTool = setupMock(api)
+        def out = Mock(CommandOutput)
+        Jobs command = new Jobs()
+        command.rdTool = rdTool
+        command.rdOutput = out
+
+        def opts = new JobListOptions()
+        opts.project = 'ProjectName'
+        opts.setJob('a')
+
+        when:
+        command.list(new JobOutputFormatOption(outputFormat: '%id'), new JobFileOptions(), opts)
+
+        then:
+        1 * api.listJobsStreamed('ProjectName', 'a', null, null, null) >>
+                Calls.response(Streamed.of([new JobItem(id: 'id1'), new JobItem(id: 'id2')]))
+        0 * api._(*_)
+        1 * out.output('id1')
+        1 * out.output('id2')
+        0 * out.info(_)
+    }
+
+    def "job list with output format and RD_FORMAT #format outputs one list"() {
+        given:
+        def api = Mock(RundeckApi)
+        RdTool rdTool = setupMock(api)
+        rdTool.appConfig = Mock(RdClientConfig) {
+            getString('RD_FORMAT', null) >> format
+        }
+        def out = Mock(CommandOutput)
+        Jobs command = new Jobs()
+        command.rdTool = rdTool
+        command.rdOutput = out
+
+        def opts = new JobListOptions()
+        opts.project = 'ProjectName'
+        opts.setJob('a')
+
+        when:
+        command.list(new JobOutputFormatOption(outputFormat: '%id'), new JobFileOptions(), opts)
+
+        then:
+        1 * api.listJobsStreamed('ProjectName', 'a', null, null, null) >>
+                Calls.response(Streamed.of([new JobItem(id: 'id1'), new JobItem(id: 'id2')]))
+        0 * api._(*_)
+        1 * out.output(['id1', 'id2'])
+        0 * out.output(_ as String)
+        0 * out.info(_)
+
+        where:
+        format << ['json', 'yaml']
+    }
+
     def "job list write to file with input parameters"() {
         given:
         def api = Mock(RundeckApi)
@@ -0,0 +1,115 @@
+package org.rundeck.client.tool.commands
+
+import org.rundeck.client.api.RundeckApi
+import org.rundeck.client.api.model.ProjectNode
+import org.rundeck.client.testing.MockRdTool
+import org.rundeck.client.tool.CommandOutput
+import org.rundeck.client.tool.RdApp
+import org.rundeck.client.tool.extension.RdTool
+import org.rundeck.client.tool.options.NodeFilterOptions
+import org.rundeck.client.tool.options.NodeOutputFormatOption
+import org.rundeck.client.tool.options.ProjectNameOptions
+import org.rundeck.client.util.Client
+import org.rundeck.client.util.RdClientConfig
+import org.rundeck.client.util.Streamed
+import retrofit2.Retrofit
+import retrofit2.mock.Calls
+import spock.lang.Specification
+
+class NodesSpec extends Specification {
+    private RdTool setupMock(RundeckApi api) {
+        def retrofit = new Retrofit.Builder().baseUrl('http://example.com/fake/').build()
+        def client = new Client(api, retrofit, null, null, 18, true, null)
+        def rdapp = Mock(RdApp) {
+            getClient() >> client
+            getAppConfig() >> Mock(RdClientConfig)
+        }
+        def rdTool = new MockRdTool(client: client, rdApp: rdapp)
+        rdTool.appConfig = Mock(RdClientConfig)
+        rdTool
+    }
+
+    def "node list with output format streams nodes"() {
+        given:
+        def api = Mock(RundeckApi)
+        def out = Mock(CommandOutput)
+        Nodes command = new Nodes()
+        command.rdTool = setupMock(api)
+        command.rdOutput = out
+
+        when:
+        command.list(
+                new ProjectNameOptions(project: 'aproject'),
+                new NodeOutputFormatOption(outputFormat: '%nodename:%hostname'),
+                new NodeFilterOptions(filterTokens: ['tags:a'])
+        )
+
+        then:
+        1 * api.listNodesStreamed('aproject', 'tags:a') >> Calls.response(Streamed.of([
+                new ProjectNode([nodename: 'node1', hostname: 'host1']),
+                new ProjectNode([nodename: 'node2', hostname: 'host2'])
+        ]))
+        0 * api._(*_)
+        1 * out.output('node1:host1')
+        1 * out.output('node2:host2')
+        0 * out.info(_)
+    }
+
+    def "node list with output format and RD_FORMAT #format outputs one list"() {
+        given:
+        def api = Mock(RundeckApi)
+        def out = Mock(CommandOutput)
+        Nodes command = new Nodes()
+        def rdTool = setupMock(api)
+        rdTool.appConfig = Mock(RdClientConfig) {
+            getString('RD_FORMAT', null) >> format
+        }
+        command.rdTool = rdTool
+        command.rdOutput = out
+
+        when:
+        command.list(
+                new ProjectNameOptions(project: 'aproject'),
+                new NodeOutputFormatOption(outputFormat: '%nodename:%hostname'),
+                new NodeFilterOptions(filterTokens: ['tags:a'])
+        )
+
+        then:
+        1 * api.listNodesStreamed('aproject', 'tags:a') >> Calls.response(Streamed.of([
+                new ProjectNode([nodename: 'node1', hostname: 'host1']),
+                new ProjectNode([nodename: 'node2', hostname: 'host2'])
+        ]))
+        0 * api._(*_)
+        1 * out.output(['node1:host1', 'node2:host2'])
+        0 * out.output(_ as String)
+        0 * out.info(_)
+
+        where:
+        format << ['json', 'yaml']
+    }
+
+    def "node list without output format reads all nodes"() {
+        given:
+        def api = Mock(RundeckApi)
+        def out = Mock(CommandOutput)
+        Nodes command = new Nodes()
+        command.rdTool = setupMock(api)
+        command.rdOutput = out
+
+        when:
+        command.list(
+                new ProjectNameOptions(project: 'aproject'),
+                new NodeOutputFormatOption(),
+                new NodeFilterOptions()
+        )
+
+        then:
+        1 * api.listNodes('aproject', null) >> Calls.response([
+                node1: new ProjectNode([nodename: 'node1']),
+                node2: new ProjectNode([nodename: 'node2'])
+        ])
+        0 * api._(*_)
+        1 * out.info({ it.startsWith('2 Nodes in project aproject') })
+        1 * out.output(['node1', 'node2'])
+    }
+}
@@ -0,0 +1,173 @@
+package org.rundeck.client.tool.commands
+
+import org.rundeck.client.api.RundeckApi
+import org.rundeck.client.api.model.ProjectItem
+import org.rundeck.client.testing.MockRdTool
+import org.rundeck.client.tool.CommandOutput
+import org.rundeck.client.tool.CommandRunner
+import org.rundeck.client.tool.RdApp
+import org.rundeck.client.util.Client
+import org.rundeck.client.util.RdClientConfig
+import retrofit2.Retrofit
+import retrofit2.mock.Calls
+import spock.lang.Specification
+
+class ShellSpec extends Specification {
+    Map<String, String> overrides = [:]
+    List<List<String>> commands = []
+    List<String> prompts = []
+    RundeckApi api = Mock(RundeckApi)
+    CommandRunner runner
+
+    Shell createShell(Closure<Integer> run = { 0 }) {
+        def retrofit = new Retrofit.Builder().baseUrl('http://example.com/fake/').build()
+        def client = new Client(api, retrofit, null, null, 18, true, null)
+        def app = Mock(RdApp, additionalInterfaces: [CommandRunner]) {
+            runCommand(_) >> { args ->
+                def list = args[0] as List<String>
+                commands << list
+                run.call(list)
+            }
+            setConfigOverride(_, _) >> { String key, String value ->
+                if (null == value) {
+                    overrides.remove(key)
+                } else {
+                    overrides[key] = value
+                }
+            }
+        }
+        runner = app as CommandRunner
+        def config = Mock(RdClientConfig) {
+            getString('RD_PROJECT', null) >> { overrides['RD_PROJECT'] }
+        }
+        def shell = new Shell()
+        shell.rdTool = new MockRdTool(rdApp: app, appConfig: config, client: client)
+        shell.rdOutput = Mock(CommandOutput)
+        shell
+    }
+
+    Shell.LineInput input(List<String> lines) {
+        def iterator = lines.iterator()
+        return { String prompt ->
+            prompts << prompt
+            iterator.hasNext() ? iterator.next() : null
+        } as Shell.LineInput
+    }
+
+    def "run commands until end of input"() {
+        given:
+        def shell = createShell { args -> args[0] == 'keys' ? 3 : 0 }
+
+        when:
+        def result = shell.repl(runner, input(['jobs list -p "my project"', '', '# comment', 'rd keys list']))
+
+        then:
+        result == 3
+        commands == [['jobs', 'list', '-p', 'my project'], ['keys', 'list']]
+        1 * shell.rdOutput.warning('# exit code 3')
+    }
+
+    def "exit stops reading"() {
+        given:
+        def shell = createShell()
+
+        when:
+        def result = shell.repl(runner, input(['jobs list', 'exit', 'keys list']))
+
+        then:
+        result == 0
+        commands == [['jobs', 'list']]
+    }
+
+    def "use sets the current project"() {
+        given:
+        def shell = createShell()
+
+        when:
+        def result = shell.repl(runner, input(['use proj1', 'jobs list', 'use other', 'use', 'jobs list']))
+
+        then:
+        2 * api.listProjects() >> Calls.response([new ProjectItem(name: 'proj1')])
+        prompts == ['rd> ', 'rd:proj1> ', 'rd:proj1> ', 'rd:proj1> ', 'rd> ', 'rd> ']
+        1 * shell.rdOutput.error('Project does not exist: other')
+        commands == [['jobs', 'list'], ['jobs', 'list']]
+        overrides == [:]
+        result == 0
+    }
+
+    def "project list is cached for the session"() {
+        given:
+        def shell = createShell()
+        shell.project = 'proj1'
+
+        when:
+        shell.repl(runner, input(['use proj2', 'use proj1', 'use proj2']))
+
+        then:
+        1 * api.listProjects() >> Calls.response([new ProjectItem(name: 'proj1'), new ProjectItem(name: 'proj2')])
+        overrides == [RD_PROJECT: 'proj2']
+    }
+
+    def "history expansion"() {
+        given:
+        def shell = createShell()
+
+        when:
+        def result = shell.repl(runner, input(['jobs list', 'keys list', '!1', '!!', '!9']))
+
+        then:
+        commands == [['jobs', 'list'], ['keys', 'list'], ['jobs', 'list'], ['jobs', 'list']]
+        2 * shell.rdOutput.info('jobs list')
+        1 * shell.rdOutput.error('No such history entry: !9')
+        result == 2
+    }
+
+    def "history is written to file"() {
+        given:
+        def file = new File(File.createTempDir(), 'sub/history')
+        def shell = createShell()
+        shell.historyFile = file
+
+        when:
+        shell.repl(runner, input(['jobs list', 'use', 'exit']))
+
+        then:
+        file.readLines() == ['jobs list', 'use', 'exit']
+    }
+
+    def "history file is trimmed to the history size"() {
+        given:
+        def file = new File(File.createTempDir(), 'history')
+        file.text = (1..Shell.HISTORY_SIZE + 10).collect { "cmd $it" }.join('\n') + '\n'
+        def shell = createShell()
+        shell.historyFile = file
+
+        when: "loaded"
+        shell.loadHistory()
+
+        then:
+        file.readLines().size() == Shell.HISTORY_SIZE
+        file.readLines()[0] == 'cmd 11'
+        shell.expandHistory('!1') == 'cmd 11'
+
+        when: "the file grows to twice the history size"
+        shell.repl(runner, input((1..Shell.HISTORY_SIZE + 1).collect { "jobs list $it".toString() }))
+
+        then:
+        file.readLines().size() == Shell.HISTORY_SIZE
+        file.readLines()[-1] == "jobs list ${Shell.HISTORY_SIZE + 1}"
+    }
+
+    def "nested shell is rejected"() {
+        given:
+        def shell = createShell()
+
+        when:
+        def result = shell.repl(runner, input(['shell']))
+
+        then:
+        result == 2
+        commands == []
+        1 * shell.rdOutput.error('Already in a shell')
+    }
+}
@@ -0,0 +1,353 @@
+package org.rundeck.client.tool.daemon
+
+import org.rundeck.client.tool.util.ThreadStreams
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+class DaemonServerSpec extends Specification {
+    DaemonServer server
+    Thread serverThread
+
+    DaemonState start(DaemonServer.Handler handler) {
+        server = new DaemonServer(0, DaemonState.newToken(), handler)
+        serverThread = Thread.start { server.serve() }
+        new DaemonState(server.port, server.token, DaemonState.currentPid(), 'test')
+    }
+
+    def cleanup() {
+        server?.close()
+        serverThread?.join(5000)
+    }
+
+    def "forward request streams output and exit code"() {
+        given:
+        DaemonServer.Request received = null
+        def state = start { request ->
+            received = request
+            def line = new BufferedReader(new InputStreamReader(System.in)).readLine()
+            System.out.println("out: " + line)
+            System.err.println("err: " + request.args.join(','))
+            3
+        }
+        def out = new ByteArrayOutputStream()
+        def err = new ByteArrayOutputStream()
+
+        when:
+        def result = DaemonClient.forward(
+            state,
+            ['jobs', 'list'] as String[],
+            [RD_URL: 'http://localhost:4440'],
+            new File('/tmp/work'),
+            new ByteArrayInputStream('input\n'.bytes),
+            out,
+            err
+        )
+
+        then:
+        result == 3
+        out.toString() == 'out: input' + System.lineSeparator()
+        err.toString() == 'err: jobs,list' + System.lineSeparator()
+        received.args == ['jobs', 'list'] as String[]
+        received.env == [RD_URL: 'http://localhost:4440']
+        received.cwd == new File('/tmp/work')
+    }
+
+    def "end of input is forwarded"() {
+        given:
+        def state = start { request ->
+            System.out.print(System.in.text.toUpperCase())
+            0
+        }
+        def out = new ByteArrayOutputStream()
+
+        when:
+        def result = DaemonClient.forward(
+            state,
+            [] as String[],
+            [:],
+            new File('/tmp'),
+            new ByteArrayInputStream('abc\ndef\n'.bytes),
+            out,
+            new ByteArrayOutputStream()
+        )
+
+        then:
+        result == 0
+        out.toString() == 'ABC\nDEF\n'
+    }
+
+    def "prompts are answered by the console of the client"() {
+        given:
+        def state = start { request ->
+            def console = ThreadStreams.console()
+            if (null == console) {
+                System.out.print('no console')
+                return 2
+            }
+            System.out.print('before prompt;')
+            def name = console.readLine('Name for %s: ', request.args[0])
+            def password = console.readPassword('Password: ')
+            System.out.print("${name}:${new String(password)}")
+            0
+        }
+        def prompts = []
+        def console = [
+                readLine    : { String fmt, Object[] args ->
+                    prompts << String.format(fmt, args)
+                    'bob'
+                },
+                readPassword: { String fmt, Object[] args ->
+                    prompts << String.format(fmt, args)
+                    'secret'.toCharArray()
+                }
+        ] as ThreadStreams.Prompter
+        def out = new ByteArrayOutputStream()
+
+        when:
+        def result = DaemonClient.forward(
+            state,
+            ['keys'] as String[],
+            [:],
+            new File('/tmp'),
+            new ByteArrayInputStream(new byte[0]),
+            out,
+            new ByteArrayOutputStream(),
+            console
+        )
+
+        then:
+        result == 0
+        prompts == ['Name for keys: ', 'Password: ']
+        out.toString() == 'before prompt;bob:secret'
+    }
+
+    def "client without a console has no console in the daemon"() {
+        given:
+        def state = start { request ->
+            System.out.print(null == ThreadStreams.console() ? 'no console' : 'console')
+            0
+        }
+        def out = new ByteArrayOutputStream()
+
+        when:
+        def result = DaemonClient.forward(
+            state,
+            ['jobs', 'purge'] as String[],
+            [:],
+            new File('/tmp'),
+            new ByteArrayInputStream(new byte[0]),
+            out,
+            new ByteArrayOutputStream()
+        )
+
+        then:
+        result == 0
+        out.toString() == 'no console'
+    }
+
+    def "handler exception is reported with exit code 1"() {
+        given:
+        def state = start { request -> throw new IllegalStateException('failed') }
+        def err = new ByteArrayOutputStream()
+
+        when:
+        def result = DaemonClient.forward(
+            state,
+            [] as String[],
+            [:],
+            new File('/tmp'),
+            new ByteArrayInputStream(new byte[0]),
+            new ByteArrayOutputStream(),
+            err
+        )
+
+        then:
+        result == 1
+        err.toString().contains('IllegalStateException: failed')
+    }
+
+    def "wrong token falls back to local execution"() {
+        given:
+        def called = false
+        def state = start { request ->
+            called = true
+            0
+        }
+        def wrong = new DaemonState(state.port, DaemonState.newToken(), state.pid, state.version)
+
+        when:
+        def result = DaemonClient.forward(
+            wrong,
+            ['jobs'] as String[],
+            [:],
+            new File('/tmp'),
+            new ByteArrayInputStream(new byte[0]),
+            new ByteArrayOutputStream(),
+            new ByteArrayOutputStream()
+        )
+
+        then:
+        result == null
+        !called
+        DaemonClient.status(wrong) == null
+    }
+
+    def "no daemon falls back to local execution"() {
+        given:
+        def socket = new ServerSocket(0, 1, InetAddress.loopbackAddress)
+        def port = socket.localPort
+        socket.close()
+        def state = new DaemonState(port, DaemonState.newToken(), '1', 'test')
+
+        expect:
+        DaemonClient.forward(
+            state,
+            [] as String[],
+            [:],
+            new File('/tmp'),
+            new ByteArrayInputStream(new byte[0]),
+            new ByteArrayOutputStream(),
+            new ByteArrayOutputStream()
+        ) == null
+        DaemonClient.status(state) == null
+        !DaemonClient.stop(state)
+    }
+
+    def "status and stop"() {
+        given:
+        def state = start { request -> 0 }
+
+        when:
+        def status = DaemonClient.status(state)
+
+        then:
+        status.contains('pid: ' + DaemonState.currentPid())
+        status.contains('requests: 0')
+
+        when:
+        def stopped = DaemonClient.stop(state)
+        serverThread.join(5000)
+
+        then:
+        stopped
+        !serverThread.alive
+        DaemonClient.status(state) == null
+    }
+
+    def "requests run concurrently"() {
+        given:
+        def started = new java.util.concurrent.CountDownLatch(4)
+        def state = start { request ->
+            started.countDown()
+            //completes only if all requests are running at once
+            started.await(5, java.util.concurrent.TimeUnit.SECONDS) ? 0 : 1
+            System.out.print(request.args[0])
+            0
+        }
+
+        when:
+        def outputs = (1..4).collect { new ByteArrayOutputStream() }
+        def results = new Integer[4]
+        def threads = (0..3).collect { i ->
+            Thread.start {
+                results[i] = DaemonClient.forward(
+                    state,
+                    ["req$i".toString()] as String[],
+                    [:],
+                    new File('/tmp'),
+                    new ByteArrayInputStream(new byte[0]),
+                    outputs[i],
+                    new ByteArrayOutputStream()
+                )
+            }
+        }
+        threads*.join(10000)
+
+        then:
+        started.count == 0
+        results as List == [0, 0, 0, 0]
+        outputs*.toString() == ['req0', 'req1', 'req2', 'req3']
+    }
+
+    def "request is cancelled when the client disconnects"() {
+        given:
+        def running = new java.util.concurrent.CountDownLatch(1)
+        def cancelled = new java.util.concurrent.CountDownLatch(1)
+        def state = start { request ->
+            running.countDown()
+            try {
+                Thread.sleep(30000)
+            } catch (InterruptedException e) {
+                cancelled.countDown()
+            }
+            0
+        }
+
+        when:
+        def socket = new Socket(InetAddress.loopbackAddress, state.port)
+        def out = new DataOutputStream(socket.outputStream)
+        DaemonProtocol.writeString(out, state.token)
+        out.writeInt(DaemonProtocol.OP_RUN)
+        out.writeInt(1)
+        DaemonProtocol.writeString(out, 'follow')
+        out.writeInt(0)
+        DaemonProtocol.writeString(out, '/tmp')
+        out.writeBoolean(false)
+        out.flush()
+        running.await(5, java.util.concurrent.TimeUnit.SECONDS)
+        socket.close()
+
+        then:
+        cancelled.await(5, java.util.concurrent.TimeUnit.SECONDS)
+        new PollingConditions(timeout: 5).eventually {
+            assert DaemonClient.status(state).contains('running: 0')
+        }
+    }
+
+    def "state is written and removed"() {
+        given:
+        def dir = new File(File.createTempDir(), 'daemon')
+        def state = new DaemonState(1234, DaemonState.newToken(), '42', '1.0')
+
+        when:
+        state.write(dir)
+        def read = DaemonState.read(dir)
+
+        then:
+        read.port == 1234
+        read.token == state.token
+        read.pid == '42'
+        read.version == '1.0'
+
+        when:
+        new DaemonState(1234, DaemonState.newToken(), '43', '1.0').remove(dir)
+
+        then:
+        DaemonState.read(dir) != null
+
+        when:
+        state.remove(dir)
+
+        then:
+        DaemonState.read(dir) == null
+    }
+
+    def "config key depends only on http client variables"() {
+        expect:
+        DaemonContext.configKey([RD_URL: 'a', HOME: 'x']) == DaemonContext.configKey([HOME: 'y', RD_URL: 'a'])
+        DaemonContext.configKey([RD_URL: 'a', RD_PROJECT: 'p1', RD_FORMAT: 'json']) ==
+        DaemonContext.configKey([RD_URL: 'a', RD_PROJECT: 'p2'])
+        DaemonContext.configKey([RD_URL: 'a']) != DaemonContext.configKey([RD_URL: 'b'])
+        DaemonContext.configKey([RD_URL: 'a', RD_TOKEN: 't1']) != DaemonContext.configKey([RD_URL: 'a', RD_TOKEN: 't2'])
+        DaemonContext.configKey([RD_URL: 'a']) != DaemonContext.configKey([RD_URL: 'a', RD_HTTP_TIMEOUT: '10'])
+    }
+
+    def "resolve relative to client working directory"() {
+        given:
+        def context = new DaemonContext(null, new File('/work'), [:])
+
+        expect:
+        context.resolve('file.txt') == new File('/work/file.txt')
+        context.resolve('/abs/file.txt') == new File('/abs/file.txt')
+    }
+}
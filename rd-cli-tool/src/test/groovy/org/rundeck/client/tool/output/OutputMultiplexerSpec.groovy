@@ -0,0 +1,220 @@
+package org.rundeck.client.tool.output
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.rundeck.client.tool.CommandOutput
+import org.rundeck.client.tool.format.FormattedOutput
+import org.rundeck.client.tool.format.JsonFormatter
+import org.rundeck.client.tool.format.YamlFormatter
+import org.yaml.snakeyaml.Yaml
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class OutputMultiplexerSpec extends Specification {
+    /**
+     * Writes records a character at a time without any locking, so concurrent records would interleave
+     */
+    static class UnsafeOutput implements CommandOutput {
+        final StringBuilder out = new StringBuilder()
+        final StringBuilder err = new StringBuilder()
+
+        private static void write(StringBuilder sb, Object value) {
+            (value.toString() + '\n').each {
+                sb.append(it)
+                Thread.yield()
+            }
+        }
+
+        @Override
+        void info(Object output) {
+            write(err, output)
+        }
+
+        @Override
+        void output(Object output) {
+            write(out, output)
+        }
+
+        @Override
+        void error(Object error) {
+            write(err, error)
+        }
+
+        @Override
+        void warning(Object error) {
+            write(err, error)
+        }
+    }
+
+    static final int TASKS = 16
+    static final int RECORDS = 50
+
+    private static void runTasks(OutputMultiplexer mux, Closure body) {
+        def tasks = (0..<TASKS).collect { mux.task(it % 2 == 0 ? "[$it] " : null) }
+        def start = new CountDownLatch(1)
+        def pool = Executors.newFixedThreadPool(TASKS)
+        try {
+            //finish tasks in reverse order
+            def futures = (0..<TASKS).collect { int t ->
+                pool.submit {
+                    start.await()
+                    try {
+                        (0..<RECORDS).each { int r -> body(tasks[t], t, r) }
+                        Thread.sleep((TASKS - t) * 2)
+                    } finally {
+                        tasks[t].close()
+                    }
+                }
+            }
+            start.countDown()
+            futures*.get(30, TimeUnit.SECONDS)
+        } finally {
+            pool.shutdown()
+        }
+    }
+
+    @Unroll
+    def "concurrent text records are not interleaved in #mode mode"() {
+        given:
+        def target = new UnsafeOutput()
+        def mux = new OutputMultiplexer(target, mode)
+
+        when:
+        runTasks(mux) { OutputMultiplexer.Task task, int t, int r ->
+            task.output("task $t record $r line 1\ntask $t record $r line 2")
+            task.warning("task $t warning $r")
+        }
+        def lines = target.out.toString().readLines()
+
+        then:
+        lines.size() == TASKS * RECORDS * 2
+        lines.collate(2).every { pair ->
+            def m = pair[0] =~ /^(\[\d+\] )?task (\d+) record (\d+) line 1$/
+            m.matches() && pair[1] == (m.group(1) ?: '') + "task ${m.group(2)} record ${m.group(3)} line 2"
+        }
+        target.err.toString().readLines().size() == TASKS * RECORDS
+        target.err.toString().readLines().every { it ==~ /^(\[\d+\] )?task \d+ warning \d+$/ }
+
+        where:
+        mode << OutputMultiplexer.Mode.values()
+    }
+
+    def "ordered mode writes tasks in task order"() {
+        given:
+        def target = new UnsafeOutput()
+        def mux = new OutputMultiplexer(target, OutputMultiplexer.Mode.ORDERED)
+
+        when:
+        runTasks(mux) { OutputMultiplexer.Task task, int t, int r -> task.output("$t:$r") }
+
+        then:
+        target.out.toString().readLines().collect { it.replaceAll(/^\[\d+\] /, '') } ==
+        (0..<TASKS).collectMany { t -> (0..<RECORDS).collect { r -> "$t:$r".toString() } }
+    }
+
+    def "completed mode writes each task together"() {
+        given:
+        def target = new UnsafeOutput()
+        def mux = new OutputMultiplexer(target, OutputMultiplexer.Mode.COMPLETED)
+
+        when:
+        runTasks(mux) { OutputMultiplexer.Task task, int t, int r -> task.output("$t:$r") }
+        def tasks = target.out.toString().readLines().collect { it.replaceAll(/^\[\d+\] /, '').split(':')[0] }
+
+        then:
+        tasks.size() == TASKS * RECORDS
+        tasks.collate(RECORDS).every { it.unique().size() == 1 }
+    }
+
+    def "ordered mode writes the first task immediately and later tasks when earlier tasks finish"() {
+        given:
+        def target = new UnsafeOutput()
+        def mux = new OutputMultiplexer(target, OutputMultiplexer.Mode.ORDERED)
+        def first = mux.task()
+        def second = mux.task()
+        def third = mux.task()
+
+        when:
+        first.output('a1')
+        third.output('c1')
+        third.close()
+        second.output('b1')
+
+        then:
+        target.out.toString() == 'a1\n'
+
+        when:
+        first.close()
+
+        then:
+        target.out.toString() == 'a1\nb1\n'
+
+        when:
+        second.output('b2')
+        second.close()
+
+        then:
+        target.out.toString() == 'a1\nb1\nb2\nc1\n'
+    }
+
+    def "close writes unfinished tasks"() {
+        given:
+        def target = new UnsafeOutput()
+        def mux = new OutputMultiplexer(target, mode)
+        def first = mux.task()
+        def second = mux.task()
+
+        when:
+        second.output('b1')
+        first.output('a1')
+        mux.close()
+
+        then:
+        target.out.toString() == expected
+
+        where:
+        mode                                | expected
+        OutputMultiplexer.Mode.ORDERED      | 'a1\nb1\n'
+        OutputMultiplexer.Mode.COMPLETED    | 'a1\nb1\n'
+        OutputMultiplexer.Mode.INTERLEAVED  | 'b1\na1\n'
+    }
+
+    def "prefix is added to each line of text records"() {
+        given:
+        def target = new UnsafeOutput()
+        def task = new OutputMultiplexer(target, OutputMultiplexer.Mode.INTERLEAVED).task('[x] ')
+
+        when:
+        task.output('a\nb')
+        task.output([a: 'b'])
+
+        then:
+        target.out.toString() == "[x] a${System.lineSeparator()}[x] b\n{a=b}\n"
+    }
+
+    @Unroll
+    def "concurrent #format records remain valid documents"() {
+        given:
+        def target = new UnsafeOutput()
+        def mux = new OutputMultiplexer(new FormattedOutput(target, formatter), OutputMultiplexer.Mode.INTERLEAVED)
+
+        when:
+        runTasks(mux) { OutputMultiplexer.Task task, int t, int r ->
+            task.output([task: t, record: r, values: ['x', 'y']])
+        }
+        def records = parse(target.out.toString())
+
+        then:
+        records.size() == TASKS * RECORDS
+        records.every { it.values == ['x', 'y'] }
+        records.collect { "${it.task}:${it.record}" }.toSet().size() == TASKS * RECORDS
+
+        where:
+        format | formatter           | parse
+        'json' | new JsonFormatter() | { String s -> s.readLines().collect { new ObjectMapper().readValue(it, Map) } }
+        'yaml' | new YamlFormatter() | { String s -> new Yaml().loadAll(s.replaceAll(/(?m)^(?=task:)/, '---\n')).toList() }
+    }
+}
@@ -0,0 +1,246 @@
+package org.rundeck.client.tool.parallel
+
+import org.rundeck.client.tool.util.ThreadStreams
+import org.rundeck.client.util.ConfigSource
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class ParallelRunnerSpec extends Specification {
+    def "max concurrency from config"() {
+        given:
+        def config = Mock(ConfigSource) {
+            getInt(ParallelRunner.RD_MAX_CONCURRENCY, ParallelRunner.DEFAULT_MAX_CONCURRENCY) >> value
+        }
+
+        expect:
+        ParallelRunner.maxConcurrency(config) == expected
+
+        where:
+        value | expected
+        5     | 5
+        12    | 12
+        0     | ParallelRunner.DEFAULT_MAX_CONCURRENCY
+        -1    | ParallelRunner.DEFAULT_MAX_CONCURRENCY
+    }
+
+    def "ordered results"() {
+        given:
+        def runner = ParallelRunner.shared(4)
+
+        when:
+        def result = runner.map(1..50, { int i ->
+            Thread.sleep(50 - i)
+            i * 2
+        }, true)
+
+        then:
+        result == (1..50).collect { it * 2 }
+    }
+
+    def "unordered results contain all values"() {
+        given:
+        def runner = ParallelRunner.shared(4)
+
+        when:
+        def result = runner.map(1..50, { int i -> i * 2 }, false)
+
+        then:
+        result.sort() == (1..50).collect { it * 2 }
+    }
+
+    def "active tasks are limited by max concurrency"() {
+        given:
+        def runner = ParallelRunner.shared(3)
+        def active = new AtomicInteger()
+        def max = new AtomicInteger()
+
+        when:
+        runner.map(1..30, { int i ->
+            def now = active.incrementAndGet()
+            max.accumulateAndGet(now, Math.&max)
+            Thread.sleep(5)
+            active.decrementAndGet()
+        }, true)
+
+        then:
+        max.get() <= 3
+        max.get() > 1
+    }
+
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    def "nested runs complete when the pool is busy"() {
+        given:
+        def runner = new ParallelRunner(2, Executors.newFixedThreadPool(1))
+
+        when:
+        def result = runner.map(1..4, { int i ->
+            runner.map(1..4, { int j -> i * j }, true).sum()
+        }, true)
+
+        then:
+        result == [10, 20, 30, 40]
+    }
+
+    def "failures are aggregated after all tasks run"() {
+        given:
+        def runner = ParallelRunner.shared(4)
+        def ran = new AtomicInteger()
+
+        when:
+        runner.map(1..10, { int i ->
+            ran.incrementAndGet()
+            if (i % 3 == 0) {
+                throw new IOException("failed $i")
+            }
+            i
+        }, true)
+
+        then:
+        ParallelException e = thrown()
+        ran.get() == 10
+        !e.cancelled
+        e.total == 10
+        e.failures*.index == [2, 5, 8]
+        e.failures*.item == [3, 6, 9]
+        e.failures*.error*.message == ['failed 3', 'failed 6', 'failed 9']
+        e.results == [1, 2, 4, 5, 7, 8, 10]
+        e.message == '3 of 10 tasks failed: failed 3'
+        e.cause.message == 'failed 3'
+        e.suppressed*.message == ['failed 6', 'failed 9']
+    }
+
+    def "for each batch"() {
+        given:
+        def runner = ParallelRunner.shared(4)
+        def batches = Collections.synchronizedList([])
+
+        when:
+        runner.forEachBatched((1..10).toList(), 4, { List<Integer> batch -> batches << batch })
+
+        then:
+        batches.sort { it[0] } == [[1, 2, 3, 4], [5, 6, 7, 8], [9, 10]]
+    }
+
+    def "empty items"() {
+        expect:
+        ParallelRunner.shared(4).map([], { it }, true) == []
+    }
+
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    def "interrupted run stops starting tasks and waits for active tasks"() {
+        given:
+        def runner = new ParallelRunner(2, Executors.newFixedThreadPool(2))
+        def started = new CountDownLatch(1)
+        def finished = new AtomicInteger()
+        def ran = new AtomicInteger()
+        def error = null
+        def caller = Thread.start {
+            try {
+                runner.map(1..100, { int i ->
+                    ran.incrementAndGet()
+                    if (Thread.currentThread().name.startsWith('pool')) {
+                        started.countDown()
+                        //not interruptible
+                        long end = System.currentTimeMillis() + 200
+                        while (System.currentTimeMillis() < end) {
+                        }
+                        finished.incrementAndGet()
+                    } else {
+                        started.await()
+                        Thread.sleep(10_000)
+                    }
+                    i
+                }, true)
+            } catch (ParallelException e) {
+                error = e
+            }
+        }
+
+        when:
+        started.await()
+        caller.interrupt()
+        caller.join()
+
+        then:
+        error != null
+        error.cancelled
+        ran.get() < 100
+        finished.get() == ran.get() - 1
+        error.failures.size() == 1
+        error.failures[0].error instanceof InterruptedException
+    }
+
+    def "tasks run with the streams and class loader of their caller"() {
+        given:
+        ThreadStreams.install()
+        def runner = ParallelRunner.shared(4)
+        def outputs = [new ByteArrayOutputStream(), new ByteArrayOutputStream()]
+        def loaders = [new URLClassLoader(new URL[0]), new URLClassLoader(new URL[0])]
+        def seen = [ConcurrentHashMap.newKeySet(), ConcurrentHashMap.newKeySet()]
+
+        when:
+        //the first run creates the pool threads, which the second run reuses
+        [0, 1].each { int n ->
+            def caller = new Thread({
+                ThreadStreams.set(new ThreadStreams.Streams(System.in, outputs[n], outputs[n]))
+                runner.map(1..8, { int i ->
+                    System.out.println("run${n}:${i}")
+                    seen[n] << Thread.currentThread().contextClassLoader
+                    Thread.sleep(20)
+                    i
+                }, true)
+            })
+            caller.contextClassLoader = loaders[n]
+            caller.start()
+            caller.join()
+        }
+
+        then:
+        outputs[0].toString().readLines().sort() == (1..8).collect { "run0:$it" }.sort()
+        outputs[1].toString().readLines().sort() == (1..8).collect { "run1:$it" }.sort()
+        seen[0] == [loaders[0]] as Set
+        seen[1] == [loaders[1]] as Set
+        runner.map(1..8, { Thread.currentThread().contextClassLoader }, true).every { !(it in loaders) }
+
+        cleanup:
+        loaders*.close()
+    }
+
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    def "tasks are cancelled when their caller is interrupted"() {
+        given:
+        def runner = ParallelRunner.shared(4)
+        def started = new CountDownLatch(2)
+        def cancelled = new CountDownLatch(2)
+        def caller = Thread.start {
+            try {
+                runner.map(1..2, { int i ->
+                    started.countDown()
+                    //not interruptible
+                    while (!ParallelRunner.isCancelled()) {
+                    }
+                    cancelled.countDown()
+                    i
+                }, true)
+            } catch (ParallelException ignored) {
+            }
+        }
+
+        when:
+        started.await()
+        caller.interrupt()
+
+        then:
+        cancelled.await(5, TimeUnit.SECONDS)
+        !ParallelRunner.isCancelled()
+
+        cleanup:
+        caller.join()
+    }
+}
@@ -0,0 +1,48 @@
+package org.rundeck.client.tool.util
+
+import spock.lang.Specification
+
+import java.util.function.LongSupplier
+
+class ApiVersionCacheSpec extends Specification {
+    def "cached version is returned until it expires"() {
+        given:
+        def file = new File(File.createTempDir(), 'sub/api-versions.properties')
+        long now = 1000
+        def cache = new ApiVersionCache(file, 500, { now } as LongSupplier)
+
+        when:
+        cache.put('http://host1', 20)
+        now = time
+        def result = new ApiVersionCache(file, 500, { now } as LongSupplier).get(url)
+
+        then:
+        file.isFile()
+        result == expected
+
+        where:
+        url            | time | expected
+        'http://host1' | 1000 | Optional.of(20)
+        'http://host1' | 1500 | Optional.of(20)
+        'http://host1' | 1501 | Optional.empty()
+        'http://host2' | 1000 | Optional.empty()
+    }
+
+    def "missing or invalid cache file"() {
+        given:
+        def file = new File(File.createTempDir(), 'api-versions.properties')
+        if (content) {
+            file.text = content
+        }
+        def cache = new ApiVersionCache(file, 500)
+
+        expect:
+        cache.get('http://host1') == Optional.empty()
+
+        where:
+        content                  | _
+        null                     | _
+        'http\\://host1=abc\n'   | _
+        'http\\://host1=20\n'    | _
+    }
+}
@@ -0,0 +1,112 @@
+package org.rundeck.client.tool.util
+
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class ClientRegistrySpec extends Specification {
+    static class TestClient implements Closeable {
+        final String name
+        final AtomicInteger closed = new AtomicInteger()
+
+        TestClient(String name) {
+            this.name = name
+        }
+
+        @Override
+        void close() throws IOException {
+            closed.incrementAndGet()
+        }
+    }
+
+    def "keys are equal by api, version and base url"() {
+        expect:
+        new ClientRegistry.Key(String, 41, 'http://a') == new ClientRegistry.Key(String, 41, 'http://a')
+        new ClientRegistry.Key(String, null, 'http://a') == new ClientRegistry.Key(String, null, 'http://a')
+        new ClientRegistry.Key(String, 41, 'http://a') != new ClientRegistry.Key(Integer, 41, 'http://a')
+        new ClientRegistry.Key(String, 41, 'http://a') != new ClientRegistry.Key(String, 40, 'http://a')
+        new ClientRegistry.Key(String, 41, 'http://a') != new ClientRegistry.Key(String, null, 'http://a')
+        new ClientRegistry.Key(String, 41, 'http://a') != new ClientRegistry.Key(String, 41, 'http://b')
+    }
+
+    def "client is created once and reused"() {
+        given:
+        def resources = new Resources()
+        def registry = new ClientRegistry(resources)
+        def created = 0
+        def key = new ClientRegistry.Key(String, 41, 'http://a')
+
+        when:
+        def first = registry.get(key) { new TestClient("c${++created}") }
+        def second = registry.get(key) { new TestClient("c${++created}") }
+        def other = registry.get(new ClientRegistry.Key(String, 40, 'http://a')) { new TestClient("c${++created}") }
+
+        then:
+        first.is(second)
+        !first.is(other)
+        created == 2
+        registry.size() == 2
+
+        when:
+        resources.close()
+
+        then:
+        first.closed.get() == 1
+        other.closed.get() == 1
+    }
+
+    def "failed creation is retried"() {
+        given:
+        def registry = new ClientRegistry(new Resources())
+        def key = new ClientRegistry.Key(String, 41, 'http://a')
+
+        when:
+        registry.get(key) { throw new IOException('failed') }
+
+        then:
+        thrown(IOException)
+        registry.size() == 0
+
+        when:
+        def client = registry.get(key) { new TestClient('ok') }
+
+        then:
+        client.name == 'ok'
+        registry.size() == 1
+    }
+
+    def "concurrent requests create one client per key"() {
+        given:
+        def registry = new ClientRegistry(new Resources())
+        def created = new AtomicInteger()
+        def keys = (1..4).collect { new ClientRegistry.Key(String, it, 'http://a') }
+        def executor = Executors.newFixedThreadPool(16)
+        def start = new CountDownLatch(1)
+
+        when:
+        def futures = (1..2000).collect { i ->
+            executor.submit({
+                start.await()
+                registry.get(keys[i % 4]) {
+                    created.incrementAndGet()
+                    Thread.sleep(5)
+                    new TestClient("client${i % 4}")
+                }
+            } as Callable<TestClient>)
+        }
+        start.countDown()
+        def clients = futures*.get(30, TimeUnit.SECONDS)
+
+        then:
+        created.get() == 4
+        registry.size() == 4
+        clients.groupBy { it.name }.every { name, list -> list.every { it.is(list[0]) } }
+
+        cleanup:
+        executor.shutdownNow()
+    }
+}
@@ -0,0 +1,36 @@
+package org.rundeck.client.tool.util
+
+import org.rundeck.client.tool.InputError
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class CommandLineTokenizerSpec extends Specification {
+    @Unroll
+    def "tokenize #line"() {
+        expect:
+        CommandLineTokenizer.tokenize(line) == expected
+
+        where:
+        line                                 | expected
+        ''                                   | []
+        '  jobs   list  '                    | ['jobs', 'list']
+        'jobs list -p "my project"'          | ['jobs', 'list', '-p', 'my project']
+        "a 'b \"c\" \\d' e"                  | ['a', 'b "c" \\d', 'e']
+        'a "b \\"c\\" \\d"'                  | ['a', 'b "c" \\d']
+        'a\\ b c'                            | ['a b', 'c']
+        'a""b \'\''                          | ['ab', '']
+        '-opt=x"y z"'                        | ['-opt=xy z']
+    }
+
+    @Unroll
+    def "unterminated quote in #line"() {
+        when:
+        CommandLineTokenizer.tokenize(line)
+
+        then:
+        thrown(InputError)
+
+        where:
+        line << ['a "b', "a 'b"]
+    }
+}
@@ -0,0 +1,154 @@
+package org.rundeck.client.tool.util
+
+import org.rundeck.client.tool.extension.RdCommandExtension
+import org.rundeck.client.tool.extension.RdTool
+import picocli.CommandLine
+import spock.lang.Specification
+
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+
+class ExtensionIndexSpec extends Specification {
+    @CommandLine.Command(name = 'ext1', aliases = ['e1'])
+    static class Ext1 implements RdCommandExtension {
+        @Override
+        void setRdTool(final RdTool tool) {
+        }
+    }
+
+    @CommandLine.Command(name = 'ext2')
+    static class Ext2 implements RdCommandExtension {
+        @Override
+        void setRdTool(final RdTool tool) {
+        }
+    }
+
+    static File createJar(File dir, String name, List<String> services) {
+        def file = new File(dir, name)
+        new JarOutputStream(new FileOutputStream(file)).withCloseable { jar ->
+            if (services) {
+                jar.putNextEntry(new JarEntry(ExtensionIndex.SERVICE_FILE))
+                jar.write(("# extensions\n" + services.join('\n') + '\n').bytes)
+                jar.closeEntry()
+            }
+        }
+        file
+    }
+
+    def "build index from jars"() {
+        given:
+        def dir = File.createTempDir()
+        def jar1 = createJar(dir, 'ext1.jar', [Ext1.name])
+        def jar2 = createJar(dir, 'ext2.jar', [Ext2.name, 'com.example.Missing'])
+        def lib = createJar(dir, 'lib.jar', [])
+
+        when:
+        def index = ExtensionIndex.build(dir, [jar1, jar2, lib] as File[])
+
+        then:
+        index.entries*.jar == [jar1, jar2, lib]*.absoluteFile
+        index.entries*.extensions == [[Ext1.name], [Ext2.name, 'com.example.Missing'], []]
+        index.entries*.commands == [['ext1', 'e1'], ['ext2'], []]
+        index.jarsFor('ext1') == [jar1, lib]*.absoluteFile
+        index.jarsFor('e1') == [jar1, lib]*.absoluteFile
+        index.jarsFor('ext2') == [jar2, lib]*.absoluteFile
+        index.jarsFor('jobs') == []
+    }
+
+    def "index is stored and reused until jars change"() {
+        given:
+        def dir = File.createTempDir()
+        def file = new File(dir, 'idx/ext-index.properties')
+        def jar1 = createJar(dir, 'ext1.jar', [Ext1.name])
+        def jar2 = createJar(dir, 'ext2.jar', [Ext2.name])
+        File[] jars = [jar1, jar2]
+
+        when:
+        def index = ExtensionIndex.load(file, dir, jars)
+        def stored = ExtensionIndex.read(file)
+
+        then:
+        file.isFile()
+        stored.isCurrent(dir, jars)
+        stored.entries*.commands == index.entries*.commands
+        stored.entries*.extensions == index.entries*.extensions
+
+        when: "a jar is removed"
+        def changed = ExtensionIndex.read(file).isCurrent(dir, [jar1] as File[])
+
+        then:
+        !changed
+
+        when: "a jar is modified"
+        createJar(dir, 'ext2.jar', [Ext1.name])
+        jar2.setLastModified(jar2.lastModified() + 2000)
+        def reloaded = ExtensionIndex.load(file, dir, jars)
+
+        then:
+        !stored.isCurrent(dir, jars)
+        reloaded.jarsFor('ext2') == []
+        ExtensionIndex.read(file).isCurrent(dir, jars)
+    }
+
+    def "index is not current for another extension directory"() {
+        given:
+        def base = File.createTempDir()
+        def dir1 = new File(base, 'ext1')
+        def dir2 = new File(base, 'ext2')
+        dir1.mkdirs()
+        dir2.mkdirs()
+        File[] jars1 = [createJar(dir1, 'ext1.jar', [Ext1.name])]
+        File[] jars2 = [createJar(dir2, 'ext2.jar', [Ext2.name])]
+        def file = new File(base, 'ext-index.properties')
+
+        when:
+        ExtensionIndex.load(file, dir1, jars1)
+
+        then:
+        ExtensionIndex.read(file).dir == dir1.canonicalFile
+        ExtensionIndex.read(file).isCurrent(new File(dir1, '.'), jars1)
+        !ExtensionIndex.read(file).isCurrent(dir2, jars1)
+
+        when:
+        def index2 = ExtensionIndex.load(file, dir2, jars2)
+
+        then:
+        index2.jarsFor('ext2') == [jars2[0].absoluteFile]
+        ExtensionIndex.read(file).dir == dir2.canonicalFile
+    }
+
+    def "index file is named by the extension directory"() {
+        given:
+        def base = File.createTempDir()
+
+        expect:
+        ExtensionIndex.indexFile(base, new File(base, 'a')).parentFile == base
+        ExtensionIndex.indexFile(base, new File(base, 'a')) == ExtensionIndex.indexFile(base, new File(base, 'b/../a'))
+        ExtensionIndex.indexFile(base, new File(base, 'a')) != ExtensionIndex.indexFile(base, new File(base, 'b'))
+    }
+
+    def "invalid index file is ignored"() {
+        given:
+        def file = new File(File.createTempDir(), 'ext-index.properties')
+        file.text = content
+
+        expect:
+        ExtensionIndex.read(file) == null
+
+        where:
+        content << [
+                '',
+                'version=1\njar.count=0\n',
+                'version=2\njar.count=0\n',
+                'version=2\ndir=/ext\njar.count=1\n',
+                'version=2\ndir=/ext\njar.count=x\n',
+                'version=2\ndir=/ext\njar.count=1\njar.0.path=/a.jar\njar.0.size=x\njar.0.modified=1\n',
+        ]
+    }
+
+    def "command names from annotation"() {
+        expect:
+        ExtensionIndex.commandNames(Ext1) == ['ext1', 'e1']
+        ExtensionIndex.commandNames(String) == []
+    }
+}
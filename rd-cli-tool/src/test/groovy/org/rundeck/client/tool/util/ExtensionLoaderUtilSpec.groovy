@@ -0,0 +1,63 @@
+package org.rundeck.client.tool.util
+
+import spock.lang.Specification
+
+class ExtensionLoaderUtilSpec extends Specification {
+    def "extensions are loaded from the current context class loader with new instances"() {
+        given:
+        def dir = File.createTempDir()
+        def jar1 = ExtensionIndexSpec.createJar(dir, 'ext1.jar', [ExtensionIndexSpec.Ext1.name])
+        def jar2 = ExtensionIndexSpec.createJar(dir, 'ext2.jar', [ExtensionIndexSpec.Ext2.name])
+        def thread = Thread.currentThread()
+        def original = thread.contextClassLoader
+        def loader1 = new URLClassLoader([jar1.toURI().toURL()] as URL[], original)
+        def loader2 = new URLClassLoader([jar2.toURI().toURL()] as URL[], original)
+
+        when:
+        thread.contextClassLoader = loader1
+        def first = ExtensionLoaderUtil.list()
+        def again = ExtensionLoaderUtil.list()
+        thread.contextClassLoader = loader2
+        def second = ExtensionLoaderUtil.list()
+
+        then:
+        //the classpath also includes the built in extensions
+        first*.class.contains(ExtensionIndexSpec.Ext1)
+        !first*.class.contains(ExtensionIndexSpec.Ext2)
+        !first.find { it instanceof ExtensionIndexSpec.Ext1 }.is(again.find { it instanceof ExtensionIndexSpec.Ext1 })
+        second*.class.contains(ExtensionIndexSpec.Ext2)
+        !second*.class.contains(ExtensionIndexSpec.Ext1)
+
+        cleanup:
+        thread.contextClassLoader = original
+        loader1.close()
+        loader2.close()
+    }
+
+    def "concurrent invocations get their own extension instances"() {
+        given:
+        def dir = File.createTempDir()
+        def jar = ExtensionIndexSpec.createJar(dir, 'ext1.jar', [ExtensionIndexSpec.Ext1.name])
+        def loader = new URLClassLoader([jar.toURI().toURL()] as URL[], Thread.currentThread().contextClassLoader)
+        def results = Collections.synchronizedList([])
+
+        when:
+        def threads = (1..8).collect {
+            def thread = new Thread({
+                results << ExtensionLoaderUtil.list().find { it instanceof ExtensionIndexSpec.Ext1 }
+            })
+            thread.contextClassLoader = loader
+            thread.start()
+            thread
+        }
+        threads*.join(5000)
+
+        then:
+        results.size() == 8
+        results.every { it != null }
+        Collections.newSetFromMap(new IdentityHashMap()).with { addAll(results); size() } == 8
+
+        cleanup:
+        loader.close()
+    }
+}
@@ -0,0 +1,110 @@
+package org.rundeck.client.tool.util
+
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.util.zip.GZIPInputStream
+
+class LogArchiveSpec extends Specification {
+    File dir
+
+    def setup() {
+        dir = File.createTempDir()
+    }
+
+    def cleanup() {
+        dir.deleteDir()
+    }
+
+    private static void add(LogArchive archive, String name, String text) {
+        def entry = archive.create(name)
+        entry.output.write(text.getBytes(StandardCharsets.UTF_8))
+        entry.commit()
+    }
+
+    private static String gunzip(byte[] bytes) {
+        new GZIPInputStream(new ByteArrayInputStream(bytes)).getText('UTF-8')
+    }
+
+    /**
+     * @return map of name to content of each file in the tar file
+     */
+    private static Map<String, byte[]> readTar(File file) {
+        def bytes = file.bytes
+        def files = [:]
+        int pos = 0
+        while (pos + 512 <= bytes.length && bytes[pos] != 0) {
+            def name = new String(bytes, pos, 100, 'UTF-8').replaceAll(/\u0000.*/, '')
+            def size = Long.parseLong(new String(bytes, pos + 124, 11, 'US-ASCII'), 8) as int
+            files[name] = Arrays.copyOfRange(bytes, pos + 512, pos + 512 + size)
+            pos += 512 + ((size + 511).intdiv(512) * 512)
+        }
+        files
+    }
+
+    def "directory archive writes complete files only"() {
+        given:
+        def archive = LogArchive.directory(new File(dir, 'logs'))
+
+        when:
+        add(archive, '1.log.gz', 'a\nb\n')
+        def discarded = archive.create('2.log.gz')
+        discarded.output.write('partial'.bytes)
+        discarded.close()
+        archive.close()
+
+        then:
+        archive.contains('1.log.gz')
+        !archive.contains('2.log.gz')
+        gunzip(new File(dir, 'logs/1.log.gz').bytes) == 'a\nb\n'
+        new File(dir, 'logs').list() as List == ['1.log.gz']
+    }
+
+    def "tar archive is appended to when written again"() {
+        given:
+        def file = new File(dir, 'logs.tar')
+        def archive = LogArchive.tar(file)
+        add(archive, '1.log.gz', 'a\n')
+        add(archive, '2.log.gz', 'b\n')
+        archive.close()
+
+        when:
+        def again = LogArchive.tar(file)
+        def contained = ['1.log.gz', '2.log.gz', '3.log.gz'].collect { again.contains(it) }
+        add(again, '3.log.gz', 'c\n' * 1000)
+        again.close()
+        def files = readTar(file)
+
+        then:
+        contained == [true, true, false]
+        files.keySet() as List == ['1.log.gz', '2.log.gz', '3.log.gz']
+        gunzip(files['1.log.gz']) == 'a\n'
+        gunzip(files['3.log.gz']) == 'c\n' * 1000
+        file.length() % 512 == 0
+        dir.list().toList() == ['logs.tar']
+    }
+
+    def "tar archive drops a partly appended file"() {
+        given:
+        def file = new File(dir, 'logs.tar')
+        def archive = LogArchive.tar(file)
+        add(archive, '1.log.gz', 'a\n')
+        add(archive, '2.log.gz', 'b\n' * 1000)
+        archive.close()
+        def files = readTar(file)
+        //interrupted while appending the second file
+        def raf = new RandomAccessFile(file, 'rw')
+        raf.length = 512 + 512 + 512 + 10
+        raf.close()
+
+        when:
+        def again = LogArchive.tar(file)
+        def contained = [again.contains('1.log.gz'), again.contains('2.log.gz')]
+        again.close()
+
+        then:
+        files.size() == 2
+        contained == [true, false]
+        readTar(file).keySet() as List == ['1.log.gz']
+    }
+}
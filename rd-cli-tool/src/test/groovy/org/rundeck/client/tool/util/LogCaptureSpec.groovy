@@ -0,0 +1,131 @@
+package org.rundeck.client.tool.util
+
+import org.rundeck.client.api.model.ExecLog
+import org.rundeck.client.api.model.ExecOutput
+import spock.lang.Specification
+
+class LogCaptureSpec extends Specification {
+    File dir
+    File file
+
+    def setup() {
+        dir = File.createTempDir()
+        file = new File(dir, 'exec.log')
+    }
+
+    def cleanup() {
+        dir.deleteDir()
+    }
+
+    private static List<ExecLog> logs(String... lines) {
+        lines.collect { new ExecLog(it) }
+    }
+
+    def "create replaces the file and starts at offset zero"() {
+        given:
+        file.text = 'old\n'
+
+        when:
+        def capture = LogCapture.create(file, '123', null)
+        capture.close()
+
+        then:
+        file.text == ''
+        capture.start.offset == 0
+        !capture.completed
+        LogCapture.checkpointFile(file).exists()
+    }
+
+    def "resume continues from the checkpoint"() {
+        given:
+        def capture = LogCapture.create(file, '123', null)
+        capture.write(new ExecOutput(offset: 10, lastModified: 5), logs('a', 'b'))
+        capture.write(new ExecOutput(offset: 20, lastModified: 6), logs('c'))
+        capture.close()
+
+        when:
+        def resumed = LogCapture.resume(file, '123', null)
+        resumed.write(new ExecOutput(offset: 30, lastModified: 7, execCompleted: true, completed: true, execState: 'succeeded'), logs('d'))
+        resumed.close()
+        def done = LogCapture.resume(file, '123', null)
+        done.close()
+
+        then:
+        resumed.start.offset == 20
+        resumed.start.lastModified == 6
+        resumed.last.log == 'c'
+        file.text == 'a\nb\nc\nd\n'
+        done.completed
+        done.start.execState == 'succeeded'
+        done.start.offset == 30
+    }
+
+    def "resume discards output written after the checkpoint"() {
+        given:
+        def capture = LogCapture.create(file, '123', null)
+        capture.write(new ExecOutput(offset: 10, lastModified: 5), logs('a'))
+        capture.close()
+        //interrupted after appending, before saving the checkpoint
+        file << 'b\n'
+
+        when:
+        def resumed = LogCapture.resume(file, '123', null)
+        resumed.write(new ExecOutput(offset: 20, lastModified: 6), logs('b'))
+        resumed.close()
+
+        then:
+        file.text == 'a\nb\n'
+    }
+
+    def "resume without a checkpoint starts from the beginning"() {
+        given:
+        file.text = 'partial\n'
+
+        when:
+        def capture = LogCapture.resume(file, '123', null)
+        capture.close()
+
+        then:
+        capture.start.offset == 0
+        file.text == ''
+    }
+
+    def "resume rejects the checkpoint of another execution"() {
+        given:
+        LogCapture.create(file, '123', null).close()
+
+        when:
+        LogCapture.resume(file, '456', null)
+
+        then:
+        IllegalArgumentException e = thrown()
+        e.message.contains('is for execution 123')
+    }
+
+    def "resume rejects a file shorter than its checkpoint"() {
+        given:
+        def capture = LogCapture.create(file, '123', null)
+        capture.write(new ExecOutput(offset: 10, lastModified: 5), logs('abc'))
+        capture.close()
+        file.text = 'a'
+
+        when:
+        LogCapture.resume(file, '123', null)
+
+        then:
+        IllegalArgumentException e = thrown()
+        e.message.contains('shorter')
+    }
+
+    def "entries are written with the formatter"() {
+        given:
+        def capture = LogCapture.create(file, '123', { ExecLog entry -> "${entry.node}: ${entry.log}".toString() })
+
+        when:
+        capture.write(new ExecOutput(offset: 10), [new ExecLog(log: 'a', node: 'n1')])
+        capture.close()
+
+        then:
+        file.text == 'n1: a\n'
+    }
+}
@@ -0,0 +1,259 @@
+package org.rundeck.client.tool.util
+
+import groovy.json.JsonOutput
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.rundeck.client.api.RequestFailed
+import org.rundeck.client.api.RundeckApi
+import org.rundeck.client.api.model.ExecLog
+import org.rundeck.client.api.model.ExecOutput
+import org.rundeck.client.tool.CommandOutput
+import org.rundeck.client.tool.output.OutputMultiplexer
+import org.rundeck.client.util.Client
+import retrofit2.Retrofit
+import retrofit2.converter.jackson.JacksonConverterFactory
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+
+@Timeout(30)
+class MultiFollowerSpec extends Specification {
+    static class Collect implements CommandOutput {
+        final List<String> out = Collections.synchronizedList([])
+        final List<String> err = Collections.synchronizedList([])
+
+        @Override
+        void info(Object output) {
+            err << output.toString()
+        }
+
+        @Override
+        void output(Object output) {
+            out << output.toString()
+        }
+
+        @Override
+        void error(Object error) {
+            err << error.toString()
+        }
+
+        @Override
+        void warning(Object error) {
+            err << error.toString()
+        }
+    }
+
+    MockWebServer server
+    Map<String, Queue<Map>> scripts = new ConcurrentHashMap<>()
+    Client<RundeckApi> client
+
+    def setup() {
+        server = new MockWebServer()
+        server.dispatcher = new Dispatcher() {
+            @Override
+            MockResponse dispatch(RecordedRequest request) {
+                def id = (request.path =~ /execution\/([^\/]+)\/output/)[0][1]
+                def data = scripts[id]?.poll()
+                if (null == data) {
+                    return new MockResponse().setResponseCode(404).setBody('{"error":true,"message":"not found"}')
+                }
+                if (data.status) {
+                    return new MockResponse().setResponseCode(data.status).setBody('unavailable')
+                }
+                new MockResponse().setBody(JsonOutput.toJson(data)).addHeader('content-type', 'application/json')
+            }
+        }
+        server.start()
+        def retrofit = new Retrofit.Builder().baseUrl(server.url('/api/19/')).
+                addConverterFactory(JacksonConverterFactory.create()).
+                build()
+        client = new Client(retrofit.create(RundeckApi), retrofit, null, null, 19, true, null)
+    }
+
+    def cleanup() {
+        server.shutdown()
+    }
+
+    private MultiFollower follower(CommandOutput output) {
+        new MultiFollower(
+                client,
+                new OutputMultiplexer(output, OutputMultiplexer.Mode.INTERLEAVED),
+                { CommandOutput out, entries -> entries.each { out.output(it.log) } },
+                { -> PollScheduler.create(0, 20) },
+                2
+        )
+    }
+
+    def "follows many executions until each completes"() {
+        given:
+        scripts['1'] = new ConcurrentLinkedQueue([
+                [offset: 2, entries: [[log: 'a2', node: 'n1']], compacted: false],
+                [offset: 3, entries: [], compacted: false],
+                [offset: 4, entries: [[log: 'a3']], execCompleted: true, completed: true, execState: 'succeeded'],
+        ])
+        scripts['2'] = new ConcurrentLinkedQueue([
+                [offset: 9, entries: [[log: 'b2']], execCompleted: true, completed: false, execState: 'failed'],
+                [offset: 10, entries: [], execCompleted: true, completed: true, execState: 'failed'],
+        ])
+        def output = new Collect()
+        def follower = follower(output)
+        def detached = Collections.synchronizedList([])
+        follower.onDetach = { detached << it.id }
+
+        when:
+        follower.follow('1', '[1 job] ', new ExecOutput(offset: 1, entries: []))
+        follower.follow('2', '[2] ', new ExecOutput(offset: 8, entries: []))
+        def finished = follower.await()
+        follower.close()
+
+        then:
+        finished
+        detached.sort() == ['1', '2']
+        output.out.findAll { it.startsWith('[1 job] ') } == ['[1 job] a2', '[1 job] a3']
+        output.out.findAll { it.startsWith('[2] ') } == ['[2] b2']
+        output.err.contains('[1 job] # Execution 1: succeeded')
+        output.err.contains('[2] # Execution 2: failed')
+        follower.streams*.id == ['1', '2']
+        follower.streams*.succeeded == [true, false]
+        follower.streams*.offset == [4L, 10L]
+        follower.active == 0
+    }
+
+    def "compacted entries continue from the previous output of the same execution"() {
+        given:
+        scripts['1'] = new ConcurrentLinkedQueue([
+                [offset: 2, entries: ['a2'], compacted: true, execCompleted: true, completed: true, execState: 'succeeded'],
+        ])
+        scripts['2'] = new ConcurrentLinkedQueue([
+                [offset: 9, entries: ['b2'], compacted: true, execCompleted: true, completed: true, execState: 'succeeded'],
+        ])
+        def nodes = new ConcurrentHashMap()
+        def follower = new MultiFollower(
+                client,
+                new OutputMultiplexer(new Collect(), OutputMultiplexer.Mode.INTERLEAVED),
+                { CommandOutput out, entries -> entries.each { nodes[it.log] = it.node } },
+                { -> PollScheduler.create(0, 20) },
+                2
+        )
+
+        when:
+        follower.follow('1', null, new ExecOutput(offset: 1, compacted: true, entries: [new ExecLog(log: 'a1', node: 'node1')]))
+        follower.follow('2', null, new ExecOutput(offset: 8, compacted: true, entries: [new ExecLog(log: 'b1', node: 'node2')]))
+        follower.await()
+        follower.close()
+
+        then:
+        nodes == [a1: 'node1', a2: 'node1', b1: 'node2', b2: 'node2']
+    }
+
+    def "execution is detached when its output cannot be read"() {
+        given:
+        scripts['2'] = new ConcurrentLinkedQueue([
+                [offset: 9, entries: [], execCompleted: true, completed: true, execState: 'succeeded'],
+        ])
+        def output = new Collect()
+        def follower = follower(output)
+
+        when:
+        follower.follow('1', '[1] ', new ExecOutput(offset: 1, entries: []))
+        follower.follow('2', '[2] ', new ExecOutput(offset: 8, entries: []))
+        def finished = follower.await()
+        follower.close()
+
+        then:
+        finished
+        follower.streams[0].error != null
+        !follower.streams[0].succeeded
+        follower.streams[1].succeeded
+        output.err.any { it.startsWith('[1] Failed to read output of execution 1') }
+    }
+
+    def "transient failures are retried from the same offset"() {
+        given:
+        scripts['1'] = new ConcurrentLinkedQueue([
+                [status: 503],
+                [status: 502],
+                [offset: 2, entries: [[log: 'a2']], execCompleted: true, completed: true, execState: 'succeeded'],
+        ])
+        scripts['2'] = new ConcurrentLinkedQueue([
+                [status: 503],
+                [status: 503],
+                [status: 503],
+        ])
+        def output = new Collect()
+        def follower = new MultiFollower(
+                client,
+                new OutputMultiplexer(output, OutputMultiplexer.Mode.INTERLEAVED),
+                { CommandOutput out, entries -> entries.each { out.output(it.log) } },
+                { -> PollScheduler.create(0, 20) },
+                2,
+                { Exception e -> e instanceof RequestFailed && e.statusCode >= 500 },
+                2
+        )
+
+        when:
+        follower.follow('1', '[1] ', new ExecOutput(offset: 1, lastModified: 5, entries: []))
+        follower.follow('2', '[2] ', new ExecOutput(offset: 8, entries: []))
+        def finished = follower.await()
+        follower.close()
+        def paths = (1..server.requestCount).collect { server.takeRequest().path }
+
+        then:
+        finished
+        follower.streams[0].succeeded
+        follower.streams[0].error == null
+        output.out == ['[1] a2']
+        paths.count { it.startsWith('/api/19/execution/1/output?offset=1&lastmod=5&') } == 3
+        //detached after the retries
+        follower.streams[1].error != null
+        paths.count { it.startsWith('/api/19/execution/2/output?offset=8&') } == 3
+        output.err.any { it.startsWith('[2] Failed to read output of execution 2') }
+    }
+
+    def "the same execution is followed once"() {
+        given:
+        scripts['1'] = new ConcurrentLinkedQueue([
+                [offset: 2, entries: [], execCompleted: true, completed: true, execState: 'succeeded'],
+        ])
+        def follower = follower(new Collect())
+
+        when:
+        def first = follower.follow('1', null, new ExecOutput(offset: 1, entries: []))
+        def second = follower.follow('1', null, new ExecOutput(offset: 1, entries: []))
+        follower.await()
+        follower.close()
+
+        then:
+        first
+        !second
+        follower.streams.size() == 1
+    }
+
+    def "detached executions can be forgotten"() {
+        given:
+        scripts['1'] = new ConcurrentLinkedQueue([
+                [offset: 2, entries: [], execCompleted: true, completed: true, execState: 'succeeded'],
+        ])
+        scripts['2'] = new ConcurrentLinkedQueue([
+                [offset: 9, entries: [], execCompleted: true, completed: true, execState: 'succeeded'],
+        ])
+        def follower = follower(new Collect())
+        follower.follow('1', null, new ExecOutput(offset: 1, entries: []))
+        follower.follow('2', null, new ExecOutput(offset: 8, entries: []))
+        follower.await()
+
+        when:
+        def forgotten = follower.forgetDetached(['2'])
+        follower.close()
+
+        then:
+        forgotten == 1
+        !follower.isFollowed('1')
+        follower.isFollowed('2')
+        follower.streams*.id == ['2']
+    }
+}
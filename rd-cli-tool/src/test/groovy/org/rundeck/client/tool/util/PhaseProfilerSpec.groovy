@@ -0,0 +1,128 @@
+package org.rundeck.client.tool.util
+
+import org.rundeck.client.tool.CommandOutput
+import spock.lang.Specification
+
+import java.util.function.LongSupplier
+
+class PhaseProfilerSpec extends Specification {
+    long nanos = 5_000_000
+    long classes = 100
+    long gc = 2
+
+    PhaseProfiler createProfiler() {
+        new PhaseProfiler(
+                { nanos } as LongSupplier,
+                [
+                        loadedClasses: { classes },
+                        gcMillis     : { gc },
+                        uptimeNanos  : { 50_000_000L }
+                ] as PhaseProfiler.Counters
+        )
+    }
+
+    def "records phases relative to jvm start"() {
+        given:
+        def profiler = createProfiler()
+
+        when:
+        def scope = profiler.start('config')
+        nanos += 10_000_000
+        classes += 30
+        gc += 1
+        scope.close()
+        scope.close()
+        def phases = profiler.phases
+
+        then:
+        phases*.name == ['jvm', 'config']
+        phases[0].offsetNanos == 0
+        phases[0].durationNanos == 50_000_000
+        phases[0].classes == 100
+        phases[0].gcMillis == 2
+        phases[1].offsetNanos == 50_000_000
+        phases[1].durationNanos == 10_000_000
+        phases[1].count == 1
+        phases[1].classes == 30
+        phases[1].gcMillis == 1
+    }
+
+    def "phases with the same name are merged"() {
+        given:
+        def profiler = createProfiler()
+
+        when:
+        2.times {
+            def scope = profiler.start('output')
+            nanos += 1_000_000
+            classes += 2
+            scope.close()
+            nanos += 5_000_000
+        }
+        profiler.record('http RundeckApi.listProjects', nanos, 3_000_000, -1, -1)
+        def phases = profiler.phases
+
+        then:
+        phases*.name == ['jvm', 'output', 'http RundeckApi.listProjects']
+        phases[1].count == 2
+        phases[1].durationNanos == 2_000_000
+        phases[1].classes == 4
+        phases[2].offsetNanos == 62_000_000
+        phases[2].classes == -1
+        phases[2].toMap() == [phase: 'http RundeckApi.listProjects', startMillis: 62.0d, durationMillis: 3.0d, count: 1]
+        profiler.toMap().totalMillis == 65.0d
+    }
+
+    def "waterfall output"() {
+        given:
+        def profiler = createProfiler()
+        def scope = profiler.start('execute')
+        nanos += 50_000_000
+        scope.close()
+
+        when:
+        def lines = profiler.waterfall(10)
+
+        then:
+        lines == [
+                '# Profile: 100.0ms',
+                '# jvm          0.0ms     50.0ms |#####     | classes=100 gc=2ms',
+                '# execute     50.0ms     50.0ms |     #####| classes=0 gc=0ms',
+        ]
+    }
+
+    def "disabled profiler records nothing"() {
+        given:
+        def profiler = PhaseProfiler.create(mode)
+        def output = Mock(CommandOutput)
+
+        when:
+        profiler.start('config').close()
+        profiler.record('x', 0, 1, 0, 0)
+
+        then:
+        !profiler.enabled
+        profiler.phases == []
+        profiler.wrap(output).is(output)
+
+        where:
+        mode << [null, '0', 'false']
+    }
+
+    def "wrapped output is recorded"() {
+        given:
+        def profiler = createProfiler()
+        def output = Mock(CommandOutput)
+        def wrapped = profiler.wrap(output)
+
+        when:
+        wrapped.output('a')
+        wrapped.warning('b')
+
+        then:
+        1 * output.output('a') >> { nanos += 1_000_000 }
+        1 * output.warning('b') >> { nanos += 1_000_000 }
+        profiler.phases.find { it.name == 'output' }.count == 2
+        profiler.phases.find { it.name == 'output' }.durationNanos == 2_000_000
+    }
+}
@@ -0,0 +1,193 @@
+package org.rundeck.client.tool.util
+
+import spock.lang.Specification
+
+class PollSchedulerSpec extends Specification {
+    /**
+     * Clock which advances only when sleeping
+     */
+    static class VirtualClock implements PollScheduler.Clock {
+        long now
+        List<Long> sleeps = []
+
+        @Override
+        long millis() {
+            now
+        }
+
+        @Override
+        void sleep(long millis) {
+            sleeps << millis
+            now += millis
+        }
+    }
+
+    /**
+     * No jitter
+     */
+    static class MidRandom extends Random {
+        @Override
+        double nextDouble() {
+            0.5d
+        }
+    }
+
+    def "idle log backs off exponentially up to the maximum"() {
+        given:
+        def clock = new VirtualClock()
+        def scheduler = new PollScheduler(500, 8000, clock, new MidRandom())
+
+        when:
+        6.times {
+            scheduler.received(0, 100)
+            scheduler.await()
+        }
+
+        then:
+        clock.sleeps == [1000L, 2000L, 4000L, 8000L, 8000L, 8000L]
+    }
+
+    def "interval shortens when entries arrive and drops to the minimum when behind"() {
+        given:
+        def clock = new VirtualClock()
+        def scheduler = new PollScheduler(500, 8000, clock, new MidRandom())
+        4.times {
+            scheduler.await()
+            scheduler.received(0, 100)
+        }
+
+        expect:
+        scheduler.interval == 8000
+
+        when:
+        scheduler.await()
+        scheduler.received(10, 100)
+
+        then:
+        scheduler.interval == 4000
+
+        when:
+        scheduler.await()
+        scheduler.received(10, 100)
+
+        then:
+        scheduler.interval == 2000
+        scheduler.maxLines == PollScheduler.DEFAULT_MAX_LINES
+
+        when:
+        scheduler.await()
+        scheduler.received(PollScheduler.DEFAULT_MAX_LINES as int, 100)
+
+        then:
+        scheduler.interval == 500
+    }
+
+    def "server still loading the log polls at the minimum"() {
+        given:
+        def clock = new VirtualClock()
+        def scheduler = new PollScheduler(500, 8000, clock, new MidRandom())
+        4.times { scheduler.received(0, 100) }
+
+        when:
+        scheduler.received(0, 40.5f)
+
+        then:
+        scheduler.interval == 500
+    }
+
+    def "jitter stays within bounds"() {
+        given:
+        def clock = new VirtualClock()
+        def scheduler = new PollScheduler(500, 8000, clock, new Random(42))
+        2.times { scheduler.received(0, 100) }
+
+        when:
+        def delays = (1..1000).collect { scheduler.nextDelay() }
+
+        then:
+        scheduler.interval == 2000
+        delays.every { it >= 1600 && it <= 2400 }
+        delays.toSet().size() > 100
+
+        when:
+        5.times { scheduler.received(0, 100) }
+        delays = (1..1000).collect { scheduler.nextDelay() }
+
+        then:
+        scheduler.interval == 8000
+        delays.every { it >= 6400 && it <= 8000 }
+    }
+
+    def "max lines follows the line rate"() {
+        given:
+        def clock = new VirtualClock()
+        def scheduler = new PollScheduler(500, 8000, clock, new MidRandom())
+
+        when:
+        clock.now += 1000
+        scheduler.received(3000, 100)
+
+        then:
+        scheduler.lineRate == 1500d
+        scheduler.interval == 500
+        scheduler.maxLines == 1500
+
+        when:
+        clock.now += 500
+        scheduler.received(1500, 100)
+
+        then:
+        scheduler.lineRate == 2250d
+        scheduler.maxLines == 2250
+
+        when:
+        clock.now += 100
+        scheduler.received(2250, 100)
+
+        then:
+        scheduler.maxLines == PollScheduler.MAX_LINES_LIMIT
+
+        when:
+        5.times {
+            scheduler.await()
+            scheduler.received(0, 100)
+        }
+
+        then:
+        scheduler.maxLines == PollScheduler.DEFAULT_MAX_LINES
+    }
+
+    def "max lines stays within the limit"() {
+        given:
+        def clock = new VirtualClock()
+        def scheduler = new PollScheduler(500, 8000, 1000, clock, new MidRandom())
+
+        when:
+        clock.now += 100
+        scheduler.received(1000, 100)
+
+        then:
+        scheduler.maxLines == 1000
+    }
+
+    def "invalid max lines limit"() {
+        when:
+        new PollScheduler(500, 8000, PollScheduler.DEFAULT_MAX_LINES - 1, new VirtualClock(), new Random())
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "invalid interval"() {
+        when:
+        new PollScheduler(min, max, new VirtualClock(), new Random())
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        min  | max
+        -1   | 100
+        1000 | 500
+    }
+}
@@ -0,0 +1,137 @@
+package org.rundeck.client.tool.util
+
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class ResourcesSpec extends Specification {
+    def "shared resource is closed when the last reference is released"() {
+        given:
+        def resources = new Resources()
+        def closed = 0
+        def resource = { closed++ } as Closeable
+
+        when:
+        def ref1 = resources.acquire('a') { resource }
+        def ref2 = resources.acquire('a') { throw new IllegalStateException('not created again') }
+        ref1.close()
+        ref1.close()
+
+        then:
+        ref2.get().is(resource)
+        resources.referenceCount('a') == 1
+        closed == 0
+
+        when:
+        ref2.close()
+
+        then:
+        resources.referenceCount('a') == 0
+        closed == 1
+    }
+
+    def "retained resources stay open until evicted as least recently used"() {
+        given:
+        def resources = new Resources()
+        def closed = []
+        def factory = { String key -> { -> ({ closed << key } as Closeable) } }
+
+        when:
+        resources.acquireRetained('a', factory('a'), 2).close()
+        resources.acquireRetained('b', factory('b'), 2).close()
+        def again = resources.acquireRetained('a', { throw new IllegalStateException('not created again') }, 2)
+        again.close()
+
+        then:
+        closed == []
+        resources.referenceCount('a') == 1
+        resources.referenceCount('b') == 1
+
+        when:
+        def ref = resources.acquireRetained('c', factory('c'), 2)
+
+        then:
+        closed == ['b']
+        resources.referenceCount('b') == 0
+
+        when:
+        //an evicted resource in use is closed when released
+        def inUse = resources.acquire('a') { throw new IllegalStateException('not created again') }
+        resources.acquireRetained('d', factory('d'), 2).close()
+        resources.acquireRetained('e', factory('e'), 2).close()
+
+        then:
+        closed == ['b']
+
+        when:
+        inUse.close()
+        ref.close()
+        resources.close()
+
+        then:
+        closed.sort() == ['a', 'b', 'c', 'd', 'e']
+    }
+
+    def "concurrent acquire and release"() {
+        given:
+        def resources = new Resources()
+        def created = new AtomicInteger()
+        def closed = new AtomicInteger()
+        def executor = Executors.newFixedThreadPool(16)
+        def start = new CountDownLatch(1)
+        def holder = resources.acquire('a') {
+            created.incrementAndGet()
+            ({ closed.incrementAndGet() } as Closeable)
+        }
+
+        when:
+        def futures = (1..5000).collect {
+            executor.submit({
+                start.await()
+                def ref = resources.acquire('a') {
+                    created.incrementAndGet()
+                    ({ closed.incrementAndGet() } as Closeable)
+                }
+                ref.close()
+                true
+            } as Callable<Boolean>)
+        }
+        start.countDown()
+        futures*.get(30, TimeUnit.SECONDS)
+
+        then:
+        created.get() == 1
+        closed.get() == 0
+        resources.referenceCount('a') == 1
+
+        when:
+        holder.close()
+
+        then:
+        closed.get() == 1
+        resources.referenceCount('a') == 0
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def "close closes all resources once"() {
+        given:
+        def resources = new Resources()
+        def closed = new AtomicInteger()
+        resources.add({ closed.incrementAndGet() } as Closeable)
+        def ref = resources.acquire('a') { ({ closed.incrementAndGet() } as Closeable) }
+
+        when:
+        resources.close()
+        ref.close()
+        resources.close()
+
+        then:
+        closed.get() == 2
+    }
+}
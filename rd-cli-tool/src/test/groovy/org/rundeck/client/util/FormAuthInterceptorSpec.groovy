@@ -4,6 +4,10 @@ import okhttp3.*
 import org.rundeck.client.api.LoginFailed
 import spock.lang.Specification
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
+
 /**
  * @author greg
  * @since 5/24/17
@@ -369,4 +373,184 @@ class FormAuthInterceptorSpec extends Specification {
         starturl                    | _
         'http://host/path/api/blah' | _
     }
+
+    def "form auth with stored session reuses session"() {
+        given:
+        String baseurl = 'http://host/base/path/'
+        def store = new FormAuthSessionStore(File.createTempDir())
+        store.save(HttpUrl.get(baseurl), 'auser', [Cookie.parse(HttpUrl.get(baseurl), 'JSESSIONID=abc; path=/')])
+        def jar = new JavaNetCookieJar(new java.net.CookieManager())
+        def sut = new FormAuthInterceptor(
+                'auser',
+                'apass',
+                baseurl,
+                baseurl + 'j_security_check',
+                'j_username',
+                'j_password',
+                '/login/error'
+        ).sessionStore(jar, store)
+
+        def firstrequest = new Request.Builder().url('http://host/base/path/api/blah').build()
+        def chain = Mock(Interceptor.Chain)
+        def okresponse = new Response.Builder().with {
+            request firstrequest
+            protocol Protocol.HTTP_1_1
+            code 200
+            message 'ok'
+            body ResponseBody.create(MediaType.parse('application/json'), '{}')
+            build()
+        }
+
+        when:
+        def response = sut.intercept(chain)
+
+        then:
+        1 * chain.proceed(firstrequest) >> okresponse
+        _ * chain.request() >> firstrequest
+        0 * chain._(*_)
+        response == okresponse
+        jar.loadForRequest(HttpUrl.get(baseurl))*.value() == ['abc']
+    }
+
+    def "form auth with stored session not valid logs in and stores new session"() {
+        given:
+        String baseurl = 'http://host/base/path/'
+        String securityurl = baseurl + 'j_security_check'
+        def url = HttpUrl.get(baseurl)
+        def store = new FormAuthSessionStore(File.createTempDir())
+        store.save(url, 'auser', [Cookie.parse(url, 'JSESSIONID=abc; path=/')])
+        def jar = new JavaNetCookieJar(new java.net.CookieManager())
+        def sut = new FormAuthInterceptor(
+                'auser',
+                'apass',
+                baseurl,
+                securityurl,
+                'j_username',
+                'j_password',
+                '/login/error'
+        ).sessionStore(jar, store)
+
+        def firstrequest = new Request.Builder().url('http://host/base/path/api/blah').build()
+        def chain = Mock(Interceptor.Chain)
+        def makeResponse = { int status ->
+            new Response.Builder().with {
+                request firstrequest
+                protocol Protocol.HTTP_1_1
+                code status
+                message 'msg'
+                body ResponseBody.create(MediaType.parse('application/json'), '{}')
+                build()
+            }
+        }
+        def okresponse = makeResponse(200)
+
+        when:
+        def response = sut.intercept(chain)
+
+        then:
+        2 * chain.proceed(firstrequest) >>> [makeResponse(statusCode), okresponse]
+        1 * chain.proceed({ req -> req.url().toString() == baseurl }) >> makeResponse(200)
+        1 * chain.proceed({ req -> req.url().toString() == securityurl }) >> {
+            jar.saveFromResponse(url, [Cookie.parse(url, 'JSESSIONID=def; path=/')])
+            makeResponse(200)
+        }
+        _ * chain.request() >> firstrequest
+        0 * chain._(*_)
+        response == okresponse
+        store.load(url, 'auser')*.value() == ['def']
+
+        where:
+        statusCode | _
+        401        | _
+    }
+
+    def "form auth with stored session returns an authorization failure without logging in"() {
+        given:
+        String baseurl = 'http://host/base/path/'
+        def url = HttpUrl.get(baseurl)
+        def store = new FormAuthSessionStore(File.createTempDir())
+        store.save(url, 'auser', [Cookie.parse(url, 'JSESSIONID=abc; path=/')])
+        def jar = new JavaNetCookieJar(new java.net.CookieManager())
+        def sut = new FormAuthInterceptor(
+                'auser',
+                'apass',
+                baseurl,
+                baseurl + 'j_security_check',
+                'j_username',
+                'j_password',
+                '/login/error'
+        ).sessionStore(jar, store)
+
+        def firstrequest = new Request.Builder().url('http://host/base/path/api/blah').build()
+        def chain = Mock(Interceptor.Chain)
+        def forbidden = new Response.Builder().with {
+            request firstrequest
+            protocol Protocol.HTTP_1_1
+            code 403
+            message 'forbidden'
+            body ResponseBody.create(MediaType.parse('application/json'), '{"error":true}')
+            build()
+        }
+
+        when:
+        def response = sut.intercept(chain)
+
+        then:
+        1 * chain.proceed(firstrequest) >> forbidden
+        _ * chain.request() >> firstrequest
+        0 * chain._(*_)
+        response == forbidden
+        store.load(url, 'auser')*.value() == ['abc']
+    }
+
+    def "concurrent requests without a session log in once"() {
+        given:
+        String baseurl = 'http://host/base/path/'
+        String securityurl = baseurl + 'j_security_check'
+        def sut = new FormAuthInterceptor(
+                'auser',
+                'apass',
+                baseurl,
+                securityurl,
+                'j_username',
+                'j_password',
+                '/login/error'
+        )
+
+        def firstrequest = new Request.Builder().url('http://host/base/path/api/blah').build()
+        def logins = new AtomicInteger()
+        def chain = [
+                request: { -> firstrequest },
+                proceed: { Request req ->
+                    if (req.url().toString() == securityurl) {
+                        logins.incrementAndGet()
+                        Thread.sleep(100)
+                    }
+                    new Response.Builder().with {
+                        request req
+                        protocol Protocol.HTTP_1_1
+                        code 200
+                        message 'ok'
+                        body ResponseBody.create(MediaType.parse('application/json'), '{}')
+                        build()
+                    }
+                }
+        ] as Interceptor.Chain
+        def start = new CountDownLatch(1)
+        def codes = new CopyOnWriteArrayList<Integer>()
+        def threads = (1..8).collect {
+            Thread.start {
+                start.await()
+                codes << sut.intercept(chain).code()
+            }
+        }
+
+        when:
+        start.countDown()
+        threads*.join()
+
+        then:
+        logins.get() == 1
+        codes == [200] * 8
+    }
 }